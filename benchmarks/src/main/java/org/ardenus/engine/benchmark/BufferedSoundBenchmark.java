@@ -0,0 +1,59 @@
+package org.ardenus.engine.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.ardenus.engine.audio.sound.BufferedSound;
+import org.ardenus.engine.audio.wav.WaveFile;
+import org.ardenus.engine.benchmark.Fixtures.Format;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BufferedSound#loadData(org.ardenus.engine.audio.AudioSource)},
+ * which reads an entire audio source into a direct buffer. No OpenAL calls are
+ * made by this method, so no audio device is required.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BufferedSoundBenchmark {
+
+	@Param({ "MONO16", "STEREO16" })
+	public Format format;
+
+	@Param({ "0.5", "5" })
+	public float seconds;
+
+	private WaveFile wav;
+
+	@Setup
+	public void setup() throws IOException {
+		this.wav = new WaveFile(Fixtures.wave(format, seconds));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		wav.close();
+	}
+
+	@Benchmark
+	public ByteBuffer loadData() throws IOException {
+		return BufferedSound.loadData(wav);
+	}
+
+}
@@ -0,0 +1,118 @@
+package org.ardenus.engine.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ardenus.engine.graphics.draw.DrawCommand;
+import org.ardenus.engine.graphics.draw.DrawList;
+import org.ardenus.engine.graphics.draw.RadixSort;
+import org.ardenus.engine.graphics.draw.SortKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the CPU side of a {@code DrawList}, which is recording a frame of
+ * draw commands, merging the buffers they were recorded into, and sorting
+ * them. The commands are never executed, so no graphics context is required.
+ * The score is the time taken per frame.
+ * <p>
+ * The radix sort is also compared against {@link Arrays#sort(long[])} on the
+ * same keys, which sorts keys alone rather than keys with their commands.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DrawListBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int commands;
+
+	private static final DrawCommand NO_OP = (key, data) -> {
+		/* never executed */
+	};
+
+	private DrawList list;
+	private List<Integer> sources;
+	private long[] keys;
+	private long[] sortKeys;
+	private int[] values;
+	private long[] keysTemp;
+	private int[] valuesTemp;
+
+	@Setup
+	public void setup() {
+		this.list = new DrawList();
+		this.sources = new ArrayList<>();
+		this.keys = new long[commands];
+
+		/*
+		 * A handful of layers and programs with many textures, much like a
+		 * real scene, so that the upper bytes of the keys are mostly shared.
+		 */
+		Random random = new Random(0x5EED);
+		for (int i = 0; i < commands; i++) {
+			sources.add(i);
+			keys[i] = SortKey.of(random.nextInt(4), random.nextInt(8),
+					random.nextInt(512),
+					SortKey.quantizeDepth(random.nextFloat()));
+		}
+
+		this.sortKeys = new long[commands];
+		this.values = new int[commands];
+		this.keysTemp = new long[commands];
+		this.valuesTemp = new int[commands];
+	}
+
+	private long recordFrame(boolean parallel) throws Exception {
+		list.clear();
+		list.record(sources, (source, buffer) -> {
+			buffer.add(keys[source], NO_OP, source);
+		}, parallel);
+		list.sort();
+		return list.getKey(list.size() - 1);
+	}
+
+	@Benchmark
+	public long recordSerial() throws Exception {
+		return this.recordFrame(false);
+	}
+
+	@Benchmark
+	public long recordParallel() throws Exception {
+		return this.recordFrame(true);
+	}
+
+	@Benchmark
+	public long radixSort() {
+		System.arraycopy(keys, 0, sortKeys, 0, commands);
+		for (int i = 0; i < commands; i++) {
+			values[i] = i;
+		}
+		RadixSort.sort(sortKeys, values, commands, keysTemp, valuesTemp);
+		return sortKeys[commands - 1];
+	}
+
+	@Benchmark
+	public long arraysSort() {
+		/* the keys never have their top bit set, so signed order is fine */
+		System.arraycopy(keys, 0, sortKeys, 0, commands);
+		Arrays.sort(sortKeys, 0, commands);
+		return sortKeys[commands - 1];
+	}
+
+}
@@ -0,0 +1,212 @@
+package org.ardenus.engine.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates the files that benchmarks are run against.
+ * <p>
+ * Fixtures are written to a temporary directory the first time they are
+ * requested and reused for the rest of the JVM's lifetime. Their contents are
+ * deterministic, so results are comparable between runs.
+ */
+public final class Fixtures {
+
+	/**
+	 * The PCM formats which {@code WAV} fixtures can be generated in.
+	 */
+	public enum Format {
+
+		MONO8(1, 8), MONO16(1, 16), STEREO8(2, 8), STEREO16(2, 16);
+
+		public final int channelCount;
+		public final int bitsPerSample;
+
+		private Format(int channelCount, int bitsPerSample) {
+			this.channelCount = channelCount;
+			this.bitsPerSample = bitsPerSample;
+		}
+
+	}
+
+	public static final int SAMPLE_RATE = 44100;
+
+	private static final int CHUNK_HEADER_LEN = 8;
+	private static final int FMT_LEN = 16;
+	private static final int EXTRA_CHUNK_LEN = 32;
+	private static final double TONE_HZ = 440.0D;
+
+	private static final Map<String, File> FILES = new HashMap<>();
+	private static File dir;
+
+	private Fixtures() {
+		/* static class */
+	}
+
+	private static File dir() throws IOException {
+		if (dir == null) {
+			dir = Files.createTempDirectory("ardenus-bench").toFile();
+			dir.deleteOnExit();
+		}
+		return dir;
+	}
+
+	private static ByteBuffer header(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void putId(ByteBuffer buf, String id) {
+		for (int i = 0; i < 4; i++) {
+			buf.put((byte) id.charAt(i));
+		}
+	}
+
+	/**
+	 * Writes a tone with a small amount of noise mixed in, so the data is not
+	 * trivially repetitive.
+	 */
+	private static void writePCM(OutputStream out, Format format,
+			int frames) throws IOException {
+		Random noise = new Random(0x41524445L);
+		int bytesPerSample = format.bitsPerSample / Byte.SIZE;
+		ByteBuffer block = header(4096 * format.channelCount * bytesPerSample);
+
+		for (int frame = 0; frame < frames; frame++) {
+			double t = frame / (double) SAMPLE_RATE;
+			double value = Math.sin(2.0D * Math.PI * TONE_HZ * t) * 0.8D
+					+ (noise.nextDouble() - 0.5D) * 0.1D;
+			for (int c = 0; c < format.channelCount; c++) {
+				if (bytesPerSample == 1) {
+					block.put((byte) (128 + (int) (value * 127.0D)));
+				} else {
+					block.putShort((short) (value * Short.MAX_VALUE));
+				}
+			}
+
+			if (!block.hasRemaining()) {
+				out.write(block.array(), 0, block.position());
+				block.clear();
+			}
+		}
+		out.write(block.array(), 0, block.position());
+	}
+
+	/**
+	 * @param format
+	 *            the PCM format.
+	 * @param seconds
+	 *            the length of the audio in seconds.
+	 * @param extraChunks
+	 *            how many filler chunks to place between the {@code "fmt "}
+	 *            and {@code "data"} chunks. These exist to measure chunk
+	 *            scanning when opening a {@code RIFF} file.
+	 * @return the generated {@code WAV} file.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public static synchronized File wave(Format format, float seconds,
+			int extraChunks) throws IOException {
+		String name = format.name().toLowerCase() + "_" + seconds + "s_"
+				+ extraChunks + "c.wav";
+		File file = FILES.get(name);
+		if (file != null) {
+			return file;
+		}
+
+		int frames = (int) (seconds * SAMPLE_RATE);
+		int blockAlign = format.channelCount * format.bitsPerSample / Byte.SIZE;
+		int dataSize = frames * blockAlign;
+		int riffSize = 4 + (CHUNK_HEADER_LEN + FMT_LEN)
+				+ extraChunks * (CHUNK_HEADER_LEN + EXTRA_CHUNK_LEN)
+				+ (CHUNK_HEADER_LEN + dataSize);
+
+		file = new File(dir(), name);
+		file.deleteOnExit();
+		try (OutputStream out = new BufferedOutputStream(
+				new FileOutputStream(file))) {
+			ByteBuffer riff = header(12 + CHUNK_HEADER_LEN + FMT_LEN);
+			putId(riff, "RIFF");
+			riff.putInt(riffSize);
+			putId(riff, "WAVE");
+			putId(riff, "fmt ");
+			riff.putInt(FMT_LEN);
+			riff.putShort((short) 1); /* PCM */
+			riff.putShort((short) format.channelCount);
+			riff.putInt(SAMPLE_RATE);
+			riff.putInt(SAMPLE_RATE * blockAlign);
+			riff.putShort((short) blockAlign);
+			riff.putShort((short) format.bitsPerSample);
+			out.write(riff.array());
+
+			for (int i = 0; i < extraChunks; i++) {
+				ByteBuffer extra = header(CHUNK_HEADER_LEN + EXTRA_CHUNK_LEN);
+				putId(extra, String.format("x%03d", i % 1000));
+				extra.putInt(EXTRA_CHUNK_LEN);
+				out.write(extra.array());
+			}
+
+			ByteBuffer data = header(CHUNK_HEADER_LEN);
+			putId(data, "data");
+			data.putInt(dataSize);
+			out.write(data.array());
+			writePCM(out, format, frames);
+		}
+
+		FILES.put(name, file);
+		return file;
+	}
+
+	/**
+	 * This method is a shorthand for {@link #wave(Format, float, int)}, with
+	 * the argument for {@code extraChunks} being {@code 0}.
+	 *
+	 * @param format
+	 *            the PCM format.
+	 * @param seconds
+	 *            the length of the audio in seconds.
+	 * @return the generated {@code WAV} file.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public static File wave(Format format, float seconds) throws IOException {
+		return wave(format, seconds, 0);
+	}
+
+	/**
+	 * There is no pure Java Vorbis encoder available to generate these, so
+	 * {@code OGG} fixtures must be supplied by whoever runs the benchmarks.
+	 * They are specified either with the {@code file} benchmark parameter or
+	 * the {@code ardenus.bench.vorbis} system property.
+	 *
+	 * @param path
+	 *            the path given by the benchmark parameter, may be empty.
+	 * @return the {@code OGG} Vorbis file.
+	 * @throws IllegalStateException
+	 *             if no file was specified or it does not exist.
+	 */
+	public static File vorbis(String path) {
+		if (path == null || path.isEmpty()) {
+			path = System.getProperty("ardenus.bench.vorbis");
+		}
+		if (path == null) {
+			throw new IllegalStateException("no Vorbis fixture, specify one"
+					+ " with -p file=<path> or -Dardenus.bench.vorbis=<path>");
+		}
+
+		File file = new File(path);
+		if (!file.isFile()) {
+			throw new IllegalStateException("no such file " + path);
+		}
+		return file;
+	}
+
+}
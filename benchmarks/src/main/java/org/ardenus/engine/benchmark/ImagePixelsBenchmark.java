@@ -0,0 +1,100 @@
+package org.ardenus.engine.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ardenus.engine.graphics.ImagePixels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversion of a {@link BufferedImage} into the RGBA buffer
+ * which is uploaded to an OpenGL texture. No OpenGL calls are made, so no
+ * graphics context is required. The score is the time taken per image.
+ * <p>
+ * {@code perPixel} is the conversion {@code Image} used to do, reading each
+ * pixel with {@code getRGB(x, y)} and writing it one byte at a time. It is
+ * kept here as a baseline for {@link ImagePixels#toRGBA(BufferedImage,
+ * ByteBuffer)}. {@code INT_ARGB_PRE} has no direct path, and shows the cost
+ * of the fallback.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ImagePixelsBenchmark {
+
+	public static enum Type {
+
+		INT_ARGB(BufferedImage.TYPE_INT_ARGB),
+		INT_RGB(BufferedImage.TYPE_INT_RGB),
+		BYTE_ABGR(BufferedImage.TYPE_4BYTE_ABGR),
+		BYTE_BGR(BufferedImage.TYPE_3BYTE_BGR),
+		INT_ARGB_PRE(BufferedImage.TYPE_INT_ARGB_PRE);
+
+		public final int imageType;
+
+		private Type(int imageType) {
+			this.imageType = imageType;
+		}
+
+	}
+
+	@Param({ "INT_ARGB", "INT_RGB", "BYTE_ABGR", "BYTE_BGR", "INT_ARGB_PRE" })
+	public Type type;
+
+	@Param({ "256", "2048" })
+	public int size;
+
+	private BufferedImage img;
+	private ByteBuffer buffer;
+
+	@Setup
+	public void setup() {
+		this.img = new BufferedImage(size, size, type.imageType);
+		Random random = new Random(0x5EED);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				img.setRGB(x, y, random.nextInt());
+			}
+		}
+		this.buffer = ByteBuffer.allocateDirect(size * size * Integer.BYTES);
+	}
+
+	@Benchmark
+	public ByteBuffer perPixel() {
+		buffer.clear();
+		for (int y = img.getHeight() - 1; y >= 0; y--) {
+			for (int x = 0; x < img.getWidth(); x++) {
+				int color = img.getRGB(x, y);
+				buffer.put((byte) ((color >> 0x10) & 0xFF));
+				buffer.put((byte) ((color >> 0x08) & 0xFF));
+				buffer.put((byte) ((color >> 0x00) & 0xFF));
+				buffer.put((byte) ((color >> 0x18) & 0xFF));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	@Benchmark
+	public ByteBuffer toRGBA() {
+		buffer.clear();
+		ImagePixels.toRGBA(img, buffer);
+		return buffer;
+	}
+
+}
@@ -0,0 +1,59 @@
+package org.ardenus.engine.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.ardenus.engine.audio.wav.WaveFile;
+import org.ardenus.engine.benchmark.Fixtures.Format;
+import org.ardenus.engine.io.riff.RiffChunkHeader;
+import org.ardenus.engine.io.riff.RiffFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures opening a {@code RIFF} container, which validates the header and
+ * scans every chunk header in the file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RiffFileBenchmark {
+
+	@Param({ "0", "64", "1024" })
+	public int extraChunks;
+
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		this.file = Fixtures.wave(Format.STEREO16, 1.0F, extraChunks);
+	}
+
+	@Benchmark
+	public RiffChunkHeader openRiff() throws IOException {
+		try (RiffFile riff = new RiffFile(file)) {
+			return riff.getChunkHeader("data");
+		}
+	}
+
+	@Benchmark
+	public int openWave() throws IOException {
+		try (WaveFile wav = new WaveFile(file)) {
+			return wav.getALFormat();
+		}
+	}
+
+}
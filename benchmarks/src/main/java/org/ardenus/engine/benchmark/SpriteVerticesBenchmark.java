@@ -0,0 +1,76 @@
+package org.ardenus.engine.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ardenus.engine.graphics.SpriteVertices;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the CPU side of a {@code SpriteBatch}, which is writing the quads
+ * of a frame of sprites into a vertex buffer. Whenever the buffer would be
+ * drawn, it is cleared instead, so no graphics context is required. The score
+ * is the time taken per frame.
+ * <p>
+ * Sprites are grouped into runs which share a texture. Shorter runs mean more
+ * texture changes, and so more draws per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SpriteVerticesBenchmark {
+
+	@Param({ "20000" })
+	public int sprites;
+
+	@Param({ "1", "64", "20000" })
+	public int run;
+
+	@Param({ "4096" })
+	public int capacity;
+
+	private SpriteVertices vertices;
+	private float[] positions;
+	private int color;
+
+	@Setup
+	public void setup() {
+		this.vertices = new SpriteVertices(capacity);
+		this.positions = new float[sprites * 2];
+		Random random = new Random(0x5EED);
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = random.nextFloat() * 1920.0F;
+		}
+		this.color = SpriteVertices.packColor(1.0F, 1.0F, 1.0F, 0.5F);
+	}
+
+	@Benchmark
+	public int writeFrame() {
+		int draws = 0;
+		vertices.clear();
+		for (int i = 0; i < sprites; i++) {
+			int h_glTexture = 1 + i / run;
+			if (vertices.accepts(h_glTexture) == false) {
+				vertices.clear();
+				draws++;
+			}
+			vertices.put(h_glTexture, positions[i * 2], positions[i * 2 + 1],
+					32.0F, 32.0F, 0.0F, 0.0F, 1.0F, 1.0F, color);
+		}
+		return draws + 1;
+	}
+
+}
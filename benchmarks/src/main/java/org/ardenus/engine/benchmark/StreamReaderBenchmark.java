@@ -0,0 +1,89 @@
+package org.ardenus.engine.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.ardenus.engine.audio.sound.SoundSection;
+import org.ardenus.engine.audio.sound.StreamReader;
+import org.ardenus.engine.audio.wav.WaveFile;
+import org.ardenus.engine.benchmark.Fixtures.Format;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the CPU side of refilling a {@code StreamedSound} buffer, which is
+ * everything done by {@code fillAndQueue()} before the data is handed to
+ * OpenAL. The score is the time taken per refill.
+ * <p>
+ * A constrained, looping reader splices its cached loop head at the loop
+ * point. Comparing it to the constrained, non-looping reader shows the cost
+ * of seeking back to the start of the section on each loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StreamReaderBenchmark {
+
+	private static final int REFILLS = 64;
+
+	@Param({ "MONO16", "STEREO16" })
+	public Format format;
+
+	@Param({ "4096", "16384", "176400" })
+	public int bufSize;
+
+	@Param({ "false", "true" })
+	public boolean constrained;
+
+	@Param({ "false", "true" })
+	public boolean looping;
+
+	private WaveFile wav;
+	private StreamReader reader;
+
+	@Setup
+	public void setup() throws IOException {
+		this.wav = new WaveFile(Fixtures.wave(format, 10.0F));
+		this.reader = new StreamReader(wav, bufSize);
+		reader.setLooping(looping);
+		if (constrained == true) {
+			reader.constrain(new SoundSection(2.0F, 0.5F));
+			reader.setReadPos(reader.getSectionStart());
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		wav.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REFILLS)
+	public void refill(Blackhole bh) throws IOException {
+		for (int i = 0; i < REFILLS; i++) {
+			ByteBuffer pcm = reader.read();
+			if (pcm == null) {
+				reader.setReadPos(0); /* loop, as a looping sound would */
+				continue;
+			}
+			bh.consume(pcm.limit());
+		}
+	}
+
+}
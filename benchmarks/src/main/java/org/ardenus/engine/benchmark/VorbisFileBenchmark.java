@@ -0,0 +1,64 @@
+package org.ardenus.engine.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.ardenus.engine.audio.vorbis.VorbisFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures decoding the entire PCM data of a {@link VorbisFile}, one block at
+ * a time, the same way a {@code StreamedSound} would.
+ * <p>
+ * The file to decode must be supplied by the caller, see
+ * {@link Fixtures#vorbis(String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VorbisFileBenchmark {
+
+	@Param({ "" })
+	public String file;
+
+	@Param({ "4096", "176400" })
+	public int blockSize;
+
+	private VorbisFile vorbis;
+	private byte[] buf;
+
+	@Setup
+	public void setup() throws IOException {
+		this.vorbis = new VorbisFile(Fixtures.vorbis(file));
+		this.buf = new byte[blockSize];
+	}
+
+	@TearDown
+	public void tearDown() {
+		vorbis.close();
+	}
+
+	@Benchmark
+	public int readPCM() throws IOException {
+		int offset = 0, read = 0;
+		while ((read = vorbis.readPCM(offset, buf, buf.length)) != -1) {
+			offset += read;
+		}
+		return offset;
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.ardenus.engine.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.ardenus.engine.audio.wav.WaveFile;
+import org.ardenus.engine.benchmark.Fixtures.Format;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading the entire PCM data of a {@link WaveFile}, one block at a
+ * time, the same way a {@code StreamedSound} would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WaveFileBenchmark {
+
+	@Param({ "MONO8", "MONO16", "STEREO16" })
+	public Format format;
+
+	@Param({ "1", "10", "60" })
+	public float seconds;
+
+	@Param({ "4096", "176400" })
+	public int blockSize;
+
+	private WaveFile wav;
+	private byte[] buf;
+
+	@Setup
+	public void setup() throws IOException {
+		this.wav = new WaveFile(Fixtures.wave(format, seconds));
+		this.buf = new byte[blockSize];
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		wav.close();
+	}
+
+	@Benchmark
+	public int readPCM() throws IOException {
+		int offset = 0, read = 0;
+		while ((read = wav.readPCM(offset, buf, buf.length)) != -1) {
+			offset += read;
+		}
+		return offset;
+	}
+
+}
@@ -0,0 +1,14 @@
+#version 430
+
+#define IMG_UV_ID    3
+#define IMG_COLOR_ID 4
+
+layout (location = IMG_UV_ID)    in vec2 texture_uvFrag;
+layout (location = IMG_COLOR_ID) in vec4 colorFrag;
+
+layout (binding = 0) uniform sampler2D img_sampler;
+
+void main() {
+	vec4 pixel = texture(img_sampler, texture_uvFrag);
+	gl_FragColor = pixel * colorFrag;
+}
@@ -0,0 +1,35 @@
+#version 430
+
+#define IMG_CORNER_ID 0
+#define IMG_POS_ID    1
+#define IMG_SCALE_ID  2
+#define IMG_UV_ID     3
+#define IMG_COLOR_ID  4
+
+#define AE_ORTHO_LOC 0
+#define AE_VIEW_LOC  1
+
+/* the corner of the unit quad, shared by every instance */
+layout (location = IMG_CORNER_ID) in vec2 corner;
+
+/* these advance once per instance, rather than per vertex */
+layout (location = IMG_POS_ID)   in vec2 img_pos;
+layout (location = IMG_SCALE_ID) in vec2 img_scale;
+layout (location = IMG_UV_ID)    in vec4 img_uv;
+layout (location = IMG_COLOR_ID) in vec4 img_color;
+
+layout (location = IMG_UV_ID)    out vec2 texture_uvFrag;
+layout (location = IMG_COLOR_ID) out vec4 colorFrag;
+
+layout (location = AE_ORTHO_LOC) uniform mat4 ae_Ortho;
+layout (location =  AE_VIEW_LOC) uniform mat4 ae_View;
+
+void main() {
+	vec2 scaled = (corner * img_scale) + img_pos;
+	gl_Position = ae_Ortho * ae_View * vec4(scaled, 1.0, 1.0);
+
+	/* img_uv is (u0, v0, u1, v1), and the top of the quad is v1 */
+	texture_uvFrag = vec2(mix(img_uv.x, img_uv.z, corner.x),
+			mix(img_uv.w, img_uv.y, corner.y));
+	colorFrag = img_color;
+}
@@ -0,0 +1,14 @@
+#version 430
+
+#define SPRITE_UV_ID    1
+#define SPRITE_COLOR_ID 2
+
+layout (location = SPRITE_UV_ID)    in vec2 texture_uvFrag;
+layout (location = SPRITE_COLOR_ID) in vec4 colorFrag;
+
+layout (binding = 0) uniform sampler2D sprite_sampler;
+
+void main() {
+	vec4 pixel = texture(sprite_sampler, texture_uvFrag);
+	gl_FragColor = pixel * colorFrag;
+}
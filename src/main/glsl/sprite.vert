@@ -0,0 +1,23 @@
+#version 430
+
+#define SPRITE_VERT_ID  0
+#define SPRITE_UV_ID    1
+#define SPRITE_COLOR_ID 2
+
+#define AE_ORTHO_LOC 0
+#define AE_VIEW_LOC  1
+
+layout (location = SPRITE_VERT_ID)  in vec2 vertex;
+layout (location = SPRITE_UV_ID)    in vec2 texture_uvVert;
+layout (location = SPRITE_COLOR_ID) in vec4 colorVert;
+layout (location = SPRITE_UV_ID)    out vec2 texture_uvFrag;
+layout (location = SPRITE_COLOR_ID) out vec4 colorFrag;
+
+layout (location = AE_ORTHO_LOC) uniform mat4 ae_Ortho;
+layout (location =  AE_VIEW_LOC) uniform mat4 ae_View;
+
+void main() {
+	gl_Position = ae_Ortho * ae_View * vec4(vertex, 1.0, 1.0);
+	texture_uvFrag = texture_uvVert;
+	colorFrag = colorVert;
+}
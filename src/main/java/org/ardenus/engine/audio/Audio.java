@@ -1,13 +1,19 @@
 package org.ardenus.engine.audio;
 
+import static org.lwjgl.openal.AL10.*;
 import static org.lwjgl.openal.ALC10.*;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ardenus.engine.audio.sound.Sound;
 import org.lwjgl.openal.AL;
 import org.lwjgl.openal.ALC;
 import org.lwjgl.openal.ALCCapabilities;
+import org.lwjgl.openal.ALCapabilities;
 
 import com.whirvex.event.EventManager;
 
@@ -21,12 +27,16 @@ import com.whirvex.event.EventManager;
 public class Audio {
 
 	protected static final Logger LOG = LogManager.getLogger(Audio.class);
+	private static final int DEFAULT_FREQUENCY_HZ = 48000;
 
 	private static boolean initialized;
 	private static EventManager events;
 	private static long device;
 	private static long context;
+	private static int frequencyHz;
+	private static ALCapabilities alCapabilities;
 	private static AudioThread audioThread;
+	private static ExecutorService workers;
 
 	/**
 	 * @param eventManager
@@ -52,7 +62,17 @@ public class Audio {
 
 		LOG.info("Creating capabilities...");
 		ALCCapabilities capabilities = ALC.createCapabilities(device);
-		AL.createCapabilities(capabilities);
+		alCapabilities = AL.createCapabilities(capabilities);
+
+		/*
+		 * Not every implementation reports the mixing frequency of the device.
+		 * When it is unknown, assume the most common frequency for hardware.
+		 */
+		frequencyHz = alcGetInteger(device, ALC_FREQUENCY);
+		if (frequencyHz <= 0) {
+			frequencyHz = DEFAULT_FREQUENCY_HZ;
+		}
+		LOG.info("Device frequency is " + frequencyHz + "Hz");
 
 		LOG.info("Starting thread...");
 		audioThread = new AudioThread();
@@ -68,6 +88,27 @@ public class Audio {
 		}
 	}
 
+	/**
+	 * @return the OpenAL context handle.
+	 * @throws IllegalStateException
+	 *             if the audio system is not initialized.
+	 */
+	protected static long getContext() {
+		Audio.requireInit();
+		return context;
+	}
+
+	/**
+	 * @return the capabilities of the OpenAL context, used to check for the
+	 *         presence of extensions.
+	 * @throws IllegalStateException
+	 *             if the audio system is not initialized.
+	 */
+	protected static ALCapabilities getCapabilities() {
+		Audio.requireInit();
+		return alCapabilities;
+	}
+
 	/**
 	 * @param <T>
 	 *            the event type.
@@ -116,6 +157,76 @@ public class Audio {
 		audioThread.abandon(sound);
 	}
 
+	/**
+	 * Audio played at any other frequency must be resampled by OpenAL as it
+	 * is mixed. Sounds can be converted to this frequency ahead of time with
+	 * a {@link org.ardenus.engine.audio.dsp.ResampledSource ResampledSource}.
+	 * 
+	 * @return the frequency the device mixes at in Hz.
+	 * @throws IllegalStateException
+	 *             if the audio system is not initialized.
+	 */
+	public static int getFrequencyHz() {
+		Audio.requireInit();
+		return frequencyHz;
+	}
+
+	/**
+	 * @param channelCount
+	 *            the channel count, must be {@code 1} or {@code 2}.
+	 * @param bitsPerSample
+	 *            the bits per sample, must be {@code 8} or {@code 16}.
+	 * @return the OpenAL format for PCM data with the given channel count and
+	 *         bits per sample.
+	 * @throws UnsupportedOperationException
+	 *             if OpenAL has no such format.
+	 */
+	public static int alFormat(int channelCount, int bitsPerSample) {
+		switch (channelCount) {
+		case 1:
+			if (bitsPerSample == 8) {
+				return AL_FORMAT_MONO8;
+			} else if (bitsPerSample == 16) {
+				return AL_FORMAT_MONO16;
+			} else {
+				throw new UnsupportedOperationException("bitrate");
+			}
+		case 2:
+			if (bitsPerSample == 8) {
+				return AL_FORMAT_STEREO8;
+			} else if (bitsPerSample == 16) {
+				return AL_FORMAT_STEREO16;
+			} else {
+				throw new UnsupportedOperationException("bitrate");
+			}
+		default:
+			throw new UnsupportedOperationException("channel count");
+		}
+	}
+
+	/**
+	 * Work such as opening decoders and decoding audio ahead of playback
+	 * should be submitted here, so it is kept off of the audio thread. The
+	 * workers are daemon threads, and are created the first time this method
+	 * is called. Unlike the rest of the audio system, they do not require
+	 * initialization.
+	 * 
+	 * @return the audio worker pool.
+	 */
+	public static synchronized ExecutorService workers() {
+		if (workers == null) {
+			AtomicInteger workerId = new AtomicInteger();
+			int threads = Runtime.getRuntime().availableProcessors();
+			workers = Executors.newFixedThreadPool(threads, (r) -> {
+				Thread worker = new Thread(r,
+						"audio-worker-" + workerId.getAndIncrement());
+				worker.setDaemon(true);
+				return worker;
+			});
+		}
+		return workers;
+	}
+
 	public static void terminate() {
 		if (initialized == false) {
 			LOG.error("Already terminated");
@@ -129,6 +240,14 @@ public class Audio {
 		LOG.info("Stopping thread...");
 		audioThread.interrupt();
 
+		synchronized (Audio.class) {
+			if (workers != null) {
+				LOG.info("Stopping workers...");
+				workers.shutdownNow();
+				workers = null;
+			}
+		}
+
 		LOG.info("Closing device...");
 		alcDestroyContext(context);
 		alcCloseDevice(device);
@@ -0,0 +1,307 @@
+package org.ardenus.engine.audio;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.ALC10.*;
+import static org.lwjgl.openal.SOFTDeferredUpdates.*;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.lwjgl.openal.ALCapabilities;
+
+/**
+ * Gathers changes to sound and listener parameters made during a frame, and
+ * applies them all at once.
+ * <p>
+ * Gameplay code will often move hundreds of sounds each frame. Without a
+ * batch, each call to a method like {@code Sound.setPosition()} is an
+ * immediate OpenAL call, and the mixer may apply them piecemeal as they come
+ * in. While a batch is open, these changes are instead recorded. If the same
+ * parameter is changed more than once, only the last value is kept. When the
+ * batch is committed, every recorded change is applied within one deferred
+ * update window, so they take effect atomically.
+ * <p>
+ * The deferred update window uses {@code AL_SOFT_deferred_updates} when it is
+ * supported by the OpenAL implementation. Otherwise, the context is suspended
+ * via {@code alcSuspendContext()} and processed once all changes are applied.
+ * <p>
+ * Only positional parameters (position, velocity, and orientation) are
+ * batched. While a batch is open, getters return the last applied values
+ * rather than the recorded ones.
+ *
+ * @see #begin()
+ * @see #commit()
+ */
+public class AudioBatch {
+
+	/*
+	 * The listener is recorded using a source handle of zero. This is the
+	 * same value as AL_NONE, so it can never be that of an actual source.
+	 */
+	private static final int LISTENER = AL_NONE;
+	private static final int INITIAL_CAPACITY = 64;
+	private static final Lock LOCK = new ReentrantLock();
+
+	/*
+	 * Read without the lock first, so that changes made while no batch is
+	 * open (the common case) never have to take it.
+	 */
+	private static volatile boolean open;
+	private static int count;
+	private static int[] sources = new int[INITIAL_CAPACITY];
+	private static int[] params = new int[INITIAL_CAPACITY];
+	private static float[] values = new float[INITIAL_CAPACITY * 3];
+
+	/*
+	 * The slot of each change is found through an open addressing hash table,
+	 * keyed by source handle and parameter. This keeps recording a change
+	 * constant time without allocating a key for each call. A slot value of
+	 * zero marks an empty entry, so slots are stored offset by one.
+	 */
+	private static long[] keys = new long[INITIAL_CAPACITY * 2];
+	private static int[] slots = new int[INITIAL_CAPACITY * 2];
+
+	private AudioBatch() {
+		/* static class */
+	}
+
+	private static long key(int h_alSource, int alParam) {
+		return ((long) h_alSource << 32) | (alParam & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private static void grow() {
+		int capacity = sources.length * 2;
+		sources = Arrays.copyOf(sources, capacity);
+		params = Arrays.copyOf(params, capacity);
+		values = Arrays.copyOf(values, capacity * 3);
+
+		keys = new long[capacity * 2];
+		slots = new int[capacity * 2];
+		for (int i = 0; i < count; i++) {
+			insert(key(sources[i], params[i]), i);
+		}
+	}
+
+	private static void insert(long key, int slot) {
+		int mask = keys.length - 1;
+		int i = hash(key, mask);
+		while (slots[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		slots[i] = slot + 1;
+	}
+
+	private static int find(long key) {
+		int mask = keys.length - 1;
+		int i = hash(key, mask);
+		while (slots[i] != 0) {
+			if (keys[i] == key) {
+				return slots[i] - 1;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Opens a new batch. Until {@link #commit()} is called, changes to the
+	 * position, velocity, and orientation of sounds and the listener are
+	 * recorded instead of being applied immediately.
+	 * <p>
+	 * If a batch is already open, this method has no effect.
+	 *
+	 * @throws IllegalStateException
+	 *             if the audio system is not initialized.
+	 */
+	public static void begin() {
+		Audio.requireInit();
+		LOCK.lock();
+		try {
+			open = true;
+		} finally {
+			LOCK.unlock();
+		}
+	}
+
+	/**
+	 * @return {@code true} if a batch is currently open, {@code false}
+	 *         otherwise.
+	 */
+	public static boolean isOpen() {
+		return open;
+	}
+
+	private static boolean record(int h_alSource, int alParam, float x,
+			float y, float z) {
+		if (open == false) {
+			return false;
+		}
+
+		LOCK.lock();
+		try {
+			/* the batch may have been committed while waiting */
+			if (open == false) {
+				return false;
+			}
+
+			long key = key(h_alSource, alParam);
+			int slot = find(key);
+			if (slot < 0) {
+				if (count >= sources.length) {
+					grow();
+				}
+				slot = count++;
+				sources[slot] = h_alSource;
+				params[slot] = alParam;
+				insert(key, slot);
+			}
+
+			values[slot * 3] = x;
+			values[slot * 3 + 1] = y;
+			values[slot * 3 + 2] = z;
+			return true;
+		} finally {
+			LOCK.unlock();
+		}
+	}
+
+	/**
+	 * Records a change to a 3-dimensional source parameter, if a batch is
+	 * open. This is called by {@code Sound} before setting the parameter, and
+	 * should not need to be called elsewhere.
+	 *
+	 * @param h_alSource
+	 *            the OpenAL source handle.
+	 * @param alParam
+	 *            the OpenAL source parameter.
+	 * @param x
+	 *            the X-axis component of the value.
+	 * @param y
+	 *            the Y-axis component of the value.
+	 * @param z
+	 *            the Z-axis component of the value.
+	 * @return {@code true} if the change was recorded and should not be
+	 *         applied now, {@code false} if no batch is open.
+	 */
+	public static boolean recordSource3f(int h_alSource, int alParam,
+			float x, float y, float z) {
+		return record(h_alSource, alParam, x, y, z);
+	}
+
+	/**
+	 * Records a change to a 3-dimensional listener parameter, if a batch is
+	 * open.
+	 *
+	 * @param alParam
+	 *            the OpenAL listener parameter.
+	 * @param x
+	 *            the X-axis component of the value.
+	 * @param y
+	 *            the Y-axis component of the value.
+	 * @param z
+	 *            the Z-axis component of the value.
+	 * @return {@code true} if the change was recorded and should not be
+	 *         applied now, {@code false} if no batch is open.
+	 */
+	protected static boolean recordListener3f(int alParam, float x, float y,
+			float z) {
+		return record(LISTENER, alParam, x, y, z);
+	}
+
+	/**
+	 * Discards all changes recorded for a source. This is called by
+	 * {@code Sound} when it is closed, so no changes are applied to a source
+	 * which no longer exists.
+	 *
+	 * @param h_alSource
+	 *            the OpenAL source handle.
+	 */
+	public static void discard(int h_alSource) {
+		LOCK.lock();
+		try {
+			int kept = 0;
+			for (int i = 0; i < count; i++) {
+				if (sources[i] == h_alSource) {
+					continue;
+				}
+				sources[kept] = sources[i];
+				params[kept] = params[i];
+				System.arraycopy(values, i * 3, values, kept * 3, 3);
+				kept++;
+			}
+			if (kept == count) {
+				return;
+			}
+
+			count = kept;
+			Arrays.fill(slots, 0);
+			for (int i = 0; i < count; i++) {
+				insert(key(sources[i], params[i]), i);
+			}
+		} finally {
+			LOCK.unlock();
+		}
+	}
+
+	/**
+	 * Closes the current batch and applies all changes recorded by it within
+	 * a single deferred update window. If no batch is open, this method has no
+	 * effect.
+	 *
+	 * @throws IllegalStateException
+	 *             if the audio system is not initialized.
+	 */
+	public static void commit() {
+		Audio.requireInit();
+		LOCK.lock();
+		try {
+			if (open == false) {
+				return;
+			}
+			open = false;
+			if (count <= 0) {
+				return;
+			}
+
+			ALCapabilities caps = Audio.getCapabilities();
+			boolean deferred = caps != null && caps.AL_SOFT_deferred_updates;
+			if (deferred == true) {
+				alDeferUpdatesSOFT();
+			} else {
+				alcSuspendContext(Audio.getContext());
+			}
+
+			try {
+				for (int i = 0; i < count; i++) {
+					float x = values[i * 3];
+					float y = values[i * 3 + 1];
+					float z = values[i * 3 + 2];
+					if (sources[i] == LISTENER) {
+						alListener3f(params[i], x, y, z);
+					} else {
+						alSource3f(sources[i], params[i], x, y, z);
+					}
+				}
+			} finally {
+				if (deferred == true) {
+					alProcessUpdatesSOFT();
+				} else {
+					alcProcessContext(Audio.getContext());
+				}
+			}
+
+			count = 0;
+			Arrays.fill(slots, 0);
+		} finally {
+			LOCK.unlock();
+		}
+	}
+
+}
@@ -91,6 +91,9 @@ public class AudioListener {
 	 */
 	private static void setListener3f(int alParam, float x, float y, float z) {
 		Audio.requireInit();
+		if (AudioBatch.recordListener3f(alParam, x, y, z)) {
+			return; /* applied when the batch is committed */
+		}
 		alListener3f(alParam, x, y, z);
 	}
 
@@ -80,6 +80,20 @@ public interface AudioSource {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * A random access source reads from any offset without depending on the
+	 * reads before it, and can be read from by many threads at once. Sources
+	 * which decode or process audio in order (such as an effect chain) are
+	 * not, as a read from anywhere else is a seek for them. Readers use this
+	 * to decide if audio can be read ahead of time on another thread.
+	 *
+	 * @return {@code true} if this source supports random access reads,
+	 *         {@code false} otherwise.
+	 */
+	public default boolean isRandomAccess() {
+		return false;
+	}
+
 	/**
 	 * The amount of PCM data that actually gets read may be less than
 	 * requested. This can be due to decompression limitations, not enough data
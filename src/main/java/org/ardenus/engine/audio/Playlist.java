@@ -0,0 +1,638 @@
+package org.ardenus.engine.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ardenus.engine.audio.sound.StreamedSound;
+
+/**
+ * An audio source which plays a sequence of other audio sources back to back.
+ * <p>
+ * A playlist is intended to be played by a single {@link StreamedSound}. When
+ * one track ends, the next one continues inside of the same read, so there is
+ * no gap between them (not even within the same OpenAL buffer). Optionally,
+ * tracks can overlap with an equal-power crossfade instead.
+ * <p>
+ * To keep the audio thread from stalling, the current and next track are
+ * opened and have the beginning of their PCM data decoded ahead of time on
+ * the {@link Audio#workers() audio workers}. If a track is somehow still not
+ * ready by the time it must play, silence is played until it is.
+ * <p>
+ * All tracks must have the same format (channel count, bits per sample, and
+ * frequency) as the playlist. Any track which does not is skipped.
+ */
+public class Playlist implements AudioSource, Closeable {
+
+	private static final Logger LOG = LogManager.getLogger(Playlist.class);
+	private static final int FADE_STEPS = 1024;
+	private static final float[] FADE_CURVE = new float[FADE_STEPS + 1];
+
+	static {
+		/*
+		 * An equal-power crossfade keeps the perceived loudness the same for
+		 * the duration of the fade. The gain of the outgoing track follows a
+		 * quarter cosine, and the gain of the incoming track a quarter sine.
+		 * Since sin(x) = cos(pi/2 - x), one table serves both of them.
+		 */
+		for (int i = 0; i <= FADE_STEPS; i++) {
+			double x = (i / (double) FADE_STEPS) * (Math.PI / 2.0D);
+			FADE_CURVE[i] = (float) Math.cos(x);
+		}
+	}
+
+	private static class Track {
+
+		private final Callable<? extends AudioSource> opener;
+		private final boolean owned;
+		private boolean prefetching;
+		private boolean removed;
+
+		/* written by an audio worker, read by the audio thread */
+		private volatile boolean ready;
+		private volatile boolean failed;
+		private AudioSource audio;
+		private byte[] head;
+		private int headLen;
+		private boolean headEnded;
+		private long length;
+
+		private int pos;
+		private int startOffset;
+		private boolean warnedNotReady;
+
+		private Track(Callable<? extends AudioSource> opener, boolean owned) {
+			this.opener = opener;
+			this.owned = owned;
+			this.length = -1L;
+		}
+
+		/**
+		 * Reads PCM data from the pre-decoded head of this track first, and
+		 * then from the audio source itself once the head has been used up.
+		 */
+		private int read(byte[] dst, int off, int len, byte[] scratch)
+				throws IOException {
+			if (pos < headLen) {
+				int n = Math.min(len, headLen - pos);
+				System.arraycopy(head, pos, dst, off, n);
+				this.pos += n;
+				return n;
+			} else if (headEnded == true) {
+				return -1;
+			}
+
+			int n = audio.readPCM(pos, scratch, Math.min(len, scratch.length));
+			if (n == -1) {
+				return -1;
+			}
+			System.arraycopy(scratch, 0, dst, off, n);
+			this.pos += n;
+			return n;
+		}
+
+		private void close() {
+			if (owned == true && audio instanceof Closeable) {
+				try {
+					((Closeable) audio).close();
+				} catch (IOException e) {
+					LOG.error("Error closing track", e);
+				}
+			}
+		}
+
+	}
+
+	private final int channelCount;
+	private final int bitsPerSample;
+	private final int frequencyHz;
+	private final int alFormat;
+	private final int blockAlign;
+	private final Lock lock;
+	private final List<Track> tracks;
+
+	private int prefetchSize;
+	private int fadeBytes;
+	private int expectedOffset;
+	private byte[] scratch;
+	private byte[] mixBuf;
+	private boolean closed;
+
+	/**
+	 * Constructs a new, empty {@code Playlist}.
+	 *
+	 * @param channelCount
+	 *            the channel count of every track, must be {@code 1} or
+	 *            {@code 2}.
+	 * @param bitsPerSample
+	 *            the bits per sample of every track, must be {@code 8} or
+	 *            {@code 16}.
+	 * @param frequencyHz
+	 *            the frequency of every track in Hz.
+	 * @throws IllegalArgumentException
+	 *             if {@code frequencyHz} is not greater than zero.
+	 * @throws UnsupportedOperationException
+	 *             if {@code channelCount} or {@code bitsPerSample} are not
+	 *             supported by OpenAL.
+	 */
+	public Playlist(int channelCount, int bitsPerSample, int frequencyHz) {
+		if (frequencyHz <= 0) {
+			throw new IllegalArgumentException("frequencyHz <= 0");
+		}
+		this.channelCount = channelCount;
+		this.bitsPerSample = bitsPerSample;
+		this.frequencyHz = frequencyHz;
+		this.alFormat = Audio.alFormat(channelCount, bitsPerSample);
+		this.blockAlign = channelCount * (bitsPerSample / Byte.SIZE);
+		this.lock = new ReentrantLock();
+		this.tracks = new ArrayList<>();
+
+		this.prefetchSize = frequencyHz * blockAlign; /* one second */
+		this.scratch = new byte[0];
+		this.mixBuf = new byte[0];
+	}
+
+	@Override
+	public int getALFormat() {
+		return this.alFormat;
+	}
+
+	@Override
+	public int getFrequencyHz() {
+		return this.frequencyHz;
+	}
+
+	@Override
+	public int getChannelCount() {
+		return this.channelCount;
+	}
+
+	@Override
+	public int getBitsPerSample() {
+		return this.bitsPerSample;
+	}
+
+	private void requireOpen() {
+		if (closed == true) {
+			throw new IllegalStateException("playlist closed");
+		}
+	}
+
+	/**
+	 * @return how many bytes of PCM data are decoded for each track before
+	 *         it starts playing.
+	 */
+	public int getPrefetchSize() {
+		return this.prefetchSize;
+	}
+
+	/**
+	 * This only affects tracks which have not yet been prefetched. By default,
+	 * one second of audio is decoded ahead of time.
+	 *
+	 * @param prefetchSize
+	 *            how many bytes of PCM data to decode for each track before
+	 *            it starts playing.
+	 * @throws IllegalArgumentException
+	 *             if {@code prefetchSize} is negative.
+	 */
+	public void setPrefetchSize(int prefetchSize) {
+		if (prefetchSize < 0) {
+			throw new IllegalArgumentException("prefetchSize < 0");
+		}
+		lock.lock();
+		try {
+			this.prefetchSize = prefetchSize - (prefetchSize % blockAlign);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return how long tracks overlap when one hands off to the next, where
+	 *         {@link Duration#ZERO} means gapless playback.
+	 */
+	public Duration getCrossfade() {
+		long frames = fadeBytes / blockAlign;
+		return Duration.ofNanos(frames * 1000000000L / frequencyHz);
+	}
+
+	/**
+	 * A crossfade can only be performed when the length of the outgoing track
+	 * is known (see {@link AudioSource#pcmLength()}) and the next track is
+	 * ready in time. Otherwise, the tracks are played back to back instead.
+	 *
+	 * @param crossfade
+	 *            how long tracks should overlap when one hands off to the
+	 *            next. A value of {@link Duration#ZERO} means tracks will be
+	 *            played back to back with no gap.
+	 * @throws NullPointerException
+	 *             if {@code crossfade} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code crossfade} is negative.
+	 */
+	public void setCrossfade(Duration crossfade) {
+		Objects.requireNonNull(crossfade, "crossfade");
+		if (crossfade.isNegative()) {
+			throw new IllegalArgumentException("negative crossfade");
+		}
+		long frames = crossfade.toNanos() * frequencyHz / 1000000000L;
+		lock.lock();
+		try {
+			this.fadeBytes = (int) Math.min(frames * blockAlign,
+					Integer.MAX_VALUE - blockAlign);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the amount of tracks which have yet to finish playing, including
+	 *         the current track.
+	 */
+	public int getTrackCount() {
+		lock.lock();
+		try {
+			return tracks.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void add(Track track) {
+		this.requireOpen();
+		lock.lock();
+		try {
+			tracks.add(track);
+			this.prefetchAhead();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds a track to the end of this playlist. The track is opened by an
+	 * audio worker shortly before it plays, and is closed once it has
+	 * finished playing (if it is {@link Closeable}).
+	 *
+	 * @param opener
+	 *            the function which opens the audio source of the track.
+	 * @throws NullPointerException
+	 *             if {@code opener} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if this playlist is closed.
+	 */
+	public void add(Callable<? extends AudioSource> opener) {
+		Objects.requireNonNull(opener, "opener");
+		this.add(new Track(opener, true));
+	}
+
+	/**
+	 * Adds an already open track to the end of this playlist. The beginning
+	 * of the track is still decoded ahead of time by an audio worker. It is
+	 * not closed once it has finished playing.
+	 *
+	 * @param audio
+	 *            the audio source of the track.
+	 * @throws NullPointerException
+	 *             if {@code audio} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if this playlist is closed.
+	 */
+	public void add(AudioSource audio) {
+		Objects.requireNonNull(audio, "audio");
+		this.add(new Track(() -> audio, false));
+	}
+
+	/**
+	 * Ends the current track early. If a crossfade has been set, the current
+	 * track fades out into the next one starting now. Otherwise, the next
+	 * track begins playing immediately.
+	 */
+	public void skip() {
+		lock.lock();
+		try {
+			if (tracks.isEmpty()) {
+				return;
+			}
+			/*
+			 * Fading out only works if the next track can fade in, so go to
+			 * it immediately if it is not yet ready.
+			 */
+			Track current = tracks.get(0);
+			Track next = tracks.size() > 1 ? tracks.get(1) : null;
+			if (fadeBytes > 0 && next != null && next.ready == true) {
+				current.length = (long) current.pos + fadeBytes;
+			} else {
+				this.advance(expectedOffset);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Opens the track and decodes the beginning of it. This is always called
+	 * from an audio worker.
+	 */
+	private void prefetch(Track track) {
+		AudioSource audio = null;
+		try {
+			audio = track.opener.call();
+			if (audio.getChannelCount() != channelCount
+					|| audio.getBitsPerSample() != bitsPerSample
+					|| audio.getFrequencyHz() != frequencyHz) {
+				throw new AudioException("track format does not match");
+			}
+
+			byte[] head = new byte[prefetchSize];
+			byte[] chunk = new byte[Math.min(head.length, 65536)];
+			int headLen = 0;
+			boolean headEnded = false;
+			while (headLen < head.length) {
+				int want = Math.min(chunk.length, head.length - headLen);
+				int n = audio.readPCM(headLen, chunk, want);
+				if (n == -1) {
+					headEnded = true;
+					break;
+				} else if (n == 0) {
+					break; /* the rest is read once the track plays */
+				}
+				System.arraycopy(chunk, 0, head, headLen, n);
+				headLen += n;
+			}
+
+			long length = -1L;
+			try {
+				length = audio.pcmLength();
+			} catch (UnsupportedOperationException e) {
+				/* crossfades are not possible for this track */
+			}
+
+			/*
+			 * The track may have been skipped past, or the playlist closed,
+			 * while it was being prefetched. Nobody else will close it then.
+			 */
+			lock.lock();
+			try {
+				track.audio = audio;
+				if (track.removed == true) {
+					track.close();
+					return;
+				}
+				track.head = head;
+				track.headLen = headLen;
+				track.headEnded = headEnded;
+				track.length = length;
+				track.ready = true; /* volatile write publishes the above */
+			} finally {
+				lock.unlock();
+			}
+		} catch (Exception e) {
+			LOG.error("Failed to prefetch track, it will be skipped", e);
+			track.audio = audio;
+			track.close();
+			track.failed = true;
+		}
+	}
+
+	/**
+	 * Submits the current and next track to be prefetched by the audio
+	 * workers, if they have not been already.
+	 */
+	private void prefetchAhead() {
+		for (int i = 0; i < tracks.size() && i < 2; i++) {
+			Track track = tracks.get(i);
+			if (track.prefetching == false) {
+				track.prefetching = true;
+				Audio.workers().execute(() -> this.prefetch(track));
+			}
+		}
+	}
+
+	/**
+	 * Removes the current track and makes the next one current.
+	 *
+	 * @param offset
+	 *            the offset in bytes of the playlist at which the current track
+	 *            ended. This is used to map offsets given to
+	 *            {@link #readPCM(int, byte[], int)} to the new current track.
+	 */
+	private void advance(int offset) {
+		Track finished = tracks.remove(0);
+		finished.removed = true;
+		if (finished.ready == true) {
+			Audio.workers().execute(finished::close);
+		}
+		if (!tracks.isEmpty()) {
+			Track current = tracks.get(0);
+			current.startOffset = offset - current.pos;
+		}
+		this.prefetchAhead();
+	}
+
+	private void seek(int offset) {
+		if (tracks.isEmpty()) {
+			return;
+		}
+		Track current = tracks.get(0);
+		int pos = Math.max(offset - current.startOffset, 0);
+		current.pos = pos - (pos % blockAlign);
+
+		if (tracks.size() > 1) {
+			Track next = tracks.get(1);
+			long fadeStart = current.length - fadeBytes;
+			next.pos = (int) Math.max(current.pos - fadeStart, 0L);
+			next.pos -= next.pos % blockAlign;
+			if (current.length < 0 || fadeBytes <= 0) {
+				next.pos = 0;
+			}
+		}
+	}
+
+	private static byte[] ensureSize(byte[] buf, int len) {
+		return buf.length >= len ? buf : new byte[len];
+	}
+
+	private int getSample(byte[] buf, int index) {
+		if (bitsPerSample == 8) {
+			return (buf[index] & 0xFF) - 128;
+		}
+		return (short) ((buf[index] & 0xFF) | (buf[index + 1] << 8));
+	}
+
+	private void putSample(byte[] buf, int index, int sample) {
+		if (bitsPerSample == 8) {
+			sample = Math.max(-128, Math.min(127, sample));
+			buf[index] = (byte) (sample + 128);
+		} else {
+			sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+			buf[index] = (byte) (sample & 0xFF);
+			buf[index + 1] = (byte) ((sample >> 8) & 0xFF);
+		}
+	}
+
+	/**
+	 * Reads from both the outgoing and incoming track, mixing them together
+	 * with equal-power gains based on how far into the fade they are.
+	 */
+	private int crossfade(Track out, Track in, byte[] buf, int off, int len)
+			throws IOException {
+		long fadeStart = out.length - fadeBytes;
+		int fadePos = (int) (out.pos - fadeStart);
+		len = (int) Math.min(len, out.length - out.pos);
+		len -= len % blockAlign;
+		if (len <= 0) {
+			return -1;
+		}
+
+		int nOut = out.read(buf, off, len, scratch);
+		if (nOut == -1) {
+			return -1;
+		}
+
+		this.mixBuf = ensureSize(mixBuf, nOut);
+		int nIn = 0;
+		while (nIn < nOut) {
+			int n = in.read(mixBuf, nIn, nOut - nIn, scratch);
+			if (n == -1) {
+				break;
+			}
+			nIn += n;
+		}
+
+		int bytesPerSample = bitsPerSample / Byte.SIZE;
+		for (int i = 0; i < nOut; i += bytesPerSample) {
+			int step = (int) ((long) (fadePos + i) * FADE_STEPS / fadeBytes);
+			step = Math.min(step, FADE_STEPS);
+			float gainOut = FADE_CURVE[step];
+			float gainIn = FADE_CURVE[FADE_STEPS - step];
+
+			int sampleIn = i < nIn ? this.getSample(mixBuf, i) : 0;
+			int sampleOut = this.getSample(buf, off + i);
+			int mixed = Math.round(sampleOut * gainOut + sampleIn * gainIn);
+			this.putSample(buf, off + i, mixed);
+		}
+		return nOut;
+	}
+
+	private void fillSilence(byte[] buf, int off, int len) {
+		byte silence = (byte) (bitsPerSample == 8 ? 128 : 0);
+		for (int i = off; i < len; i++) {
+			buf[i] = silence;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Seeking is only supported within the current track. An offset which
+	 * points before the current track is treated as its beginning.
+	 */
+	@Override
+	public int readPCM(int offset, byte[] buf, int len) throws IOException {
+		lock.lock();
+		try {
+			this.requireOpen();
+			if (expectedOffset != offset) {
+				this.seek(offset);
+				this.expectedOffset = offset;
+			}
+			len -= len % blockAlign;
+			this.scratch = ensureSize(scratch, len);
+
+			int filled = 0;
+			boolean waiting = false;
+			while (filled < len && !tracks.isEmpty()) {
+				Track current = tracks.get(0);
+				if (current.failed == true) {
+					this.advance(expectedOffset + filled);
+					continue;
+				} else if (current.ready == false) {
+					if (current.warnedNotReady == false) {
+						LOG.warn("Track not ready in time, playing silence");
+						current.warnedNotReady = true;
+					}
+					waiting = true;
+					break;
+				}
+
+				Track next = tracks.size() > 1 ? tracks.get(1) : null;
+				boolean canFade = fadeBytes > 0 && current.length >= 0
+						&& next != null && next.ready == true;
+				long fadeStart = current.length - fadeBytes;
+
+				int n = 0;
+				if (canFade && current.pos >= fadeStart) {
+					n = this.crossfade(current, next, buf, filled,
+							len - filled);
+				} else {
+					/*
+					 * Stop right where the crossfade begins, so the first
+					 * mixed sample is exactly at the start of the fade.
+					 */
+					int want = len - filled;
+					if (canFade) {
+						want = (int) Math.min(want, fadeStart - current.pos);
+					}
+					n = current.read(buf, filled, want, scratch);
+				}
+
+				if (n == -1) {
+					this.advance(expectedOffset + filled);
+					continue;
+				} else if (n == 0) {
+					waiting = true; /* nothing available from the track yet */
+					break;
+				}
+				filled += n;
+			}
+
+			if (filled <= 0 && tracks.isEmpty()) {
+				return -1;
+			} else if (waiting == true) {
+				/*
+				 * The current track did not advance while silence was played,
+				 * so it must now start that much later in the playlist.
+				 */
+				tracks.get(0).startOffset += len - filled;
+				this.fillSilence(buf, filled, len);
+				filled = len;
+			}
+
+			this.expectedOffset += filled;
+			return filled;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed == true) {
+				return;
+			}
+			for (Track track : tracks) {
+				track.removed = true;
+				if (track.ready == true) {
+					track.close();
+				}
+			}
+			tracks.clear();
+			this.closed = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,298 @@
+package org.ardenus.engine.audio.analysis;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.sound.StreamedSound;
+
+/**
+ * Computes the spectrum and levels of the PCM data being played by a sound,
+ * using the exact blocks which are queued for playback.
+ * <p>
+ * A tap is attached to a sound with {@link StreamedSound#setTap(AnalysisTap)}.
+ * Each time the sound refills a buffer, the block is copied into the tap. The
+ * analysis itself (a Hann windowed FFT of the last {@link #getFFTSize()}
+ * samples of the block, plus the RMS and peak level of the entire block) is
+ * done on an {@link Audio#workers() audio worker}. Once no block is larger
+ * than those before it, analysis allocates no memory.
+ * <p>
+ * Results are handed between threads through triple buffers, so neither the
+ * audio thread nor the reader ever block. {@link #latest()} is meant to be
+ * called by a single thread, such as the render thread.
+ * <p>
+ * <b>Note:</b> Blocks are analyzed when they are queued, not when they are
+ * heard. Results lead playback by however much audio the sound has queued.
+ * The {@link Spectrum#offset} of each result can be compared to the offset of
+ * the sound if this matters.
+ */
+public class AnalysisTap {
+
+	private static final Logger LOG = LogManager.getLogger(AnalysisTap.class);
+
+	private static class Block {
+
+		private byte[] data = new byte[0];
+		private int len;
+		private int offset;
+		private int channelCount;
+		private int bytesPerSample;
+		private long sequence;
+
+	}
+
+	private final FFT fft;
+	private final float[] window;
+	private final float windowGain;
+	private final int[] bandEdges;
+	private final float[] re;
+	private final float[] im;
+
+	/*
+	 * Each triple buffer has one slot owned by the writer, one by the reader,
+	 * and one shared between them. The writer fills its slot and swaps it
+	 * with the shared one. The reader swaps its slot with the shared one only
+	 * when the shared one holds something newer.
+	 */
+	private Block inBack;
+	private Block inFront;
+	private final AtomicReference<Block> inShared;
+	private long inSequence;
+
+	private Spectrum outBack;
+	private Spectrum outFront;
+	private final AtomicReference<Spectrum> outShared;
+	private long outSequence;
+
+	private final AtomicBoolean scheduled;
+	private final Runnable analyzer;
+
+	/**
+	 * @param fftSize
+	 *            the amount of samples per FFT. Larger sizes give more precise
+	 *            frequencies at the cost of timing precision.
+	 * @param bandCount
+	 *            the amount of logarithmically spaced bands to group the FFT
+	 *            bins into.
+	 * @throws IllegalArgumentException
+	 *             if {@code fftSize} is not a power of two greater than or
+	 *             equal to {@code 2}, or {@code bandCount} is not greater than
+	 *             zero.
+	 */
+	public AnalysisTap(int fftSize, int bandCount) {
+		if (bandCount <= 0) {
+			throw new IllegalArgumentException("bandCount <= 0");
+		}
+		this.fft = new FFT(fftSize);
+		this.re = new float[fftSize];
+		this.im = new float[fftSize];
+
+		float gain = 0.0F;
+		this.window = new float[fftSize];
+		for (int i = 0; i < fftSize; i++) {
+			double phase = 2.0D * Math.PI * i / (fftSize - 1);
+			window[i] = (float) (0.5D - 0.5D * Math.cos(phase));
+			gain += window[i];
+		}
+		this.windowGain = gain;
+
+		/*
+		 * Band edges are spaced logarithmically from the first bin to the last.
+		 * Each band is guaranteed at least one bin, so the low bands are not
+		 * left empty at small FFT sizes.
+		 */
+		int binCount = fftSize / 2;
+		this.bandEdges = new int[bandCount + 1];
+		bandEdges[0] = 1;
+		for (int i = 1; i <= bandCount; i++) {
+			double edge = Math.pow(binCount, i / (double) bandCount);
+			bandEdges[i] = Math.max((int) Math.round(edge),
+					bandEdges[i - 1] + 1);
+		}
+		bandEdges[bandCount] = Math.max(bandEdges[bandCount], binCount);
+
+		this.inBack = new Block();
+		this.inFront = new Block();
+		this.inShared = new AtomicReference<>(new Block());
+
+		this.outBack = new Spectrum(binCount, bandCount);
+		this.outFront = new Spectrum(binCount, bandCount);
+		this.outShared = new AtomicReference<>(
+				new Spectrum(binCount, bandCount));
+
+		this.scheduled = new AtomicBoolean();
+		this.analyzer = this::analyze;
+	}
+
+	/**
+	 * Constructs a new {@code AnalysisTap} with an FFT size of {@code 1024} and
+	 * {@code 16} bands.
+	 */
+	public AnalysisTap() {
+		this(1024, 16);
+	}
+
+	/**
+	 * @return the amount of samples per FFT.
+	 */
+	public int getFFTSize() {
+		return fft.size;
+	}
+
+	/**
+	 * @return the amount of bands FFT bins are grouped into.
+	 */
+	public int getBandCount() {
+		return bandEdges.length - 1;
+	}
+
+	/**
+	 * Submits a block of PCM data for analysis. This is called by a sound from
+	 * the audio thread each time it refills a buffer, and should not need to
+	 * be called elsewhere.
+	 * <p>
+	 * The block is copied, so {@code pcm} can be reused once this returns. Its
+	 * position and limit are left unchanged.
+	 *
+	 * @param audio
+	 *            the audio source the block was read from.
+	 * @param offset
+	 *            the offset in bytes of the block within {@code audio}.
+	 * @param pcm
+	 *            the block of PCM data, from its position to its limit.
+	 */
+	public void submit(AudioSource audio, int offset, ByteBuffer pcm) {
+		Block block = this.inBack;
+		int len = pcm.remaining();
+		if (block.data.length < len) {
+			block.data = new byte[len];
+		}
+
+		int pos = pcm.position();
+		pcm.get(block.data, 0, len);
+		pcm.position(pos);
+
+		block.len = len;
+		block.offset = offset;
+		block.channelCount = audio.getChannelCount();
+		block.bytesPerSample = audio.getBytesPerSample();
+		block.sequence = ++inSequence;
+		this.inBack = inShared.getAndSet(block);
+
+		if (scheduled.compareAndSet(false, true)) {
+			Audio.workers().execute(analyzer);
+		}
+	}
+
+	private float sample(Block block, int frame) {
+		int frameSize = block.channelCount * block.bytesPerSample;
+		int index = frame * frameSize;
+		float sum = 0.0F;
+		for (int c = 0; c < block.channelCount; c++) {
+			if (block.bytesPerSample == 1) {
+				sum += ((block.data[index] & 0xFF) - 128) / 128.0F;
+			} else {
+				int lo = block.data[index] & 0xFF;
+				int hi = block.data[index + 1];
+				sum += (short) ((hi << 8) | lo) / 32768.0F;
+			}
+			index += block.bytesPerSample;
+		}
+		return sum / block.channelCount;
+	}
+
+	private void analyze(Block block, Spectrum out) {
+		int frames = block.len / (block.channelCount * block.bytesPerSample);
+
+		/*
+		 * The levels cover the entire block, while the FFT only covers the
+		 * last samples of it (padded with silence if the block is short).
+		 */
+		double squares = 0.0D;
+		float peak = 0.0F;
+		for (int i = 0; i < frames; i++) {
+			float s = this.sample(block, i);
+			squares += s * s;
+			peak = Math.max(peak, Math.abs(s));
+		}
+		out.rms = frames > 0 ? (float) Math.sqrt(squares / frames) : 0.0F;
+		out.peak = Math.min(peak, 1.0F);
+
+		int start = frames - fft.size;
+		for (int i = 0; i < fft.size; i++) {
+			int frame = start + i;
+			float s = frame >= 0 ? this.sample(block, frame) : 0.0F;
+			re[i] = s * window[i];
+			im[i] = 0.0F;
+		}
+		fft.transform(re, im);
+
+		float norm = 2.0F / windowGain;
+		for (int i = 0; i < out.bins.length; i++) {
+			out.bins[i] = (float) Math.sqrt(re[i] * re[i] + im[i] * im[i])
+					* norm;
+		}
+		for (int i = 0; i < out.bands.length; i++) {
+			int from = bandEdges[i];
+			int to = Math.min(bandEdges[i + 1], out.bins.length);
+			float sum = 0.0F;
+			for (int j = from; j < to; j++) {
+				sum += out.bins[j];
+			}
+			out.bands[i] = to > from ? sum / (to - from) : 0.0F;
+		}
+
+		out.offset = block.offset;
+		out.sequence = ++outSequence;
+	}
+
+	/**
+	 * Analyzes the newest submitted block, if any. This is only ever run by
+	 * one audio worker at a time.
+	 */
+	private void analyze() {
+		/*
+		 * The scheduled flag stays set while analyzing, so submissions made in
+		 * the meantime do not start a second run. Once cleared, check again for
+		 * a block which may have come in just before. If a submission wins the
+		 * flag first, it has already scheduled a new run.
+		 */
+		do {
+			try {
+				if (inShared.get().sequence > inFront.sequence) {
+					this.inFront = inShared.getAndSet(inFront);
+					this.analyze(inFront, outBack);
+					this.outBack = outShared.getAndSet(outBack);
+				}
+			} catch (Exception e) {
+				LOG.error("Error analyzing block", e);
+			}
+			scheduled.set(false);
+		} while (inShared.get().sequence > inFront.sequence
+				&& scheduled.compareAndSet(false, true));
+	}
+
+	/**
+	 * Returns the result of the most recently analyzed block. This method
+	 * never blocks, and does not allocate memory.
+	 * <p>
+	 * This method must only be called by a single thread. The returned
+	 * spectrum is reused, and its contents are only valid until the next call
+	 * to this method.
+	 *
+	 * @return the latest spectrum. If no block has been analyzed yet, its
+	 *         {@link Spectrum#sequence} is {@code 0} and all its levels are
+	 *         zero.
+	 */
+	public Spectrum latest() {
+		if (outShared.get().sequence > outFront.sequence) {
+			this.outFront = outShared.getAndSet(outFront);
+		}
+		return this.outFront;
+	}
+
+}
@@ -0,0 +1,485 @@
+package org.ardenus.engine.audio.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+
+/**
+ * Finds the onsets and tempo of an audio source.
+ * <p>
+ * Onsets are found using spectral flux, which is how much the magnitude of
+ * each frequency rises from one FFT frame to the next. Peaks in the flux
+ * which stand out from their surroundings are onsets. The tempo is then found
+ * by autocorrelating the flux, since onsets tend to repeat at the length of a
+ * beat.
+ * <p>
+ * Long audio sources are split into segments which are analyzed in parallel.
+ * Each segment opens its own audio source, so decoding also happens in
+ * parallel. This is why audio sources are given to the analyzer by a function
+ * that opens them, rather than directly.
+ * <p>
+ * Analysis is far too slow to be done as audio plays. It is intended to be
+ * done ahead of time, with the results kept by a {@link BeatMapCache}.
+ */
+public class BeatAnalyzer {
+
+	/**
+	 * The version of the analysis algorithm. This is increased whenever the
+	 * results would change for the same audio, so cached results can be
+	 * invalidated.
+	 */
+	public static final int VERSION = 1;
+
+	private static final int FFT_SIZE = 1024;
+	private static final int HOP = 512;
+	private static final int SEGMENT_SECONDS = 30;
+	private static final int READ_SIZE = 16384;
+
+	private static final int THRESHOLD_RADIUS = 8; /* in hops */
+	private static final float THRESHOLD_MULTIPLIER = 1.5F;
+	private static final long MIN_ONSET_GAP_MILLIS = 50;
+	private static final double HALF_LAG_RATIO = 0.5D;
+	private static final float MIN_BPM = 60.0F;
+	private static final float MAX_BPM = 200.0F;
+
+	private final ExecutorService executor;
+
+	/**
+	 * @param executor
+	 *            the executor segments are analyzed on. The thread calling
+	 *            {@link #analyze(Callable)} waits on these tasks, so it must
+	 *            not be one of this executor's own threads.
+	 * @throws NullPointerException
+	 *             if {@code executor} is {@code null}.
+	 */
+	public BeatAnalyzer(ExecutorService executor) {
+		this.executor = Objects.requireNonNull(executor, "executor");
+	}
+
+	/**
+	 * Constructs a new {@code BeatAnalyzer} which analyzes segments on the
+	 * {@link Audio#workers() audio workers}.
+	 */
+	public BeatAnalyzer() {
+		this(Audio.workers());
+	}
+
+	private static AudioSource open(Callable<? extends AudioSource> opener)
+			throws IOException {
+		try {
+			return Objects.requireNonNull(opener.call(), "opened audio");
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("failed to open audio", e);
+		}
+	}
+
+	private static void close(AudioSource audio) throws IOException {
+		if (audio instanceof Closeable) {
+			((Closeable) audio).close();
+		}
+	}
+
+	/**
+	 * Reads PCM data from {@code audio} and mixes it down to mono.
+	 *
+	 * @return the samples read, which may be fewer than requested if the end
+	 *         of the audio was reached. If {@code frames} is negative, the
+	 *         audio is read until its end.
+	 */
+	private static float[] readMono(AudioSource audio, int startFrame,
+			int frames) throws IOException {
+		int channels = audio.getChannelCount();
+		int bytesPerSample = audio.getBytesPerSample();
+		int frameSize = channels * bytesPerSample;
+
+		float[] samples = new float[frames >= 0 ? frames : READ_SIZE];
+		byte[] buf = new byte[READ_SIZE - (READ_SIZE % frameSize)];
+		int count = 0;
+		int offset = startFrame * frameSize;
+		while (frames < 0 || count < frames) {
+			int want = buf.length;
+			if (frames >= 0) {
+				want = Math.min(want, (frames - count) * frameSize);
+			}
+			int read = audio.readPCM(offset, buf, want);
+			if (read == -1) {
+				break;
+			}
+			read -= read % frameSize;
+			offset += read;
+
+			int readFrames = read / frameSize;
+			if (count + readFrames > samples.length) {
+				samples = Arrays.copyOf(samples,
+						Math.max(samples.length * 2, count + readFrames));
+			}
+			for (int i = 0; i < read; i += frameSize) {
+				float sum = 0.0F;
+				for (int c = 0; c < channels; c++) {
+					int index = i + c * bytesPerSample;
+					if (bytesPerSample == 1) {
+						sum += ((buf[index] & 0xFF) - 128) / 128.0F;
+					} else {
+						int lo = buf[index] & 0xFF;
+						sum += (short) ((buf[index + 1] << 8) | lo) / 32768.0F;
+					}
+				}
+				samples[count++] = sum / channels;
+			}
+		}
+		return count == samples.length ? samples
+				: Arrays.copyOf(samples, count);
+	}
+
+	/**
+	 * Computes the spectral flux of a run of samples. The first FFT frame is
+	 * only used as the previous frame of the second, so the returned array
+	 * has one less element than there are frames.
+	 */
+	private static float[] flux(float[] samples) {
+		int frames = (samples.length - FFT_SIZE) / HOP + 1;
+		if (frames < 2) {
+			return new float[0];
+		}
+
+		FFT fft = new FFT(FFT_SIZE);
+		float[] window = new float[FFT_SIZE];
+		for (int i = 0; i < FFT_SIZE; i++) {
+			double phase = 2.0D * Math.PI * i / (FFT_SIZE - 1);
+			window[i] = (float) (0.5D - 0.5D * Math.cos(phase));
+		}
+
+		float[] re = new float[FFT_SIZE];
+		float[] im = new float[FFT_SIZE];
+		float[] prev = new float[FFT_SIZE / 2];
+		float[] curr = new float[FFT_SIZE / 2];
+		float[] flux = new float[frames - 1];
+
+		for (int f = 0; f < frames; f++) {
+			int start = f * HOP;
+			for (int i = 0; i < FFT_SIZE; i++) {
+				re[i] = samples[start + i] * window[i];
+				im[i] = 0.0F;
+			}
+			fft.transform(re, im);
+
+			/*
+			 * Log compressed magnitudes keep loud low notes from drowning out
+			 * everything else in the flux.
+			 */
+			float sum = 0.0F;
+			for (int i = 0; i < curr.length; i++) {
+				float mag = (float) Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+				curr[i] = (float) Math.log1p(mag);
+				if (f > 0) {
+					sum += Math.max(curr[i] - prev[i], 0.0F);
+				}
+			}
+			if (f > 0) {
+				flux[f - 1] = sum;
+			}
+
+			float[] swap = prev;
+			prev = curr;
+			curr = swap;
+		}
+		return flux;
+	}
+
+	/**
+	 * Analyzes a segment of the audio, starting at the given hop. Each segment
+	 * also reads the frame before its first hop, so the flux is continuous
+	 * across segments.
+	 */
+	private static float[] analyzeSegment(
+			Callable<? extends AudioSource> opener, int firstHop, int hops)
+			throws IOException {
+		AudioSource audio = open(opener);
+		try {
+			int startHop = Math.max(firstHop - 1, 0);
+			int frames = -1;
+			if (hops >= 0) {
+				int lastHop = firstHop + hops - 1;
+				frames = (lastHop - startHop) * HOP + FFT_SIZE;
+			}
+			float[] samples = readMono(audio, startHop * HOP, frames);
+			float[] flux = flux(samples);
+			if (firstHop == 0) {
+				/* the very first frame has no previous frame */
+				float[] padded = new float[flux.length + 1];
+				System.arraycopy(flux, 0, padded, 1, flux.length);
+				return padded;
+			}
+			return flux;
+		} finally {
+			close(audio);
+		}
+	}
+
+	private static long hopMillis(double hop, int frequencyHz) {
+		/* use the center of the FFT frame as the time of the hop */
+		double sample = hop * HOP + FFT_SIZE / 2;
+		return Math.round(sample * 1000.0D / frequencyHz);
+	}
+
+	private static long[] pickOnsets(float[] flux, int frequencyHz) {
+		long[] onsets = new long[16];
+		int count = 0;
+		long lastOnset = -MIN_ONSET_GAP_MILLIS;
+
+		for (int i = 0; i < flux.length; i++) {
+			int from = Math.max(i - THRESHOLD_RADIUS, 0);
+			int to = Math.min(i + THRESHOLD_RADIUS + 1, flux.length);
+			float mean = 0.0F;
+			boolean isMax = true;
+			for (int j = from; j < to; j++) {
+				mean += flux[j];
+				if (j != i && flux[j] > flux[i]) {
+					isMax = false;
+				}
+			}
+			mean /= (to - from);
+
+			if (isMax == false || flux[i] <= mean * THRESHOLD_MULTIPLIER
+					|| flux[i] <= 0.0F) {
+				continue;
+			}
+
+			long time = hopMillis(i, frequencyHz);
+			if (time - lastOnset < MIN_ONSET_GAP_MILLIS) {
+				continue;
+			}
+			if (count >= onsets.length) {
+				onsets = Arrays.copyOf(onsets, onsets.length * 2);
+			}
+			onsets[count++] = time;
+			lastOnset = time;
+		}
+		return Arrays.copyOf(onsets, count);
+	}
+
+	/**
+	 * Estimates the tempo by autocorrelating the flux. The beat phase is then
+	 * found by testing which offset lines the beats up with the most flux.
+	 *
+	 * @return the tempo in beats per minute and the first beat in hops, or
+	 *         {@code null} if the audio is too short.
+	 */
+	private static double[] findTempo(float[] flux, int frequencyHz) {
+		double hopsPerMinute = 60.0D * frequencyHz / HOP;
+		int minLag = (int) Math.floor(hopsPerMinute / MAX_BPM);
+		int maxLag = (int) Math.ceil(hopsPerMinute / MIN_BPM);
+		if (flux.length < maxLag * 2) {
+			return null;
+		}
+
+		double mean = 0.0D;
+		for (float f : flux) {
+			mean += f;
+		}
+		mean /= flux.length;
+
+		double[] corr = new double[maxLag + 2];
+		for (int lag = minLag; lag <= maxLag + 1; lag++) {
+			double sum = 0.0D;
+			for (int i = lag; i < flux.length; i++) {
+				sum += (flux[i] - mean) * (flux[i - lag] - mean);
+			}
+			corr[lag] = sum / (flux.length - lag);
+		}
+
+		int best = minLag;
+		for (int lag = minLag; lag <= maxLag; lag++) {
+			if (corr[lag] > corr[best]) {
+				best = lag;
+			}
+		}
+		if (corr[best] <= 0.0D) {
+			return null;
+		}
+
+		/*
+		 * A beat also correlates at twice its length, which sometimes wins by a
+		 * small margin when the tempo does not land on a whole hop. Prefer the
+		 * faster tempo whenever it correlates nearly as well.
+		 */
+		while (best / 2 >= minLag) {
+			int half = best / 2;
+			for (int lag = Math.max(half - 1, minLag); lag <= half + 1; lag++) {
+				if (corr[lag] > corr[half]) {
+					half = lag;
+				}
+			}
+			if (corr[half] < corr[best] * HALF_LAG_RATIO) {
+				break;
+			}
+			best = half;
+		}
+
+		/* parabolic interpolation for a fractional lag */
+		double lag = best;
+		if (best > minLag) {
+			double a = corr[best - 1], b = corr[best], c = corr[best + 1];
+			double denom = a - 2.0D * b + c;
+			if (denom != 0.0D) {
+				lag += 0.5D * (a - c) / denom;
+			}
+		}
+
+		int bestPhase = 0;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int phase = 0; phase < (int) Math.ceil(lag); phase++) {
+			double score = 0.0D;
+			for (double i = phase; i < flux.length; i += lag) {
+				int index = (int) Math.round(i);
+				if (index >= flux.length) {
+					break;
+				}
+				score += flux[index];
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				bestPhase = phase;
+			}
+		}
+
+		/*
+		 * The lag is only precise to a fraction of a hop, which adds up to a
+		 * noticeable drift over a long song. Refine it by fitting a line
+		 * through the flux peak nearest to each predicted beat.
+		 */
+		int radius = Math.max((int) (lag / 4.0D), 1);
+		double sumK = 0.0D, sumX = 0.0D, sumKK = 0.0D, sumKX = 0.0D;
+		int points = 0;
+		for (int k = 0; bestPhase + k * lag < flux.length; k++) {
+			int center = (int) Math.round(bestPhase + k * lag);
+			int peak = -1;
+			for (int i = Math.max(center - radius, 0); i <= center + radius
+					&& i < flux.length; i++) {
+				if (flux[i] > mean && (peak < 0 || flux[i] > flux[peak])) {
+					peak = i;
+				}
+			}
+			if (peak >= 0) {
+				sumK += k;
+				sumX += peak;
+				sumKK += (double) k * k;
+				sumKX += (double) k * peak;
+				points++;
+			}
+		}
+
+		double phase = bestPhase;
+		double denom = points * sumKK - sumK * sumK;
+		if (points >= 4 && denom > 0.0D) {
+			double fitLag = (points * sumKX - sumK * sumX) / denom;
+			if (Math.abs(fitLag - lag) < 1.0D) {
+				lag = fitLag;
+				phase = (sumX - fitLag * sumK) / points;
+				while (phase - lag >= 0.0D) {
+					phase -= lag;
+				}
+				phase = Math.max(phase, 0.0D);
+			}
+		}
+
+		return new double[] { hopsPerMinute / lag, phase };
+	}
+
+	/**
+	 * Analyzes an audio source for its onsets and tempo. If the length of the
+	 * audio is known, it is split into segments analyzed in parallel, each
+	 * opening the audio source again with {@code opener}. Otherwise, the audio
+	 * is analyzed as a single segment.
+	 *
+	 * @param opener
+	 *            the function which opens the audio source. Sources which are
+	 *            {@link Closeable} are closed once read.
+	 * @return the beat map of the audio.
+	 * @throws NullPointerException
+	 *             if {@code opener} is {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public BeatMap analyze(Callable<? extends AudioSource> opener)
+			throws IOException {
+		Objects.requireNonNull(opener, "opener");
+
+		int frequencyHz;
+		long totalFrames = -1L;
+		AudioSource probe = open(opener);
+		try {
+			frequencyHz = probe.getFrequencyHz();
+			try {
+				long frameSize = probe.getChannelCount()
+						* probe.getBytesPerSample();
+				totalFrames = probe.pcmLength() / frameSize;
+			} catch (UnsupportedOperationException e) {
+				/* analyze as a single segment */
+			}
+		} finally {
+			close(probe);
+		}
+
+		List<Future<float[]>> segments = new ArrayList<>();
+		if (totalFrames < 0) {
+			segments.add(executor.submit(() -> analyzeSegment(opener, 0, -1)));
+		} else {
+			int totalHops = (int) Math.max((totalFrames - FFT_SIZE) / HOP + 1,
+					0);
+			int segmentHops = SEGMENT_SECONDS * frequencyHz / HOP;
+			for (int hop = 0; hop < totalHops; hop += segmentHops) {
+				int firstHop = hop;
+				int hops = Math.min(segmentHops, totalHops - hop);
+				segments.add(executor.submit(
+						() -> analyzeSegment(opener, firstHop, hops)));
+			}
+		}
+
+		float[] flux = new float[0];
+		try {
+			for (Future<float[]> segment : segments) {
+				float[] part = segment.get();
+				int len = flux.length;
+				flux = Arrays.copyOf(flux, len + part.length);
+				System.arraycopy(part, 0, flux, len, part.length);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted during analysis", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("failed to analyze segment", e.getCause());
+		} finally {
+			for (Future<float[]> segment : segments) {
+				segment.cancel(true);
+			}
+		}
+
+		long[] onsets = pickOnsets(flux, frequencyHz);
+		long lengthMillis = totalFrames >= 0 ? totalFrames * 1000L / frequencyHz
+				: ((long) flux.length * HOP + FFT_SIZE) * 1000L / frequencyHz;
+
+		double[] tempo = findTempo(flux, frequencyHz);
+		if (tempo == null) {
+			return new BeatMap(0.0F, 0L, onsets, lengthMillis);
+		}
+		long firstBeat = hopMillis(tempo[1], frequencyHz);
+		return new BeatMap((float) tempo[0], firstBeat, onsets, lengthMillis);
+	}
+
+}
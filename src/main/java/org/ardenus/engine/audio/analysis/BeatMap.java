@@ -0,0 +1,113 @@
+package org.ardenus.engine.audio.analysis;
+
+import java.util.Objects;
+
+import org.ardenus.engine.audio.sound.SoundTrigger;
+
+/**
+ * The onsets and tempo of a piece of audio, as found by a
+ * {@link BeatAnalyzer}.
+ * <p>
+ * A beat map can be turned into {@link SoundTrigger sound triggers}, so music
+ * reactive effects do not need their trigger times authored by hand.
+ *
+ * @see BeatMapCache
+ */
+public class BeatMap {
+
+	/**
+	 * The estimated tempo in beats per minute, {@code 0.0F} if no tempo could
+	 * be found.
+	 */
+	public final float tempoBpm;
+
+	/**
+	 * The time of the first beat in milliseconds. Every following beat is
+	 * spaced evenly according to {@link #tempoBpm}.
+	 */
+	public final long firstBeatMillis;
+
+	/**
+	 * The time of each detected onset in milliseconds, in ascending order. An
+	 * onset is the start of a note or percussive hit.
+	 */
+	public final long[] onsetsMillis;
+
+	/**
+	 * The length of the analyzed audio in milliseconds.
+	 */
+	public final long lengthMillis;
+
+	/**
+	 * @param tempoBpm
+	 *            the tempo in beats per minute, {@code 0.0F} if unknown.
+	 * @param firstBeatMillis
+	 *            the time of the first beat in milliseconds.
+	 * @param onsetsMillis
+	 *            the time of each onset in milliseconds, in ascending order.
+	 * @param lengthMillis
+	 *            the length of the audio in milliseconds.
+	 * @throws NullPointerException
+	 *             if {@code onsetsMillis} is {@code null}.
+	 */
+	public BeatMap(float tempoBpm, long firstBeatMillis, long[] onsetsMillis,
+			long lengthMillis) {
+		this.tempoBpm = tempoBpm;
+		this.firstBeatMillis = firstBeatMillis;
+		this.onsetsMillis = Objects.requireNonNull(onsetsMillis,
+				"onsetsMillis");
+		this.lengthMillis = lengthMillis;
+	}
+
+	/**
+	 * Computes the time of each beat from the first beat up to the end of the
+	 * audio. Each time is computed from the first beat directly rather than
+	 * by adding up a rounded interval, so there is no drift over long songs.
+	 *
+	 * @return the time of each beat in milliseconds, empty if no tempo was
+	 *         found.
+	 */
+	public long[] beatsMillis() {
+		if (tempoBpm <= 0.0F) {
+			return new long[0];
+		}
+		double interval = 60000.0D / tempoBpm;
+		int count = (int) ((lengthMillis - firstBeatMillis) / interval) + 1;
+		long[] beats = new long[Math.max(count, 0)];
+		for (int i = 0; i < beats.length; i++) {
+			beats[i] = firstBeatMillis + Math.round(interval * i);
+		}
+		return beats;
+	}
+
+	/**
+	 * @param id
+	 *            the trigger ID.
+	 * @return a sound trigger which goes off at each onset.
+	 * @throws IllegalStateException
+	 *             if no onsets were detected.
+	 */
+	public SoundTrigger onsetTrigger(long id) {
+		if (onsetsMillis.length <= 0) {
+			throw new IllegalStateException("no onsets");
+		}
+		return new SoundTrigger(id, onsetsMillis);
+	}
+
+	/**
+	 * @param id
+	 *            the trigger ID.
+	 * @return a sound trigger which goes off at each beat.
+	 * @throws IllegalStateException
+	 *             if no tempo was found.
+	 * @see #beatsMillis()
+	 */
+	public SoundTrigger beatTrigger(long id) {
+		long[] beats = this.beatsMillis();
+		if (beats.length <= 0) {
+			throw new IllegalStateException("no tempo");
+		}
+		return new SoundTrigger(id, beats);
+	}
+
+}
@@ -0,0 +1,257 @@
+package org.ardenus.engine.audio.analysis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ardenus.engine.audio.AudioSource;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Keeps the results of a {@link BeatAnalyzer} on disk, so each audio file
+ * only has to be analyzed once.
+ * <p>
+ * Results are keyed by a hash of the contents of the audio file, rather than
+ * its path. This means a file which is moved or renamed is still cached, and
+ * a file whose contents have changed is analyzed again. Results from an older
+ * version of the analyzer are also analyzed again.
+ */
+public class BeatMapCache {
+
+	private static final Logger LOG = LogManager.getLogger(BeatMapCache.class);
+	private static final String EXTENSION = ".beats.json";
+
+	/**
+	 * Opens an audio file for analysis.
+	 */
+	@FunctionalInterface
+	public static interface AudioOpener {
+
+		/**
+		 * @param file
+		 *            the audio file.
+		 * @return the opened audio source.
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		public AudioSource open(File file) throws IOException;
+
+	}
+
+	private static class Entry {
+
+		private int version;
+		private BeatMap map;
+
+	}
+
+	/**
+	 * @param file
+	 *            the file to hash.
+	 * @return the SHA-256 hash of the contents of {@code file}, as a lowercase
+	 *         hexadecimal string.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public static String hash(File file) throws IOException {
+		Objects.requireNonNull(file, "file");
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-256 unavailable", e);
+		}
+
+		byte[] buf = new byte[65536];
+		try (InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buf)) != -1) {
+				digest.update(buf, 0, read);
+			}
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	private final File dir;
+	private final BeatAnalyzer analyzer;
+	private final Gson gson;
+
+	/**
+	 * @param dir
+	 *            the directory to store results in. It is created if it does
+	 *            not exist.
+	 * @param analyzer
+	 *            the analyzer used for files which are not yet cached.
+	 * @throws NullPointerException
+	 *             if {@code dir} or {@code analyzer} are {@code null}.
+	 */
+	public BeatMapCache(File dir, BeatAnalyzer analyzer) {
+		this.dir = Objects.requireNonNull(dir, "dir");
+		this.analyzer = Objects.requireNonNull(analyzer, "analyzer");
+		this.gson = new Gson();
+	}
+
+	/**
+	 * Constructs a new {@code BeatMapCache} which analyzes files with a
+	 * default {@link BeatAnalyzer}.
+	 *
+	 * @param dir
+	 *            the directory to store results in. It is created if it does
+	 *            not exist.
+	 * @throws NullPointerException
+	 *             if {@code dir} is {@code null}.
+	 */
+	public BeatMapCache(File dir) {
+		this(dir, new BeatAnalyzer());
+	}
+
+	private Path entryPath(String hash) {
+		return new File(dir, hash + EXTENSION).toPath();
+	}
+
+	private BeatMap read(String hash) {
+		Path path = this.entryPath(hash);
+		if (!Files.isRegularFile(path)) {
+			return null;
+		}
+
+		try (Reader in = Files.newBufferedReader(path,
+				StandardCharsets.UTF_8)) {
+			Entry entry = gson.fromJson(in, Entry.class);
+			if (entry == null || entry.map == null
+					|| entry.version != BeatAnalyzer.VERSION) {
+				return null; /* stale, analyze again */
+			}
+			return entry.map;
+		} catch (IOException | JsonParseException e) {
+			LOG.warn("Discarding unreadable beat map " + path, e);
+			return null;
+		}
+	}
+
+	private void write(String hash, BeatMap map) throws IOException {
+		Files.createDirectories(dir.toPath());
+		Entry entry = new Entry();
+		entry.version = BeatAnalyzer.VERSION;
+		entry.map = map;
+
+		/*
+		 * Write to a temporary file first and move it into place, so a crash
+		 * midway through never leaves a partial entry behind.
+		 */
+		Path path = this.entryPath(hash);
+		Path temp = Files.createTempFile(dir.toPath(), hash, ".tmp");
+		try {
+			try (Writer out = Files.newBufferedWriter(temp,
+					StandardCharsets.UTF_8)) {
+				gson.toJson(entry, out);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * @param file
+	 *            the audio file.
+	 * @return {@code true} if the results for {@code file} are cached,
+	 *         {@code false} otherwise.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public boolean isCached(File file) throws IOException {
+		return this.read(hash(file)) != null;
+	}
+
+	/**
+	 * Returns the cached results for an audio file, analyzing it first if
+	 * they are not yet cached.
+	 *
+	 * @param file
+	 *            the audio file.
+	 * @param opener
+	 *            the function which opens {@code file} as an audio source.
+	 * @return the beat map of {@code file}.
+	 * @throws NullPointerException
+	 *             if {@code file} or {@code opener} are {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public BeatMap get(File file, AudioOpener opener) throws IOException {
+		Objects.requireNonNull(opener, "opener");
+		String hash = hash(file);
+		BeatMap map = this.read(hash);
+		if (map != null) {
+			return map;
+		}
+
+		LOG.info("Analyzing beats of " + file.getName() + "...");
+		map = analyzer.analyze(() -> opener.open(file));
+		this.write(hash, map);
+		return map;
+	}
+
+	/**
+	 * Returns the results for many audio files at once. Only the files which
+	 * are not yet cached are analyzed, which makes this suitable for running
+	 * over an entire music library each time it changes.
+	 * <p>
+	 * Files are analyzed one after another, with each file split into
+	 * segments which are analyzed in parallel. A file which fails to be
+	 * analyzed is logged and left out of the results, so one bad file does
+	 * not stop the rest.
+	 *
+	 * @param files
+	 *            the audio files.
+	 * @param opener
+	 *            the function which opens each file as an audio source.
+	 * @return the beat map of each file which was cached or analyzed
+	 *         successfully, in the same order as {@code files}.
+	 * @throws NullPointerException
+	 *             if {@code files} or {@code opener} are {@code null}.
+	 */
+	public Map<File, BeatMap> getAll(Collection<File> files,
+			AudioOpener opener) {
+		Objects.requireNonNull(files, "files");
+		Objects.requireNonNull(opener, "opener");
+		Map<File, BeatMap> maps = new LinkedHashMap<>();
+		for (File file : files) {
+			try {
+				maps.put(file, this.get(file, opener));
+			} catch (IOException e) {
+				LOG.error("Failed to analyze beats of " + file, e);
+			}
+		}
+		return maps;
+	}
+
+}
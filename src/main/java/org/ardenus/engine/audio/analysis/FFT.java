@@ -0,0 +1,99 @@
+package org.ardenus.engine.audio.analysis;
+
+/**
+ * An in-place, radix-2 fast Fourier transform of a fixed size.
+ * <p>
+ * All tables (twiddle factors and bit reversal indices) are computed at
+ * construction. Performing a transform does not allocate any memory, so it is
+ * fit to be run continuously.
+ * <p>
+ * Instances of {@code FFT} are thread-safe, as their tables are never
+ * changed after construction and no other state is kept between transforms.
+ * A single instance can be used by many threads at once, so long as each
+ * transforms arrays of its own.
+ */
+public class FFT {
+
+	public final int size;
+	private final int[] reverse;
+	private final float[] cos;
+	private final float[] sin;
+
+	/**
+	 * @param size
+	 *            the amount of samples per transform.
+	 * @throws IllegalArgumentException
+	 *             if {@code size} is not a power of two greater than or equal
+	 *             to {@code 2}.
+	 */
+	public FFT(int size) {
+		if (size < 2 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("size must be a power of two");
+		}
+		this.size = size;
+
+		int bits = Integer.numberOfTrailingZeros(size);
+		this.reverse = new int[size];
+		for (int i = 0; i < size; i++) {
+			reverse[i] = Integer.reverse(i) >>> (Integer.SIZE - bits);
+		}
+
+		this.cos = new float[size / 2];
+		this.sin = new float[size / 2];
+		for (int i = 0; i < size / 2; i++) {
+			double angle = -2.0D * Math.PI * i / size;
+			cos[i] = (float) Math.cos(angle);
+			sin[i] = (float) Math.sin(angle);
+		}
+	}
+
+	/**
+	 * Performs a forward transform in place.
+	 *
+	 * @param re
+	 *            the real components, must have a length of at least
+	 *            {@link #size}.
+	 * @param im
+	 *            the imaginary components, must have a length of at least
+	 *            {@link #size}.
+	 * @throws IllegalArgumentException
+	 *             if either array is shorter than {@link #size}.
+	 */
+	public void transform(float[] re, float[] im) {
+		if (re.length < size || im.length < size) {
+			throw new IllegalArgumentException("arrays shorter than size");
+		}
+
+		for (int i = 0; i < size; i++) {
+			int j = reverse[i];
+			if (j > i) {
+				float tr = re[i];
+				re[i] = re[j];
+				re[j] = tr;
+				float ti = im[i];
+				im[i] = im[j];
+				im[j] = ti;
+			}
+		}
+
+		for (int len = 2; len <= size; len <<= 1) {
+			int half = len >> 1;
+			int step = size / len;
+			for (int i = 0; i < size; i += len) {
+				for (int j = 0; j < half; j++) {
+					float wr = cos[j * step];
+					float wi = sin[j * step];
+					int a = i + j;
+					int b = a + half;
+					float xr = re[b] * wr - im[b] * wi;
+					float xi = re[b] * wi + im[b] * wr;
+					re[b] = re[a] - xr;
+					im[b] = im[a] - xi;
+					re[a] += xr;
+					im[a] += xi;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package org.ardenus.engine.audio.analysis;
+
+/**
+ * The result of analyzing a single block of PCM data, as produced by an
+ * {@link AnalysisTap}.
+ * <p>
+ * Instances of {@code Spectrum} are reused by their tap. The contents of a
+ * spectrum returned by {@link AnalysisTap#latest()} are only valid until the
+ * next call to that method.
+ */
+public class Spectrum {
+
+	/**
+	 * The magnitude of each FFT bin, from {@code 0Hz} up to half the frequency
+	 * of the audio. Magnitudes are normalized so a full scale sine wave has a
+	 * magnitude of about {@code 1.0F}.
+	 */
+	public final float[] bins;
+
+	/**
+	 * The average magnitude of the bins within each band. Bands are spaced
+	 * logarithmically, which is closer to how pitch is heard than the linear
+	 * spacing of {@link #bins}.
+	 */
+	public final float[] bands;
+
+	/**
+	 * The root mean square level of the block, between {@code 0.0F} and
+	 * {@code 1.0F}.
+	 */
+	public float rms;
+
+	/**
+	 * The peak level of the block, between {@code 0.0F} and {@code 1.0F}.
+	 */
+	public float peak;
+
+	/**
+	 * The offset in bytes of the block within its audio source.
+	 */
+	public int offset;
+
+	/**
+	 * How many blocks have been analyzed by the tap, including this one. This
+	 * is {@code 0} if no block has been analyzed yet.
+	 */
+	public long sequence;
+
+	protected Spectrum(int binCount, int bandCount) {
+		this.bins = new float[binCount];
+		this.bands = new float[bandCount];
+	}
+
+}
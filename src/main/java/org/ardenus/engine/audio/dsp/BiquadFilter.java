@@ -0,0 +1,264 @@
+package org.ardenus.engine.audio.dsp;
+
+import java.util.Objects;
+
+/**
+ * A second order IIR filter, using the formulas from the Audio EQ Cookbook by
+ * Robert Bristow-Johnson.
+ * <p>
+ * The frequency, Q and gain of the filter are {@link SmoothedValue smoothed},
+ * so they can be changed while audio plays. For example, sweeping the cutoff
+ * of a low-pass filter down to a few hundred Hz gives the muffled sound of
+ * being underwater. While parameters are changing, the coefficients of the
+ * filter are updated every {@value #UPDATE_INTERVAL} frames.
+ */
+public class BiquadFilter implements Processor {
+
+	/**
+	 * The response of a biquad filter.
+	 */
+	public static enum Type {
+
+		/**
+		 * Passes frequencies below the cutoff, and cuts those above it.
+		 */
+		LOW_PASS,
+
+		/**
+		 * Passes frequencies above the cutoff, and cuts those below it.
+		 */
+		HIGH_PASS,
+
+		/**
+		 * Boosts or cuts frequencies around the center frequency by the gain.
+		 */
+		PEAKING,
+
+		/**
+		 * Boosts or cuts frequencies below the corner frequency by the gain.
+		 */
+		LOW_SHELF,
+
+		/**
+		 * Boosts or cuts frequencies above the corner frequency by the gain.
+		 */
+		HIGH_SHELF;
+
+	}
+
+	private static final int UPDATE_INTERVAL = 32;
+	private static final float SMOOTHING_SECONDS = 0.05F;
+	private static final float MIN_FREQUENCY_HZ = 10.0F;
+	private static final float MIN_Q = 0.01F;
+
+	/**
+	 * @param cutoffHz
+	 *            the cutoff frequency in Hz.
+	 * @return a new low-pass filter with a Q of {@code 0.7071F}, the flattest
+	 *         response without a peak at the cutoff.
+	 */
+	public static BiquadFilter lowPass(float cutoffHz) {
+		return new BiquadFilter(Type.LOW_PASS, cutoffHz, 0.7071F, 0.0F);
+	}
+
+	/**
+	 * @param cutoffHz
+	 *            the cutoff frequency in Hz.
+	 * @return a new high-pass filter with a Q of {@code 0.7071F}, the flattest
+	 *         response without a peak at the cutoff.
+	 */
+	public static BiquadFilter highPass(float cutoffHz) {
+		return new BiquadFilter(Type.HIGH_PASS, cutoffHz, 0.7071F, 0.0F);
+	}
+
+	public final Type type;
+	private final SmoothedValue frequencyHz;
+	private final SmoothedValue q;
+	private final SmoothedValue gainDb;
+
+	private int sampleRate;
+	private int channelCount;
+	private float b0, b1, b2, a1, a2;
+	private float[] z1;
+	private float[] z2;
+
+	/**
+	 * @param type
+	 *            the filter type.
+	 * @param frequencyHz
+	 *            the cutoff, center or corner frequency in Hz, depending on
+	 *            {@code type}.
+	 * @param q
+	 *            the Q of the filter. Higher values give a narrower band (or a
+	 *            sharper peak at the cutoff of a pass filter).
+	 * @param gainDb
+	 *            the gain in decibels, only used by peaking and shelf filters.
+	 * @throws NullPointerException
+	 *             if {@code type} is {@code null}.
+	 */
+	public BiquadFilter(Type type, float frequencyHz, float q, float gainDb) {
+		this.type = Objects.requireNonNull(type, "type");
+		this.frequencyHz = new SmoothedValue(frequencyHz, SMOOTHING_SECONDS);
+		this.q = new SmoothedValue(Math.max(q, MIN_Q), SMOOTHING_SECONDS);
+		this.gainDb = new SmoothedValue(gainDb, SMOOTHING_SECONDS);
+	}
+
+	/**
+	 * @return the target cutoff, center or corner frequency in Hz.
+	 */
+	public float getFrequencyHz() {
+		return frequencyHz.getTarget();
+	}
+
+	/**
+	 * @param frequencyHz
+	 *            the cutoff, center or corner frequency in Hz. It is capped to
+	 *            just under half the frequency of the audio.
+	 */
+	public void setFrequencyHz(float frequencyHz) {
+		this.frequencyHz.setTarget(frequencyHz);
+	}
+
+	/**
+	 * @return the target Q of the filter.
+	 */
+	public float getQ() {
+		return q.getTarget();
+	}
+
+	/**
+	 * @param q
+	 *            the Q of the filter.
+	 */
+	public void setQ(float q) {
+		this.q.setTarget(Math.max(q, MIN_Q));
+	}
+
+	/**
+	 * @return the target gain in decibels.
+	 */
+	public float getGainDb() {
+		return gainDb.getTarget();
+	}
+
+	/**
+	 * @param gainDb
+	 *            the gain in decibels, only used by peaking and shelf filters.
+	 */
+	public void setGainDb(float gainDb) {
+		this.gainDb.setTarget(gainDb);
+	}
+
+	@Override
+	public void prepare(int frequencyHz, int channelCount) {
+		this.sampleRate = frequencyHz;
+		this.channelCount = channelCount;
+		this.z1 = new float[channelCount];
+		this.z2 = new float[channelCount];
+		this.frequencyHz.prepare(frequencyHz);
+		this.q.prepare(frequencyHz);
+		this.gainDb.prepare(frequencyHz);
+		this.updateCoefficients();
+	}
+
+	private void updateCoefficients() {
+		double freq = Math.max(MIN_FREQUENCY_HZ,
+				Math.min(frequencyHz.get(), sampleRate * 0.49F));
+		double w0 = 2.0D * Math.PI * freq / sampleRate;
+		double cos = Math.cos(w0);
+		double alpha = Math.sin(w0) / (2.0D * q.get());
+		double a = Math.pow(10.0D, gainDb.get() / 40.0D);
+		double sqrtA2Alpha = 2.0D * Math.sqrt(a) * alpha;
+
+		double nb0, nb1, nb2, na0, na1, na2;
+		switch (type) {
+		case LOW_PASS:
+			nb0 = (1.0D - cos) / 2.0D;
+			nb1 = 1.0D - cos;
+			nb2 = nb0;
+			na0 = 1.0D + alpha;
+			na1 = -2.0D * cos;
+			na2 = 1.0D - alpha;
+			break;
+		case HIGH_PASS:
+			nb0 = (1.0D + cos) / 2.0D;
+			nb1 = -(1.0D + cos);
+			nb2 = nb0;
+			na0 = 1.0D + alpha;
+			na1 = -2.0D * cos;
+			na2 = 1.0D - alpha;
+			break;
+		case PEAKING:
+			nb0 = 1.0D + alpha * a;
+			nb1 = -2.0D * cos;
+			nb2 = 1.0D - alpha * a;
+			na0 = 1.0D + alpha / a;
+			na1 = -2.0D * cos;
+			na2 = 1.0D - alpha / a;
+			break;
+		case LOW_SHELF:
+			nb0 = a * ((a + 1.0D) - (a - 1.0D) * cos + sqrtA2Alpha);
+			nb1 = 2.0D * a * ((a - 1.0D) - (a + 1.0D) * cos);
+			nb2 = a * ((a + 1.0D) - (a - 1.0D) * cos - sqrtA2Alpha);
+			na0 = (a + 1.0D) + (a - 1.0D) * cos + sqrtA2Alpha;
+			na1 = -2.0D * ((a - 1.0D) + (a + 1.0D) * cos);
+			na2 = (a + 1.0D) + (a - 1.0D) * cos - sqrtA2Alpha;
+			break;
+		case HIGH_SHELF:
+			nb0 = a * ((a + 1.0D) + (a - 1.0D) * cos + sqrtA2Alpha);
+			nb1 = -2.0D * a * ((a - 1.0D) + (a + 1.0D) * cos);
+			nb2 = a * ((a + 1.0D) + (a - 1.0D) * cos - sqrtA2Alpha);
+			na0 = (a + 1.0D) - (a - 1.0D) * cos + sqrtA2Alpha;
+			na1 = 2.0D * ((a - 1.0D) - (a + 1.0D) * cos);
+			na2 = (a + 1.0D) - (a - 1.0D) * cos - sqrtA2Alpha;
+			break;
+		default:
+			throw new IllegalStateException("unknown type");
+		}
+
+		this.b0 = (float) (nb0 / na0);
+		this.b1 = (float) (nb1 / na0);
+		this.b2 = (float) (nb2 / na0);
+		this.a1 = (float) (na1 / na0);
+		this.a2 = (float) (na2 / na0);
+	}
+
+	@Override
+	public void process(float[] samples, int frames) {
+		for (int start = 0; start < frames; start += UPDATE_INTERVAL) {
+			int end = Math.min(start + UPDATE_INTERVAL, frames);
+			if (frequencyHz.isSmoothing() || q.isSmoothing()
+					|| gainDb.isSmoothing()) {
+				frequencyHz.skip(end - start);
+				q.skip(end - start);
+				gainDb.skip(end - start);
+				this.updateCoefficients();
+			}
+
+			/* transposed direct form II, one channel at a time */
+			for (int c = 0; c < channelCount; c++) {
+				float s1 = z1[c];
+				float s2 = z2[c];
+				for (int i = start * channelCount + c; i < end
+						* channelCount; i += channelCount) {
+					float x = samples[i];
+					float y = b0 * x + s1;
+					s1 = b1 * x - a1 * y + s2;
+					s2 = b2 * x - a2 * y;
+					samples[i] = y;
+				}
+				z1[c] = s1;
+				z2[c] = s2;
+			}
+		}
+	}
+
+	@Override
+	public void reset() {
+		for (int c = 0; c < channelCount; c++) {
+			z1[c] = 0.0F;
+			z2[c] = 0.0F;
+		}
+	}
+
+}
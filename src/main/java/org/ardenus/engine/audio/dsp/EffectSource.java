@@ -0,0 +1,473 @@
+package org.ardenus.engine.audio.dsp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.sound.StreamedSound;
+
+/**
+ * An audio source which applies insert effects to another audio source.
+ * <p>
+ * To put effects on a {@link StreamedSound}, wrap its audio source before
+ * creating the sound:
+ *
+ * <pre>
+ * BiquadFilter muffle = BiquadFilter.lowPass(20000.0F);
+ * Sound music = new StreamedSound(new EffectSource(ogg, muffle));
+ * muffle.setFrequencyHz(400.0F); // underwater
+ * </pre>
+ * <p>
+ * Blocks are decoded and processed ahead of time on an executor (by default,
+ * the {@link Audio#workers() audio workers}). By the time the audio thread
+ * reads from this source, it only has to copy out blocks which are already
+ * finished. The audio thread never decodes or processes a block itself, nor
+ * waits for the workers to. Should they fall behind, silence is played, and
+ * the same amount of audio is dropped from the blocks which come next. This
+ * keeps the audio in time with its position, without a seek.
+ * <p>
+ * Blocks are always processed in order, so the state of each processor
+ * carries over from one block to the next. A read from an offset other than
+ * where the last read ended is treated as a seek. Blocks processed ahead are
+ * thrown away, and the state of each processor is reset. As such, this is
+ * not a {@link AudioSource#isRandomAccess() random access} source.
+ */
+public class EffectSource implements AudioSource, Closeable {
+
+	private static final Logger LOG = LogManager.getLogger(EffectSource.class);
+	private static final int BLOCK_FRAMES = 4096;
+	private static final int BLOCK_COUNT = 4;
+
+	private static class Block {
+
+		private final byte[] data;
+		private int offset;
+		private int len;
+		private int pos;
+
+		private Block(int size) {
+			this.data = new byte[size];
+		}
+
+	}
+
+	private final AudioSource audio;
+	private final boolean owned;
+	private final Processor[] processors;
+	private final Executor executor;
+	private final int frameSize;
+	private final float[] samples;
+	private final byte[] scratch;
+
+	/*
+	 * The lock guards the queues and positions, and is only ever held
+	 * briefly. The process lock is held while a block is being read from the
+	 * audio source and processed, which keeps blocks in order. The audio
+	 * thread only ever takes the first.
+	 */
+	private final Lock lock;
+	private final Lock processLock;
+	private final ArrayDeque<Block> free;
+	private final ArrayDeque<Block> ready;
+	private final AtomicBoolean scheduled;
+	private final Runnable prefetcher;
+
+	private Block current;
+	private int readOffset;
+	private int processOffset;
+	private int skipped;
+	private int generation;
+	private boolean resetPending;
+	private boolean ended;
+	private boolean starved;
+	private boolean closed;
+
+	/**
+	 * @param audio
+	 *            the audio source to apply effects to.
+	 * @param owned
+	 *            {@code true} if {@code audio} should be closed when this
+	 *            source is closed (assuming it is {@link Closeable}),
+	 *            {@code false} otherwise.
+	 * @param executor
+	 *            the executor to process blocks ahead of time on. To read
+	 *            faster than the audio plays (such as when writing it to a
+	 *            file), use one which runs tasks on the calling thread, such
+	 *            as {@code Runnable::run}. Otherwise, reads made before the
+	 *            executor has caught up will be silent.
+	 * @param processors
+	 *            the processors to apply, in order.
+	 * @throws NullPointerException
+	 *             if {@code audio}, {@code executor} or {@code processors}
+	 *             (or any of its elements) are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the format of {@code audio} is not 8-bit or 16-bit.
+	 */
+	public EffectSource(AudioSource audio, boolean owned,
+			Executor executor, Processor... processors) {
+		this.audio = Objects.requireNonNull(audio, "audio");
+		this.owned = owned;
+		this.executor = Objects.requireNonNull(executor, "executor");
+		Objects.requireNonNull(processors, "processors");
+		this.processors = processors.clone();
+		for (Processor processor : this.processors) {
+			Objects.requireNonNull(processor, "processor");
+		}
+
+		int bytesPerSample = audio.getBytesPerSample();
+		if (bytesPerSample != 1 && bytesPerSample != 2) {
+			throw new IllegalArgumentException("bits per sample not 8 or 16");
+		}
+		int channelCount = audio.getChannelCount();
+		this.frameSize = channelCount * bytesPerSample;
+		this.samples = new float[BLOCK_FRAMES * channelCount];
+		this.scratch = new byte[BLOCK_FRAMES * frameSize];
+		for (Processor processor : this.processors) {
+			processor.prepare(audio.getFrequencyHz(), channelCount);
+		}
+
+		this.lock = new ReentrantLock();
+		this.processLock = new ReentrantLock();
+		this.free = new ArrayDeque<>(BLOCK_COUNT);
+		this.ready = new ArrayDeque<>(BLOCK_COUNT);
+		for (int i = 0; i < BLOCK_COUNT; i++) {
+			free.add(new Block(BLOCK_FRAMES * frameSize));
+		}
+		this.scheduled = new AtomicBoolean();
+		this.prefetcher = this::prefetch;
+		this.schedulePrefetch(); /* have blocks ready for the first read */
+	}
+
+	/**
+	 * Constructs a new {@code EffectSource} which processes blocks on the
+	 * {@link Audio#workers() audio workers}, and closes {@code audio} when it
+	 * is closed.
+	 *
+	 * @param audio
+	 *            the audio source to apply effects to.
+	 * @param processors
+	 *            the processors to apply, in order.
+	 * @throws NullPointerException
+	 *             if {@code audio} or {@code processors} (or any of its
+	 *             elements) are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the format of {@code audio} is not 8-bit or 16-bit.
+	 */
+	public EffectSource(AudioSource audio, Processor... processors) {
+		this(audio, true, Audio.workers(), processors);
+	}
+
+	@Override
+	public int getALFormat() {
+		return audio.getALFormat();
+	}
+
+	@Override
+	public int getFrequencyHz() {
+		return audio.getFrequencyHz();
+	}
+
+	@Override
+	public int getChannelCount() {
+		return audio.getChannelCount();
+	}
+
+	@Override
+	public int getBitsPerSample() {
+		return audio.getBitsPerSample();
+	}
+
+	@Override
+	public long pcmLength() {
+		return audio.pcmLength();
+	}
+
+	private void toFloat(byte[] data, int len) {
+		if (frameSize / audio.getChannelCount() == 1) {
+			for (int i = 0; i < len; i++) {
+				samples[i] = ((data[i] & 0xFF) - 128) / 128.0F;
+			}
+		} else {
+			for (int i = 0, j = 0; i < len; i += 2, j++) {
+				int lo = data[i] & 0xFF;
+				samples[j] = (short) ((data[i + 1] << 8) | lo) / 32768.0F;
+			}
+		}
+	}
+
+	private void fromFloat(byte[] data, int len) {
+		if (frameSize / audio.getChannelCount() == 1) {
+			for (int i = 0; i < len; i++) {
+				float s = Math.max(-1.0F, Math.min(samples[i], 1.0F));
+				data[i] = (byte) (Math.round(s * 127.0F) + 128);
+			}
+		} else {
+			for (int i = 0, j = 0; i < len; i += 2, j++) {
+				float s = Math.max(-1.0F, Math.min(samples[j], 1.0F));
+				int value = Math.round(s * 32767.0F);
+				data[i] = (byte) value;
+				data[i + 1] = (byte) (value >> 8);
+			}
+		}
+	}
+
+	/**
+	 * Reads and processes the next block, if there is room for it.
+	 *
+	 * @return {@code true} if a block was processed, {@code false} if there
+	 *         was no room, no audio was available, or the end of the audio
+	 *         has been reached.
+	 */
+	private boolean processNext() throws IOException {
+		processLock.lock();
+		try {
+			Block block;
+			int gen;
+			int offset;
+			lock.lock();
+			try {
+				if (ended == true || closed == true || free.isEmpty()) {
+					return false;
+				}
+				block = free.poll();
+				gen = this.generation;
+				offset = this.processOffset;
+				if (resetPending == true) {
+					this.resetPending = false;
+					for (Processor processor : processors) {
+						processor.reset();
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			int len = 0;
+			boolean eof = false;
+			try {
+				while (len < block.data.length) {
+					/*
+					 * Audio sources always read into the start of the buffer,
+					 * so read into scratch space and append from there.
+					 */
+					int read = audio.readPCM(offset + len, scratch,
+							block.data.length - len);
+					if (read == -1) {
+						eof = true;
+						break;
+					} else if (read == 0) {
+						break; /* nothing more available right now */
+					}
+					System.arraycopy(scratch, 0, block.data, len, read);
+					len += read;
+				}
+				len -= len % frameSize;
+
+				if (len > 0) {
+					this.toFloat(block.data, len);
+					for (Processor processor : processors) {
+						processor.process(samples, len / frameSize);
+					}
+					this.fromFloat(block.data, len);
+				}
+			} catch (IOException | RuntimeException e) {
+				lock.lock();
+				try {
+					free.add(block);
+				} finally {
+					lock.unlock();
+				}
+				throw e;
+			}
+
+			lock.lock();
+			try {
+				if (gen != generation) {
+					free.add(block); /* seeked while processing */
+				} else if (len <= 0) {
+					free.add(block);
+					this.ended = eof;
+					/*
+					 * With no audio available right now, trying again at once
+					 * would only spin. Wait for the next read to ask again.
+					 */
+					this.starved = (eof == false);
+					return false;
+				} else {
+					block.offset = offset;
+					block.len = len;
+					block.pos = 0;
+					this.processOffset += len;
+					ready.add(block);
+				}
+			} finally {
+				lock.unlock();
+			}
+			return true;
+		} finally {
+			processLock.unlock();
+		}
+	}
+
+	private void prefetch() {
+		do {
+			try {
+				while (this.processNext()) {
+					/* keep going until every block is full */
+				}
+			} catch (IOException | RuntimeException e) {
+				LOG.error("Error processing audio", e);
+			}
+			scheduled.set(false);
+		} while (this.needsPrefetch() && scheduled.compareAndSet(false, true));
+	}
+
+	private boolean needsPrefetch() {
+		lock.lock();
+		try {
+			return ended == false && starved == false && closed == false
+					&& !free.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void schedulePrefetch() {
+		if (scheduled.compareAndSet(false, true)) {
+			executor.execute(prefetcher);
+		}
+	}
+
+	private void seek(int offset) {
+		if (current != null) {
+			free.add(current);
+			this.current = null;
+		}
+		while (!ready.isEmpty()) {
+			free.add(ready.poll());
+		}
+		this.generation++;
+		this.readOffset = offset;
+		this.processOffset = offset;
+		this.skipped = 0;
+		this.resetPending = true;
+		this.ended = false;
+		this.starved = false;
+	}
+
+	/**
+	 * Fills part of a buffer with silence, in whole frames where possible.
+	 *
+	 * @return the amount of bytes filled.
+	 */
+	private int fillSilence(byte[] buf, int off, int len) {
+		if (len >= frameSize) {
+			len -= len % frameSize;
+		}
+		/* unsigned 8-bit audio is silent at its midpoint, not at zero */
+		byte silence = (byte) (frameSize / audio.getChannelCount() == 1
+				? 0x80 : 0x00);
+		Arrays.fill(buf, off, off + len, silence);
+		return len;
+	}
+
+	@Override
+	public int readPCM(int offset, byte[] buf, int len) throws IOException {
+		int copied = 0;
+			lock.lock();
+		try {
+			if (closed == true) {
+				return -1;
+			} else if (offset != readOffset) {
+				this.seek(offset);
+			}
+
+			while (copied < len) {
+				if (current != null && current.pos >= current.len) {
+					free.add(current);
+					this.current = null;
+				}
+				if (current == null) {
+					this.current = ready.poll();
+				}
+
+				if (current == null) {
+					/* a starved source is tried again by the next prefetch */
+					this.starved = false;
+					break; /* return what is ready rather than wait */
+				}
+
+				/*
+				 * Audio the caller heard as silence while the workers were
+				 * behind is dropped, so playback stays in time.
+				 */
+				if (skipped > 0) {
+					int n = Math.min(skipped, current.len - current.pos);
+					current.pos += n;
+					this.skipped -= n;
+					continue;
+				}
+
+				int n = Math.min(len - copied, current.len - current.pos);
+				System.arraycopy(current.data, current.pos, buf, copied, n);
+				current.pos += n;
+				copied += n;
+			}
+			if (copied <= 0 && len > 0) {
+				if (ended == true || closed == true) {
+					return -1;
+				}
+
+				/*
+				 * The workers have fallen behind, or the audio source has
+				 * nothing available right now. Play silence rather than leave
+				 * a gap, since a read of zero bytes would have the caller ask
+				 * again at once. The read offset moves past the silence, so
+				 * the next read continues on without a seek.
+				 */
+				copied = this.fillSilence(buf, 0, len);
+				this.skipped += copied;
+			}
+			this.readOffset += copied;
+		} finally {
+			lock.unlock();
+		}
+
+		this.schedulePrefetch();
+		return copied;
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed == true) {
+				return;
+			}
+			this.closed = true;
+		} finally {
+			lock.unlock();
+		}
+
+		/* wait for any block still being processed */
+		processLock.lock();
+		try {
+			if (owned == true && audio instanceof Closeable) {
+				((Closeable) audio).close();
+			}
+		} finally {
+			processLock.unlock();
+		}
+	}
+
+}
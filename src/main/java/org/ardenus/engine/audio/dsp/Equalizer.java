@@ -0,0 +1,117 @@
+package org.ardenus.engine.audio.dsp;
+
+import java.util.Objects;
+
+/**
+ * A multi-band equalizer, made up of a {@link BiquadFilter} for each band.
+ * <p>
+ * The lowest band is a low shelf and the highest band is a high shelf, so
+ * they also reach the very ends of the spectrum. Every band in between is a
+ * peaking filter. All bands start with a gain of zero decibels, which leaves
+ * the audio unchanged.
+ */
+public class Equalizer implements Processor {
+
+	private static final float BAND_Q = 1.0F;
+	private static final float SHELF_Q = 0.7071F;
+
+	private final BiquadFilter[] bands;
+
+	/**
+	 * @param frequenciesHz
+	 *            the center frequency of each band in Hz, from lowest to
+	 *            highest. There must be at least two bands.
+	 * @throws NullPointerException
+	 *             if {@code frequenciesHz} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if there are less than two bands.
+	 */
+	public Equalizer(float... frequenciesHz) {
+		Objects.requireNonNull(frequenciesHz, "frequenciesHz");
+		if (frequenciesHz.length < 2) {
+			throw new IllegalArgumentException("less than two bands");
+		}
+
+		int last = frequenciesHz.length - 1;
+		this.bands = new BiquadFilter[frequenciesHz.length];
+		bands[0] = new BiquadFilter(BiquadFilter.Type.LOW_SHELF,
+				frequenciesHz[0], SHELF_Q, 0.0F);
+		for (int i = 1; i < last; i++) {
+			bands[i] = new BiquadFilter(BiquadFilter.Type.PEAKING,
+					frequenciesHz[i], BAND_Q, 0.0F);
+		}
+		bands[last] = new BiquadFilter(BiquadFilter.Type.HIGH_SHELF,
+				frequenciesHz[last], SHELF_Q, 0.0F);
+	}
+
+	/**
+	 * Constructs a new three band {@code Equalizer}, with bass, mid, and
+	 * treble bands centered at {@code 200Hz}, {@code 1kHz} and {@code 4kHz}.
+	 */
+	public Equalizer() {
+		this(200.0F, 1000.0F, 4000.0F);
+	}
+
+	/**
+	 * @return the amount of bands.
+	 */
+	public int getBandCount() {
+		return bands.length;
+	}
+
+	/**
+	 * @param band
+	 *            the band index, lowest first.
+	 * @return the filter of {@code band}, which can be adjusted further.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code band} is out of bounds.
+	 */
+	public BiquadFilter getBand(int band) {
+		return bands[band];
+	}
+
+	/**
+	 * @param band
+	 *            the band index, lowest first.
+	 * @return the target gain of {@code band} in decibels.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code band} is out of bounds.
+	 */
+	public float getGainDb(int band) {
+		return bands[band].getGainDb();
+	}
+
+	/**
+	 * @param band
+	 *            the band index, lowest first.
+	 * @param gainDb
+	 *            the gain of {@code band} in decibels.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code band} is out of bounds.
+	 */
+	public void setGainDb(int band, float gainDb) {
+		bands[band].setGainDb(gainDb);
+	}
+
+	@Override
+	public void prepare(int frequencyHz, int channelCount) {
+		for (BiquadFilter band : bands) {
+			band.prepare(frequencyHz, channelCount);
+		}
+	}
+
+	@Override
+	public void process(float[] samples, int frames) {
+		for (BiquadFilter band : bands) {
+			band.process(samples, frames);
+		}
+	}
+
+	@Override
+	public void reset() {
+		for (BiquadFilter band : bands) {
+			band.reset();
+		}
+	}
+
+}
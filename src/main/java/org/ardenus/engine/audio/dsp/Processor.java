@@ -0,0 +1,48 @@
+package org.ardenus.engine.audio.dsp;
+
+/**
+ * Processes blocks of PCM data, such as a filter or a reverb.
+ * <p>
+ * Processors are given to an {@link EffectSource}, which calls
+ * {@link #prepare(int, int)} once up front and then {@link #process(float[],
+ * int)} for each block in order. Any state a processor keeps (such as the
+ * history of a filter) carries over from one block to the next, so blocks
+ * join together without clicks.
+ * <p>
+ * Since blocks are processed on audio workers as audio plays, processing
+ * must not allocate memory. All memory a processor needs is allocated by
+ * {@link #prepare(int, int)}.
+ */
+public interface Processor {
+
+	/**
+	 * Prepares this processor for audio of a certain format. This is called
+	 * before the first block is processed, and is where all memory should be
+	 * allocated.
+	 *
+	 * @param frequencyHz
+	 *            the frequency of the audio in Hz.
+	 * @param channelCount
+	 *            the amount of channels of the audio.
+	 */
+	public void prepare(int frequencyHz, int channelCount);
+
+	/**
+	 * Processes a block of audio in place.
+	 *
+	 * @param samples
+	 *            the samples, interleaved by channel and ranging from
+	 *            {@code -1.0F} to {@code 1.0F}.
+	 * @param frames
+	 *            the amount of frames in the block. The length of
+	 *            {@code samples} may be greater than needed.
+	 */
+	public void process(float[] samples, int frames);
+
+	/**
+	 * Clears any state kept between blocks, such as after a seek. This does
+	 * not change any parameters.
+	 */
+	public void reset();
+
+}
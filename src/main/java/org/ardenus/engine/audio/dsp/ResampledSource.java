@@ -0,0 +1,412 @@
+package org.ardenus.engine.audio.dsp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.sound.StreamedSound;
+
+/**
+ * An audio source which converts another audio source to a different
+ * frequency, using a polyphase windowed-sinc filter.
+ * <p>
+ * When a sound is played at a frequency other than that of the device, OpenAL
+ * resamples it on the fly as it mixes. The quality of this varies between
+ * implementations, and is often no better than linear interpolation. To have
+ * a {@link StreamedSound} converted to the frequency of the device before it
+ * is queued, wrap its audio source before creating the sound:
+ *
+ * <pre>
+ * Sound music = new StreamedSound(ResampledSource.toDevice(ogg));
+ * </pre>
+ * <p>
+ * The filter is a Kaiser windowed sinc of {@value #TAPS} taps, sampled at
+ * {@value #PHASES} phases between input frames. The table for each cutoff is
+ * computed once and then shared, so each output frame costs the same fixed
+ * amount of work regardless of the ratio between the two frequencies. Phases
+ * between those in the table are linearly interpolated.
+ * <p>
+ * Like {@link EffectSource}, a read from an offset other than where the last
+ * read ended is treated as a seek.
+ */
+public class ResampledSource implements AudioSource, Closeable {
+
+	private static final int TAPS = 32;
+	private static final int HALF_TAPS = TAPS / 2;
+	private static final int PHASES = 256;
+	private static final int READ_FRAMES = 2048;
+
+	/*
+	 * The cutoff is placed just under the lower of the two Nyquist
+	 * frequencies, which leaves room for the transition band of the filter.
+	 */
+	private static final double ROLLOFF = 0.92D;
+	private static final double KAISER_BETA = 8.0D;
+
+	private static final Map<Integer, float[]> TABLES =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Wraps an audio source so it plays at the frequency of the device. If
+	 * the audio is already at the frequency of the device, it is returned
+	 * as-is and nothing is wrapped.
+	 *
+	 * @param audio
+	 *            the audio source.
+	 * @return an audio source at the frequency of the device.
+	 * @throws NullPointerException
+	 *             if {@code audio} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if the audio system is not initialized.
+	 * @throws IllegalArgumentException
+	 *             if the format of {@code audio} is not 8-bit or 16-bit.
+	 * @see Audio#getFrequencyHz()
+	 */
+	public static AudioSource toDevice(AudioSource audio) {
+		Objects.requireNonNull(audio, "audio");
+		int deviceHz = Audio.getFrequencyHz();
+		if (audio.getFrequencyHz() == deviceHz) {
+			return audio;
+		}
+		return new ResampledSource(audio, deviceHz);
+	}
+
+	private static double besselI0(double x) {
+		double sum = 1.0D, term = 1.0D;
+		double halfX = x / 2.0D;
+		for (int k = 1; k < 32; k++) {
+			term *= (halfX / k) * (halfX / k);
+			sum += term;
+			if (term < sum * 1e-12D) {
+				break;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Builds the filter table for a cutoff, given as a fraction of the input
+	 * Nyquist frequency. Row {@code p} holds the taps for an output frame
+	 * which sits {@code p / PHASES} of the way past an input frame. There is
+	 * one extra row, so the last phase can be interpolated towards it.
+	 */
+	private static float[] buildTable(double cutoff) {
+		float[] table = new float[(PHASES + 1) * TAPS];
+		double i0Beta = besselI0(KAISER_BETA);
+		for (int p = 0; p <= PHASES; p++) {
+			double phase = p / (double) PHASES;
+			double sum = 0.0D;
+			double[] row = new double[TAPS];
+			for (int j = 0; j < TAPS; j++) {
+				double t = j - (HALF_TAPS - 1) - phase;
+				double x = Math.PI * cutoff * t;
+				double sinc = x == 0.0D ? 1.0D : Math.sin(x) / x;
+				double r = t / HALF_TAPS;
+				double window = r * r < 1.0D
+						? besselI0(KAISER_BETA * Math.sqrt(1.0D - r * r))
+								/ i0Beta
+						: 0.0D;
+				row[j] = cutoff * sinc * window;
+				sum += row[j];
+			}
+
+			/* normalize each phase, so there is no ripple at DC */
+			for (int j = 0; j < TAPS; j++) {
+				table[p * TAPS + j] = (float) (row[j] / sum);
+			}
+		}
+		return table;
+	}
+
+	private static float[] getTable(double cutoff) {
+		int key = (int) Math.round(cutoff * 10000.0D);
+		return TABLES.computeIfAbsent(key, (k) -> buildTable(k / 10000.0D));
+	}
+
+	private final AudioSource audio;
+	private final boolean owned;
+	private final int frequencyHz;
+	private final int sourceHz;
+	private final int channelCount;
+	private final int bytesPerSample;
+	private final int frameSize;
+	private final float[] table;
+	private final float[] coeffs;
+	private final float[] history;
+	private final int historyCapacity;
+	private final byte[] scratch;
+	private final Lock lock;
+
+	/*
+	 * The history holds input frames as floats, starting from input frame
+	 * historyStart. This can be negative, as the filter needs frames from
+	 * before the start of the audio, which are silent.
+	 */
+	private long historyStart;
+	private int historyFrames;
+	private long nextFrame;
+	private long sourceFrames;
+	private boolean closed;
+
+	/**
+	 * @param audio
+	 *            the audio source to resample.
+	 * @param frequencyHz
+	 *            the frequency to resample to in Hz.
+	 * @param owned
+	 *            {@code true} if {@code audio} should be closed when this
+	 *            source is closed (assuming it is {@link Closeable}),
+	 *            {@code false} otherwise.
+	 * @throws NullPointerException
+	 *             if {@code audio} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code frequencyHz} is not positive, or the format of
+	 *             {@code audio} is not 8-bit or 16-bit.
+	 */
+	public ResampledSource(AudioSource audio, int frequencyHz,
+			boolean owned) {
+		this.audio = Objects.requireNonNull(audio, "audio");
+		this.owned = owned;
+		if (frequencyHz <= 0) {
+			throw new IllegalArgumentException("frequencyHz <= 0");
+		}
+		this.frequencyHz = frequencyHz;
+		this.sourceHz = audio.getFrequencyHz();
+
+		this.bytesPerSample = audio.getBytesPerSample();
+		if (bytesPerSample != 1 && bytesPerSample != 2) {
+			throw new IllegalArgumentException("bits per sample not 8 or 16");
+		}
+		this.channelCount = audio.getChannelCount();
+		this.frameSize = channelCount * bytesPerSample;
+
+		double ratio = Math.min(1.0D, frequencyHz / (double) sourceHz);
+		this.table = getTable(ratio * ROLLOFF);
+		this.coeffs = new float[TAPS];
+		this.historyCapacity = TAPS + READ_FRAMES;
+		this.history = new float[historyCapacity * channelCount];
+		this.scratch = new byte[READ_FRAMES * frameSize];
+		this.lock = new ReentrantLock();
+
+		this.sourceFrames = -1L;
+		this.seek(0L);
+	}
+
+	/**
+	 * Constructs a new {@code ResampledSource} which closes {@code audio}
+	 * when it is closed.
+	 *
+	 * @param audio
+	 *            the audio source to resample.
+	 * @param frequencyHz
+	 *            the frequency to resample to in Hz.
+	 * @throws NullPointerException
+	 *             if {@code audio} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code frequencyHz} is not positive, or the format of
+	 *             {@code audio} is not 8-bit or 16-bit.
+	 */
+	public ResampledSource(AudioSource audio, int frequencyHz) {
+		this(audio, frequencyHz, true);
+	}
+
+	@Override
+	public int getALFormat() {
+		return audio.getALFormat();
+	}
+
+	@Override
+	public int getFrequencyHz() {
+		return this.frequencyHz;
+	}
+
+	@Override
+	public int getChannelCount() {
+		return this.channelCount;
+	}
+
+	@Override
+	public int getBitsPerSample() {
+		return audio.getBitsPerSample();
+	}
+
+	@Override
+	public long pcmLength() {
+		long frames = audio.pcmLength() / frameSize;
+		return this.toOutputFrames(frames) * frameSize;
+	}
+
+	private long toOutputFrames(long inputFrames) {
+		/* the first output frame past the last input frame */
+		return (inputFrames * frequencyHz + sourceHz - 1) / sourceHz;
+	}
+
+	private void seek(long frame) {
+		this.nextFrame = frame;
+		long inputFrame = frame * sourceHz / frequencyHz;
+		this.historyStart = inputFrame - HALF_TAPS + 1;
+		this.historyFrames = 0;
+	}
+
+	private void decode(int len) {
+		int base = historyFrames * channelCount;
+		if (bytesPerSample == 1) {
+			for (int i = 0; i < len; i++) {
+				history[base + i] = ((scratch[i] & 0xFF) - 128) / 128.0F;
+			}
+		} else {
+			for (int i = 0, j = base; i < len; i += 2, j++) {
+				int lo = scratch[i] & 0xFF;
+				history[j] = (short) ((scratch[i + 1] << 8) | lo) / 32768.0F;
+			}
+		}
+		this.historyFrames += len / frameSize;
+	}
+
+	/**
+	 * Makes sure every input frame needed around an input frame is in the
+	 * history, reading more from the audio source as needed.
+	 *
+	 * @return {@code true} if the frames are available, {@code false} if the
+	 *         audio source has no more audio available right now.
+	 */
+	private boolean fill(long inputFrame) throws IOException {
+		long first = inputFrame - HALF_TAPS + 1;
+		long end = inputFrame + HALF_TAPS;
+
+		if (first - historyStart >= historyFrames) {
+			this.historyStart = first;
+			this.historyFrames = 0;
+		}
+		int drop = (int) (first - historyStart);
+		if (drop > 0) {
+			System.arraycopy(history, drop * channelCount, history, 0,
+					(historyFrames - drop) * channelCount);
+			this.historyFrames -= drop;
+			this.historyStart += drop;
+		}
+
+		while (historyStart + historyFrames < end) {
+			long next = historyStart + historyFrames;
+			int room = historyCapacity - historyFrames;
+			if (next < 0 || (sourceFrames >= 0 && next >= sourceFrames)) {
+				/* before the start or past the end, which is silence */
+				int silent = (int) Math.min(room, next < 0 ? -next : end - next);
+				int base = historyFrames * channelCount;
+				Arrays.fill(history, base, base + silent * channelCount, 0.0F);
+				this.historyFrames += silent;
+				continue;
+			}
+
+			int want = Math.min(room, READ_FRAMES) * frameSize;
+			int read = audio.readPCM((int) (next * frameSize), scratch, want);
+			if (read == -1) {
+				this.sourceFrames = next;
+				continue;
+			}
+			read -= read % frameSize;
+			if (read <= 0) {
+				return false;
+			}
+			this.decode(read);
+		}
+		return true;
+	}
+
+	@Override
+	public int readPCM(int offset, byte[] buf, int len) throws IOException {
+		lock.lock();
+		try {
+			if (closed == true) {
+				return -1;
+			}
+
+			long frame = offset / frameSize;
+			if (frame != nextFrame) {
+				this.seek(frame);
+			}
+
+			int frames = len / frameSize;
+			int written = 0;
+			boolean ended = false;
+			while (written < frames) {
+				long num = nextFrame * sourceHz;
+				long inputFrame = num / frequencyHz;
+				if (sourceFrames >= 0 && inputFrame >= sourceFrames) {
+					ended = true;
+					break;
+				} else if (this.fill(inputFrame) == false) {
+					break;
+				} else if (sourceFrames >= 0 && inputFrame >= sourceFrames) {
+					ended = true; /* the end was found while filling */
+					break;
+				}
+
+				/* interpolate between the two nearest phases of the table */
+				float phase = (num % frequencyHz) * (float) PHASES
+						/ frequencyHz;
+				int row = Math.min((int) phase, PHASES - 1);
+				float t = phase - row;
+				int a = row * TAPS;
+				int b = a + TAPS;
+				for (int j = 0; j < TAPS; j++) {
+					coeffs[j] = table[a + j] + (table[b + j] - table[a + j]) * t;
+				}
+
+				int base = (int) (inputFrame - HALF_TAPS + 1 - historyStart)
+						* channelCount;
+				int out = written * frameSize;
+				for (int c = 0; c < channelCount; c++) {
+					float sum = 0.0F;
+					for (int j = 0, i = base + c; j < TAPS; j++, i +=
+							channelCount) {
+						sum += history[i] * coeffs[j];
+					}
+
+					float s = Math.max(-1.0F, Math.min(sum, 1.0F));
+					if (bytesPerSample == 1) {
+						buf[out++] = (byte) (Math.round(s * 127.0F) + 128);
+					} else {
+						int value = Math.round(s * 32767.0F);
+						buf[out++] = (byte) value;
+						buf[out++] = (byte) (value >> 8);
+					}
+				}
+
+				written++;
+				this.nextFrame++;
+			}
+
+			if (written <= 0 && frames > 0 && ended == true) {
+				return -1;
+			}
+			return written * frameSize;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed == true) {
+				return;
+			}
+			this.closed = true;
+			if (owned == true && audio instanceof Closeable) {
+				((Closeable) audio).close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
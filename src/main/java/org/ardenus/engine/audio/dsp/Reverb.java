@@ -0,0 +1,222 @@
+package org.ardenus.engine.audio.dsp;
+
+import java.util.Arrays;
+
+/**
+ * A simple algorithmic reverb, in the style of Freeverb.
+ * <p>
+ * Each channel runs through four damped comb filters in parallel, followed by
+ * two allpass filters in series. The delay lengths of each channel are spread
+ * slightly apart, which gives a wider stereo image. This is nowhere near a
+ * convolution reverb, but is cheap enough to put on many sounds at once.
+ * <p>
+ * The room size, damping and mix are {@link SmoothedValue smoothed}, so they
+ * can be changed while audio plays.
+ */
+public class Reverb implements Processor {
+
+	/* delay lengths in samples at 44.1kHz, as tuned by Freeverb */
+	private static final int[] COMB_TUNING = { 1116, 1188, 1277, 1356 };
+	private static final int[] ALLPASS_TUNING = { 556, 441 };
+	private static final int STEREO_SPREAD = 23;
+	private static final float TUNING_HZ = 44100.0F;
+
+	private static final float INPUT_GAIN = 0.03F;
+	private static final float WET_SCALE = 3.0F;
+	private static final float ALLPASS_FEEDBACK = 0.5F;
+	private static final float MIN_FEEDBACK = 0.7F;
+	private static final float FEEDBACK_RANGE = 0.28F;
+	private static final float DAMPING_SCALE = 0.4F;
+
+	private static final int UPDATE_INTERVAL = 32;
+	private static final float SMOOTHING_SECONDS = 0.1F;
+
+	private final SmoothedValue roomSize;
+	private final SmoothedValue damping;
+	private final SmoothedValue mix;
+
+	private int channelCount;
+	private float[][] combs;
+	private int[] combPos;
+	private float[] combStore;
+	private float[][] allpasses;
+	private int[] allpassPos;
+
+	/**
+	 * @param roomSize
+	 *            the room size, from {@code 0.0F} to {@code 1.0F}. Larger
+	 *            rooms have a longer tail.
+	 * @param damping
+	 *            the damping, from {@code 0.0F} to {@code 1.0F}. More damping
+	 *            makes high frequencies die out sooner.
+	 * @param mix
+	 *            the mix of reverb, from {@code 0.0F} (none) to {@code 1.0F}
+	 *            (only reverb).
+	 */
+	public Reverb(float roomSize, float damping, float mix) {
+		this.roomSize = new SmoothedValue(clamp(roomSize), SMOOTHING_SECONDS);
+		this.damping = new SmoothedValue(clamp(damping), SMOOTHING_SECONDS);
+		this.mix = new SmoothedValue(clamp(mix), SMOOTHING_SECONDS);
+	}
+
+	/**
+	 * Constructs a new {@code Reverb} for a medium sized room.
+	 */
+	public Reverb() {
+		this(0.5F, 0.5F, 0.25F);
+	}
+
+	private static float clamp(float value) {
+		return Math.max(0.0F, Math.min(value, 1.0F));
+	}
+
+	/**
+	 * @return the target room size.
+	 */
+	public float getRoomSize() {
+		return roomSize.getTarget();
+	}
+
+	/**
+	 * @param roomSize
+	 *            the room size, from {@code 0.0F} to {@code 1.0F}.
+	 */
+	public void setRoomSize(float roomSize) {
+		this.roomSize.setTarget(clamp(roomSize));
+	}
+
+	/**
+	 * @return the target damping.
+	 */
+	public float getDamping() {
+		return damping.getTarget();
+	}
+
+	/**
+	 * @param damping
+	 *            the damping, from {@code 0.0F} to {@code 1.0F}.
+	 */
+	public void setDamping(float damping) {
+		this.damping.setTarget(clamp(damping));
+	}
+
+	/**
+	 * @return the target mix.
+	 */
+	public float getMix() {
+		return mix.getTarget();
+	}
+
+	/**
+	 * @param mix
+	 *            the mix of reverb, from {@code 0.0F} (none) to {@code 1.0F}
+	 *            (only reverb).
+	 */
+	public void setMix(float mix) {
+		this.mix.setTarget(clamp(mix));
+	}
+
+	@Override
+	public void prepare(int frequencyHz, int channelCount) {
+		this.channelCount = channelCount;
+		float scale = frequencyHz / TUNING_HZ;
+
+		int combCount = COMB_TUNING.length;
+		this.combs = new float[channelCount * combCount][];
+		this.combPos = new int[combs.length];
+		this.combStore = new float[combs.length];
+		for (int c = 0; c < channelCount; c++) {
+			for (int k = 0; k < combCount; k++) {
+				int len = (int) ((COMB_TUNING[k] + STEREO_SPREAD * c) * scale);
+				combs[c * combCount + k] = new float[Math.max(len, 1)];
+			}
+		}
+
+		int allpassCount = ALLPASS_TUNING.length;
+		this.allpasses = new float[channelCount * allpassCount][];
+		this.allpassPos = new int[allpasses.length];
+		for (int c = 0; c < channelCount; c++) {
+			for (int k = 0; k < allpassCount; k++) {
+				int len = (int) ((ALLPASS_TUNING[k] + STEREO_SPREAD * c)
+						* scale);
+				allpasses[c * allpassCount + k] = new float[Math.max(len, 1)];
+			}
+		}
+
+		roomSize.prepare(frequencyHz);
+		damping.prepare(frequencyHz);
+		mix.prepare(frequencyHz);
+	}
+
+	@Override
+	public void process(float[] samples, int frames) {
+		int combCount = COMB_TUNING.length;
+		int allpassCount = ALLPASS_TUNING.length;
+
+		for (int start = 0; start < frames; start += UPDATE_INTERVAL) {
+			int end = Math.min(start + UPDATE_INTERVAL, frames);
+			float feedback = MIN_FEEDBACK
+					+ FEEDBACK_RANGE * roomSize.skip(end - start);
+			float damp1 = DAMPING_SCALE * damping.skip(end - start);
+			float damp2 = 1.0F - damp1;
+
+			for (int f = start; f < end; f++) {
+				float wetMix = mix.next();
+				int base = f * channelCount;
+
+				/* every channel is fed the same input, as in Freeverb */
+				float input = 0.0F;
+				for (int c = 0; c < channelCount; c++) {
+					input += samples[base + c];
+				}
+				input *= INPUT_GAIN;
+
+				for (int c = 0; c < channelCount; c++) {
+					float out = 0.0F;
+					for (int k = 0; k < combCount; k++) {
+						int index = c * combCount + k;
+						float[] buf = combs[index];
+						int pos = combPos[index];
+						float delayed = buf[pos];
+						float store = delayed * damp2 + combStore[index] * damp1;
+						combStore[index] = store;
+						buf[pos] = input + store * feedback;
+						combPos[index] = pos + 1 < buf.length ? pos + 1 : 0;
+						out += delayed;
+					}
+
+					for (int k = 0; k < allpassCount; k++) {
+						int index = c * allpassCount + k;
+						float[] buf = allpasses[index];
+						int pos = allpassPos[index];
+						float delayed = buf[pos];
+						buf[pos] = out + delayed * ALLPASS_FEEDBACK;
+						out = delayed - out;
+						allpassPos[index] = pos + 1 < buf.length ? pos + 1 : 0;
+					}
+
+					float dry = samples[base + c];
+					samples[base + c] = dry * (1.0F - wetMix)
+							+ out * WET_SCALE * wetMix;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void reset() {
+		if (combs == null) {
+			return;
+		}
+		for (int i = 0; i < combs.length; i++) {
+			Arrays.fill(combs[i], 0.0F);
+			combPos[i] = 0;
+			combStore[i] = 0.0F;
+		}
+		for (int i = 0; i < allpasses.length; i++) {
+			Arrays.fill(allpasses[i], 0.0F);
+			allpassPos[i] = 0;
+		}
+	}
+
+}
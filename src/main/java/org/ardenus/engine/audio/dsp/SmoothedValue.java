@@ -0,0 +1,126 @@
+package org.ardenus.engine.audio.dsp;
+
+/**
+ * A parameter which moves smoothly towards its target, rather than jumping.
+ * <p>
+ * Jumping the parameters of a processor (such as the cutoff of a filter)
+ * while audio is playing causes audible clicks and "zipper" noise. A smoothed
+ * value instead glides to its target with a one-pole curve. The target can be
+ * set from any thread, while the value itself is only advanced by the thread
+ * processing audio.
+ */
+public class SmoothedValue {
+
+	private static final float SETTLE_EPSILON = 1e-5F;
+
+	private final float smoothingSeconds;
+	private volatile float target;
+	private float current;
+	private double coeff;
+
+	/**
+	 * @param initial
+	 *            the initial value, which is also the initial target.
+	 * @param smoothingSeconds
+	 *            about how long the value takes to reach a new target.
+	 */
+	public SmoothedValue(float initial, float smoothingSeconds) {
+		this.target = initial;
+		this.current = initial;
+		this.smoothingSeconds = smoothingSeconds;
+	}
+
+	/**
+	 * @param frequencyHz
+	 *            the frequency of the audio in Hz.
+	 */
+	public void prepare(int frequencyHz) {
+		/*
+		 * A one-pole curve only reaches its target asymptotically. Use a time
+		 * constant of a fifth of the smoothing time, so the value is within a
+		 * percent of its target once the smoothing time has passed.
+		 */
+		double tau = Math.max(smoothingSeconds, 0.0F) / 5.0D;
+		this.coeff = tau > 0.0D ? Math.exp(-1.0D / (tau * frequencyHz)) : 0.0D;
+	}
+
+	/**
+	 * @return the target of this value.
+	 */
+	public float getTarget() {
+		return this.target;
+	}
+
+	/**
+	 * @param target
+	 *            the value to move towards.
+	 */
+	public void setTarget(float target) {
+		this.target = target;
+	}
+
+	/**
+	 * Sets the value immediately, without smoothing.
+	 *
+	 * @param value
+	 *            the new value.
+	 */
+	public void jump(float value) {
+		this.target = value;
+		this.current = value;
+	}
+
+	/**
+	 * @return the current value.
+	 */
+	public float get() {
+		return this.current;
+	}
+
+	/**
+	 * @return {@code true} if the value has not yet reached its target,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isSmoothing() {
+		return current != target;
+	}
+
+	/**
+	 * Advances the value by one sample.
+	 *
+	 * @return the new value.
+	 */
+	public float next() {
+		float t = this.target;
+		if (current != t) {
+			this.current = (float) (t + (current - t) * coeff);
+			if (Math.abs(current - t) <= SETTLE_EPSILON * Math.max(1.0F,
+					Math.abs(t))) {
+				this.current = t;
+			}
+		}
+		return this.current;
+	}
+
+	/**
+	 * Advances the value by many samples at once. This is used by processors
+	 * which only update their parameters once every few samples.
+	 *
+	 * @param samples
+	 *            the amount of samples to advance by.
+	 * @return the new value.
+	 */
+	public float skip(int samples) {
+		float t = this.target;
+		if (current != t) {
+			this.current = (float) (t
+					+ (current - t) * Math.pow(coeff, samples));
+			if (Math.abs(current - t) <= SETTLE_EPSILON * Math.max(1.0F,
+					Math.abs(t))) {
+				this.current = t;
+			}
+		}
+		return this.current;
+	}
+
+}
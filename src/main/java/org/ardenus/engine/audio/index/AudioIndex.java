@@ -0,0 +1,319 @@
+package org.ardenus.engine.audio.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.wav.WaveFile;
+import org.ardenus.engine.io.riff.RiffChunkHeader;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * A persisted index of the metadata of audio files.
+ * <p>
+ * Opening a {@link WaveFile} scans its entire chunk list, and opening a
+ * {@link org.ardenus.engine.audio.vorbis.VorbisFile VorbisFile} allocates a
+ * native decoder. For a large sound library, doing this at startup only to
+ * learn the format and length of each file adds up quickly. An index instead
+ * keeps the metadata of every file on disk. On later runs, each file is only
+ * checked against its last modified time and size, and is never opened.
+ * Files which have changed are indexed again.
+ * <p>
+ * Audio sources are created from the index with {@link #open(File)}. They do
+ * not touch their file until audio is first read from them.
+ * <p>
+ * Vorbis files are indexed without decoding them, by walking their pages to
+ * find their length.
+ */
+public class AudioIndex {
+
+	private static final Logger LOG = LogManager.getLogger(AudioIndex.class);
+
+	/**
+	 * Incremented whenever the metadata stored in an index changes, so that
+	 * indexes written by older versions are rebuilt.
+	 */
+	public static final int VERSION = 2;
+
+	private static class Entries {
+
+		private int version;
+		private Map<String, AudioMetadata> files;
+
+	}
+
+	private static AudioMetadata.Type detectType(File file)
+			throws IOException {
+		byte[] magic = new byte[4];
+		try (InputStream in = new FileInputStream(file)) {
+			if (in.read(magic) < magic.length) {
+				throw new IOException("file too small to be audio");
+			}
+		}
+
+		if (magic[0] == 'R' && magic[1] == 'I' && magic[2] == 'F'
+				&& magic[3] == 'F') {
+			return AudioMetadata.Type.WAVE;
+		} else if (magic[0] == 'O' && magic[1] == 'g' && magic[2] == 'g'
+				&& magic[3] == 'S') {
+			return AudioMetadata.Type.VORBIS;
+		}
+		throw new IOException("unknown audio format");
+	}
+
+	private static AudioMetadata scanWave(File file, long lastModified)
+			throws IOException {
+		try (WaveFile wav = new WaveFile(file)) {
+			List<RiffChunkHeader> chunks = new ArrayList<>();
+			for (String id : wav.getChunkIds()) {
+				chunks.add(wav.getChunkHeader(id));
+			}
+			return new AudioMetadata(AudioMetadata.Type.WAVE, lastModified,
+					file.length(), wav.getChannelCount(),
+					wav.getFrequencyHz(), wav.getBitsPerSample(),
+					wav.pcmLength(),
+					chunks.toArray(new RiffChunkHeader[chunks.size()]));
+		}
+	}
+
+	/**
+	 * Reads the metadata of an audio file directly from the file, without
+	 * using (or updating) any index.
+	 *
+	 * @param file
+	 *            the audio file.
+	 * @return the metadata of {@code file}.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws IOException
+	 *             if {@code file} is not a {@code WAV} or Vorbis file, or an
+	 *             I/O error occurs.
+	 */
+	public static AudioMetadata scan(File file) throws IOException {
+		Objects.requireNonNull(file, "file");
+		long lastModified = file.lastModified();
+		switch (detectType(file)) {
+		case WAVE:
+			return scanWave(file, lastModified);
+		case VORBIS:
+			return OggScanner.scan(file, lastModified);
+		default:
+			throw new IllegalStateException("unknown type");
+		}
+	}
+
+	private static String key(File file) {
+		return file.getAbsolutePath();
+	}
+
+	private static boolean isCurrent(File file, AudioMetadata metadata) {
+		return metadata != null && metadata.lastModified == file.lastModified()
+				&& metadata.fileSize == file.length();
+	}
+
+	private final File indexFile;
+	private final Gson gson;
+	private final Map<String, AudioMetadata> files;
+	private volatile boolean dirty;
+
+	/**
+	 * Constructs a new {@code AudioIndex}. The index starts out empty, use
+	 * {@link #load()} to read it from disk.
+	 *
+	 * @param indexFile
+	 *            the file to store the index in.
+	 * @throws NullPointerException
+	 *             if {@code indexFile} is {@code null}.
+	 */
+	public AudioIndex(File indexFile) {
+		this.indexFile = Objects.requireNonNull(indexFile, "indexFile");
+		this.gson = new Gson();
+		this.files = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Reads the index from disk, replacing whatever is currently held. An
+	 * index which is missing, unreadable, or from another version is treated
+	 * as empty.
+	 */
+	public void load() {
+		files.clear();
+		this.dirty = false;
+
+		Path path = indexFile.toPath();
+		if (!Files.isRegularFile(path)) {
+			return;
+		}
+
+		try (Reader in = Files.newBufferedReader(path,
+				StandardCharsets.UTF_8)) {
+			Entries entries = gson.fromJson(in, Entries.class);
+			if (entries == null || entries.files == null
+					|| entries.version != VERSION) {
+				this.dirty = true;
+				return; /* stale, rebuild as files are opened */
+			}
+			files.putAll(entries.files);
+		} catch (IOException | JsonParseException e) {
+			LOG.warn("Discarding unreadable audio index " + path, e);
+			this.dirty = true;
+		}
+	}
+
+	/**
+	 * Writes the index to disk, if anything has changed since it was last
+	 * loaded or saved.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void save() throws IOException {
+		if (dirty == false) {
+			return;
+		}
+		this.dirty = false;
+
+		Entries entries = new Entries();
+		entries.version = VERSION;
+		entries.files = new LinkedHashMap<>(files);
+
+		/*
+		 * Write to a temporary file first and move it into place, so a crash
+		 * midway through never leaves a partial index behind.
+		 */
+		Path path = indexFile.toPath();
+		Path dir = path.toAbsolutePath().getParent();
+		Files.createDirectories(dir);
+		Path temp = Files.createTempFile(dir, indexFile.getName(), ".tmp");
+		try {
+			try (Writer out = Files.newBufferedWriter(temp,
+					StandardCharsets.UTF_8)) {
+				gson.toJson(entries, out);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			this.dirty = true;
+			throw e;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * @return the amount of files in the index.
+	 */
+	public int size() {
+		return files.size();
+	}
+
+	/**
+	 * Returns the metadata of an audio file. If the file is not in the index,
+	 * or has changed since it was indexed, it is scanned and the index is
+	 * updated.
+	 *
+	 * @param file
+	 *            the audio file.
+	 * @return the metadata of {@code file}.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws IOException
+	 *             if {@code file} is not a {@code WAV} or Vorbis file, or an
+	 *             I/O error occurs.
+	 */
+	public AudioMetadata get(File file) throws IOException {
+		Objects.requireNonNull(file, "file");
+		String key = key(file);
+		AudioMetadata metadata = files.get(key);
+		if (isCurrent(file, metadata)) {
+			return metadata;
+		}
+
+		metadata = scan(file);
+		files.put(key, metadata);
+		this.dirty = true;
+		return metadata;
+	}
+
+	/**
+	 * Creates an audio source for a file from its indexed metadata. The file
+	 * itself is not opened until audio is first read from the source.
+	 *
+	 * @param file
+	 *            the audio file.
+	 * @return the audio source.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws IOException
+	 *             if {@code file} is not a {@code WAV} or Vorbis file, or an
+	 *             I/O error occurs.
+	 * @see #get(File)
+	 */
+	public IndexedAudioSource open(File file) throws IOException {
+		return new IndexedAudioSource(file, this.get(file));
+	}
+
+	/**
+	 * Brings the index up to date for many files at once. Only the files which
+	 * are missing from the index or have changed are scanned, and these are
+	 * scanned in parallel on the {@link Audio#workers() audio workers}. A
+	 * file which fails to be scanned is logged and left out of the results.
+	 *
+	 * @param files
+	 *            the audio files.
+	 * @return the metadata of each file which was indexed successfully, in
+	 *         the same order as {@code files}.
+	 * @throws NullPointerException
+	 *             if {@code files} is {@code null}.
+	 */
+	public Map<File, AudioMetadata> indexAll(Collection<File> files) {
+		Objects.requireNonNull(files, "files");
+		ExecutorService workers = Audio.workers();
+
+		Map<File, Future<AudioMetadata>> scans = new LinkedHashMap<>();
+		for (File file : files) {
+			AudioMetadata metadata = this.files.get(key(file));
+			if (!isCurrent(file, metadata)) {
+				scans.put(file, workers.submit(() -> this.get(file)));
+			}
+		}
+
+		Map<File, AudioMetadata> indexed = new LinkedHashMap<>();
+		for (File file : files) {
+			try {
+				Future<AudioMetadata> scan = scans.get(file);
+				indexed.put(file, scan != null ? scan.get() : this.get(file));
+			} catch (ExecutionException | IOException e) {
+				LOG.error("Failed to index " + file, e instanceof IOException
+						? e : e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		return indexed;
+	}
+
+}
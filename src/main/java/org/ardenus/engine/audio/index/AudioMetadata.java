@@ -0,0 +1,93 @@
+package org.ardenus.engine.audio.index;
+
+import java.util.Objects;
+
+import org.ardenus.engine.io.riff.RiffChunkHeader;
+
+/**
+ * Everything needed to describe an audio file without opening it, as stored
+ * by an {@link AudioIndex}.
+ */
+public class AudioMetadata {
+
+	/**
+	 * The container format of an audio file.
+	 */
+	public static enum Type {
+
+		/**
+		 * A {@code WAV} file, holding PCM audio in a {@code RIFF} container.
+		 */
+		WAVE,
+
+		/**
+		 * An {@code OGG} Vorbis file.
+		 */
+		VORBIS;
+
+	}
+
+	public final Type type;
+	public final long lastModified;
+	public final long fileSize;
+	public final int channelCount;
+	public final int frequencyHz;
+	public final int bitsPerSample;
+	public final long pcmLength;
+
+	/**
+	 * The headers of each chunk in a {@code WAV} file, empty for every other
+	 * type of file.
+	 */
+	public final RiffChunkHeader[] chunks;
+
+	/**
+	 * @param type
+	 *            the file type.
+	 * @param lastModified
+	 *            the time the file was last modified, as given by
+	 *            {@link java.io.File#lastModified()}.
+	 * @param fileSize
+	 *            the size of the file in bytes.
+	 * @param channelCount
+	 *            the channel count.
+	 * @param frequencyHz
+	 *            the frequency in Hz.
+	 * @param bitsPerSample
+	 *            the bits per sample, once decoded.
+	 * @param pcmLength
+	 *            the length of the decoded PCM data in bytes.
+	 * @param chunks
+	 *            the chunks of a {@code WAV} file.
+	 * @throws NullPointerException
+	 *             if {@code type} or {@code chunks} are {@code null}.
+	 */
+	public AudioMetadata(Type type, long lastModified, long fileSize,
+			int channelCount, int frequencyHz, int bitsPerSample,
+			long pcmLength, RiffChunkHeader[] chunks) {
+		this.type = Objects.requireNonNull(type, "type");
+		this.lastModified = lastModified;
+		this.fileSize = fileSize;
+		this.channelCount = channelCount;
+		this.frequencyHz = frequencyHz;
+		this.bitsPerSample = bitsPerSample;
+		this.pcmLength = pcmLength;
+		this.chunks = Objects.requireNonNull(chunks, "chunks");
+	}
+
+	/**
+	 * @param id
+	 *            the chunk ID.
+	 * @return the header of the chunk with the given ID, {@code null} if
+	 *         there is no such chunk.
+	 */
+	public RiffChunkHeader getChunk(String id) {
+		for (RiffChunkHeader chunk : chunks) {
+			if (chunk.id.equals(id)) {
+				return chunk;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,167 @@
+package org.ardenus.engine.audio.index;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.vorbis.VorbisFile;
+import org.ardenus.engine.io.riff.RiffChunkHeader;
+import org.ardenus.engine.io.riff.RiffException;
+
+/**
+ * An audio source described by {@link AudioMetadata}, which does not open its
+ * file until audio is first read from it.
+ * <p>
+ * The format and length of the audio come straight from its metadata. For a
+ * {@code WAV} file, audio is read from the {@code data} chunk at the offset
+ * recorded in the metadata, so the chunk list of the file is never scanned.
+ * For a Vorbis file, a {@link VorbisFile} (and its decoder) is opened on the
+ * first read.
+ */
+public class IndexedAudioSource implements AudioSource, Closeable {
+
+	private final File file;
+	private final AudioMetadata metadata;
+	private final Lock lock;
+	private RandomAccessFile wave;
+	private VorbisFile vorbis;
+	private boolean closed;
+
+	/**
+	 * @param file
+	 *            the audio file.
+	 * @param metadata
+	 *            the metadata of {@code file}.
+	 * @throws NullPointerException
+	 *             if {@code file} or {@code metadata} are {@code null}.
+	 */
+	public IndexedAudioSource(File file, AudioMetadata metadata) {
+		this.file = Objects.requireNonNull(file, "file");
+		this.metadata = Objects.requireNonNull(metadata, "metadata");
+		this.lock = new ReentrantLock();
+	}
+
+	/**
+	 * @return the audio file.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * @return the metadata of the audio file.
+	 */
+	public AudioMetadata getMetadata() {
+		return this.metadata;
+	}
+
+	/**
+	 * @return {@code true} if the audio file has been opened, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isOpened() {
+		lock.lock();
+		try {
+			return wave != null || vorbis != null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int getALFormat() {
+		return Audio.alFormat(metadata.channelCount, metadata.bitsPerSample);
+	}
+
+	@Override
+	public int getFrequencyHz() {
+		return metadata.frequencyHz;
+	}
+
+	@Override
+	public int getChannelCount() {
+		return metadata.channelCount;
+	}
+
+	@Override
+	public int getBitsPerSample() {
+		return metadata.bitsPerSample;
+	}
+
+	@Override
+	public long pcmLength() {
+		return metadata.pcmLength;
+	}
+
+	private int readWave(int offset, byte[] buf, int len) throws IOException {
+		RiffChunkHeader data = metadata.getChunk("data");
+		if (data == null) {
+			throw new RiffException("missing data chunk");
+		}
+		if (wave == null) {
+			this.wave = new RandomAccessFile(file, "r");
+		}
+
+		int remaining = data.size - offset;
+		if (remaining <= 0) {
+			return -1;
+		}
+		wave.seek(data.ptr + offset);
+		return wave.read(buf, 0, Math.min(len, remaining));
+	}
+
+	@Override
+	public boolean isRandomAccess() {
+		return true;
+	}
+
+	@Override
+	public int readPCM(int offset, byte[] buf, int len) throws IOException {
+		lock.lock();
+		try {
+			if (closed == true) {
+				throw new IOException("closed");
+			}
+
+			switch (metadata.type) {
+			case WAVE:
+				return this.readWave(offset, buf, len);
+			case VORBIS:
+				if (vorbis == null) {
+					this.vorbis = new VorbisFile(file);
+				}
+				return vorbis.readPCM(offset, buf, len);
+			default:
+				throw new IllegalStateException("unknown type");
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed == true) {
+				return;
+			}
+			this.closed = true;
+			if (wave != null) {
+				wave.close();
+			}
+			if (vorbis != null) {
+				vorbis.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+package org.ardenus.engine.audio.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.ardenus.engine.audio.vorbis.VorbisException;
+import org.ardenus.engine.io.riff.RiffChunkHeader;
+
+/**
+ * Reads the metadata of an {@code OGG} Vorbis file by walking its pages.
+ * <p>
+ * Only page headers and the identification header of the stream are read.
+ * The audio itself is never decoded, so no decoder has to be allocated.
+ */
+class OggScanner {
+
+	private static final int PAGE_HEADER_SIZE = 27;
+	private static final int MAX_SEGMENTS = 255;
+	private static final int IDENTIFICATION_SIZE = 16;
+	private static final int VORBIS_BITS_PER_SAMPLE = 16;
+
+	private static void readFully(FileChannel channel, ByteBuffer buf,
+			long position) throws IOException {
+		while (buf.hasRemaining()) {
+			int read = channel.read(buf, position + buf.position());
+			if (read < 0) {
+				break;
+			}
+		}
+		buf.flip();
+	}
+
+	private static boolean isPage(ByteBuffer header) {
+		return header.remaining() >= PAGE_HEADER_SIZE
+				&& header.get(0) == 'O' && header.get(1) == 'g'
+				&& header.get(2) == 'g' && header.get(3) == 'S'
+				&& header.get(4) == 0;
+	}
+
+	/**
+	 * @param file
+	 *            the Vorbis file.
+	 * @param lastModified
+	 *            the time {@code file} was last modified.
+	 * @return the metadata of {@code file}.
+	 * @throws VorbisException
+	 *             if {@code file} is not a valid Vorbis file.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	static AudioMetadata scan(File file, long lastModified) throws IOException {
+		try (FileChannel channel =
+				FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer header =
+					ByteBuffer.allocate(PAGE_HEADER_SIZE + MAX_SEGMENTS)
+							.order(ByteOrder.LITTLE_ENDIAN);
+			ByteBuffer ident = ByteBuffer.allocate(IDENTIFICATION_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+
+			int channels = -1, frequencyHz = -1;
+			long granule = 0L;
+
+			long position = 0L;
+			while (position < size) {
+				header.clear();
+				readFully(channel, header, position);
+				if (!isPage(header)) {
+					throw new VorbisException("invalid Ogg page");
+				}
+
+				int segments = header.get(26) & 0xFF;
+				if (header.remaining() < PAGE_HEADER_SIZE + segments) {
+					throw new VorbisException("truncated Ogg page");
+				}
+				int bodySize = 0;
+				for (int i = 0; i < segments; i++) {
+					bodySize += header.get(PAGE_HEADER_SIZE + i) & 0xFF;
+				}
+				long body = position + PAGE_HEADER_SIZE + segments;
+
+				if (channels < 0) {
+					/* the first packet is the identification header */
+					ident.clear();
+					readFully(channel, ident, body);
+					if (ident.remaining() < IDENTIFICATION_SIZE
+							|| ident.get(0) != 1 || ident.get(1) != 'v'
+							|| ident.get(6) != 's') {
+						throw new VorbisException("missing Vorbis header");
+					}
+					channels = ident.get(11) & 0xFF;
+					frequencyHz = ident.getInt(12);
+				}
+
+				/* a page with a granule position of -1 finishes no packet */
+				long pageGranule = header.getLong(6);
+				if (pageGranule >= 0) {
+					granule = pageGranule;
+				}
+				position = body + bodySize;
+			}
+
+			if (channels <= 0 || frequencyHz <= 0) {
+				throw new VorbisException("missing Vorbis header");
+			}
+			long pcmLength = granule * channels
+					* (VORBIS_BITS_PER_SAMPLE / Byte.SIZE);
+			return new AudioMetadata(AudioMetadata.Type.VORBIS, lastModified,
+					size, channels, frequencyHz, VORBIS_BITS_PER_SAMPLE,
+					pcmLength, new RiffChunkHeader[0]);
+		}
+	}
+
+}
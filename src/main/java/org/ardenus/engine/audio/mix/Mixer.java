@@ -0,0 +1,423 @@
+package org.ardenus.engine.audio.mix;
+
+import static org.lwjgl.openal.AL10.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.sound.StreamedSound;
+import org.ardenus.engine.audio.wav.WaveWriter;
+
+/**
+ * Mixes any number of audio sources in software into a single stream of
+ * 16-bit stereo PCM data.
+ * <p>
+ * Every {@link org.ardenus.engine.audio.sound.Sound Sound} takes up its own
+ * OpenAL source, and drivers only allow so many of them at once. A mixer
+ * plays each audio source as a {@link Voice} instead, which costs no OpenAL
+ * resources at all. The mixer is itself an audio source, so the entire mix
+ * can be played by one {@link StreamedSound}, or written to a file with a
+ * {@link WaveWriter}. Since a mixer never touches OpenAL, it also works
+ * without an audio device (such as when testing).
+ * <p>
+ * Voices are mixed in float into per-task accumulators, which are summed and
+ * converted to 16-bit at the end of each block. When there are enough voices,
+ * they are split between the calling thread and the workers of an executor.
+ * The calling thread never waits on a task a worker has not started yet, it
+ * mixes that task itself. As such, a busy executor only slows the mix down
+ * to the speed of a single thread, rather than stalling it.
+ * <p>
+ * A mixer is a live stream, and has no length. Its output only ever moves
+ * forward, so the offset given to {@link #readPCM(int, byte[], int)} is
+ * ignored.
+ */
+public class Mixer implements AudioSource, Closeable {
+
+	private static final Logger LOG = LogManager.getLogger(Mixer.class);
+
+	public static final int CHANNEL_COUNT = 2;
+	public static final int BITS_PER_SAMPLE = 16;
+
+	private static final int FRAME_SIZE = CHANNEL_COUNT * BITS_PER_SAMPLE / 8;
+	private static final int BLOCK_FRAMES = 1024;
+	private static final int VOICES_PER_TASK = 16;
+	private static final Voice[] NO_VOICES = new Voice[0];
+
+	/**
+	 * Mixes every {@code stride}th voice, starting from {@code first}, into
+	 * an accumulator of its own.
+	 */
+	private static class MixTask implements Runnable {
+
+		private final float[] acc;
+		private final float[] scratch;
+		private Voice[] voices;
+		private int first;
+		private int stride;
+		private int frames;
+
+		private MixTask() {
+			this.acc = new float[BLOCK_FRAMES * CHANNEL_COUNT];
+			this.scratch = new float[BLOCK_FRAMES * CHANNEL_COUNT];
+		}
+
+		@Override
+		public void run() {
+			Arrays.fill(acc, 0, frames * CHANNEL_COUNT, 0.0F);
+			for (int i = first; i < voices.length; i += stride) {
+				Voice voice = voices[i];
+				try {
+					voice.mix(acc, scratch, frames);
+				} catch (IOException | RuntimeException e) {
+					LOG.error("Stopping voice after failing to mix it", e);
+					voice.stop();
+				}
+			}
+			this.voices = null;
+		}
+
+	}
+
+	/**
+	 * The tasks of a single block. Workers which only start after the block
+	 * was mixed find nothing left to claim, as each block has its own round.
+	 */
+	private static class MixRound implements Runnable {
+
+		private final MixTask[] tasks;
+		private final int taskCount;
+		private final AtomicInteger nextTask;
+		private final CountDownLatch finished;
+
+		private MixRound(MixTask[] tasks, int taskCount) {
+			this.tasks = tasks;
+			this.taskCount = taskCount;
+			this.nextTask = new AtomicInteger();
+			this.finished = new CountDownLatch(taskCount);
+		}
+
+		@Override
+		public void run() {
+			int task;
+			while ((task = nextTask.getAndIncrement()) < taskCount) {
+				try {
+					tasks[task].run();
+				} finally {
+					finished.countDown();
+				}
+			}
+		}
+
+	}
+
+	private final int frequencyHz;
+	private final ExecutorService executor;
+	private final int maxTasks;
+	private final Lock voicesLock;
+	private final Lock mixLock;
+	private volatile Voice[] voices;
+	private volatile float gain;
+
+	private final MixTask[] tasks;
+	private final ByteBuffer out;
+	private byte[] wrappedBuf;
+	private ByteBuffer wrapped;
+	private volatile boolean closed;
+
+	/**
+	 * @param frequencyHz
+	 *            the frequency of the mix in Hz. Voices of other frequencies
+	 *            are resampled to this frequency.
+	 * @param executor
+	 *            the executor to spread mixing across, may be {@code null} to
+	 *            mix only on the thread reading from this mixer.
+	 * @throws IllegalArgumentException
+	 *             if {@code frequencyHz} is not greater than zero.
+	 */
+	public Mixer(int frequencyHz, ExecutorService executor) {
+		if (frequencyHz <= 0) {
+			throw new IllegalArgumentException("frequencyHz <= 0");
+		}
+		this.frequencyHz = frequencyHz;
+		this.executor = executor;
+		this.maxTasks = executor != null
+				? Runtime.getRuntime().availableProcessors() : 1;
+		this.voicesLock = new ReentrantLock();
+		this.mixLock = new ReentrantLock();
+		this.voices = NO_VOICES;
+		this.gain = 1.0F;
+
+		this.tasks = new MixTask[maxTasks];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new MixTask();
+		}
+		this.out = ByteBuffer.allocateDirect(BLOCK_FRAMES * FRAME_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Constructs a new {@code Mixer} which spreads mixing across the
+	 * {@link Audio#workers() audio workers}.
+	 *
+	 * @param frequencyHz
+	 *            the frequency of the mix in Hz. Voices of other frequencies
+	 *            are resampled to this frequency.
+	 * @throws IllegalArgumentException
+	 *             if {@code frequencyHz} is not greater than zero.
+	 */
+	public Mixer(int frequencyHz) {
+		this(frequencyHz, Audio.workers());
+	}
+
+	@Override
+	public int getALFormat() {
+		return AL_FORMAT_STEREO16;
+	}
+
+	@Override
+	public int getFrequencyHz() {
+		return this.frequencyHz;
+	}
+
+	@Override
+	public int getChannelCount() {
+		return CHANNEL_COUNT;
+	}
+
+	@Override
+	public int getBitsPerSample() {
+		return BITS_PER_SAMPLE;
+	}
+
+	/**
+	 * @return the master gain of the mix.
+	 */
+	public float getGain() {
+		return this.gain;
+	}
+
+	/**
+	 * The mix is clipped after the master gain is applied. Lowering the gain
+	 * leaves more headroom for many loud voices playing at once.
+	 *
+	 * @param gain
+	 *            the master gain. If less than {@code 0.0F}, the gain will be
+	 *            capped to a value of {@code 0.0F}.
+	 */
+	public void setGain(float gain) {
+		this.gain = Math.max(gain, 0.0F);
+	}
+
+	/**
+	 * Starts playing an audio source. The voice begins playing from the next
+	 * block of the mix.
+	 * <p>
+	 * The audio source is not closed by the mixer when its voice is done.
+	 *
+	 * @param audio
+	 *            the audio source to play. It must be mono or stereo, and
+	 *            8-bit or 16-bit.
+	 * @return the voice playing {@code audio}.
+	 * @throws NullPointerException
+	 *             if {@code audio} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the format of {@code audio} is not supported.
+	 * @throws IllegalStateException
+	 *             if this mixer is closed.
+	 */
+	public Voice play(AudioSource audio) {
+		Objects.requireNonNull(audio, "audio");
+		Voice voice = new Voice(this, audio);
+		voicesLock.lock();
+		try {
+			if (closed == true) {
+				throw new IllegalStateException("mixer closed");
+			}
+			Voice[] added = Arrays.copyOf(voices, voices.length + 1);
+			added[voices.length] = voice;
+			this.voices = added;
+		} finally {
+			voicesLock.unlock();
+		}
+		return voice;
+	}
+
+	/**
+	 * @return the amount of voices currently in the mix, including those which
+	 *         are paused.
+	 */
+	public int getVoiceCount() {
+		return voices.length;
+	}
+
+	private void removeDone(Voice[] mixed) {
+		int done = 0;
+		for (Voice voice : mixed) {
+			if (voice.isDone()) {
+				done++;
+			}
+		}
+		if (done <= 0) {
+			return;
+		}
+
+		voicesLock.lock();
+		try {
+			Voice[] current = this.voices;
+			Voice[] kept = new Voice[current.length];
+			int count = 0;
+			for (Voice voice : current) {
+				if (!voice.isDone()) {
+					kept[count++] = voice;
+				}
+			}
+			this.voices = Arrays.copyOf(kept, count);
+		} finally {
+			voicesLock.unlock();
+		}
+	}
+
+	/**
+	 * Mixes a single block, of at most {@code BLOCK_FRAMES} frames, into
+	 * {@link #out}.
+	 */
+	private void mixBlock(int frames) throws IOException {
+		Voice[] mixing = this.voices;
+		int taskCount = (mixing.length + VOICES_PER_TASK - 1) / VOICES_PER_TASK;
+		taskCount = Math.max(1, Math.min(taskCount, maxTasks));
+
+		for (int i = 0; i < taskCount; i++) {
+			MixTask task = tasks[i];
+			task.voices = mixing;
+			task.first = i;
+			task.stride = taskCount;
+			task.frames = frames;
+		}
+
+		/*
+		 * This thread claims tasks along with the workers, rather than
+		 * waiting on them. Workers stuck behind other jobs in the executor
+		 * (or not started at all) leave their tasks to this thread, so the
+		 * only tasks waited on below are those already being mixed.
+		 */
+		MixRound round = new MixRound(tasks, taskCount);
+		try {
+			for (int i = 1; i < taskCount; i++) {
+				executor.execute(round);
+			}
+		} catch (RejectedExecutionException e) {
+			/* this thread will mix the remaining tasks itself */
+		}
+		round.run();
+
+		try {
+			round.finished.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while mixing", e);
+		}
+
+		float[] acc = tasks[0].acc;
+		int samples = frames * CHANNEL_COUNT;
+		for (int i = 1; i < taskCount; i++) {
+			float[] other = tasks[i].acc;
+			for (int j = 0; j < samples; j++) {
+				acc[j] += other[j];
+			}
+		}
+
+		float master = this.gain * Short.MAX_VALUE;
+		out.clear();
+		for (int i = 0; i < samples; i++) {
+			float sample = acc[i] * master;
+			sample = Math.max(Short.MIN_VALUE, Math.min(sample, Short.MAX_VALUE));
+			out.putShort((short) sample);
+		}
+		out.flip();
+
+		this.removeDone(mixing);
+	}
+
+	/**
+	 * Mixes the next frames of audio into a buffer. The buffer is filled from
+	 * its position to its limit, rounded down to a whole frame, and its
+	 * position is advanced.
+	 *
+	 * @param dest
+	 *            the buffer to mix into.
+	 * @return the amount of bytes mixed.
+	 * @throws NullPointerException
+	 *             if {@code dest} is {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public int mix(ByteBuffer dest) throws IOException {
+		Objects.requireNonNull(dest, "dest");
+		mixLock.lock();
+		try {
+			int frames = dest.remaining() / FRAME_SIZE;
+			int mixed = 0;
+			while (mixed < frames) {
+				int block = Math.min(frames - mixed, BLOCK_FRAMES);
+				this.mixBlock(block);
+				dest.put(out);
+				mixed += block;
+			}
+			return mixed * FRAME_SIZE;
+		} finally {
+			mixLock.unlock();
+		}
+	}
+
+	@Override
+	public int readPCM(int offset, byte[] buf, int len) throws IOException {
+		mixLock.lock();
+		try {
+			if (closed == true) {
+				return -1;
+			}
+			if (wrappedBuf != buf) {
+				this.wrappedBuf = buf;
+				this.wrapped = ByteBuffer.wrap(buf)
+						.order(ByteOrder.LITTLE_ENDIAN);
+			}
+			wrapped.clear().limit(len);
+			return this.mix(wrapped);
+		} finally {
+			mixLock.unlock();
+		}
+	}
+
+	/**
+	 * Stops every voice. Once closed, a mixer cannot play any more voices and
+	 * reaches the end of its audio.
+	 */
+	@Override
+	public void close() throws IOException {
+		voicesLock.lock();
+		try {
+			for (Voice voice : voices) {
+				voice.stop();
+			}
+			this.voices = NO_VOICES;
+			this.closed = true;
+		} finally {
+			voicesLock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,341 @@
+package org.ardenus.engine.audio.mix;
+
+import java.io.IOException;
+
+import org.ardenus.engine.audio.AudioSource;
+
+/**
+ * A single audio source being played by a {@link Mixer}.
+ * <p>
+ * Voices are created with {@link Mixer#play(AudioSource)}. Their gain, pan
+ * and pitch can be changed from any thread, and take effect from the next
+ * block the mixer produces. Changes in gain and pan are ramped across the
+ * block, so they do not click.
+ * <p>
+ * Once a voice has been stopped or has reached the end of its audio, it is
+ * removed from its mixer and cannot be played again.
+ */
+public class Voice {
+
+	private static final int FRAME_CAPACITY = 2048;
+
+	private final Mixer mixer;
+	private final AudioSource audio;
+	private final int channelCount;
+	private final int bytesPerSample;
+	private final int frameSize;
+	private final double baseStep;
+
+	private volatile float gain;
+	private volatile float pan;
+	private volatile float pitch;
+	private volatile boolean looping;
+	private volatile boolean paused;
+	private volatile boolean stopped;
+	private volatile boolean ended;
+
+	/*
+	 * Everything below is only touched while the voice is being mixed, which
+	 * is done by one thread at a time.
+	 */
+	private final byte[] readBuf;
+	private final float[] frames; /* stereo, interleaved */
+	private int frameCount;
+	private double pos;
+	private int offset;
+	private boolean eof;
+	private float lastGainL;
+	private float lastGainR;
+	private boolean started;
+
+	Voice(Mixer mixer, AudioSource audio) {
+		this.mixer = mixer;
+		this.audio = audio;
+		this.channelCount = audio.getChannelCount();
+		this.bytesPerSample = audio.getBytesPerSample();
+		if (channelCount != 1 && channelCount != 2) {
+			throw new IllegalArgumentException("channel count not 1 or 2");
+		} else if (bytesPerSample != 1 && bytesPerSample != 2) {
+			throw new IllegalArgumentException("bits per sample not 8 or 16");
+		}
+		this.frameSize = channelCount * bytesPerSample;
+		this.baseStep = audio.getFrequencyHz()
+				/ (double) mixer.getFrequencyHz();
+
+		this.gain = 1.0F;
+		this.pitch = 1.0F;
+
+		this.readBuf = new byte[FRAME_CAPACITY * frameSize];
+		this.frames = new float[FRAME_CAPACITY * 2];
+	}
+
+	/**
+	 * @return the mixer playing this voice.
+	 */
+	public Mixer getMixer() {
+		return this.mixer;
+	}
+
+	/**
+	 * @return the audio source of this voice.
+	 */
+	public AudioSource getAudio() {
+		return this.audio;
+	}
+
+	/**
+	 * @return the gain of this voice.
+	 */
+	public float getGain() {
+		return this.gain;
+	}
+
+	/**
+	 * @param gain
+	 *            the gain. If less than {@code 0.0F}, the gain will be capped
+	 *            to a value of {@code 0.0F}.
+	 */
+	public void setGain(float gain) {
+		this.gain = Math.max(gain, 0.0F);
+	}
+
+	/**
+	 * @return the pan of this voice, from {@code -1.0F} (left) to {@code 1.0F}
+	 *         (right).
+	 */
+	public float getPan() {
+		return this.pan;
+	}
+
+	/**
+	 * A centered voice plays at full gain on both channels. Panning a voice
+	 * turns down the opposite channel, until it is silent at either end.
+	 *
+	 * @param pan
+	 *            the pan, from {@code -1.0F} (left) to {@code 1.0F} (right).
+	 *            Values outside this range are capped.
+	 */
+	public void setPan(float pan) {
+		this.pan = Math.max(-1.0F, Math.min(pan, 1.0F));
+	}
+
+	/**
+	 * @return the pitch of this voice.
+	 */
+	public float getPitch() {
+		return this.pitch;
+	}
+
+	/**
+	 * The pitch changes both the speed and the pitch of the voice, the same as
+	 * it does for an OpenAL source.
+	 *
+	 * @param pitch
+	 *            the pitch. If less than {@code 0.0F}, the pitch will be capped
+	 *            to a value of {@code 0.0F}.
+	 */
+	public void setPitch(float pitch) {
+		this.pitch = Math.max(pitch, 0.0F);
+	}
+
+	/**
+	 * @return {@code true} if this voice loops, {@code false} otherwise.
+	 */
+	public boolean isLooping() {
+		return this.looping;
+	}
+
+	/**
+	 * @param looping
+	 *            {@code true} if this voice should start over when it reaches
+	 *            the end of its audio, {@code false} otherwise.
+	 */
+	public void setLooping(boolean looping) {
+		this.looping = looping;
+	}
+
+	/**
+	 * @return {@code true} if this voice is paused, {@code false} otherwise.
+	 */
+	public boolean isPaused() {
+		return this.paused;
+	}
+
+	/**
+	 * @param paused
+	 *            {@code true} if this voice should be paused, {@code false}
+	 *            if it should resume.
+	 */
+	public void setPaused(boolean paused) {
+		this.paused = paused;
+	}
+
+	/**
+	 * Stops this voice. It is removed from its mixer at the end of the next
+	 * block, and cannot be played again.
+	 */
+	public void stop() {
+		this.stopped = true;
+	}
+
+	/**
+	 * @return {@code true} if this voice has been stopped or has reached the
+	 *         end of its audio, {@code false} otherwise.
+	 */
+	public boolean isDone() {
+		return stopped == true || ended == true;
+	}
+
+	/**
+	 * Reads more PCM data from the audio source, keeping the frame at the
+	 * current position (and everything after it) for interpolation.
+	 */
+	private void refill() throws IOException {
+		int keep = (int) pos;
+		if (keep > frameCount && eof == false) {
+			/* a high pitch stepped past frames which were never read */
+			this.offset += (keep - frameCount) * frameSize;
+		}
+		if (keep > 0) {
+			int kept = Math.max(frameCount - keep, 0);
+			System.arraycopy(frames, keep * 2, frames, 0, kept * 2);
+			this.frameCount = kept;
+			this.pos -= keep;
+		}
+		if (eof == true) {
+			return;
+		}
+
+		int want = (FRAME_CAPACITY - frameCount) * frameSize;
+		int read = audio.readPCM(offset, readBuf, want);
+		if (read == -1 && looping == true && offset > 0) {
+			this.offset = 0;
+			read = audio.readPCM(offset, readBuf, want);
+		}
+
+		if (read == -1) {
+			/*
+			 * Add a single frame of silence to the end, so the last frame of
+			 * audio has something to be interpolated towards.
+			 */
+			this.eof = true;
+			frames[frameCount * 2] = 0.0F;
+			frames[frameCount * 2 + 1] = 0.0F;
+			this.frameCount++;
+			return;
+		}
+
+		read -= read % frameSize;
+		this.offset += read;
+		int dest = frameCount * 2;
+		for (int i = 0; i < read; i += frameSize) {
+			float left = this.sample(i);
+			float right = channelCount == 2 ? this.sample(i + bytesPerSample)
+					: left;
+			frames[dest++] = left;
+			frames[dest++] = right;
+		}
+		this.frameCount += read / frameSize;
+	}
+
+	private float sample(int index) {
+		if (bytesPerSample == 1) {
+			return ((readBuf[index] & 0xFF) - 128) / 128.0F;
+		}
+		int lo = readBuf[index] & 0xFF;
+		return (short) ((readBuf[index + 1] << 8) | lo) / 32768.0F;
+	}
+
+	/**
+	 * Resamples the audio of this voice into {@code scratch}, at the rate of
+	 * the mixer and adjusted for pitch.
+	 *
+	 * @return the amount of frames written, which is less than
+	 *         {@code outFrames} only once the end of the audio is reached or
+	 *         the audio source could not keep up.
+	 */
+	private int resample(float[] scratch, int outFrames) throws IOException {
+		double step = baseStep * pitch;
+		for (int i = 0; i < outFrames; i++) {
+			int index = (int) pos;
+			if (index + 1 >= frameCount) {
+				this.refill();
+				index = (int) pos;
+				if (index + 1 >= frameCount) {
+					if (eof == true) {
+						this.ended = true;
+					}
+					return i; /* ended, or the source is starved */
+				}
+			}
+
+			float frac = (float) (pos - index);
+			int f = index * 2;
+			scratch[i * 2] = frames[f] + (frames[f + 2] - frames[f]) * frac;
+			scratch[i * 2 + 1] = frames[f + 1]
+					+ (frames[f + 3] - frames[f + 1]) * frac;
+			this.pos += step;
+		}
+		return outFrames;
+	}
+
+	/**
+	 * Mixes the next block of this voice into an accumulator.
+	 *
+	 * @param acc
+	 *            the accumulator, stereo and interleaved.
+	 * @param scratch
+	 *            scratch space at least as large as {@code acc}.
+	 * @param outFrames
+	 *            the amount of frames to mix.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	void mix(float[] acc, float[] scratch, int outFrames) throws IOException {
+		if (this.isDone() || paused == true) {
+			return;
+		}
+
+		int mixed = this.resample(scratch, outFrames);
+		float p = pan;
+		float targetL = gain * Math.min(1.0F, 1.0F - p);
+		float targetR = gain * Math.min(1.0F, 1.0F + p);
+		if (started == false) {
+			this.lastGainL = targetL;
+			this.lastGainR = targetR;
+			this.started = true;
+		}
+
+		/*
+		 * The common case of an unchanged gain is kept to a plain multiply
+		 * and add over the arrays, which the JIT can vectorize.
+		 */
+		int samples = mixed * 2;
+		if (targetL == lastGainL && targetR == lastGainR) {
+			if (targetL == targetR) {
+				for (int i = 0; i < samples; i++) {
+					acc[i] += scratch[i] * targetL;
+				}
+			} else {
+				for (int i = 0; i < samples; i += 2) {
+					acc[i] += scratch[i] * targetL;
+					acc[i + 1] += scratch[i + 1] * targetR;
+				}
+			}
+		} else {
+			float stepL = (targetL - lastGainL) / outFrames;
+			float stepR = (targetR - lastGainR) / outFrames;
+			float gainL = lastGainL;
+			float gainR = lastGainR;
+			for (int i = 0; i < samples; i += 2) {
+				acc[i] += scratch[i] * gainL;
+				acc[i + 1] += scratch[i + 1] * gainR;
+				gainL += stepL;
+				gainR += stepR;
+			}
+			this.lastGainL = targetL;
+			this.lastGainR = targetR;
+		}
+	}
+
+}
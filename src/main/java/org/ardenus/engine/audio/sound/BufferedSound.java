@@ -7,7 +7,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Objects;
 
+import org.ardenus.engine.audio.Audio;
 import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.vorbis.VorbisFile;
 import org.ardenus.engine.io.Resource;
 import org.lwjgl.BufferUtils;
 
@@ -59,6 +61,10 @@ public class BufferedSound extends Sound {
 	}
 
 	/**
+	 * Audio from a {@link VorbisFile} is decoded in segments on the
+	 * {@link Audio#workers() audio workers}, so long files load in a fraction
+	 * of the time.
+	 * 
 	 * @param audio
 	 *            the audio source.
 	 * @return the generated buffer.
@@ -66,9 +72,17 @@ public class BufferedSound extends Sound {
 	 *             if {@code audio} is {@code null}.
 	 * @throws IOException
 	 *             if an I/O error occurs.
+	 * @see VorbisFile#decodeAll(java.util.concurrent.ExecutorService)
 	 */
 	public static ByteBuffer loadData(AudioSource audio) throws IOException {
 		Objects.requireNonNull(audio, "audio");
+		if (audio instanceof VorbisFile) {
+			ByteBuffer pcmBuffer =
+					((VorbisFile) audio).decodeAll(Audio.workers());
+			pcmBuffer.limit(pcmBuffer.limit() - (pcmBuffer.limit() % 4));
+			return pcmBuffer;
+		}
+
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
 
 		byte[] chunk = new byte[1024];
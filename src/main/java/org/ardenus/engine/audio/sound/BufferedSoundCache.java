@@ -0,0 +1,187 @@
+package org.ardenus.engine.audio.sound;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.dsp.ResampledSource;
+
+/**
+ * A cache of {@link BufferedSound} data, resampled to a single frequency.
+ * <p>
+ * Resampling is far more expensive than decoding, so the data for each sound
+ * is only resampled once. Later loads with the same key reuse the cached
+ * data, and only have to copy it into a new OpenAL buffer. Cached data is
+ * held by soft references, which lets it be reclaimed should memory run low.
+ * If that happens, it is simply resampled again the next time it is loaded.
+ * <p>
+ * The key for each sound is chosen by the caller, and should identify where
+ * its audio came from (such as its file). Audio which is already at the
+ * frequency of this cache is cached as-is.
+ */
+public class BufferedSoundCache {
+
+	private static class Entry {
+
+		private final Lock lock;
+		private SoftReference<ByteBuffer> data;
+
+		private Entry() {
+			this.lock = new ReentrantLock();
+		}
+
+	}
+
+	private final int frequencyHz;
+	private final Map<Object, Entry> entries;
+
+	/**
+	 * @param frequencyHz
+	 *            the frequency to resample sounds to in Hz.
+	 * @throws IllegalArgumentException
+	 *             if {@code frequencyHz} is not positive.
+	 */
+	public BufferedSoundCache(int frequencyHz) {
+		if (frequencyHz <= 0) {
+			throw new IllegalArgumentException("frequencyHz <= 0");
+		}
+		this.frequencyHz = frequencyHz;
+		this.entries = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Constructs a new {@code BufferedSoundCache} which resamples sounds to
+	 * the frequency of the device.
+	 *
+	 * @throws IllegalStateException
+	 *             if the audio system is not initialized.
+	 * @see Audio#getFrequencyHz()
+	 */
+	public BufferedSoundCache() {
+		this(Audio.getFrequencyHz());
+	}
+
+	/**
+	 * @return the frequency sounds are resampled to in Hz.
+	 */
+	public int getFrequencyHz() {
+		return this.frequencyHz;
+	}
+
+	private AudioSource describe(AudioSource audio) {
+		if (audio.getFrequencyHz() == frequencyHz) {
+			return audio;
+		}
+		return new ResampledSource(audio, frequencyHz, false);
+	}
+
+	/**
+	 * Loads the resampled data of a sound, or returns the cached data if it
+	 * was loaded before. When two threads load the same key at once, one
+	 * resamples it while the other waits for the result.
+	 * <p>
+	 * The returned buffer is a duplicate of the cached data, so its position
+	 * and limit can be changed freely. Its contents must not be modified.
+	 *
+	 * @param key
+	 *            the key of the sound.
+	 * @param audio
+	 *            the audio source, only read from if the data of {@code key}
+	 *            is not cached.
+	 * @return the resampled data.
+	 * @throws NullPointerException
+	 *             if {@code key} or {@code audio} are {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @see BufferedSound#loadData(AudioSource)
+	 */
+	public ByteBuffer loadData(Object key, AudioSource audio)
+			throws IOException {
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(audio, "audio");
+
+		Entry entry = entries.computeIfAbsent(key, (k) -> new Entry());
+		entry.lock.lock();
+		try {
+			ByteBuffer data = entry.data != null ? entry.data.get() : null;
+			if (data == null) {
+				data = BufferedSound.loadData(this.describe(audio));
+				entry.data = new SoftReference<>(data);
+			}
+			return data.duplicate();
+		} finally {
+			entry.lock.unlock();
+		}
+	}
+
+	/**
+	 * This method is a shorthand for {@link #loadData(Object, AudioSource)},
+	 * with the data it loads being used to construct a new
+	 * {@code BufferedSound}.
+	 *
+	 * @param key
+	 *            the key of the sound.
+	 * @param audio
+	 *            the audio source, only read from if the data of {@code key}
+	 *            is not cached.
+	 * @return the sound just buffered into memory.
+	 * @throws NullPointerException
+	 *             if {@code key} or {@code audio} are {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @throws SoundException
+	 *             if the OpenAL source or buffer fails to generate.
+	 */
+	public BufferedSound load(Object key, AudioSource audio)
+			throws IOException {
+		ByteBuffer data = this.loadData(key, audio);
+		return new BufferedSound(this.describe(audio), data);
+	}
+
+	/**
+	 * @param key
+	 *            the key of the sound.
+	 * @return {@code true} if the data of {@code key} is cached and has not
+	 *         been reclaimed, {@code false} otherwise.
+	 */
+	public boolean isCached(Object key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return false;
+		}
+		entry.lock.lock();
+		try {
+			return entry.data != null && entry.data.get() != null;
+		} finally {
+			entry.lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the cached data of a sound. Sounds already loaded from it are
+	 * not affected, as each has its own copy in an OpenAL buffer.
+	 *
+	 * @param key
+	 *            the key of the sound.
+	 */
+	public void evict(Object key) {
+		if (key != null) {
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * Removes the cached data of every sound.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+}
@@ -13,6 +13,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioBatch;
 import org.ardenus.engine.audio.AudioSource;
 import org.ardenus.engine.audio.VolumeChannel;
 import org.ardenus.engine.audio.sound.event.SoundPauseEvent;
@@ -36,6 +37,7 @@ public abstract class Sound implements Closeable {
 	protected final int h_alSource;
 	private final Lock pvalLock;
 	private final float[][] pval;
+	private final SoundClock clock;
 
 	private float volume;
 	private VolumeChannel volumeChannel;
@@ -70,6 +72,7 @@ public abstract class Sound implements Closeable {
 		}
 		this.pvalLock = new ReentrantLock();
 		this.pval = new float[3][1];
+		this.clock = new SoundClock(this);
 
 		this.volume = 1.0F;
 		this.triggers = new HashSet<>();
@@ -182,6 +185,9 @@ public abstract class Sound implements Closeable {
 	}
 
 	/**
+	 * If an {@link AudioBatch} is open, the change is recorded by it and
+	 * applied once the batch is committed.
+	 * 
 	 * @param alParam
 	 *            the OpenAL source parameter.
 	 * @param x
@@ -193,6 +199,9 @@ public abstract class Sound implements Closeable {
 	 */
 	protected void setSource3f(int alParam, float x, float y, float z) {
 		this.requireOpen();
+		if (AudioBatch.recordSource3f(h_alSource, alParam, x, y, z)) {
+			return; /* applied when the batch is committed */
+		}
 		alSource3f(h_alSource, alParam, x, y, z);
 	}
 
@@ -641,6 +650,31 @@ public abstract class Sound implements Closeable {
 		this.setSampleOffset(Math.round(sampleOffset));
 	}
 
+	/**
+	 * Returns the amount of samples which came before the buffers currently
+	 * queued on the OpenAL source. The value of {@code AL_SAMPLE_OFFSET} is
+	 * relative to these buffers, so sounds which stream their data must
+	 * override this to account for the buffers which have already played.
+	 * <p>
+	 * This is called from the audio thread during {@link #update()}.
+	 * 
+	 * @return the amount of samples before the queued buffers.
+	 */
+	protected int getQueuedSampleBase() {
+		return 0;
+	}
+
+	/**
+	 * The clock is more precise than {@link #getOffsetMillis()}, and can be
+	 * read from any thread without locking. It is updated each time this
+	 * sound is updated by the audio thread.
+	 * 
+	 * @return the latency-compensated playback clock of this sound.
+	 */
+	public SoundClock getClock() {
+		return this.clock;
+	}
+
 	/**
 	 * This method returns a {@code long} representing how many milliseconds
 	 * have been played. This value is calculated by taking the return value of
@@ -908,6 +942,7 @@ public abstract class Sound implements Closeable {
 		this.requireOpen();
 		updateLock.lock();
 		try {
+			clock.poll();
 			this.testTriggers();
 
 			/*
@@ -937,6 +972,7 @@ public abstract class Sound implements Closeable {
 		try {
 			Audio.abandon(this);
 			this.stop();
+			AudioBatch.discard(h_alSource);
 			alDeleteSources(h_alSource);
 			this.closed = true;
 		} finally {
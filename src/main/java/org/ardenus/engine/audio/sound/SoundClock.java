@@ -0,0 +1,193 @@
+package org.ardenus.engine.audio.sound;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL11.*;
+import static org.lwjgl.openal.SOFTSourceLatency.*;
+
+/**
+ * A high precision clock for the playback position of a sound, meant for
+ * timing sensitive code such as rhythm judgement.
+ * <p>
+ * The offset reported by {@link Sound#getOffsetMillis()} only advances each
+ * time OpenAL mixes another period of audio, and does not account for the
+ * time it takes for mixed audio to reach the speakers. This clock fixes both.
+ * When the {@code AL_SOFT_source_latency} extension is present, the offset is
+ * read with sub-sample precision alongside the output latency, and the
+ * latency is subtracted so the clock reports what is being heard rather than
+ * what was last mixed. Between polls, the position is extrapolated using
+ * {@link System#nanoTime()} and the pitch of the sound.
+ * <p>
+ * Rather than jumping to each new measurement, the clock speeds up or slows
+ * down slightly to drift towards it. This keeps the clock from ever going
+ * backwards during playback. Large differences, such as those caused by
+ * seeking, are jumped to immediately.
+ * <p>
+ * The clock is polled by its sound on the audio thread. It can be read from
+ * any thread without locking and without calling into OpenAL, making it safe
+ * to read as often as needed from the game thread.
+ *
+ * @see Sound#getClock()
+ */
+public final class SoundClock {
+
+	/*
+	 * Measurements further than this from the extrapolated position are taken
+	 * to be a seek (or a stall), and are jumped to rather than slewed to.
+	 */
+	private static final double SNAP_SECONDS = 0.050D;
+
+	/*
+	 * How long the clock takes to drift to a new measurement, and how much
+	 * faster or slower than the pitch of the sound it may run to do so.
+	 */
+	private static final double SLEW_SECONDS = 0.250D;
+	private static final double MAX_SLEW = 0.05D;
+
+	private static final double FIXED_POINT_ONE = 4294967296.0D; /* 1 << 32 */
+
+	private final Sound sound;
+	private final boolean compensated;
+	private final long[] alValues;
+
+	/*
+	 * Snapshot published with a sequence lock. The sequence is odd while the
+	 * audio thread is writing, and readers retry until they see the same even
+	 * sequence before and after reading. Since every field is volatile, reads
+	 * and writes cannot be reordered around the sequence.
+	 */
+	private volatile long sequence;
+	private volatile double positionSeconds;
+	private volatile long positionNanos;
+	private volatile double rate;
+	private volatile long latencyNanos;
+
+	/* only accessed by the audio thread */
+	private boolean wasPlaying;
+
+	/**
+	 * Must be constructed while the OpenAL context of {@code sound} is
+	 * current.
+	 *
+	 * @param sound
+	 *            the sound to keep time for.
+	 */
+	SoundClock(Sound sound) {
+		this.sound = sound;
+		this.compensated = alIsExtensionPresent("AL_SOFT_source_latency");
+		this.alValues = new long[2];
+		this.positionNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return {@code true} if the position reported by this clock has output
+	 *         latency subtracted from it, {@code false} if the
+	 *         {@code AL_SOFT_source_latency} extension is not present.
+	 */
+	public boolean isLatencyCompensated() {
+		return this.compensated;
+	}
+
+	/**
+	 * Measures the playback position of the sound and publishes a new
+	 * snapshot. This is called by the sound on the audio thread during its
+	 * update.
+	 */
+	void poll() {
+		/*
+		 * The sample offset is relative to the buffers currently queued on
+		 * the source. Streaming sounds add the samples of the buffers which
+		 * have already played.
+		 */
+		double samples;
+		long latency = 0L;
+		if (compensated == true) {
+			alGetSourcei64vSOFT(sound.h_alSource,
+					AL_SAMPLE_OFFSET_LATENCY_SOFT, alValues);
+			samples = alValues[0] / FIXED_POINT_ONE;
+			latency = Math.max(alValues[1], 0L);
+		} else {
+			samples = alGetSourcei(sound.h_alSource, AL_SAMPLE_OFFSET);
+		}
+		long now = System.nanoTime();
+
+		boolean playing = sound.isPlaying();
+		double pitch = playing ? sound.getPitch() : 0.0D;
+		samples += sound.getQueuedSampleBase();
+		double measured = samples / sound.audio.getFrequencyHz();
+
+		/*
+		 * Audio which was mixed latency nanoseconds ago is what is being heard
+		 * now, so move the measurement back by however much audio plays in
+		 * that time. Never report a position before the start of the sound.
+		 */
+		measured = Math.max(measured - latency * pitch / 1e9D, 0.0D);
+
+		double position = measured;
+		double newRate = pitch;
+		if (playing == true && wasPlaying == true) {
+			double predicted = this.extrapolate(now);
+			double error = measured - predicted;
+			if (Math.abs(error) < SNAP_SECONDS) {
+				double slew = error / SLEW_SECONDS;
+				double maxSlew = pitch * MAX_SLEW;
+				slew = Math.max(-maxSlew, Math.min(slew, maxSlew));
+				position = predicted;
+				newRate = pitch + slew;
+			}
+		}
+		this.wasPlaying = playing;
+
+		this.sequence++; /* odd, writing */
+		this.positionSeconds = position;
+		this.positionNanos = now;
+		this.rate = newRate;
+		this.latencyNanos = latency;
+		this.sequence++; /* even, published */
+	}
+
+	private double extrapolate(long nanoTime) {
+		long elapsed = nanoTime - positionNanos;
+		return positionSeconds + elapsed * rate / 1e9D;
+	}
+
+	/**
+	 * Returns the playback position of the sound at the current time. This
+	 * method never blocks, and does not call into OpenAL.
+	 *
+	 * @return the position in seconds of the audio currently being heard.
+	 */
+	public double getSeconds() {
+		long now = System.nanoTime();
+		while (true) {
+			long before = this.sequence;
+			if ((before & 1L) != 0L) {
+				Thread.yield(); /* audio thread is mid-write */
+				continue;
+			}
+			double seconds = this.extrapolate(now);
+			if (this.sequence == before) {
+				return seconds;
+			}
+		}
+	}
+
+	/**
+	 * This method is a shorthand for {@link #getSeconds()}, with the result
+	 * converted to milliseconds.
+	 *
+	 * @return the position in milliseconds of the audio currently being
+	 *         heard.
+	 */
+	public long getMillis() {
+		return Math.round(this.getSeconds() * 1000.0D);
+	}
+
+	/**
+	 * @return the output latency in nanoseconds measured at the last poll,
+	 *         {@code 0} if the clock is not latency compensated.
+	 */
+	public long getLatencyNanos() {
+		return this.latencyNanos;
+	}
+
+}
@@ -69,6 +69,39 @@ public final class SoundTrigger {
 		}
 	}
 
+	/**
+	 * Constructs a new {@code SoundTrigger} which triggers at irregular points
+	 * in time, such as the onsets of notes within a song.
+	 *
+	 * @param id
+	 *            the trigger ID. This is used to determine which sound trigger
+	 *            was set off when listening for a {@link SoundTriggerEvent}.
+	 * @param timesMillis
+	 *            the points in time which this will trigger, in milliseconds.
+	 *            These must be in ascending order. The array is copied.
+	 * @throws NullPointerException
+	 *             if {@code timesMillis} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code timesMillis} is empty, contains a negative time,
+	 *             or is not in ascending order.
+	 */
+	public SoundTrigger(long id, long[] timesMillis) {
+		Objects.requireNonNull(timesMillis, "timesMillis");
+		if (timesMillis.length < 1) {
+			throw new IllegalArgumentException("no trigger times");
+		}
+		for (int i = 0; i < timesMillis.length; i++) {
+			if (timesMillis[i] < 0) {
+				throw new IllegalArgumentException("negative trigger");
+			} else if (i > 0 && timesMillis[i] < timesMillis[i - 1]) {
+				throw new IllegalArgumentException(
+						"trigger times not in ascending order");
+			}
+		}
+		this.id = id;
+		this.timesMillis = timesMillis.clone();
+	}
+
 	/**
 	 * @param id
 	 *            the trigger ID. This is used to determine which sound trigger
@@ -0,0 +1,818 @@
+package org.ardenus.engine.audio.sound;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.AL11.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.sound.event.SoundPauseEvent;
+import org.ardenus.engine.audio.sound.event.SoundPlayEvent;
+import org.lwjgl.BufferUtils;
+
+/**
+ * A group of streamed sounds, referred to as stems, which play in sample lock
+ * with one another.
+ * <p>
+ * Adaptive music is often made of multiple layers which are faded in and out
+ * depending on what is happening. Playing each layer with its own
+ * {@link StreamedSound} causes them to drift apart, as each one seeks and
+ * refills its buffers on its own. A {@code StemGroup} instead reads every stem
+ * at one shared offset, and queues their buffers together. Playback is
+ * started, paused, and stopped for all stems at once.
+ * <p>
+ * Each stem is a {@link Sound} of its own, so its volume, volume channel, and
+ * position can be changed freely. These only affect the gain of the stem, and
+ * never cause the group to resynchronize. Methods which would affect playback
+ * of a single stem (like {@link Sound#play()} or
+ * {@link Sound#setByteOffset(int)}) are instead applied to the entire group.
+ * <p>
+ * All stems must have the same format. That is, the same frequency, channel
+ * count, and bits per sample.
+ */
+public class StemGroup implements Closeable {
+
+	private static final int BUF_MODULO = StreamReader.BUF_MODULO;
+
+	/**
+	 * A single layer of a {@link StemGroup}.
+	 * <p>
+	 * <b>Note:</b> Since stopping a stem stops its entire group, a stem which
+	 * should only go silent must be faded without stopping, see
+	 * {@link Sound#fade(org.ardenus.engine.util.fade.Fade, boolean)}.
+	 */
+	public static class Stem extends Sound {
+
+		private final StemGroup group;
+
+		private Stem(StemGroup group, AudioSource audio) {
+			super(audio, false);
+			this.group = group;
+		}
+
+		/**
+		 * @return the group this stem belongs to.
+		 */
+		public StemGroup getGroup() {
+			return this.group;
+		}
+
+		@Override
+		public boolean isPlaying() {
+			return group.isPlaying();
+		}
+
+		/**
+		 * Plays the entire group this stem belongs to.
+		 */
+		@Override
+		public void play() {
+			group.play();
+		}
+
+		@Override
+		public boolean isPaused() {
+			return group.isPaused();
+		}
+
+		/**
+		 * Pauses the entire group this stem belongs to.
+		 */
+		@Override
+		public void pause() {
+			group.pause();
+		}
+
+		@Override
+		public boolean isStopped() {
+			return group.isStopped();
+		}
+
+		/**
+		 * Stops the entire group this stem belongs to.
+		 */
+		@Override
+		public void stop() {
+			group.stop();
+		}
+
+		@Override
+		public boolean isLooping() {
+			return group.isLooping();
+		}
+
+		@Override
+		public void setLooping(boolean looping) {
+			group.setLooping(looping);
+		}
+
+		@Override
+		public void setPitch(float pitch) {
+			group.setPitch(pitch);
+		}
+
+		@Override
+		public int getByteOffset() {
+			return group.getByteOffset();
+		}
+
+		@Override
+		public void setByteOffset(int byteOffset) {
+			group.setByteOffset(byteOffset);
+		}
+
+		@Override
+		public int getSampleOffset() {
+			return group.getSampleOffset();
+		}
+
+		@Override
+		public void setSampleOffset(int sampleOffset) {
+			group.setSampleOffset(sampleOffset);
+		}
+
+		@Override
+		protected int getQueuedSampleBase() {
+			return group.processedBytes / group.getFrameSize();
+		}
+
+		@Override
+		public float getOffset(boolean wholeSeconds) {
+			return group.getOffset(wholeSeconds);
+		}
+
+		/*
+		 * Only the first stem of a group is maintained by the audio thread.
+		 * Its update streams the audio data for the entire group, then updates
+		 * each stem as a Sound (triggers, fades, and gain).
+		 */
+		@Override
+		public void update() throws IOException {
+			group.update();
+		}
+
+		private void updateSound() throws IOException {
+			super.update();
+		}
+
+		private void stopSound() {
+			super.stop();
+		}
+
+		/**
+		 * Stems are closed by their group.
+		 *
+		 * @see StemGroup#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			group.close();
+		}
+
+		private void closeSound() throws IOException {
+			super.close();
+		}
+
+	}
+
+	private final Stem[] stems;
+	private final int[] h_alSources;
+	private final int[][] h_alBuffers;
+	private final int[] h_unqueued;
+	private final int[] readLens;
+	private final AudioSource format;
+	private final Lock lock;
+
+	private byte[][] readBufs;
+	private byte[] scratch;
+	private ByteBuffer heapBuf;
+	private int bufSize;
+	private int readPos;
+	private int processedBytes;
+
+	private SoundSection sect;
+	private int sectStartBytes;
+	private int sectEndBytes;
+	private boolean sectEnded;
+
+	private int alState;
+	private boolean looping;
+	private boolean initialize;
+	private boolean updateOffset;
+	private boolean closed;
+
+	/**
+	 * Prepares a group of audio sources for synchronized streamed playback.
+	 * The order of {@code stems} is retained by {@link #getStem(int)}.
+	 *
+	 * @param stems
+	 *            the audio sources of each stem.
+	 * @throws NullPointerException
+	 *             if {@code stems} or any of its elements are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code stems} is empty, or the format of the stems do not
+	 *             all match.
+	 * @throws SoundException
+	 *             if an OpenAL source or buffer fails to generate.
+	 */
+	public StemGroup(AudioSource... stems) {
+		Objects.requireNonNull(stems, "stems");
+		if (stems.length <= 0) {
+			throw new IllegalArgumentException("no stems");
+		}
+		this.format = Objects.requireNonNull(stems[0], "stems[0]");
+		for (int i = 1; i < stems.length; i++) {
+			AudioSource stem = Objects.requireNonNull(stems[i],
+					"stems[" + i + "]");
+			if (stem.getFrequencyHz() != format.getFrequencyHz()
+					|| stem.getChannelCount() != format.getChannelCount()
+					|| stem.getBitsPerSample() != format.getBitsPerSample()) {
+				throw new IllegalArgumentException(
+						"stems[" + i + "] format does not match stems[0]");
+			}
+		}
+
+		this.stems = new Stem[stems.length];
+		this.h_alSources = new int[stems.length];
+		this.h_alBuffers = new int[stems.length][3];
+		this.h_unqueued = new int[stems.length];
+		this.readLens = new int[stems.length];
+		for (int i = 0; i < stems.length; i++) {
+			this.stems[i] = new Stem(this, stems[i]);
+			this.h_alSources[i] = this.stems[i].h_alSource;
+			for (int j = 0; j < h_alBuffers[i].length; j++) {
+				int h_alBuffer = alGenBuffers();
+				if (h_alBuffer == AL_NONE) {
+					throw new SoundException(
+							"failed to generate OpenAL buffer");
+				}
+				this.h_alBuffers[i][j] = h_alBuffer;
+			}
+		}
+
+		this.lock = new ReentrantLock();
+		this.alState = AL_INITIAL;
+		this.setBufferSize(StreamedSound.getMinBufferSize());
+		Audio.maintain(this.stems[0]);
+	}
+
+	/**
+	 * @return the amount of stems in this group.
+	 */
+	public int getStemCount() {
+		return stems.length;
+	}
+
+	/**
+	 * @param index
+	 *            the index of the stem, in the order they were given at
+	 *            construction.
+	 * @return the stem.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of bounds.
+	 */
+	public Stem getStem(int index) {
+		return stems[index];
+	}
+
+	private void requireOpen() {
+		if (closed == true) {
+			throw new IllegalStateException("stem group closed");
+		}
+	}
+
+	private void setBufferSize(int bufSize) {
+		bufSize += bufSize % BUF_MODULO;
+		this.bufSize = bufSize;
+		this.readBufs = new byte[stems.length][bufSize];
+		this.scratch = new byte[bufSize];
+		this.heapBuf = BufferUtils.createByteBuffer(bufSize);
+	}
+
+	private boolean inState(int state) {
+		this.requireOpen();
+		lock.lock();
+		try {
+			return alState == state;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return {@code true} if this group is playing, {@code false} otherwise.
+	 */
+	public boolean isPlaying() {
+		return this.inState(AL_PLAYING);
+	}
+
+	/**
+	 * Starts playback of every stem at once. If the group is already playing,
+	 * it is restarted from the beginning.
+	 */
+	public void play() {
+		this.requireOpen();
+		lock.lock();
+		try {
+			if (this.isPlaying()) {
+				this.stop();
+				this.initialize = true;
+			} else {
+				/*
+				 * If the group is paused, the audio data buffers have already
+				 * been initialized. Initializing them again would result in a
+				 * portion of the group being skipped over.
+				 */
+				this.initialize = !this.isPaused();
+			}
+
+			/*
+			 * Initial playback is started on the next update, once the first
+			 * buffers have been queued. This is done so every stem starts on
+			 * the very same sample.
+			 */
+			if (initialize == false) {
+				alSourcePlayv(h_alSources);
+			}
+			for (Stem stem : stems) {
+				Audio.sendEvent(new SoundPlayEvent(stem));
+			}
+			this.alState = AL_PLAYING;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return {@code true} if this group is paused, {@code false} otherwise.
+	 */
+	public boolean isPaused() {
+		return this.inState(AL_PAUSED);
+	}
+
+	/**
+	 * Pauses playback of every stem at once.
+	 *
+	 * @see #stop()
+	 */
+	public void pause() {
+		this.requireOpen();
+		lock.lock();
+		try {
+			if (!this.isPlaying()) {
+				return;
+			}
+			alSourcePausev(h_alSources);
+			for (Stem stem : stems) {
+				Audio.sendEvent(new SoundPauseEvent(stem));
+			}
+			this.alState = AL_PAUSED;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return {@code true} if this group is stopped, {@code false} otherwise.
+	 */
+	public boolean isStopped() {
+		return this.inState(AL_STOPPED);
+	}
+
+	/**
+	 * Stops playback of every stem at once. When the group is started again,
+	 * it will start from the beginning.
+	 *
+	 * @see #pause()
+	 */
+	public void stop() {
+		this.requireOpen();
+		lock.lock();
+		try {
+			if (this.isStopped()) {
+				return;
+			}
+			alSourceStopv(h_alSources);
+			for (int i = 0; i < stems.length; i++) {
+				stems[i].stopSound(); /* finishes fades, sends events */
+				alSourceUnqueueBuffers(h_alSources[i], h_alBuffers[i]);
+			}
+
+			this.readPos = 0;
+			this.processedBytes = 0;
+			this.initialize = false;
+			this.alState = AL_STOPPED;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return {@code true} if this group is looping, {@code false} otherwise.
+	 */
+	public boolean isLooping() {
+		this.requireOpen();
+		lock.lock();
+		try {
+			return this.looping;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param looping
+	 *            {@code true} if this group should be looping, {@code false}
+	 *            otherwise.
+	 */
+	public void setLooping(boolean looping) {
+		this.requireOpen();
+		lock.lock();
+		try {
+			this.looping = looping;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Since every stem must play at the same speed to stay in sync, the pitch
+	 * is always set for the entire group.
+	 *
+	 * @param pitch
+	 *            the pitch. If less than {@code 0.0F}, the pitch will be capped
+	 *            to a value of {@code 0.0F}.
+	 */
+	public void setPitch(float pitch) {
+		this.requireOpen();
+		lock.lock();
+		try {
+			if (pitch > 1.0F) {
+				/*
+				 * Based on the minimum size rather than the current one, so
+				 * that setting the same pitch again does not grow it again.
+				 */
+				int pitchBufSize = (int) Math
+						.ceil(StreamedSound.getMinBufferSize() * pitch);
+				if (pitchBufSize > bufSize) {
+					this.setBufferSize(pitchBufSize);
+				}
+			}
+			pitch = Math.max(pitch, 0.0F);
+			for (int h_alSource : h_alSources) {
+				alSourcef(h_alSource, AL_PITCH, pitch);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the amount of bytes that have played since this group was
+	 *         started, assuming it has not been stopped.
+	 */
+	public int getByteOffset() {
+		lock.lock();
+		try {
+			int currentBytes = alGetSourcei(h_alSources[0], AL_BYTE_OFFSET);
+			return processedBytes + currentBytes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The new offset is applied to every stem at once on the next update.
+	 *
+	 * @param byteOffset
+	 *            the byte offset.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code byteOffset} is negative.
+	 */
+	public void setByteOffset(int byteOffset) {
+		if (byteOffset < 0) {
+			throw new IndexOutOfBoundsException("byteOffset < 0");
+		}
+
+		lock.lock();
+		try {
+			byteOffset -= byteOffset % BUF_MODULO;
+			this.readPos = byteOffset;
+			this.processedBytes = byteOffset;
+			this.updateOffset = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int getFrameSize() {
+		return format.getBytesPerSample() * format.getChannelCount();
+	}
+
+	/**
+	 * @return the amount of samples that have played since this group was
+	 *         started, assuming it has not been stopped.
+	 */
+	public int getSampleOffset() {
+		return this.getByteOffset() / this.getFrameSize();
+	}
+
+	/**
+	 * @param sampleOffset
+	 *            the sample offset.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code sampleOffset} is negative.
+	 */
+	public void setSampleOffset(int sampleOffset) {
+		if (sampleOffset < 0) {
+			throw new IndexOutOfBoundsException("sampleOffset < 0");
+		}
+		this.setByteOffset(sampleOffset * this.getFrameSize());
+	}
+
+	/**
+	 * @param wholeSeconds
+	 *            {@code true} if the offset should be returned in whole
+	 *            seconds, {@code false} for sample precision.
+	 * @return the offset of this group in seconds.
+	 */
+	public float getOffset(boolean wholeSeconds) {
+		float sampleOffset = this.getSampleOffset();
+		float offset = sampleOffset / format.getFrequencyHz();
+		return wholeSeconds ? (float) Math.floor(offset) : offset;
+	}
+
+	/**
+	 * The section is applied to every stem at once. It is recommended that
+	 * constraints be set before playback begins.
+	 *
+	 * @param sect
+	 *            the section of audio to play, may be {@code null} to remove
+	 *            the current constraint (if any) and resume full playback.
+	 * @return this group.
+	 * @see StreamedSound#constrain(SoundSection)
+	 */
+	public StemGroup constrain(SoundSection sect) {
+		this.requireOpen();
+		lock.lock();
+		try {
+			this.sect = sect;
+			if (sect == null) {
+				this.sectStartBytes = 0;
+				this.sectEndBytes = 0;
+				this.sectEnded = false;
+				return this;
+			}
+
+			this.sectStartBytes = StreamReader.getOffsetBytes(format,
+					sect.start);
+			this.sectEndBytes = StreamReader.getOffsetBytes(format, sect.end);
+			if (sectEndBytes - sectStartBytes < BUF_MODULO) {
+				this.sectEndBytes = sectStartBytes + BUF_MODULO;
+			}
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads exactly {@code len} bytes from {@code audio} unless its end is
+	 * reached first. This is necessary since an audio source may return less
+	 * data than requested, and every stem must read the same amount. If the
+	 * audio source has nothing available right now, the rest is filled with
+	 * silence so the stem stays in step with the others.
+	 */
+	private int readFully(AudioSource audio, int offset, byte[] buf, int len)
+			throws IOException {
+		int filled = 0;
+		while (filled < len) {
+			int read = audio.readPCM(offset + filled, scratch, len - filled);
+			if (read == -1) {
+				break;
+			} else if (read == 0) {
+				byte silence =
+						(byte) (format.getBitsPerSample() == 8 ? 128 : 0);
+				Arrays.fill(buf, filled, len, silence);
+				return len;
+			}
+			System.arraycopy(scratch, 0, buf, filled, read);
+			filled += read;
+		}
+		return filled;
+	}
+
+	/**
+	 * Reads the next block of PCM data for every stem at the shared read
+	 * position. Stems which end early are padded with silence, so every stem
+	 * always has the same amount of data.
+	 *
+	 * @return the amount of bytes read for each stem, {@code -1} if the end of
+	 *         every stem has been reached.
+	 */
+	private int readBlock() throws IOException {
+		this.sectEnded = false;
+		int len = bufSize;
+		if (sect != null) {
+			len = Math.min(len, sectEndBytes - readPos);
+		}
+
+		int read = 0;
+		for (int i = 0; i < stems.length; i++) {
+			readLens[i] = this.readFully(stems[i].audio, readPos, readBufs[i],
+					len);
+			read = Math.max(read, readLens[i]);
+		}
+		read -= (read % BUF_MODULO);
+		if (read <= 0) {
+			return -1;
+		}
+
+		byte silence = (byte) (format.getBitsPerSample() == 8 ? 128 : 0);
+		for (int i = 0; i < stems.length; i++) {
+			for (int j = readLens[i]; j < read; j++) {
+				readBufs[i][j] = silence;
+			}
+		}
+
+		this.readPos += read;
+		if (sect != null && readPos >= sectEndBytes) {
+			this.readPos = sectStartBytes;
+			this.sectEnded = true;
+		}
+		return read;
+	}
+
+	/**
+	 * Fills the given buffer of each stem with the next block of PCM data,
+	 * and queues them all together.
+	 *
+	 * @return {@code true} if the buffers were filled and queued, {@code false}
+	 *         if there is no more data to play.
+	 */
+	private boolean fillAndQueue(int[] h_buffers) throws IOException {
+		int read = this.readBlock();
+		if (read == -1) {
+			if (looping == true) {
+				this.readPos = sect != null ? sectStartBytes : 0;
+				this.processedBytes = readPos;
+				return this.fillAndQueue(h_buffers);
+			}
+			return false;
+		}
+
+		if (sectEnded == true) {
+			this.processedBytes = sectStartBytes;
+			if (looping == false) {
+				return false;
+			}
+		}
+
+		for (int i = 0; i < stems.length; i++) {
+			heapBuf.clear();
+			heapBuf.put(readBufs[i], 0, read).flip();
+			alBufferData(h_buffers[i], format.getALFormat(), heapBuf,
+					format.getFrequencyHz());
+			alSourceQueueBuffers(h_alSources[i], h_buffers[i]);
+		}
+		return true;
+	}
+
+	private void initialize() throws IOException {
+		int[] h_buffers = new int[stems.length];
+		for (int j = 0; j < 3; j++) {
+			for (int i = 0; i < stems.length; i++) {
+				h_buffers[i] = h_alBuffers[i][j];
+			}
+			this.fillAndQueue(h_buffers);
+		}
+		alSourcePlayv(h_alSources);
+	}
+
+	/**
+	 * Streams audio data for every stem, and then updates each stem.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	private void update() throws IOException {
+		this.requireOpen();
+		lock.lock();
+		try {
+			int minBufSize = StreamedSound.getMinBufferSize();
+			if (bufSize < minBufSize) {
+				this.setBufferSize(minBufSize);
+			}
+
+			/*
+			 * Seeking must restart every source at once. Otherwise, the stems
+			 * which are restarted first would get ahead of the others.
+			 */
+			if (updateOffset == true) {
+				this.updateOffset = false;
+				if (this.isPlaying()) {
+					alSourceStopv(h_alSources);
+					for (int i = 0; i < stems.length; i++) {
+						alSourceUnqueueBuffers(h_alSources[i], h_alBuffers[i]);
+					}
+					this.initialize = true;
+				} else {
+					this.readPos = 0;
+				}
+			}
+
+			if (sect != null && readPos < sectStartBytes) {
+				this.readPos = sectStartBytes;
+				this.processedBytes = sectStartBytes;
+			}
+
+			if (initialize == true) {
+				this.initialize = false;
+				this.initialize();
+			}
+
+			/*
+			 * Every stem is queued with the same amount of data at the same
+			 * time, so they also finish processing buffers together. Only
+			 * refill when every source has processed a buffer, so they are
+			 * never queued out of step.
+			 */
+			int processed = Integer.MAX_VALUE;
+			for (int h_alSource : h_alSources) {
+				int p = alGetSourcei(h_alSource, AL_BUFFERS_PROCESSED);
+				processed = Math.min(processed, p);
+			}
+			while (this.isPlaying() && processed-- > 0) {
+				for (int i = 0; i < stems.length; i++) {
+					h_unqueued[i] = alSourceUnqueueBuffers(h_alSources[i]);
+				}
+				this.processedBytes += alGetBufferi(h_unqueued[0], AL_SIZE);
+
+				if (!this.fillAndQueue(h_unqueued)) {
+					this.stop(); /* no more data */
+				}
+			}
+
+			/*
+			 * If the group should be playing but a source is not, it has run
+			 * out of queued data. Since every stem is queued together, they
+			 * all run dry within the same update. Pausing every source before
+			 * restarting them ensures the ones which have not yet stopped do
+			 * not get ahead of the others.
+			 */
+			if (this.isPlaying()) {
+				boolean starved = false;
+				for (int h_alSource : h_alSources) {
+					int state = alGetSourcei(h_alSource, AL_SOURCE_STATE);
+					starved |= state != AL_PLAYING;
+				}
+				if (starved == true) {
+					if (sectEnded == false) {
+						StreamedSound.increaseMinBufSize();
+					}
+					this.sectEnded = false;
+					alSourcePausev(h_alSources);
+					alSourcePlayv(h_alSources);
+				}
+			}
+
+			for (Stem stem : stems) {
+				stem.updateSound();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed == true) {
+			return;
+		}
+
+		lock.lock();
+		try {
+			/*
+			 * Closing a stem stops it, which in turn stops this group. As
+			 * such, the group must be stopped (and not yet closed) beforehand
+			 * so the stems can be closed without issue.
+			 */
+			this.stop();
+			for (int i = 0; i < stems.length; i++) {
+				stems[i].closeSound();
+				alDeleteBuffers(h_alBuffers[i]);
+			}
+			this.closed = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,418 @@
+package org.ardenus.engine.audio.sound;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.lwjgl.BufferUtils;
+
+/**
+ * Reads PCM data from an audio source in blocks which are fit to be queued
+ * into an OpenAL buffer.
+ * <p>
+ * This is the CPU side of {@link StreamedSound}. It keeps track of the read
+ * position, the section of audio being played (if any), and the buffers which
+ * PCM data is read into before it is piped into OpenAL. No OpenAL functions
+ * are called by this class, so it can be used without an audio device.
+ * <p>
+ * When a looping section is being read, the beginning of the section (the
+ * loop head) is decoded ahead of time on the {@link Audio#workers() audio
+ * workers} and kept in memory. Once the end of the section is reached, the
+ * loop head is spliced onto the end of the same block. This means there is
+ * no gap at the loop point, and no seek within the audio source right when
+ * the next block is needed most. Should the loop point be reached before the
+ * loop head is ready, the audio source seeks back as usual. This is also the
+ * case for audio sources which are not
+ * {@link AudioSource#isRandomAccess() random access}, as reading their loop
+ * head from another thread would disturb the stream.
+ * <p>
+ * Instances of {@code StreamReader} are not thread-safe. Synchronization must
+ * be done by the owner of the reader.
+ */
+public class StreamReader {
+
+	/**
+	 * OpenAL requires that all buffer sizes be a multiple of four.
+	 */
+	public static final int BUF_MODULO = 4;
+
+	/*
+	 * The loop head holds as many blocks as a StreamedSound queues at once.
+	 * This way, the audio source only has to seek after every buffer played
+	 * from the loop head, rather than the moment the loop point is reached.
+	 */
+	private static final int LOOP_HEAD_BLOCKS = 3;
+
+	/**
+	 * @param audio
+	 *            the audio source.
+	 * @param offset
+	 *            the offset in seconds.
+	 * @return {@code offset} in bytes, trimmed to a multiple of
+	 *         {@value #BUF_MODULO}.
+	 */
+	protected static int getOffsetBytes(AudioSource audio, float offset) {
+		int offsetBytes = (int) (offset * audio.getChannelCount()
+				* audio.getFrequencyHz() * audio.getBytesPerSample());
+		offsetBytes -= offsetBytes % BUF_MODULO;
+		return offsetBytes;
+	}
+
+	public final AudioSource audio;
+	private byte[] readBuf;
+	private ByteBuffer heapBuf;
+	private int readPos;
+
+	private SoundSection sect;
+	private int sectStartBytes;
+	private int sectEndBytes;
+	private int sectLenBytes;
+	private boolean sectEnded;
+	private boolean intro;
+	private boolean looping;
+
+	private Future<byte[]> loopHeadTask;
+	private byte[] loopHead;
+	private int loopHeadLen;
+
+	/**
+	 * @param audio
+	 *            the audio source to read from.
+	 * @param bufSize
+	 *            the initial buffer size. Due to OpenAL requirements, this
+	 *            will be increased to a multiple of four if it is not already.
+	 * @throws NullPointerException
+	 *             if {@code audio} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code bufSize} is less than {@value #BUF_MODULO}.
+	 */
+	public StreamReader(AudioSource audio, int bufSize) {
+		this.audio = Objects.requireNonNull(audio, "audio");
+		this.setBufferSize(bufSize);
+	}
+
+	/**
+	 * @return the size of the internal buffers in bytes.
+	 */
+	public int getBufferSize() {
+		return readBuf.length;
+	}
+
+	/**
+	 * Calling this will destroy the internal {@code readBuf} and
+	 * {@code heapBuf} and all of their contained data. The new buffers will
+	 * have a size of {@code bufSize}.
+	 *
+	 * @param bufSize
+	 *            the new buffer size. Due to OpenAL requirements, this will be
+	 *            increased to a multiple of four if it is not already.
+	 * @throws IllegalArgumentException
+	 *             if {@code bufSize} is less than {@value #BUF_MODULO}.
+	 */
+	public void setBufferSize(int bufSize) {
+		if (bufSize < BUF_MODULO) {
+			throw new IllegalArgumentException("bufSize < " + BUF_MODULO);
+		}
+		bufSize += bufSize % BUF_MODULO;
+		this.readBuf = new byte[bufSize];
+		this.heapBuf = BufferUtils.createByteBuffer(bufSize);
+		this.discardLoopHead(); /* size is based on the buffer size */
+	}
+
+	/**
+	 * @return the offset in bytes at which the next read occurs.
+	 */
+	public int getReadPos() {
+		return this.readPos;
+	}
+
+	/**
+	 * @param readPos
+	 *            the offset in bytes at which the next read should occur. This
+	 *            will be trimmed to a multiple of {@value #BUF_MODULO}.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code readPos} is negative.
+	 */
+	public void setReadPos(int readPos) {
+		if (readPos < 0) {
+			throw new IndexOutOfBoundsException("readPos < 0");
+		}
+		this.readPos = readPos - (readPos % BUF_MODULO);
+	}
+
+	/**
+	 * @return the section of audio being read, {@code null} if the entire
+	 *         audio source is being read.
+	 */
+	public SoundSection getSection() {
+		return this.sect;
+	}
+
+	/**
+	 * @return the offset in bytes at which the current section starts,
+	 *         {@code 0} if there is no section.
+	 */
+	public int getSectionStart() {
+		return this.sectStartBytes;
+	}
+
+	/**
+	 * @return the offset in bytes at which the current section ends,
+	 *         {@code 0} if there is no section.
+	 */
+	public int getSectionEnd() {
+		return this.sectEndBytes;
+	}
+
+	/**
+	 * @return {@code true} if audio before the current section is read before
+	 *         the section itself, {@code false} otherwise.
+	 * @see #constrain(SoundSection, boolean)
+	 */
+	public boolean hasIntro() {
+		return this.intro;
+	}
+
+	/**
+	 * When a section is being read and looping is enabled, the loop head is
+	 * spliced onto the block which reaches the end of the section. Otherwise,
+	 * that block is trimmed at the end of the section.
+	 *
+	 * @param looping
+	 *            {@code true} if the section being read will be looped,
+	 *            {@code false} otherwise.
+	 */
+	public void setLooping(boolean looping) {
+		this.looping = looping;
+	}
+
+	/**
+	 * @param sect
+	 *            the section of audio to read, may be {@code null} to remove
+	 *            the current constraint (if any) and resume reading the entire
+	 *            audio source.
+	 * @param intro
+	 *            {@code true} if audio before {@code sect} should be read
+	 *            first, as an intro which leads into the section. When
+	 *            {@code false}, reading should begin at the start of the
+	 *            section.
+	 */
+	public void constrain(SoundSection sect, boolean intro) {
+		this.sect = sect;
+		this.sectEnded = false;
+		this.discardLoopHead();
+		if (sect == null) {
+			this.sectStartBytes = 0;
+			this.sectEndBytes = 0;
+			this.sectLenBytes = 0;
+			this.intro = false;
+			return;
+		}
+
+		this.sectStartBytes = getOffsetBytes(audio, sect.start);
+		this.sectEndBytes = getOffsetBytes(audio, sect.end);
+		this.sectLenBytes = sectEndBytes - sectStartBytes;
+		this.intro = intro;
+
+		/* not sure who would do this, but whatever. */
+		if (sectLenBytes < BUF_MODULO) {
+			this.sectEndBytes = sectStartBytes + BUF_MODULO;
+			this.sectLenBytes = BUF_MODULO;
+		}
+		this.requestLoopHead();
+	}
+
+	/**
+	 * This method is a shorthand for {@link #constrain(SoundSection, boolean)},
+	 * with the argument for {@code intro} being {@code false}.
+	 *
+	 * @param sect
+	 *            the section of audio to read, may be {@code null} to remove
+	 *            the current constraint (if any) and resume reading the entire
+	 *            audio source.
+	 */
+	public void constrain(SoundSection sect) {
+		this.constrain(sect, false);
+	}
+
+	private void discardLoopHead() {
+		if (loopHeadTask != null) {
+			loopHeadTask.cancel(false);
+			this.loopHeadTask = null;
+		}
+		this.loopHead = null;
+		this.loopHeadLen = 0;
+	}
+
+	/**
+	 * Submits the loop head to be decoded by the audio workers, if it has not
+	 * been already. This is done as soon as the section is set, which is long
+	 * before the loop point is reached.
+	 */
+	private void requestLoopHead() {
+		if (sect == null || loopHead != null || loopHeadTask != null) {
+			return;
+		} else if (audio.isRandomAccess() == false) {
+			return; /* reading the head would seek away from the stream */
+		}
+
+		int start = this.sectStartBytes;
+		int size = Math.min(sectLenBytes, readBuf.length * LOOP_HEAD_BLOCKS);
+		int chunkSize = readBuf.length;
+		this.loopHeadTask = Audio.workers().submit(() -> {
+			/*
+			 * This runs alongside read(), so it must not touch readBuf. The
+			 * audio source is what keeps both from reading at once.
+			 */
+			byte[] head = new byte[size];
+			byte[] chunk = new byte[Math.min(size, chunkSize)];
+			int len = 0;
+			while (len < size) {
+				int read = audio.readPCM(start + len, chunk,
+						Math.min(chunk.length, size - len));
+				if (read <= 0) {
+					break;
+				}
+				System.arraycopy(chunk, 0, head, len, read);
+				len += read;
+			}
+			return Arrays.copyOf(head, len - (len % BUF_MODULO));
+		});
+	}
+
+	/**
+	 * Takes the loop head from the audio workers once it has been decoded.
+	 * This never waits for it to finish.
+	 */
+	private void pollLoopHead() throws IOException {
+		this.requestLoopHead();
+		if (loopHeadTask == null || loopHeadTask.isDone() == false) {
+			return;
+		}
+
+		Future<byte[]> task = this.loopHeadTask;
+		this.loopHeadTask = null;
+		try {
+			this.loopHead = task.get();
+			this.loopHeadLen = loopHead.length;
+		} catch (ExecutionException e) {
+			throw new IOException("failed to decode loop head", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted", e);
+		}
+	}
+
+	/**
+	 * @return {@code true} if the last call to {@link #read()} reached the end
+	 *         of the current section, {@code false} otherwise. When this is
+	 *         {@code true}, the read position has already been moved back to
+	 *         the start of the section (plus any of the loop head which was
+	 *         spliced onto the block).
+	 */
+	public boolean isSectionEnded() {
+		return this.sectEnded;
+	}
+
+	/**
+	 * Reads the next block of PCM data, the size of which is determined by the
+	 * current read position and buffer size. If a section is set and its end
+	 * is reached, the read position is moved back to the start of the
+	 * section. When looping, the loop head is spliced onto the end of the
+	 * block. Otherwise, the excess data is trimmed off.
+	 *
+	 * @return a buffer containing the PCM data just read, or {@code null} if
+	 *         the end of the audio source has been reached. The contents of
+	 *         this buffer are only valid until the next call to this method.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @see #isSectionEnded()
+	 */
+	public ByteBuffer read() throws IOException {
+		this.sectEnded = false;
+		if (sect != null && looping == true) {
+			this.pollLoopHead();
+		}
+		boolean splice = sect != null && looping == true && loopHead != null;
+
+		/*
+		 * While within the loop head, read from it instead of the audio
+		 * source. This is what keeps the audio source from having to seek
+		 * back to the start of the section when the loop point is reached.
+		 */
+		int read = 0;
+		int headPos = readPos - sectStartBytes;
+		if (splice == true && headPos >= 0 && headPos < loopHeadLen) {
+			read = Math.min(readBuf.length, loopHeadLen - headPos);
+			System.arraycopy(loopHead, headPos, readBuf, 0, read);
+		} else {
+			read = audio.readPCM(readPos, readBuf, readBuf.length);
+			if (read == -1) {
+				return null;
+			}
+		}
+
+		/*
+		 * OpenAL requires that all buffer sizes be a multiple of four. This
+		 * single line ensures that requirement is met by trimming off the few
+		 * bytes needed. With how little is being cut off, it won't be
+		 * noticeable by the listener.
+		 *
+		 * Assuming the buffer is 16-bit stereo PCM, which is 176,400 bytes per
+		 * second, the most bytes that can be lost due to this (3 bytes), is
+		 * only 1/50th of a millisecond:
+		 *
+		 * (3b / 176,400b) * 1000ms = 0.01700680272ms
+		 */
+		read -= (read % BUF_MODULO);
+		this.readPos += read;
+
+		/*
+		 * The current loop has been completed. Chop off the the execess data by
+		 * so as not to play past what should be looped. If looping, fill the
+		 * rest of the block with the loop head so playback continues straight
+		 * into the next loop with no gap.
+		 */
+		if (sect != null && readPos >= sectEndBytes) {
+			read -= readPos - sectEndBytes;
+			read -= (read % BUF_MODULO);
+			this.readPos = sectStartBytes;
+			this.sectEnded = true;
+
+			/*
+			 * A section shorter than a block may be entirely in the loop head,
+			 * in which case it is spliced as many times as will fit.
+			 */
+			while (splice == true && read < readBuf.length) {
+				int headOff = readPos - sectStartBytes;
+				int spliced = Math.min(readBuf.length - read,
+						loopHeadLen - headOff);
+				if (spliced <= 0) {
+					break; /* rest of section is read from the audio */
+				}
+				System.arraycopy(loopHead, headOff, readBuf, read, spliced);
+				read += spliced;
+				this.readPos += spliced;
+				if (readPos >= sectEndBytes) {
+					this.readPos = sectStartBytes;
+				}
+			}
+		}
+
+		/*
+		 * The contents from readBuf must be pushed onto heapBuf, as readBuf is
+		 * inaccessible by OpenAL. The readBuf is used for compatibility with
+		 * the AudioSource interface. Using a cached buffer that is then pushed
+		 * onto a single heap buffer also saves memory usage.
+		 */
+		heapBuf.clear();
+		heapBuf.put(readBuf, 0, read).flip();
+		return this.heapBuf;
+	}
+
+}
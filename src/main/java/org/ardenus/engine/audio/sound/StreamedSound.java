@@ -13,7 +13,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.ardenus.engine.audio.Audio;
 import org.ardenus.engine.audio.AudioSource;
-import org.lwjgl.BufferUtils;
+import org.ardenus.engine.audio.analysis.AnalysisTap;
 
 /**
  * A playable sound which has audio data buffered into memory as it is played.
@@ -25,7 +25,7 @@ import org.lwjgl.BufferUtils;
 public class StreamedSound extends Sound {
 
 	private static final Logger LOG = LogManager.getLogger(StreamedSound.class);
-	private static final int BUF_MODULO = 4; /* see #fillAndQueue() */
+	private static final int BUF_MODULO = StreamReader.BUF_MODULO;
 	private static final int MIN_BUFSIZE = 4096; /* usually just enough */
 	private static final int MAX_BUFSIZE = 176400; /* 1s of 16-bit stereo */
 	private static final Lock BUFSIZE_LOCK = new ReentrantLock();
@@ -75,14 +75,7 @@ public class StreamedSound extends Sound {
 		}
 	}
 
-	private static int getOffsetBytes(AudioSource audio, float offset) {
-		int offsetBytes = (int) (offset * audio.getChannelCount()
-				* audio.getFrequencyHz() * audio.getBytesPerSample());
-		offsetBytes -= offsetBytes % BUF_MODULO;
-		return offsetBytes;
-	}
-
-	private static void increaseMinBufSize() {
+	static void increaseMinBufSize() {
 		int recoupSize = minBufSize * 2;
 		if (recoupSize < MAX_BUFSIZE) {
 			setMinBufferSize(recoupSize);
@@ -100,11 +93,10 @@ public class StreamedSound extends Sound {
 	private final Lock alReadLock;
 	private final Lock alWriteLock;
 
-	private byte[] readBuf;
-	private int readPos;
+	private final StreamReader reader;
 	private boolean updateOffset;
-	private ByteBuffer heapBuf;
 	private int processedBytes;
+	private volatile AnalysisTap tap;
 
 	/*
 	 * An internal alState and looping variable variable are used so intended
@@ -127,11 +119,6 @@ public class StreamedSound extends Sound {
 	private boolean looping;
 	private boolean initialize;
 	private boolean closed;
-
-	private SoundSection sect;
-	private int sectStartBytes;
-	private int sectEndBytes;
-	private int sectLenBytes;
 	private boolean sectEnded;
 
 	/**
@@ -161,28 +148,27 @@ public class StreamedSound extends Sound {
 		this.alWriteLock = alLock.writeLock();
 
 		this.alState = AL_INITIAL;
-		this.setBufferSize(minBufSize);
+		this.reader = new StreamReader(audio, minBufSize);
 		Audio.maintain(this);
 	}
 
 	/**
-	 * Calling this will destroy the internal {@code readBuf} and
-	 * {@code heapBuf} and all of their contained data. The new buffers will
-	 * have a size of {@code bufSize}.
+	 * Calling this will destroy the internal buffers of the stream reader and
+	 * all of their contained data. The new buffers will have a size of
+	 * {@code bufSize}.
 	 * 
 	 * @param bufSize
 	 *            the new buffer size. Due to OpenAL requirements, this will be
 	 *            increased to a multiple of four if it is not already.
 	 * @throws IllegalArgumentException
 	 *             if {@code bufSize} is lower than {@code minBufSize}.
+	 * @see StreamReader#setBufferSize(int)
 	 */
 	private void setBufferSize(int bufSize) {
 		if (bufSize < minBufSize) {
 			throw new IllegalArgumentException("bufSize < minBufSize");
 		}
-		bufSize += bufSize % BUF_MODULO;
-		this.readBuf = new byte[bufSize];
-		this.heapBuf = BufferUtils.createByteBuffer(bufSize);
+		reader.setBufferSize(bufSize);
 	}
 
 	private boolean inState(int state) {
@@ -269,7 +255,7 @@ public class StreamedSound extends Sound {
 			super.stop();
 			alSourceUnqueueBuffers(h_alSource, h_alBuffers);
 
-			this.readPos = 0;
+			reader.setReadPos(0);
 			this.processedBytes = 0;
 			this.alState = AL_STOPPED;
 		} finally {
@@ -294,16 +280,18 @@ public class StreamedSound extends Sound {
 		alWriteLock.lock();
 		try {
 			this.looping = looping;
+			reader.setLooping(looping);
 		} finally {
 			alWriteLock.unlock();
 		}
 	}
 
 	/**
-	 * This increases/decreases the size of {@code readBuf} in accordance to
-	 * {@code pitch} if necessary. The new size is based on {@code minBufSize},
-	 * which is defined during construction. Any value of {@code pitch} below
-	 * {@code 1.0F} will set the size of {@code readBuf} to {@code minBufSize}.
+	 * This increases/decreases the buffer size of the stream reader in
+	 * accordance to {@code pitch} if necessary. The new size is based on
+	 * {@code minBufSize}, which is defined during construction. Any value of
+	 * {@code pitch} below {@code 1.0F} will set the buffer size to
+	 * {@code minBufSize}.
 	 * <p>
 	 * <b>Note:</b> If the buffer size is increased as a result of calling this
 	 * method, it will not be decreased even if the pitch is lowered later. This
@@ -322,7 +310,7 @@ public class StreamedSound extends Sound {
 			 */
 			if (pitch > 1.0F) {
 				int pitchBufSize = (int) Math.ceil(minBufSize * pitch);
-				if (pitchBufSize > readBuf.length) {
+				if (pitchBufSize > reader.getBufferSize()) {
 					this.setBufferSize(pitchBufSize);
 				}
 			}
@@ -359,7 +347,7 @@ public class StreamedSound extends Sound {
 		alWriteLock.lock();
 		try {
 			byteOffset -= byteOffset % BUF_MODULO;
-			this.readPos = byteOffset;
+			reader.setReadPos(byteOffset);
 			this.processedBytes = byteOffset;
 			this.updateOffset = true;
 		} finally {
@@ -380,6 +368,12 @@ public class StreamedSound extends Sound {
 		}
 	}
 
+	@Override
+	protected int getQueuedSampleBase() {
+		return processedBytes
+				/ (audio.getBytesPerSample() * audio.getChannelCount());
+	}
+
 	@Override
 	public void setSampleOffset(int sampleOffset) {
 		if (sampleOffset < 0) {
@@ -400,33 +394,27 @@ public class StreamedSound extends Sound {
 	 * This can be used both for sounds which loop and sounds which do not
 	 * loop.<br>
 	 * It is recommended that constraints be set before playback begins.
+	 * <p>
+	 * When looping, the start of the section is decoded ahead of time and kept
+	 * in memory. This lets the end of the section lead straight back into its
+	 * start within the same buffer, with no gap at the loop point.
 	 * 
 	 * @param sect
 	 *            the section of audio to play, may be {@code null} to remove
 	 *            the current constraint (if any) and resume full playback.
+	 * @param intro
+	 *            {@code true} if the audio before {@code sect} should be played
+	 *            first as an intro, {@code false} if playback should start at
+	 *            the beginning of the section.
 	 * @return this sound.
 	 */
-	public StreamedSound constrain(SoundSection sect) {
+	public StreamedSound constrain(SoundSection sect, boolean intro) {
 		this.requireOpen();
 		alWriteLock.lock();
 		try {
-			this.sect = sect;
+			reader.constrain(sect, intro);
 			if (sect == null) {
-				this.sectStartBytes = 0;
-				this.sectEndBytes = 0;
-				this.sectLenBytes = 0;
 				this.sectEnded = false;
-				return this;
-			}
-
-			this.sectStartBytes = getOffsetBytes(audio, sect.start);
-			this.sectEndBytes = getOffsetBytes(audio, sect.end);
-			this.sectLenBytes = sectEndBytes - sectStartBytes;
-
-			/* not sure who would do this, but whatever. */
-			if (sectLenBytes < BUF_MODULO) {
-				this.sectEndBytes = sectStartBytes + BUF_MODULO;
-				this.sectLenBytes = BUF_MODULO;
 			}
 			return this;
 		} finally {
@@ -434,17 +422,48 @@ public class StreamedSound extends Sound {
 		}
 	}
 
+	/**
+	 * This method is a shorthand for {@link #constrain(SoundSection, boolean)},
+	 * with the argument for {@code intro} being {@code false}.
+	 * 
+	 * @param sect
+	 *            the section of audio to play, may be {@code null} to remove
+	 *            the current constraint (if any) and resume full playback.
+	 * @return this sound.
+	 */
+	public StreamedSound constrain(SoundSection sect) {
+		return this.constrain(sect, false);
+	}
+
+	/**
+	 * @return the analysis tap of this sound, {@code null} if none.
+	 */
+	public AnalysisTap getTap() {
+		return this.tap;
+	}
+
+	/**
+	 * Once set, every block of PCM data queued by this sound is also
+	 * submitted to {@code tap} for analysis. This does not require decoding
+	 * the audio a second time.
+	 * 
+	 * @param tap
+	 *            the analysis tap, may be {@code null} to stop analysis.
+	 */
+	public void setTap(AnalysisTap tap) {
+		this.tap = tap;
+	}
+
 	/**
 	 * The portion of audio data as well as the amount of data filled into the
-	 * buffer is determined by the value of {@code readPos} and the length of
-	 * {@code readBuf}. If not enough data is present to fill {@code heapBuf}
-	 * entirely, only the required slice is piped into OpenAL.
+	 * buffer is determined by the {@link StreamReader} of this sound. If not
+	 * enough data is present to fill the buffer entirely, only the required
+	 * slice is piped into OpenAL.
 	 * <p>
 	 * In the event that the end of the audio data stream is reached, if looping
-	 * has been enabled via {@link #setLooping(boolean)}, then the
-	 * {@code readPos} cursor will be reset to zero so the song can immediately
-	 * restart. Otherwise, the {@code heapBuf} will not be filled, nothing will
-	 * be queued, and {@code false} will be returned.
+	 * has been enabled via {@link #setLooping(boolean)}, then the read cursor
+	 * will be reset to zero so the song can immediately restart. Otherwise,
+	 * nothing will be queued and {@code false} will be returned.
 	 * 
 	 * @param h_alBuffer
 	 *            the OpenAL buffer to fill with data and queue.
@@ -454,8 +473,9 @@ public class StreamedSound extends Sound {
 	 *             if an I/O error occurs.
 	 */
 	private boolean fillAndQueue(int h_alBuffer) throws IOException {
-		int read = audio.readPCM(readPos, readBuf, readBuf.length);
-		if (read == -1) {
+		int offset = reader.getReadPos();
+		ByteBuffer pipe = reader.read();
+		if (pipe == null) {
 			if (this.isLooping()) {
 				this.setByteOffset(0);
 				return this.fillAndQueue(h_alBuffer);
@@ -464,45 +484,22 @@ public class StreamedSound extends Sound {
 		}
 
 		/*
-		 * OpenAL requires that all buffer sizes be a multiple of four. This
-		 * single line ensures that requirement is met by trimming off the few
-		 * bytes needed. With how little is being cut off, it won't be
-		 * noticeable by the listener.
-		 * 
-		 * Assuming the buffer is 16-bit stereo PCM, which is 176,400 bytes per
-		 * second, the most bytes that can be lost due to this (3 bytes), is
-		 * only 1/50th of a millisecond:
-		 * 
-		 * (3b / 176,400b) * 1000ms = 0.01700680272ms
-		 */
-		read -= (read % BUF_MODULO);
-		this.readPos += read;
-
-		/*
-		 * The current loop has been completed. Chop off the the execess data by
-		 * so as not to play past what should be looped.
+		 * The current loop has been completed. The reader has already moved
+		 * its cursor back to the start of the section, so only the processed
+		 * byte count must be updated here to match.
 		 */
-		if (sect != null && readPos >= sectEndBytes) {
-			read -= readPos - sectEndBytes;
-			read -= (read % BUF_MODULO);
-			this.readPos = sectStartBytes;
-			this.processedBytes = sectStartBytes;
-
+		if (reader.isSectionEnded()) {
+			this.processedBytes = reader.getSectionStart();
 			if (!this.isLooping()) {
 				return false;
 			}
 			this.sectEnded = true;
 		}
 
-		/*
-		 * The contents from readBuf must be pushed onto heapBuf, as readBuf is
-		 * inaccessible by OpenAL. The readBuf is used for compatibility with
-		 * the AudioSource interface. Using a cached buffer that is then pushed
-		 * onto a single heap buffer also saves memory usage.
-		 */
-		heapBuf.clear();
-		heapBuf.put(readBuf, 0, read).flip();
-		ByteBuffer pipe = heapBuf.slice();
+		AnalysisTap tap = this.tap;
+		if (tap != null) {
+			tap.submit(audio, offset, pipe);
+		}
 
 		alBufferData(h_alBuffer, audio.getALFormat(), pipe,
 				audio.getFrequencyHz());
@@ -515,7 +512,7 @@ public class StreamedSound extends Sound {
 		this.requireOpen();
 		alWriteLock.lock();
 		try {
-			if (readBuf.length < minBufSize) {
+			if (reader.getBufferSize() < minBufSize) {
 				this.setBufferSize(minBufSize);
 			}
 
@@ -531,11 +528,11 @@ public class StreamedSound extends Sound {
 
 				/* read position can only be set when playing */
 				if (this.isPlaying()) {
-					int offset = this.readPos;
+					int offset = reader.getReadPos();
 					this.play(); /* play resets readPos */
-					this.readPos = offset;
+					reader.setReadPos(offset);
 				} else {
-					this.readPos = 0;
+					reader.setReadPos(0);
 				}
 			}
 
@@ -553,12 +550,13 @@ public class StreamedSound extends Sound {
 
 			/*
 			 * If looping a section, before queuing any buffers, ensure that the
-			 * readPos is at least at the start of the loop section. The later
-			 * buffer processing will catch when the end of the loop section has
-			 * been reached.
+			 * readPos is at least at the start of the loop section (unless the
+			 * section has an intro). The later buffer processing will catch
+			 * when the end of the loop section has been reached.
 			 */
-			if (sect != null && readPos < sectStartBytes) {
-				this.setByteOffset(sectStartBytes);
+			if (reader.getSection() != null && !reader.hasIntro()
+					&& reader.getReadPos() < reader.getSectionStart()) {
+				this.setByteOffset(reader.getSectionStart());
 			}
 
 			int processed = alGetSourcei(h_alSource, AL_BUFFERS_PROCESSED);
@@ -0,0 +1,101 @@
+package org.ardenus.engine.audio.synth;
+
+/**
+ * An attack, decay, sustain and release envelope, which shapes the volume of
+ * a {@link SynthSource} over time.
+ * <p>
+ * The volume rises from silence to full over the attack, falls to the
+ * sustain level over the decay, holds there for the sustain time, and then
+ * falls back to silence over the release. Each stage is linear, which is how
+ * most retro sound generators shaped their notes.
+ */
+public class Envelope {
+
+	public final float attackSeconds;
+	public final float decaySeconds;
+	public final float sustainLevel;
+	public final float sustainSeconds;
+	public final float releaseSeconds;
+
+	/**
+	 * @param attackSeconds
+	 *            how long it takes to rise to full volume.
+	 * @param decaySeconds
+	 *            how long it takes to fall to the sustain level.
+	 * @param sustainLevel
+	 *            the volume to sustain at, from {@code 0.0F} to {@code 1.0F}.
+	 * @param sustainSeconds
+	 *            how long the sustain level is held.
+	 * @param releaseSeconds
+	 *            how long it takes to fall back to silence.
+	 * @throws IllegalArgumentException
+	 *             if any of the times are negative.
+	 */
+	public Envelope(float attackSeconds, float decaySeconds,
+			float sustainLevel, float sustainSeconds, float releaseSeconds) {
+		if (attackSeconds < 0.0F || decaySeconds < 0.0F
+				|| sustainSeconds < 0.0F || releaseSeconds < 0.0F) {
+			throw new IllegalArgumentException("negative time");
+		}
+		this.attackSeconds = attackSeconds;
+		this.decaySeconds = decaySeconds;
+		this.sustainLevel = Math.max(0.0F, Math.min(sustainLevel, 1.0F));
+		this.sustainSeconds = sustainSeconds;
+		this.releaseSeconds = releaseSeconds;
+	}
+
+	/**
+	 * Constructs a new {@code Envelope} which holds full volume, and then
+	 * fades out. This suits short blips, such as the clicks of buttons.
+	 *
+	 * @param holdSeconds
+	 *            how long full volume is held.
+	 * @param releaseSeconds
+	 *            how long it takes to fall to silence.
+	 * @throws IllegalArgumentException
+	 *             if any of the times are negative.
+	 */
+	public Envelope(float holdSeconds, float releaseSeconds) {
+		this(0.0F, 0.0F, 1.0F, holdSeconds, releaseSeconds);
+	}
+
+	/**
+	 * @return the length of this envelope in seconds, from the start of the
+	 *         attack to the end of the release.
+	 */
+	public float getLengthSeconds() {
+		return attackSeconds + decaySeconds + sustainSeconds + releaseSeconds;
+	}
+
+	/**
+	 * @param seconds
+	 *            the time since the start of the attack.
+	 * @return the volume at {@code seconds}, from {@code 0.0F} to
+	 *         {@code 1.0F}.
+	 */
+	public float getVolume(double seconds) {
+		if (seconds < 0.0D) {
+			return 0.0F;
+		} else if (seconds < attackSeconds) {
+			return (float) (seconds / attackSeconds);
+		}
+
+		seconds -= attackSeconds;
+		if (seconds < decaySeconds) {
+			return (float) (1.0D
+					- (1.0D - sustainLevel) * seconds / decaySeconds);
+		}
+
+		seconds -= decaySeconds;
+		if (seconds < sustainSeconds) {
+			return this.sustainLevel;
+		}
+
+		seconds -= sustainSeconds;
+		if (seconds < releaseSeconds) {
+			return (float) (sustainLevel * (1.0D - seconds / releaseSeconds));
+		}
+		return 0.0F;
+	}
+
+}
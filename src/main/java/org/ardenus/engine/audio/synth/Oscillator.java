@@ -0,0 +1,152 @@
+package org.ardenus.engine.audio.synth;
+
+import java.util.Objects;
+
+/**
+ * A single tone of a {@link SynthSource}.
+ * <p>
+ * The frequency of an oscillator can sweep from one frequency to another,
+ * such as the rising pitch of a coin pickup or the falling pitch of a laser.
+ * Sweeps are exponential, so they move at an even rate in pitch. Once the
+ * sweep ends, the oscillator stays at the frequency it swept to.
+ * <p>
+ * Oscillators are immutable. The {@code with} methods each return a copy
+ * with one parameter changed, so oscillators can be built up from a simple
+ * tone.
+ */
+public class Oscillator {
+
+	private static final float MIN_FREQUENCY_HZ = 1.0F;
+
+	public final Waveform waveform;
+	public final float startHz;
+	public final float endHz;
+	public final float sweepSeconds;
+	public final float gain;
+	public final float duty;
+	public final long seed;
+
+	/*
+	 * Precomputed for the phase integral. This allows the phase at any time
+	 * to be found directly, which keeps every read independent of the last.
+	 */
+	private final double logRatio;
+	private final double sweepCycles;
+
+	/**
+	 * @param waveform
+	 *            the waveform.
+	 * @param startHz
+	 *            the frequency at the start of the sweep in Hz.
+	 * @param endHz
+	 *            the frequency at the end of the sweep in Hz.
+	 * @param sweepSeconds
+	 *            how long the sweep takes.
+	 * @param gain
+	 *            the gain of this oscillator.
+	 * @param duty
+	 *            the duty cycle, only used by {@link Waveform#SQUARE}. This is
+	 *            the fraction of each cycle the pulse is high, from
+	 *            {@code 0.0F} to {@code 1.0F}.
+	 * @param seed
+	 *            the noise seed, only used by {@link Waveform#NOISE}.
+	 * @throws NullPointerException
+	 *             if {@code waveform} is {@code null}.
+	 */
+	public Oscillator(Waveform waveform, float startHz, float endHz,
+			float sweepSeconds, float gain, float duty, long seed) {
+		this.waveform = Objects.requireNonNull(waveform, "waveform");
+		this.startHz = Math.max(startHz, MIN_FREQUENCY_HZ);
+		this.endHz = Math.max(endHz, MIN_FREQUENCY_HZ);
+		this.sweepSeconds = Math.max(sweepSeconds, 0.0F);
+		this.gain = gain;
+		this.duty = Math.max(0.0F, Math.min(duty, 1.0F));
+		this.seed = seed;
+
+		this.logRatio = Math.log(this.endHz / (double) this.startHz);
+		this.sweepCycles = this.getPhase(this.sweepSeconds);
+	}
+
+	/**
+	 * Constructs a new {@code Oscillator} with a steady frequency, a gain of
+	 * {@code 1.0F}, and a duty cycle of {@code 0.5F}.
+	 *
+	 * @param waveform
+	 *            the waveform.
+	 * @param frequencyHz
+	 *            the frequency in Hz.
+	 * @throws NullPointerException
+	 *             if {@code waveform} is {@code null}.
+	 */
+	public Oscillator(Waveform waveform, float frequencyHz) {
+		this(waveform, frequencyHz, frequencyHz, 0.0F, 1.0F, 0.5F, 0L);
+	}
+
+	/**
+	 * @param endHz
+	 *            the frequency to sweep to in Hz.
+	 * @param sweepSeconds
+	 *            how long the sweep takes.
+	 * @return a copy of this oscillator, which sweeps from its start
+	 *         frequency to {@code endHz}.
+	 */
+	public Oscillator withSweep(float endHz, float sweepSeconds) {
+		return new Oscillator(waveform, startHz, endHz, sweepSeconds, gain,
+				duty, seed);
+	}
+
+	/**
+	 * @param gain
+	 *            the gain of the oscillator.
+	 * @return a copy of this oscillator, with a gain of {@code gain}.
+	 */
+	public Oscillator withGain(float gain) {
+		return new Oscillator(waveform, startHz, endHz, sweepSeconds, gain,
+				duty, seed);
+	}
+
+	/**
+	 * @param duty
+	 *            the duty cycle, from {@code 0.0F} to {@code 1.0F}.
+	 * @return a copy of this oscillator, with a duty cycle of {@code duty}.
+	 */
+	public Oscillator withDuty(float duty) {
+		return new Oscillator(waveform, startHz, endHz, sweepSeconds, gain,
+				duty, seed);
+	}
+
+	/**
+	 * @param seed
+	 *            the noise seed.
+	 * @return a copy of this oscillator, with a noise seed of {@code seed}.
+	 */
+	public Oscillator withSeed(long seed) {
+		return new Oscillator(waveform, startHz, endHz, sweepSeconds, gain,
+				duty, seed);
+	}
+
+	private double getPhase(double seconds) {
+		if (seconds <= 0.0D) {
+			return 0.0D;
+		} else if (seconds > sweepSeconds) {
+			return sweepCycles + endHz * (seconds - sweepSeconds);
+		} else if (logRatio == 0.0D) {
+			return startHz * seconds;
+		}
+
+		/* the integral of startHz * (endHz / startHz)^(t / sweepSeconds) */
+		double k = logRatio / sweepSeconds;
+		return startHz * (Math.exp(k * seconds) - 1.0D) / k;
+	}
+
+	/**
+	 * @param seconds
+	 *            the time since the start of the sound.
+	 * @return the value of this oscillator at {@code seconds}, with its gain
+	 *         applied.
+	 */
+	public float sample(double seconds) {
+		return waveform.sample(this.getPhase(seconds), duty, seed) * gain;
+	}
+
+}
@@ -0,0 +1,177 @@
+package org.ardenus.engine.audio.synth;
+
+import java.util.Objects;
+
+import org.ardenus.engine.audio.Audio;
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.audio.sound.BufferedSound;
+import org.ardenus.engine.audio.sound.BufferedSoundCache;
+import org.ardenus.engine.audio.sound.StreamedSound;
+
+/**
+ * An audio source which synthesizes its audio, rather than reading it from a
+ * file.
+ * <p>
+ * A synth is made up of one or more {@link Oscillator oscillators}, which are
+ * mixed together and shaped by an {@link Envelope}. This is plenty for UI
+ * blips and most retro sound effects, which then need no audio file at all:
+ *
+ * <pre>
+ * SynthSource coin = new SynthSource(new Envelope(0.05F, 0.2F),
+ * 		new Oscillator(Waveform.SQUARE, 988.0F).withSweep(1319.0F, 0.05F));
+ * Sound sound = BufferedSound.load(coin);
+ * </pre>
+ * <p>
+ * The audio is generated as it is read, and nothing is allocated while doing
+ * so. Each sample is a function of its time alone, so reads can happen from
+ * any offset in any order (and from any thread). A synth can be played by a
+ * {@link StreamedSound}, or rendered once into a {@link BufferedSound}. When
+ * the same synth is played often, a {@link BufferedSoundCache} keeps it from
+ * being rendered more than once.
+ * <p>
+ * Synths produce 16-bit mono audio. To keep OpenAL from having to resample
+ * it, use the {@link Audio#getFrequencyHz() frequency of the device}.
+ */
+public class SynthSource implements AudioSource {
+
+	private static final int BITS_PER_SAMPLE = 16;
+	private static final int DEFAULT_FREQUENCY_HZ = 44100;
+
+	private final int frequencyHz;
+	private final Envelope envelope;
+	private final Oscillator[] oscillators;
+	private final float volume;
+	private final long frameCount;
+
+	/**
+	 * @param frequencyHz
+	 *            the frequency to generate audio at in Hz.
+	 * @param volume
+	 *            the volume, applied after the oscillators are mixed.
+	 * @param envelope
+	 *            the envelope, which also sets the length of the audio.
+	 * @param oscillators
+	 *            the oscillators to mix.
+	 * @throws NullPointerException
+	 *             if {@code envelope} or {@code oscillators} (or any of its
+	 *             elements) are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code frequencyHz} is not positive, or there are no
+	 *             oscillators.
+	 */
+	public SynthSource(int frequencyHz, float volume, Envelope envelope,
+			Oscillator... oscillators) {
+		if (frequencyHz <= 0) {
+			throw new IllegalArgumentException("frequencyHz <= 0");
+		}
+		this.frequencyHz = frequencyHz;
+		this.volume = volume;
+		this.envelope = Objects.requireNonNull(envelope, "envelope");
+		Objects.requireNonNull(oscillators, "oscillators");
+		if (oscillators.length <= 0) {
+			throw new IllegalArgumentException("no oscillators");
+		}
+		this.oscillators = oscillators.clone();
+		for (Oscillator oscillator : this.oscillators) {
+			Objects.requireNonNull(oscillator, "oscillator");
+		}
+
+		this.frameCount = (long) Math.ceil(envelope.getLengthSeconds()
+				* (double) frequencyHz);
+	}
+
+	/**
+	 * Constructs a new {@code SynthSource} at {@code 44100Hz}, with full
+	 * volume.
+	 *
+	 * @param envelope
+	 *            the envelope, which also sets the length of the audio.
+	 * @param oscillators
+	 *            the oscillators to mix.
+	 * @throws NullPointerException
+	 *             if {@code envelope} or {@code oscillators} (or any of its
+	 *             elements) are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if there are no oscillators.
+	 */
+	public SynthSource(Envelope envelope, Oscillator... oscillators) {
+		this(DEFAULT_FREQUENCY_HZ, 1.0F, envelope, oscillators);
+	}
+
+	/**
+	 * @return the envelope of this synth.
+	 */
+	public Envelope getEnvelope() {
+		return this.envelope;
+	}
+
+	/**
+	 * @return the amount of oscillators.
+	 */
+	public int getOscillatorCount() {
+		return oscillators.length;
+	}
+
+	/**
+	 * @param index
+	 *            the oscillator index.
+	 * @return the oscillator at {@code index}.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of bounds.
+	 */
+	public Oscillator getOscillator(int index) {
+		return oscillators[index];
+	}
+
+	@Override
+	public int getALFormat() {
+		return Audio.alFormat(1, BITS_PER_SAMPLE);
+	}
+
+	@Override
+	public int getFrequencyHz() {
+		return this.frequencyHz;
+	}
+
+	@Override
+	public int getChannelCount() {
+		return 1;
+	}
+
+	@Override
+	public int getBitsPerSample() {
+		return BITS_PER_SAMPLE;
+	}
+
+	@Override
+	public long pcmLength() {
+		return frameCount * (BITS_PER_SAMPLE / Byte.SIZE);
+	}
+
+	@Override
+	public int readPCM(int offset, byte[] buf, int len) {
+		int bytesPerSample = BITS_PER_SAMPLE / Byte.SIZE;
+		long frame = offset / bytesPerSample;
+		if (frame >= frameCount) {
+			return -1;
+		}
+
+		int frames = (int) Math.min(len / bytesPerSample, frameCount - frame);
+		int index = 0;
+		for (int i = 0; i < frames; i++) {
+			double seconds = (frame + i) / (double) frequencyHz;
+			float sample = 0.0F;
+			for (Oscillator oscillator : oscillators) {
+				sample += oscillator.sample(seconds);
+			}
+			sample *= volume * envelope.getVolume(seconds);
+
+			float s = Math.max(-1.0F, Math.min(sample, 1.0F));
+			int value = Math.round(s * 32767.0F);
+			buf[index++] = (byte) value;
+			buf[index++] = (byte) (value >> 8);
+		}
+		return index;
+	}
+
+}
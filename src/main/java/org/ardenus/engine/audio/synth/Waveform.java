@@ -0,0 +1,77 @@
+package org.ardenus.engine.audio.synth;
+
+/**
+ * The shape of an {@link Oscillator}.
+ */
+public enum Waveform {
+
+	/**
+	 * A pure tone, with no harmonics.
+	 */
+	SINE,
+
+	/**
+	 * A pulse wave, the classic sound of retro consoles. The width of the
+	 * pulse is set by the duty cycle of the oscillator.
+	 */
+	SQUARE,
+
+	/**
+	 * A softer tone than a square, with only odd harmonics that fall off
+	 * quickly.
+	 */
+	TRIANGLE,
+
+	/**
+	 * A bright, buzzy tone with every harmonic.
+	 */
+	SAWTOOTH,
+
+	/**
+	 * Random values, held for a short part of each cycle. Higher frequencies
+	 * give a hiss, while lower frequencies give a rumble. This is what most
+	 * retro explosions and hits are made of.
+	 */
+	NOISE;
+
+	/* noise values held per cycle, as in most retro sound generators */
+	private static final int NOISE_STEPS = 32;
+
+	private static float noise(long index, long seed) {
+		long x = index * 0x9E3779B97F4A7C15L + seed;
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		x = x ^ (x >>> 31);
+		return (x >>> 40) / (float) (1L << 23) - 1.0F;
+	}
+
+	/**
+	 * @param phase
+	 *            the phase in cycles, counted from the start of the sound.
+	 * @param duty
+	 *            the duty cycle, only used by {@link #SQUARE}.
+	 * @param seed
+	 *            the noise seed, only used by {@link #NOISE}.
+	 * @return the value of this waveform at {@code phase}, from {@code -1.0F}
+	 *         to {@code 1.0F}.
+	 */
+	float sample(double phase, float duty, long seed) {
+		double cycle = phase - Math.floor(phase);
+		switch (this) {
+		case SINE:
+			return (float) Math.sin(2.0D * Math.PI * cycle);
+		case SQUARE:
+			return cycle < duty ? 1.0F : -1.0F;
+		case TRIANGLE:
+			return (float) (cycle < 0.5D ? 4.0D * cycle - 1.0D
+					: 3.0D - 4.0D * cycle);
+		case SAWTOOTH:
+			return (float) (2.0D * cycle - 1.0D);
+		case NOISE:
+			return noise((long) Math.floor(phase * NOISE_STEPS), seed);
+		default:
+			throw new IllegalStateException("unknown waveform");
+		}
+	}
+
+}
@@ -0,0 +1,246 @@
+package org.ardenus.engine.audio.vorbis;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manages the native decoders of many {@link VorbisFile VorbisFiles}.
+ * <p>
+ * Each open Vorbis file holds an STB decoder, which takes up its setup and
+ * temporary memory for as long as the file is open. Most sounds only play
+ * now and then, so most of this memory sits unused. A decoder pool closes
+ * the decoders of files which have not been read from in a while, as well as
+ * the least recently used decoders whenever their memory goes over budget.
+ * <p>
+ * A file whose decoder was closed keeps working as before. On its next read,
+ * the decoder is opened again and seeked back to where it was. Decoders which
+ * are being read from at the time are never closed.
+ *
+ * @see VorbisFile#VorbisFile(java.io.File, VorbisDecoderPool)
+ */
+public class VorbisDecoderPool implements Closeable {
+
+	/**
+	 * A snapshot of the state of a decoder pool.
+	 */
+	public static class Stats {
+
+		/**
+		 * The amount of files using the pool.
+		 */
+		public final int fileCount;
+
+		/**
+		 * The amount of files whose decoder is currently open.
+		 */
+		public final int openCount;
+
+		/**
+		 * The estimated native memory used by open decoders in bytes.
+		 */
+		public final long openBytes;
+
+		/**
+		 * The native memory budget in bytes.
+		 */
+		public final long budgetBytes;
+
+		/**
+		 * The amount of decoders closed for being idle.
+		 */
+		public final long idleEvictions;
+
+		/**
+		 * The amount of decoders closed for going over budget.
+		 */
+		public final long budgetEvictions;
+
+		/**
+		 * The amount of decoders opened again after being closed.
+		 */
+		public final long reopens;
+
+		private Stats(int fileCount, int openCount, long openBytes,
+				long budgetBytes, long idleEvictions, long budgetEvictions,
+				long reopens) {
+			this.fileCount = fileCount;
+			this.openCount = openCount;
+			this.openBytes = openBytes;
+			this.budgetBytes = budgetBytes;
+			this.idleEvictions = idleEvictions;
+			this.budgetEvictions = budgetEvictions;
+			this.reopens = reopens;
+		}
+
+		@Override
+		public String toString() {
+			return openCount + "/" + fileCount + " decoders open, "
+					+ (openBytes / 1024) + "/" + (budgetBytes / 1024)
+					+ "KB, " + idleEvictions + " idle evictions, "
+					+ budgetEvictions + " budget evictions, " + reopens
+					+ " reopens";
+		}
+
+	}
+
+	/*
+	 * The last read time of each file is captured once, as it can change
+	 * while the files are being sorted.
+	 */
+	private static class Candidate {
+
+		private final VorbisFile file;
+		private final long lastRead;
+
+		private Candidate(VorbisFile file, long lastRead) {
+			this.file = file;
+			this.lastRead = lastRead;
+		}
+
+	}
+
+	private final long idleNanos;
+	private final long budgetBytes;
+	private final Set<VorbisFile> files;
+	private final ScheduledExecutorService scheduler;
+	private final AtomicBoolean trimScheduled;
+	private final AtomicLong idleEvictions;
+	private final AtomicLong budgetEvictions;
+	private final AtomicLong reopens;
+
+	/**
+	 * @param idleMillis
+	 *            how long a decoder can go without being read from before it
+	 *            is closed, in milliseconds.
+	 * @param budgetBytes
+	 *            the most native memory open decoders should use in bytes.
+	 * @throws IllegalArgumentException
+	 *             if {@code idleMillis} or {@code budgetBytes} are not
+	 *             positive.
+	 */
+	public VorbisDecoderPool(long idleMillis, long budgetBytes) {
+		if (idleMillis <= 0) {
+			throw new IllegalArgumentException("idleMillis <= 0");
+		} else if (budgetBytes <= 0) {
+			throw new IllegalArgumentException("budgetBytes <= 0");
+		}
+		this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+		this.budgetBytes = budgetBytes;
+		this.files = ConcurrentHashMap.newKeySet();
+		this.trimScheduled = new AtomicBoolean();
+		this.idleEvictions = new AtomicLong();
+		this.budgetEvictions = new AtomicLong();
+		this.reopens = new AtomicLong();
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor((r) -> {
+			Thread thread = new Thread(r, "vorbis-decoder-pool");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long periodMillis = Math.max(1L, idleMillis / 2);
+		scheduler.scheduleWithFixedDelay(this::trim, periodMillis,
+				periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	void register(VorbisFile file) {
+		files.add(file);
+		this.scheduleTrim();
+	}
+
+	void unregister(VorbisFile file) {
+		files.remove(file);
+	}
+
+	void reopened(VorbisFile file) {
+		reopens.incrementAndGet();
+		this.scheduleTrim();
+	}
+
+	/*
+	 * Files call this from the audio thread, so the trim itself is left to
+	 * the pool's own thread.
+	 */
+	private void scheduleTrim() {
+		if (!scheduler.isShutdown() && trimScheduled.compareAndSet(false,
+				true)) {
+			scheduler.execute(() -> {
+				trimScheduled.set(false);
+				this.trim();
+			});
+		}
+	}
+
+	/**
+	 * Closes the decoders of files which have been idle for too long, and
+	 * then the least recently used decoders until their memory is within
+	 * budget. This is done periodically by the pool, but can be called at any
+	 * time (such as when loading a new level).
+	 */
+	public void trim() {
+		long now = System.nanoTime();
+		List<Candidate> open = new ArrayList<>();
+		long openBytes = 0L;
+		for (VorbisFile file : files) {
+			if (file.hasDecoder() == false) {
+				continue;
+			}
+
+			long lastRead = file.getLastReadNanos();
+			if (now - lastRead >= idleNanos && file.evictDecoder() == true) {
+				idleEvictions.incrementAndGet();
+				continue;
+			}
+			open.add(new Candidate(file, lastRead));
+			openBytes += file.getDecoderBytes();
+		}
+
+		if (openBytes <= budgetBytes) {
+			return;
+		}
+		open.sort(Comparator.comparingLong((c) -> c.lastRead));
+		for (Candidate candidate : open) {
+			if (openBytes <= budgetBytes) {
+				break;
+			} else if (candidate.file.evictDecoder() == true) {
+				budgetEvictions.incrementAndGet();
+				openBytes -= candidate.file.getDecoderBytes();
+			}
+		}
+	}
+
+	/**
+	 * @return a snapshot of the state of this pool.
+	 */
+	public Stats getStats() {
+		int fileCount = 0, openCount = 0;
+		long openBytes = 0L;
+		for (VorbisFile file : files) {
+			fileCount++;
+			if (file.hasDecoder() == true) {
+				openCount++;
+				openBytes += file.getDecoderBytes();
+			}
+		}
+		return new Stats(fileCount, openCount, openBytes, budgetBytes,
+				idleEvictions.get(), budgetEvictions.get(), reopens.get());
+	}
+
+	/**
+	 * Stops this pool from closing any more decoders. Files which use this
+	 * pool keep working, but their decoders stay open until they are closed.
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+}
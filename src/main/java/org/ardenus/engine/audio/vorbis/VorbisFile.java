@@ -6,12 +6,21 @@ import static org.lwjgl.stb.STBVorbis.*;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.ardenus.engine.audio.AudioSource;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.system.MemoryStack;
 
 /**
@@ -20,6 +29,7 @@ import org.lwjgl.system.MemoryStack;
 public class VorbisFile implements AudioSource, Closeable {
 
 	private static final int VORBIS_BITS_PER_SAMPLE = 16;
+	private static final int MIN_SEGMENT_SECONDS = 10;
 
 	private static long vorbisOpen(File file) throws VorbisException {
 		int[] p_error = new int[1];
@@ -31,6 +41,15 @@ public class VorbisFile implements AudioSource, Closeable {
 		return h_stbVorbisDecoder;
 	}
 
+	private static long vorbisOpen(ByteBuffer data) throws VorbisException {
+		int[] p_error = new int[1];
+		long h_stbVorbisDecoder = stb_vorbis_open_memory(data, p_error, null);
+		if (p_error[0] != VORBIS__no_error) {
+			throw new VorbisException(p_error[0]);
+		}
+		return h_stbVorbisDecoder;
+	}
+
 	private static int alFormat(VorbisInfo info) {
 		switch (info.channels) {
 		case 1:
@@ -43,29 +62,67 @@ public class VorbisFile implements AudioSource, Closeable {
 	}
 
 	private final File file;
-	private final long h_stbVorbisDecoder;
+	private final VorbisDecoderPool pool;
 	private final VorbisInfo vorbisInfo;
 	private final int alFormat;
+	private final long pcmLength;
+	private final long decoderBytes;
 	private final Lock decoderLock;
+	private volatile long h_stbVorbisDecoder;
+	private volatile long lastReadNanos;
 	private int expectedOffset;
 	private boolean closed;
 
 	/**
 	 * Loads an {@code OGG} Vorbis from a file on the system.
 	 * 
+	 * <p>
+	 * The decoder of this file is managed by {@code pool}, which closes it
+	 * while the file is idle. It is opened again automatically on the next
+	 * read.
+	 * 
 	 * @param file
 	 *            the Vorbis file.
+	 * @param pool
+	 *            the pool which manages the decoder of this file. A value of
+	 *            {@code null} is permitted, and indicates the decoder should
+	 *            stay open until this file is closed.
 	 * @throws NullPointerException
 	 *             if {@code file} is {@code null}.
 	 * @throws VorbisException
 	 *             if a Vorbis error occurs while opening {@code file}.
 	 */
-	public VorbisFile(File file) throws VorbisException {
+	public VorbisFile(File file, VorbisDecoderPool pool)
+			throws VorbisException {
 		this.file = Objects.requireNonNull(file, "file");
+		this.pool = pool;
 		this.h_stbVorbisDecoder = vorbisOpen(file);
 		this.vorbisInfo = VorbisInfo.get(this);
 		this.alFormat = alFormat(vorbisInfo);
+		this.pcmLength = (long) stb_vorbis_stream_length_in_samples(
+				h_stbVorbisDecoder) * vorbisInfo.channels
+				* (VORBIS_BITS_PER_SAMPLE / Byte.SIZE);
+		this.decoderBytes = (long) vorbisInfo.setupMemoryRequired
+				+ vorbisInfo.tempMemoryRequired;
 		this.decoderLock = new ReentrantLock();
+		this.lastReadNanos = System.nanoTime();
+		if (pool != null) {
+			pool.register(this);
+		}
+	}
+
+	/**
+	 * Loads an {@code OGG} Vorbis from a file on the system.
+	 * 
+	 * @param file
+	 *            the Vorbis file.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws VorbisException
+	 *             if a Vorbis error occurs while opening {@code file}.
+	 */
+	public VorbisFile(File file) throws VorbisException {
+		this(file, null);
 	}
 
 	/**
@@ -89,16 +146,61 @@ public class VorbisFile implements AudioSource, Closeable {
 		return this.file;
 	}
 
+	/**
+	 * @return {@code true} if the decoder of this file is open, {@code false}
+	 *         if it was closed by its pool (or this file is closed).
+	 */
+	boolean hasDecoder() {
+		return h_stbVorbisDecoder != 0L;
+	}
+
+	/**
+	 * @return the estimated native memory used by the decoder in bytes.
+	 */
+	long getDecoderBytes() {
+		return this.decoderBytes;
+	}
+
+	/**
+	 * @return the value of {@link System#nanoTime()} when audio was last
+	 *         read from this file.
+	 */
+	long getLastReadNanos() {
+		return this.lastReadNanos;
+	}
+
+	/**
+	 * Closes the decoder of this file, unless it is being read from.
+	 *
+	 * @return {@code true} if the decoder was closed, {@code false} if it is
+	 *         in use or was already closed.
+	 */
+	boolean evictDecoder() {
+		if (!decoderLock.tryLock()) {
+			return false;
+		}
+		try {
+			if (closed == true || h_stbVorbisDecoder == 0L) {
+				return false;
+			}
+			stb_vorbis_close(h_stbVorbisDecoder);
+			this.h_stbVorbisDecoder = 0L;
+			return true;
+		} finally {
+			decoderLock.unlock();
+		}
+	}
+
 	/**
 	 * @return the STB Vorbis decoder handle.
 	 * @throws VorbisException
 	 *             if this Vorbis file has no decoder or is closed.
 	 */
 	protected long getDecoderHandle() throws VorbisException {
-		if (h_stbVorbisDecoder == 0L) {
-			throw new VorbisException("no decoder");
-		} else if (closed == true) {
+		if (closed == true) {
 			throw new VorbisException("decoder closed");
+		} else if (h_stbVorbisDecoder == 0L) {
+			throw new VorbisException("no decoder");
 		}
 		return this.h_stbVorbisDecoder;
 	}
@@ -123,6 +225,16 @@ public class VorbisFile implements AudioSource, Closeable {
 		return VORBIS_BITS_PER_SAMPLE;
 	}
 
+	@Override
+	public long pcmLength() {
+		return this.pcmLength;
+	}
+
+	@Override
+	public boolean isRandomAccess() {
+		return true;
+	}
+
 	@Override
 	public int readPCM(int offset, byte[] buf, int len) throws IOException {
 		if (closed == true) {
@@ -131,8 +243,27 @@ public class VorbisFile implements AudioSource, Closeable {
 
 		decoderLock.lock();
 		try (MemoryStack stack = MemoryStack.stackPush()) {
+			/* the file may have been closed while waiting for the lock */
+			if (closed == true) {
+				throw new VorbisException("decoder closed");
+			}
+
 			int channels = this.getChannelCount();
 			int bytesPerSample = this.getBytesPerSample();
+			this.lastReadNanos = System.nanoTime();
+
+			/*
+			 * The decoder may have been closed by the pool while idle. A new
+			 * decoder starts from the beginning, and is seeked back to where
+			 * the old one was below.
+			 */
+			if (h_stbVorbisDecoder == 0L) {
+				this.h_stbVorbisDecoder = vorbisOpen(file);
+				this.expectedOffset = 0;
+				if (pool != null) {
+					pool.reopened(this);
+				}
+			}
 
 			/* only seek when necessary */
 			if (expectedOffset != offset) {
@@ -171,6 +302,152 @@ public class VorbisFile implements AudioSource, Closeable {
 		}
 	}
 
+	private ByteBuffer readFile() throws IOException {
+		try (FileChannel channel =
+				FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new VorbisException("file too large to buffer");
+			}
+			ByteBuffer data = BufferUtils.createByteBuffer((int) size);
+			while (data.hasRemaining()) {
+				if (channel.read(data) < 0) {
+					throw new VorbisException("file truncated while reading");
+				}
+			}
+			data.flip();
+			return data;
+		}
+	}
+
+	private void decodeSegment(ByteBuffer encoded, ByteBuffer pcm, int start,
+			int end) throws VorbisException {
+		long h_segmentDecoder = vorbisOpen(encoded);
+		try {
+			/*
+			 * Seeking finds the page holding the first sample, and decodes
+			 * the packet before it so the overlap of the first frame is
+			 * correct. This makes each segment line up exactly with the
+			 * next, so there is no seam where they are stitched together.
+			 */
+			if (start > 0 && !stb_vorbis_seek(h_segmentDecoder, start)) {
+				throw new VorbisException(VORBIS_seek_failed);
+			}
+
+			/*
+			 * Unlike in readPCM(), this is a view of a direct buffer in
+			 * native order, which STB is able to write into directly.
+			 */
+			int channels = vorbisInfo.channels;
+			int frameSize = channels * Short.BYTES;
+			ByteBuffer region = pcm.duplicate();
+			region.limit(end * frameSize).position(start * frameSize);
+			ShortBuffer out = region.slice().order(ByteOrder.nativeOrder())
+					.asShortBuffer();
+
+			while (out.hasRemaining()) {
+				int frames = stb_vorbis_get_samples_short_interleaved(
+						h_segmentDecoder, channels, out);
+				if (frames <= 0) {
+					break; /* leave the rest silent */
+				}
+				out.position(out.position() + frames * channels);
+			}
+		} finally {
+			stb_vorbis_close(h_segmentDecoder);
+		}
+	}
+
+	/**
+	 * Decodes the entirety of this Vorbis file into a single buffer, using
+	 * several decoders at once.
+	 * <p>
+	 * The file is read into memory once, and then split into segments of at
+	 * least {@value #MIN_SEGMENT_SECONDS} seconds. Each segment is decoded by
+	 * its own STB decoder straight into its place in the buffer. The calling
+	 * thread decodes segments alongside {@code executor}, and does not return
+	 * until every segment is finished. Segments are claimed one at a time, so
+	 * it is safe to call this from a thread of {@code executor} itself.
+	 * <p>
+	 * This does not use (or disturb the position of) the decoder used by
+	 * {@link #readPCM(int, byte[], int)}.
+	 *
+	 * @param executor
+	 *            the executor to decode segments on.
+	 * @return the decoded PCM data, in the format of this file.
+	 * @throws NullPointerException
+	 *             if {@code executor} is {@code null}.
+	 * @throws VorbisException
+	 *             if this Vorbis file is closed, too long to buffer, or a
+	 *             Vorbis error occurs while decoding.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public ByteBuffer decodeAll(ExecutorService executor) throws IOException {
+		Objects.requireNonNull(executor, "executor");
+		if (closed == true) {
+			throw new VorbisException("decoder closed");
+		} else if (pcmLength > Integer.MAX_VALUE) {
+			throw new VorbisException("too long to buffer");
+		}
+
+		int frameSize = vorbisInfo.channels * Short.BYTES;
+		int totalFrames = (int) (pcmLength / frameSize);
+		ByteBuffer encoded = this.readFile();
+		ByteBuffer pcm = BufferUtils.createByteBuffer(totalFrames * frameSize);
+
+		int minFrames = Math.max(1, vorbisInfo.sampleRate * MIN_SEGMENT_SECONDS);
+		int threads = Runtime.getRuntime().availableProcessors();
+		int segments = Math.max(1, Math.min(threads,
+				(int) ((totalFrames + (long) minFrames - 1) / minFrames)));
+
+		AtomicInteger nextSegment = new AtomicInteger();
+		AtomicReference<VorbisException> error = new AtomicReference<>();
+		CountDownLatch finished = new CountDownLatch(segments);
+		Runnable decoder = () -> {
+			int segment;
+			while ((segment = nextSegment.getAndIncrement()) < segments) {
+				try {
+					if (error.get() == null) {
+						int start = (int) ((long) totalFrames * segment
+								/ segments);
+						int end = (int) ((long) totalFrames * (segment + 1)
+								/ segments);
+						this.decodeSegment(encoded, pcm, start, end);
+					}
+				} catch (VorbisException | RuntimeException e) {
+					error.compareAndSet(null, e instanceof VorbisException
+							? (VorbisException) e : new VorbisException(e));
+				} finally {
+					finished.countDown();
+				}
+			}
+		};
+
+		for (int i = 1; i < segments; i++) {
+			executor.execute(decoder);
+		}
+		decoder.run();
+
+		/*
+		 * Every segment has been claimed by now, and the segments still being
+		 * decoded belong to threads which are already running. There is no
+		 * need to wait on tasks still in the queue, they will find nothing
+		 * left to claim.
+		 */
+		try {
+			finished.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new VorbisException("interrupted while decoding", e);
+		}
+
+		if (error.get() != null) {
+			throw error.get();
+		}
+		return pcm;
+	}
+
 	@Override
 	public void close() {
 		if (closed == true) {
@@ -179,11 +456,17 @@ public class VorbisFile implements AudioSource, Closeable {
 
 		decoderLock.lock();
 		try {
-			stb_vorbis_close(h_stbVorbisDecoder);
+			if (h_stbVorbisDecoder != 0L) {
+				stb_vorbis_close(h_stbVorbisDecoder);
+				this.h_stbVorbisDecoder = 0L;
+			}
 			this.closed = true;
 		} finally {
 			decoderLock.unlock();
 		}
+		if (pool != null) {
+			pool.unregister(this);
+		}
 	}
 
 }
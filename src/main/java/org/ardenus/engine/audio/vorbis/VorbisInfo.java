@@ -8,7 +8,8 @@ import org.lwjgl.stb.STBVorbisInfo;
 import org.lwjgl.system.MemoryStack;
 
 /**
- * Contains stream information about an {@link VorbisFile OGG} file.
+ * Contains stream information about an {@link VorbisFile OGG} file or
+ * {@link VorbisStream stream}.
  */
 public class VorbisInfo {
 
@@ -33,8 +34,27 @@ public class VorbisInfo {
 		 * the possibility of the JVM being crashed through this method.
 		 */
 		Objects.requireNonNull(vorbis, "vorbis");
-		long h_stbVorbisDecoder = vorbis.getDecoderHandle();
+		return VorbisInfo.get(vorbis.getDecoderHandle());
+	}
+
+	/**
+	 * Constructs a new {@link VorbisInfo} by getting the info from the
+	 * {@code OGG} Vorbis decoder of a {@link VorbisStream}.
+	 * 
+	 * @param vorbis
+	 *            the {@code OGG} Vorbis stream.
+	 * @return the {@code OGG} stream info container.
+	 * @throws NullPointerException
+	 *             if {@code vorbis} is {@code null}.
+	 * @throws VorbisException
+	 *             if {@code vorbis} has no decoder or is closed.
+	 */
+	public static VorbisInfo get(VorbisStream vorbis) throws VorbisException {
+		Objects.requireNonNull(vorbis, "vorbis");
+		return VorbisInfo.get(vorbis.getDecoderHandle());
+	}
 
+	private static VorbisInfo get(long h_stbVorbisDecoder) {
 		try (MemoryStack stack = MemoryStack.stackPush()) {
 			STBVorbisInfo p_vorbisInfo = STBVorbisInfo.mallocStack();
 			stb_vorbis_get_info(h_stbVorbisDecoder, p_vorbisInfo);
@@ -0,0 +1,427 @@
+package org.ardenus.engine.audio.vorbis;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.stb.STBVorbis.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.io.ByteBufferChannel;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
+
+/**
+ * An OpenAL playable {@code OGG} Vorbis stream, read from a channel.
+ * <p>
+ * Unlike {@link VorbisFile}, which can only open files on the system, this
+ * uses the pushdata API of STB Vorbis. Encoded data is read from the channel
+ * into a direct input buffer, which is reused for the life of the stream, and
+ * then pushed to the decoder a frame at a time. This allows audio to be
+ * decoded from anywhere bytes can come from, such as an entry in a jar, a
+ * region of a pack file, or memory (with a {@link ByteBufferChannel}).
+ * <p>
+ * If the channel is a {@link SeekableByteChannel}, its current position is
+ * taken to be the start of the stream. Seeking forward decodes up to the
+ * requested offset, while seeking backward restarts decoding from the start
+ * of the stream. The length of the stream is read from the last page of the
+ * channel, so the channel must end where the stream does. Streams over other
+ * channels can only be read forward, and have no known length.
+ */
+public class VorbisStream implements AudioSource, Closeable {
+
+	private static final int VORBIS_BITS_PER_SAMPLE = 16;
+	private static final int INITIAL_INPUT_SIZE = 8 * 1024;
+	private static final int MAX_INPUT_SIZE = 1024 * 1024;
+	private static final int TAIL_SEARCH_SIZE = 64 * 1024;
+	private static final int OGG_PAGE_HEADER_SIZE = 27;
+
+	private static int alFormat(VorbisInfo info) {
+		switch (info.channels) {
+		case 1:
+			return AL_FORMAT_MONO16;
+		case 2:
+			return AL_FORMAT_STEREO16;
+		default:
+			throw new UnsupportedOperationException("channel count");
+		}
+	}
+
+	/**
+	 * Finds the granule position of the last Ogg page in a channel, which is
+	 * the total amount of samples per channel in the stream.
+	 *
+	 * @return the granule position, {@code -1} if no page was found.
+	 */
+	private static long lastGranule(SeekableByteChannel channel, long start)
+			throws IOException {
+		long size = channel.size() - start;
+		int tailSize = (int) Math.min(size, TAIL_SEARCH_SIZE);
+		if (tailSize < OGG_PAGE_HEADER_SIZE) {
+			return -1L;
+		}
+
+		ByteBuffer tail = ByteBuffer.allocate(tailSize)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		channel.position(start + size - tailSize);
+		while (tail.hasRemaining() && channel.read(tail) >= 0) {
+			/* read until the buffer is full */
+		}
+
+		for (int i = tailSize - OGG_PAGE_HEADER_SIZE; i >= 0; i--) {
+			if (tail.get(i) == 'O' && tail.get(i + 1) == 'g'
+					&& tail.get(i + 2) == 'g' && tail.get(i + 3) == 'S'
+					&& tail.get(i + 4) == 0) {
+				long granule = tail.getLong(i + 6);
+				if (granule >= 0) {
+					return granule;
+				}
+			}
+		}
+		return -1L;
+	}
+
+	private final ReadableByteChannel channel;
+	private final SeekableByteChannel seekable;
+	private final long startPosition;
+	private final Lock decoderLock;
+	private final int[] p_channels;
+	private final int[] p_samples;
+	private final int[] p_used;
+	private final int[] p_error;
+	private final PointerBuffer p_output;
+
+	private ByteBuffer input;
+	private boolean inputEnded;
+	private long h_stbVorbisDecoder;
+	private VorbisInfo vorbisInfo;
+	private int alFormat;
+	private long pcmLength;
+
+	/*
+	 * Decoded frames which have not been read yet. The decoded offset is the
+	 * offset in bytes of the first of them, from the start of the stream.
+	 */
+	private byte[] pending;
+	private int pendingPos;
+	private int pendingLen;
+	private long decodedOffset;
+	private boolean ended;
+	private boolean closed;
+
+	/**
+	 * @param channel
+	 *            the channel to read the stream from. If it is a
+	 *            {@link SeekableByteChannel}, the stream starts at its current
+	 *            position and ends at the end of the channel.
+	 * @throws NullPointerException
+	 *             if {@code channel} is {@code null}.
+	 * @throws VorbisException
+	 *             if a Vorbis error occurs while opening the stream.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public VorbisStream(ReadableByteChannel channel) throws IOException {
+		this.channel = Objects.requireNonNull(channel, "channel");
+		this.decoderLock = new ReentrantLock();
+		this.p_channels = new int[1];
+		this.p_samples = new int[1];
+		this.p_used = new int[1];
+		this.p_error = new int[1];
+		this.p_output = BufferUtils.createPointerBuffer(1);
+		this.input = BufferUtils.createByteBuffer(INITIAL_INPUT_SIZE);
+		this.pcmLength = -1L;
+
+		if (channel instanceof SeekableByteChannel) {
+			this.seekable = (SeekableByteChannel) channel;
+			this.startPosition = seekable.position();
+			long granule = lastGranule(seekable, startPosition);
+			seekable.position(startPosition);
+			this.open();
+			if (granule >= 0) {
+				this.pcmLength = granule * vorbisInfo.channels
+						* (VORBIS_BITS_PER_SAMPLE / Byte.SIZE);
+			}
+		} else {
+			this.seekable = null;
+			this.startPosition = 0L;
+			this.open();
+		}
+	}
+
+	/**
+	 * Constructs a new {@code VorbisStream} which decodes from memory. The
+	 * buffer is not copied, and must not be modified while the stream is
+	 * open.
+	 *
+	 * @param data
+	 *            the encoded Vorbis data, from its position to its limit.
+	 * @throws NullPointerException
+	 *             if {@code data} is {@code null}.
+	 * @throws VorbisException
+	 *             if a Vorbis error occurs while opening the stream.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public VorbisStream(ByteBuffer data) throws IOException {
+		this(new ByteBufferChannel(data));
+	}
+
+	/**
+	 * Reads more encoded data from the channel into the input buffer. The
+	 * input buffer is grown if it is already full, as STB needs an entire
+	 * page (or headers) to be available at once.
+	 *
+	 * @return {@code true} if any data was read, {@code false} if the channel
+	 *         has no more data, or none available right now (as can happen
+	 *         with a non-blocking channel).
+	 */
+	private boolean fillInput() throws IOException {
+		if (inputEnded == true) {
+			return false;
+		}
+
+		if (input.position() == 0 && input.limit() == input.capacity()) {
+			if (input.capacity() >= MAX_INPUT_SIZE) {
+				throw new VorbisException("Vorbis page too large");
+			}
+			ByteBuffer grown = BufferUtils.createByteBuffer(
+					Math.min(input.capacity() * 2, MAX_INPUT_SIZE));
+			grown.put(input);
+			grown.flip();
+			this.input = grown;
+		}
+
+		input.compact();
+		int read = channel.read(input);
+		input.flip();
+		if (read < 0) {
+			this.inputEnded = true;
+			return false;
+		}
+		return read > 0;
+	}
+
+	private void open() throws IOException {
+		input.clear().limit(0);
+		this.inputEnded = false;
+
+		while (true) {
+			long handle = stb_vorbis_open_pushdata(input, p_used, p_error,
+					null);
+			if (handle != 0L) {
+				input.position(input.position() + p_used[0]);
+				this.h_stbVorbisDecoder = handle;
+				break;
+			} else if (p_error[0] != VORBIS_need_more_data) {
+				throw new VorbisException(p_error[0]);
+			} else if (this.fillInput() == false) {
+				if (inputEnded == true) {
+					throw new VorbisException("stream ended before headers");
+				}
+				Thread.yield(); /* the headers are needed to go any further */
+			}
+		}
+
+		try {
+			VorbisInfo info = VorbisInfo.get(this);
+			if (vorbisInfo == null) {
+				this.vorbisInfo = info;
+				this.alFormat = alFormat(vorbisInfo);
+				this.pending = new byte[vorbisInfo.maxFrameSize
+						* vorbisInfo.channels * Short.BYTES];
+			}
+		} catch (IOException | RuntimeException e) {
+			stb_vorbis_close(h_stbVorbisDecoder);
+			this.h_stbVorbisDecoder = 0L;
+			throw e;
+		}
+		this.pendingPos = 0;
+		this.pendingLen = 0;
+		this.decodedOffset = 0L;
+		this.ended = false;
+	}
+
+	/**
+	 * Decodes the next frame into the pending buffer.
+	 *
+	 * @return {@code true} if a frame was decoded, {@code false} if the end
+	 *         of the stream has been reached, or no more data is available
+	 *         from the channel right now.
+	 */
+	private boolean decodeFrame() throws IOException {
+		while (ended == false) {
+			int used = stb_vorbis_decode_frame_pushdata(h_stbVorbisDecoder,
+					input, p_channels, p_output, p_samples);
+			input.position(input.position() + used);
+
+			if (used == 0) {
+				if (this.fillInput() == false) {
+					this.ended = inputEnded;
+					return false;
+				}
+				continue;
+			} else if (p_samples[0] == 0) {
+				continue; /* still resynchronizing */
+			}
+
+			int channels = vorbisInfo.channels;
+			int samples = p_samples[0];
+			int size = samples * channels * Short.BYTES;
+			if (pending.length < size) {
+				this.pending = new byte[size];
+			}
+
+			/* the output is a pointer to an array of channel pointers */
+			PointerBuffer outputs = p_output.getPointerBuffer(0, channels);
+			for (int c = 0; c < channels; c++) {
+				FloatBuffer data = outputs.getFloatBuffer(c, samples);
+				int index = c * Short.BYTES;
+				for (int i = 0; i < samples; i++) {
+					float s = Math.max(-1.0F, Math.min(data.get(i), 1.0F));
+					int value = (int) (s * 32767.0F);
+					pending[index] = (byte) (value & 0xFF);
+					pending[index + 1] = (byte) ((value >> 8) & 0xFF);
+					index += channels * Short.BYTES;
+				}
+			}
+
+			this.decodedOffset += pendingLen;
+			this.pendingPos = 0;
+			this.pendingLen = size;
+			return true;
+		}
+		return false;
+	}
+
+	private void seek(long offset) throws IOException {
+		if (offset < decodedOffset) {
+			if (seekable == null) {
+				throw new VorbisException("channel is not seekable");
+			}
+			stb_vorbis_close(h_stbVorbisDecoder);
+			this.h_stbVorbisDecoder = 0L;
+			seekable.position(startPosition);
+			this.open();
+		}
+
+		/* decode (and throw away) frames up to the offset */
+		while (offset >= decodedOffset + pendingLen) {
+			if (this.decodeFrame() == false) {
+				this.pendingPos = pendingLen;
+				return;
+			}
+		}
+		this.pendingPos = (int) (offset - decodedOffset);
+	}
+
+	/**
+	 * @return the STB Vorbis decoder handle.
+	 * @throws VorbisException
+	 *             if this Vorbis stream has no decoder or is closed.
+	 */
+	protected long getDecoderHandle() throws VorbisException {
+		if (h_stbVorbisDecoder == 0L) {
+			throw new VorbisException("no decoder");
+		} else if (closed == true) {
+			throw new VorbisException("decoder closed");
+		}
+		return this.h_stbVorbisDecoder;
+	}
+
+	@Override
+	public int getALFormat() {
+		return this.alFormat;
+	}
+
+	@Override
+	public int getFrequencyHz() {
+		return vorbisInfo.sampleRate;
+	}
+
+	@Override
+	public int getChannelCount() {
+		return vorbisInfo.channels;
+	}
+
+	@Override
+	public int getBitsPerSample() {
+		return VORBIS_BITS_PER_SAMPLE;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             if the channel of this stream is not seekable, or its last
+	 *             page could not be found.
+	 */
+	@Override
+	public long pcmLength() {
+		if (pcmLength < 0) {
+			throw new UnsupportedOperationException("unknown length");
+		}
+		return this.pcmLength;
+	}
+
+	@Override
+	public int readPCM(int offset, byte[] buf, int len) throws IOException {
+		if (closed == true) {
+			throw new VorbisException("decoder closed");
+		}
+
+		decoderLock.lock();
+		try {
+			/* only seek when necessary */
+			if (offset != decodedOffset + pendingPos) {
+				this.seek(offset);
+			}
+
+			int copied = 0;
+			while (copied < len) {
+				if (pendingPos >= pendingLen && this.decodeFrame() == false) {
+					break;
+				}
+				int n = Math.min(len - copied, pendingLen - pendingPos);
+				System.arraycopy(pending, pendingPos, buf, copied, n);
+				this.pendingPos += n;
+				copied += n;
+			}
+			/* zero bytes means the channel has nothing available yet */
+			return copied > 0 || len <= 0 || ended == false ? copied : -1;
+		} finally {
+			decoderLock.unlock();
+		}
+	}
+
+	/**
+	 * Closes this stream, along with its channel.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs while closing the channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed == true) {
+			return;
+		}
+
+		decoderLock.lock();
+		try {
+			if (h_stbVorbisDecoder != 0L) {
+				stb_vorbis_close(h_stbVorbisDecoder);
+			}
+			this.closed = true;
+			channel.close();
+		} finally {
+			decoderLock.unlock();
+		}
+	}
+
+}
@@ -149,6 +149,11 @@ public class WaveFile extends RiffFile implements AudioSource {
 		return this.dataSize;
 	}
 
+	@Override
+	public boolean isRandomAccess() {
+		return true;
+	}
+
 	@Override
 	public int readPCM(int offset, byte[] buf, int len) throws IOException {
 		dataLock.lock();
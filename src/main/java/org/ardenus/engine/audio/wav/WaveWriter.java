@@ -0,0 +1,211 @@
+package org.ardenus.engine.audio.wav;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+import org.ardenus.engine.audio.AudioSource;
+import org.ardenus.engine.io.riff.RiffWriter;
+
+/**
+ * Writes PCM data to a {@code WAV} file, which can later be read back with a
+ * {@link WaveFile}.
+ * <p>
+ * PCM data is streamed to the file as it is written, so recordings of any
+ * length can be made without holding them in memory. The {@code data} chunk
+ * is left open until this writer is closed, at which point its size is
+ * written. A file which is never closed (for example, because the game
+ * crashed) is left with a size of zero.
+ * <p>
+ * Writing to a file is blocking I/O, and should not be done on the audio
+ * thread. Blocks of PCM which are produced on the audio thread should be
+ * handed off to another thread for writing.
+ */
+public class WaveWriter extends RiffWriter {
+
+	private static final int FMT_LEN = 16;
+	private static final int COPY_BUF_LEN = 65536;
+
+	/**
+	 * Writes the entirety of an audio source to a {@code WAV} file. The audio
+	 * is read and written in blocks, so it is never held in memory at once.
+	 *
+	 * @param audio
+	 *            the audio source to read from.
+	 * @param file
+	 *            the {@code WAV} file, replaced if it already exists.
+	 * @throws NullPointerException
+	 *             if {@code audio} or {@code file} are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the format of {@code audio} cannot be written.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public static void write(AudioSource audio, File file) throws IOException {
+		Objects.requireNonNull(audio, "audio");
+		try (WaveWriter out = new WaveWriter(file, audio)) {
+			byte[] buf = new byte[COPY_BUF_LEN];
+			int offset = 0;
+			int read;
+			while ((read = audio.readPCM(offset, buf, buf.length)) != -1) {
+				out.writePCM(buf, 0, read);
+				offset += read;
+			}
+		}
+	}
+
+	/**
+	 * Checks the format of a {@code WAV} file before it is created, so that
+	 * an existing file is never truncated over an invalid argument.
+	 *
+	 * @return {@code file}, to be passed to the super constructor.
+	 */
+	private static File checkFormat(File file, int channelCount,
+			int bitsPerSample, int sampleRate) {
+		if (channelCount <= 0) {
+			throw new IllegalArgumentException("channelCount <= 0");
+		} else if (bitsPerSample != 8 && bitsPerSample != 16) {
+			throw new IllegalArgumentException("bitsPerSample not 8 or 16");
+		} else if (sampleRate <= 0) {
+			throw new IllegalArgumentException("sampleRate <= 0");
+		}
+		return file;
+	}
+
+	private final WaveFormat format;
+	private long pcmBytes;
+	private boolean dataBegun;
+
+	/**
+	 * Creates a {@code WAV} file, replacing the file if it already exists.
+	 *
+	 * @param file
+	 *            the {@code WAV} file.
+	 * @param channelCount
+	 *            the amount of channels.
+	 * @param bitsPerSample
+	 *            the bits per sample, must be {@code 8} or {@code 16}.
+	 * @param sampleRate
+	 *            the sample rate in Hz.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code channelCount} or {@code sampleRate} are not
+	 *             greater than zero, or {@code bitsPerSample} is not {@code 8}
+	 *             or {@code 16}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public WaveWriter(File file, int channelCount, int bitsPerSample,
+			int sampleRate) throws IOException {
+		super("WAVE", checkFormat(file, channelCount, bitsPerSample,
+				sampleRate));
+
+		short blockAlign = (short) (channelCount * (bitsPerSample / 8));
+		this.format = new WaveFormat((short) WaveFormat.FORMAT_PCM,
+				(short) channelCount, sampleRate, sampleRate * blockAlign,
+				blockAlign, (short) bitsPerSample, (short) 0, -1L);
+
+		ByteBuffer fmt = ByteBuffer.allocate(FMT_LEN)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		fmt.putShort(format.audioFormat);
+		fmt.putShort(format.channelCount);
+		fmt.putInt(format.sampleRate);
+		fmt.putInt(format.byteRate);
+		fmt.putShort(format.blockAlign);
+		fmt.putShort(format.bitsPerSample);
+		fmt.flip();
+		this.writeChunk("fmt ", fmt);
+		this.beginChunk("data");
+		this.dataBegun = true;
+	}
+
+	/**
+	 * Creates a {@code WAV} file with the same format as an audio source,
+	 * replacing the file if it already exists.
+	 * <p>
+	 * This does not write any of the PCM data of {@code audio}. To write an
+	 * entire audio source, use {@link #write(AudioSource, File)}.
+	 *
+	 * @param file
+	 *            the {@code WAV} file.
+	 * @param audio
+	 *            the audio source whose format to use.
+	 * @throws NullPointerException
+	 *             if {@code file} or {@code audio} are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if the format of {@code audio} cannot be written.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public WaveWriter(File file, AudioSource audio) throws IOException {
+		this(file, Objects.requireNonNull(audio, "audio").getChannelCount(),
+				audio.getBitsPerSample(), audio.getFrequencyHz());
+	}
+
+	/**
+	 * @return the format of this {@code WAV} file.
+	 */
+	public WaveFormat getFormat() {
+		return this.format;
+	}
+
+	/**
+	 * @return the amount of bytes of PCM data written so far.
+	 */
+	public long getPCMLength() {
+		return this.pcmBytes;
+	}
+
+	/**
+	 * @param pcm
+	 *            the PCM data to write, from its position to its limit. It
+	 *            must be in the format of this file.
+	 * @throws NullPointerException
+	 *             if {@code pcm} is {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void writePCM(ByteBuffer pcm) throws IOException {
+		int len = Objects.requireNonNull(pcm, "pcm").remaining();
+		this.write(pcm);
+		this.pcmBytes += len;
+	}
+
+	/**
+	 * @param pcm
+	 *            the PCM data to write. It must be in the format of this file.
+	 * @param off
+	 *            the start offset in {@code pcm}.
+	 * @param len
+	 *            the amount of bytes to write.
+	 * @throws NullPointerException
+	 *             if {@code pcm} is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code off} or {@code len} are out of bounds.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void writePCM(byte[] pcm, int off, int len) throws IOException {
+		this.write(pcm, off, len);
+		this.pcmBytes += len;
+	}
+
+	/**
+	 * This cannot be used to begin another chunk, since the {@code data}
+	 * chunk is written until this file is closed.
+	 *
+	 * @throws IOException
+	 *             always, once this file has been created.
+	 */
+	@Override
+	public void beginChunk(String id) throws IOException {
+		if (dataBegun == true) {
+			throw new IOException("data chunk is open until close");
+		}
+		super.beginChunk(id);
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.ardenus.engine.graphics;
 
+import org.ardenus.engine.graphics.atlas.AtlasRegion;
+
 public class Frame extends Image {
 
 	private long duration;
@@ -9,6 +11,11 @@ public class Frame extends Image {
 		this.setDuration(duration);
 	}
 
+	public Frame(TextureAtlas atlas, AtlasRegion region, long duration) {
+		super(atlas, region);
+		this.setDuration(duration);
+	}
+
 	public Frame(int h_glTexture, long duration) {
 		super(h_glTexture);
 		this.setDuration(duration);
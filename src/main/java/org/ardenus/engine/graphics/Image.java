@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Objects;
 
+import org.ardenus.engine.graphics.atlas.AtlasRegion;
 import org.ardenus.engine.graphics.shader.Program;
 import org.ardenus.engine.graphics.shader.Uniform;
 import org.ardenus.engine.util.BeResponsible;
@@ -21,7 +22,6 @@ import org.ardenus.engine.util.NoHandleException;
 import org.joml.Vector2f;
 import org.joml.Vector2i;
 import org.joml.Vector4f;
-import org.lwjgl.BufferUtils;
 
 /**
  * A 2D image which can be drawn to the screen.
@@ -93,11 +93,7 @@ public class Image implements Closeable {
 	 * @throws NullPointerException
 	 *             if {@code img} is {@code null}.
 	 */
-	private static ByteBuffer genPixBuf(BufferedImage img) {
-		Objects.requireNonNull(img, "img");
-		ByteBuffer buffer = BufferUtils.createByteBuffer(
-				img.getWidth() * img.getHeight() * Integer.BYTES);
-
+	static ByteBuffer genPixBuf(BufferedImage img) {
 		/*
 		 * Because OpenGL is OpenGL, it's UV coordinates start from the bottom.
 		 * Since image coordinates start from the top, this results in them
@@ -114,29 +110,19 @@ public class Image implements Closeable {
 		 * glDrawElements() removes the need specify vertices in a counter
 		 * clockwise order. This probably applies to UV as well.
 		 */
-		for (int y = img.getHeight() - 1; y >= 0; y--) {
-			for (int x = 0; x < img.getWidth(); x++) {
-				/*
-				 * Since Java is Java, it returns pixels in an ARGB format.
-				 * Since OpenGL has no option to store pixels in ARGB (it only
-				 * supports RGBA), the pixels must be rearranged manually.
-				 */
-				int color = img.getRGB(x, y);
-				buffer.put((byte) ((color >> 0x10) & 0xFF));
-				buffer.put((byte) ((color >> 0x08) & 0xFF));
-				buffer.put((byte) ((color >> 0x00) & 0xFF));
-				buffer.put((byte) ((color >> 0x18) & 0xFF));
-			}
-		}
-		buffer.flip();
-		return buffer;
+		return ImagePixels.toRGBA(img);
 	}
 
 	private final boolean preserveTexture;
+	private final AtlasRegion region;
+	private boolean shared;
 
 	private final int h_glTexture;
-	private final int h_glAttribs;
-	private final int h_glVerts;
+	private int h_glAttribs;
+	private int h_glVerts;
+	private int h_glRegionUV;
+	private float[] verts;
+	private boolean vertsDirty;
 
 	private final Vector2i size;
 	private final Vector2f scale;
@@ -145,41 +131,18 @@ public class Image implements Closeable {
 
 	private boolean closed;
 
-	/**
-	 * @param preserveTexture
-	 *            {@code true} if the image should not be deleted when this
-	 *            image is closed, {@code false} otherwise.
-	 * @param h_glTexture
-	 *            the handle of the OpenGL texture.
-	 * @throws NoHandleException
-	 *             if {@code h_glTexture} is {@code GL_NONE}.
-	 */
-	public Image(boolean preserveTexture, int h_glTexture) {
+	private Image(boolean preserveTexture, int h_glTexture,
+			AtlasRegion region) {
 		init(); /* auto initialize components */
 		this.preserveTexture = preserveTexture;
-
+		this.region = region;
 		this.h_glTexture = Handles.requireGL(h_glTexture, "h_glTexture");
-		glBindTexture(GL_TEXTURE_2D, h_glTexture);
-		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-
-		this.h_glAttribs =
-				Handles.requireGL(glGenVertexArrays(), "h_glAttribs");
-		glBindVertexArray(h_glAttribs);
-
-		this.h_glVerts = Handles.requireGL(glGenBuffers(), "h_glVerts");
-		glBindBuffer(GL_ARRAY_BUFFER, h_glVerts);
-		glVertexAttribPointer(IMG_VERT_ID, 2, GL_FLOAT, false, 0, 0L);
-		glEnableVertexAttribArray(IMG_VERT_ID);
-
-		glBindBuffer(GL_ARRAY_BUFFER, h_glUV);
-		glVertexAttribPointer(IMG_UV_ID, 2, GL_FLOAT, false, 0, 0L);
-		glEnableVertexAttribArray(IMG_UV_ID);
 
 		this.size = new Vector2i();
 		this.scale = new Vector2f(1.0F, 1.0F);
 		this.pos = new Vector2f();
 		this.color = new Vector4f(1.0F, 1.0F, 1.0F, 1.0F);
+		this.verts = new float[0];
 
 		/*
 		 * Only increment the image count once the image has been successfully
@@ -189,6 +152,55 @@ public class Image implements Closeable {
 		imgCount++;
 	}
 
+	/**
+	 * @param preserveTexture
+	 *            {@code true} if the image should not be deleted when this
+	 *            image is closed, {@code false} otherwise.
+	 * @param h_glTexture
+	 *            the handle of the OpenGL texture.
+	 * @throws NoHandleException
+	 *             if {@code h_glTexture} is {@code GL_NONE}.
+	 */
+	public Image(boolean preserveTexture, int h_glTexture) {
+		this(preserveTexture, h_glTexture, null);
+		glBindTexture(GL_TEXTURE_2D, h_glTexture);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+	}
+
+	/**
+	 * Constructs a new {@code Image} which draws a single region of a texture
+	 * atlas. No texture of its own is created, and the atlas texture will not
+	 * be deleted when this image is closed.
+	 * <p>
+	 * The dimensions of the image are those of the original image, before
+	 * it was packed. If its transparent border was trimmed, the region is
+	 * drawn where it was in the original.
+	 * <p>
+	 * As the texture is shared, the dimensions and pixels of the image cannot
+	 * be changed.
+	 * 
+	 * @param atlas
+	 *            the texture atlas.
+	 * @param region
+	 *            the region of {@code atlas} to draw.
+	 * @throws NullPointerException
+	 *             if {@code atlas} or {@code region} are {@code null}.
+	 * @throws IllegalStateException
+	 *             if {@code atlas} is closed.
+	 * @see TextureAtlas#createImage(String)
+	 */
+	public Image(TextureAtlas atlas, AtlasRegion region) {
+		this(true, Objects.requireNonNull(atlas, "atlas").getTextureHandle(),
+				Objects.requireNonNull(region, "region"));
+		size.x = region.originalWidth;
+		size.y = region.originalHeight;
+
+		float left = region.offsetX, top = region.offsetY;
+		float right = left + region.width, bottom = top + region.height;
+		this.setVerts(left, top, right, bottom);
+	}
+
 	/**
 	 * Constructs a new {@code Image} to handle the specified OpenGL
 	 * texture.<br>
@@ -220,6 +232,59 @@ public class Image implements Closeable {
 		}
 	}
 
+	private void requireOwnTexture() {
+		if (region != null) {
+			throw new IllegalStateException("image is an atlas region");
+		}
+	}
+
+	private void requireOwnPixels() {
+		this.requireOwnTexture();
+		if (shared == true) {
+			throw new IllegalStateException("image texture is shared");
+		}
+	}
+
+	private void setVerts(float left, float top, float right, float bottom) {
+		this.verts = new float[] {
+				left, top, left, bottom, right, bottom, right, top
+		};
+		this.vertsDirty = true;
+	}
+
+	/*
+	 * The vertex array and buffers of an image are only needed to draw it by
+	 * itself. An image which is only ever drawn by a sprite batch never has
+	 * to create them.
+	 */
+	private void genAttribs() {
+		this.h_glAttribs =
+				Handles.requireGL(glGenVertexArrays(), "h_glAttribs");
+		glBindVertexArray(h_glAttribs);
+
+		this.h_glVerts = Handles.requireGL(glGenBuffers(), "h_glVerts");
+		glBindBuffer(GL_ARRAY_BUFFER, h_glVerts);
+		glVertexAttribPointer(IMG_VERT_ID, 2, GL_FLOAT, false, 0, 0L);
+		glEnableVertexAttribArray(IMG_VERT_ID);
+
+		if (region != null) {
+			this.h_glRegionUV =
+					Handles.requireGL(glGenBuffers(), "h_glRegionUV");
+			glBindBuffer(GL_ARRAY_BUFFER, h_glRegionUV);
+			float[] uv = {
+					region.u0, region.v1, region.u0, region.v0, region.u1,
+					region.v0, region.u1, region.v1
+			};
+			glBufferData(GL_ARRAY_BUFFER, uv, GL_STATIC_DRAW);
+		} else {
+			glBindBuffer(GL_ARRAY_BUFFER, h_glUV);
+		}
+		glVertexAttribPointer(IMG_UV_ID, 2, GL_FLOAT, false, 0, 0L);
+		glEnableVertexAttribArray(IMG_UV_ID);
+
+		this.vertsDirty = true;
+	}
+
 	/**
 	 * @return the image width in pixels.
 	 */
@@ -234,6 +299,55 @@ public class Image implements Closeable {
 		return size.y;
 	}
 
+	/**
+	 * @return the width this image is drawn at, in pixels.
+	 * @see #setDrawSize(float, float)
+	 */
+	public float getDrawWidth() {
+		return size.x * scale.x;
+	}
+
+	/**
+	 * @return the height this image is drawn at, in pixels.
+	 * @see #setDrawSize(float, float)
+	 */
+	public float getDrawHeight() {
+		return size.y * scale.y;
+	}
+
+	/**
+	 * @return the texture atlas region this image draws, {@code null} if it
+	 *         draws its entire texture.
+	 */
+	public AtlasRegion getRegion() {
+		return this.region;
+	}
+
+	int getTextureHandle() {
+		return this.h_glTexture;
+	}
+
+	Vector2f getScale() {
+		return this.scale;
+	}
+
+	Vector4f getColor() {
+		return this.color;
+	}
+
+	boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * Marks the texture of this image as shared with other images, such as
+	 * by a {@link TextureCache}. Its pixels can then no longer be changed by
+	 * this image, as that would change every other image drawing it.
+	 */
+	void markShared() {
+		this.shared = true;
+	}
+
 	/**
 	 * Called automatically by {@link #loadImage(BufferedImage)}. The arguments
 	 * are set to the width and height of the provided image. This should
@@ -250,30 +364,27 @@ public class Image implements Closeable {
 	 *            the quad height in pixels.
 	 * @return this image.
 	 * @throws IllegalStateException
-	 *             if the image is closed.
+	 *             if the image is closed or an atlas region.
 	 */
 	public Image loadDimensions(int width, int height) {
 		this.requireOpen();
+		this.requireOwnTexture();
 		size.x = width;
 		size.y = height;
-
-		glBindBuffer(GL_ARRAY_BUFFER, h_glVerts);
-		float[] dimensions = {
-				0, 0, 0, height, width, height, width, 0
-		};
-		glBufferData(GL_ARRAY_BUFFER, dimensions, GL_STATIC_DRAW);
+		this.setVerts(0, 0, width, height);
 		return this;
 	}
 
 	/**
 	 * @return this image.
 	 * @throws IllegalStateException
-	 *             if the image is closed.
+	 *             if the image is closed or an atlas region.
 	 */
 	public Image clearDimensions() {
 		this.requireOpen();
-		glBindBuffer(GL_ARRAY_BUFFER, h_glVerts);
-		glBufferData(GL_ARRAY_BUFFER, 0, GL_STATIC_DRAW);
+		this.requireOwnTexture();
+		this.verts = new float[0];
+		this.vertsDirty = true;
 		return this;
 	}
 
@@ -292,10 +403,12 @@ public class Image implements Closeable {
 	 *            the image to load in.
 	 * @return this image.
 	 * @throws IllegalStateException
-	 *             if the image is closed.
+	 *             if the image is closed, an atlas region, or its texture is
+	 *             shared.
 	 */
 	public Image loadImage(BufferedImage img) {
 		this.requireOpen();
+		this.requireOwnPixels();
 		if (img == null) {
 			this.clearDimensions();
 			this.clearImage();
@@ -311,6 +424,40 @@ public class Image implements Closeable {
 		return this;
 	}
 
+	/**
+	 * The pixels from {@code data} are set as the data for the texture this
+	 * image handles. Unlike {@link #loadImage(BufferedImage)}, the pixels are
+	 * uploaded as they are, with no conversion. If {@code data} is
+	 * {@code null}, the contents of this image are cleared via
+	 * {@link #clearDimensions()} and {@link #clearImage()}.
+	 * <p>
+	 * The dimensions are set to the width and height of {@code data}
+	 * automatically. The image data is not closed by this method, and can be
+	 * closed as soon as it returns.
+	 * 
+	 * @param data
+	 *            the image data to load in.
+	 * @return this image.
+	 * @throws IllegalStateException
+	 *             if the image is closed, an atlas region, or its texture is
+	 *             shared; if {@code data} is closed.
+	 */
+	public Image loadImageData(ImageData data) {
+		this.requireOpen();
+		this.requireOwnPixels();
+		if (data == null) {
+			this.clearDimensions();
+			this.clearImage();
+			return this;
+		}
+		this.loadDimensions(data.getWidth(), data.getHeight());
+
+		glBindTexture(GL_TEXTURE_2D, h_glTexture);
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, size.x, size.y, 0, GL_RGBA,
+				GL_UNSIGNED_BYTE, data.getPixels());
+		return this;
+	}
+
 	/**
 	 * If the pixels were set via {@link #loadImage(BufferedImage)}, this will
 	 * <b>not</b> clear the vertex buffer. To clear the vertex buffer also, use
@@ -318,10 +465,12 @@ public class Image implements Closeable {
 	 * 
 	 * @return this image.
 	 * @throws IllegalStateException
-	 *             if the image is closed.
+	 *             if the image is closed, an atlas region, or its texture is
+	 *             shared.
 	 */
 	public Image clearImage() {
 		this.requireOpen();
+		this.requireOwnPixels();
 		glBindTexture(GL_TEXTURE_2D, h_glTexture);
 		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, size.x, size.y, 0, GL_RGBA,
 				GL_UNSIGNED_BYTE, 0);
@@ -407,6 +556,9 @@ public class Image implements Closeable {
 	 * have been resolved via {@link Program#resolveUniformLocs(Class)}.
 	 * Finally, an orthographic and view matrix must be set beforehand for the
 	 * image to render properly.
+	 * <p>
+	 * Every call to this method is its own draw call. When drawing many
+	 * images, use a {@link SpriteBatch} instead.
 	 * 
 	 * @param x
 	 *            the X-axis position, in pixels.
@@ -417,6 +569,7 @@ public class Image implements Closeable {
 	 * @see #setDrawSize(float, float)
 	 * @see #setColor(Color)
 	 * @see #setAlpha(float)
+	 * @see SpriteBatch#draw(Image, float, float)
 	 */
 	@BeResponsible
 	public void draw(float x, float y) {
@@ -431,7 +584,16 @@ public class Image implements Closeable {
 		glBindTexture(GL_TEXTURE_2D, h_glTexture);
 		glActiveTexture(GL_TEXTURE0);
 
-		glBindVertexArray(h_glAttribs);
+		if (h_glAttribs == GL_NONE) {
+			this.genAttribs();
+		} else {
+			glBindVertexArray(h_glAttribs);
+		}
+		if (vertsDirty == true) {
+			glBindBuffer(GL_ARRAY_BUFFER, h_glVerts);
+			glBufferData(GL_ARRAY_BUFFER, verts, GL_STATIC_DRAW);
+			this.vertsDirty = false;
+		}
 		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, h_glIndices);
 		glDrawElements(GL_TRIANGLES, INDICES.length, GL_UNSIGNED_INT, 0L);
 	}
@@ -445,8 +607,13 @@ public class Image implements Closeable {
 		if (!preserveTexture) {
 			glDeleteTextures(h_glTexture);
 		}
-		glDeleteVertexArrays(h_glAttribs);
-		glDeleteBuffers(h_glVerts);
+		if (h_glAttribs != GL_NONE) {
+			glDeleteVertexArrays(h_glAttribs);
+			glDeleteBuffers(h_glVerts);
+		}
+		if (h_glRegionUV != GL_NONE) {
+			glDeleteBuffers(h_glRegionUV);
+		}
 		this.closed = true;
 
 		imgCount--;
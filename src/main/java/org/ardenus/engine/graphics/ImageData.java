@@ -0,0 +1,314 @@
+package org.ardenus.engine.graphics;
+
+import static org.lwjgl.stb.STBImage.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * An image decoded by stb_image into a native buffer of RGBA pixels.
+ * <p>
+ * Loading an image through {@link java.awt.image.BufferedImage
+ * BufferedImage} decodes it onto the heap, only for its pixels to be
+ * converted into yet another buffer for OpenGL. Image data skips both: the
+ * encoded image ({@code PNG}, {@code JPEG}, and the other formats supported
+ * by stb_image) is decoded straight into the buffer that is uploaded to the
+ * texture. Like the buffers made by {@link Image}, the rows are flipped
+ * vertically, as OpenGL UV coordinates start from the bottom.
+ * <p>
+ * The pixels are held in native memory, which is freed once the image data
+ * is closed.
+ *
+ * @see Image#loadImageData(ImageData)
+ */
+public class ImageData implements Closeable {
+
+	private static final int INITIAL_READ_SIZE = 64 * 1024;
+
+	static {
+		/*
+		 * This is a global setting of stb_image. It is only ever set here, so
+		 * images can be decoded on many threads at once without a race.
+		 */
+		stbi_set_flip_vertically_on_load(true);
+	}
+
+	private final int width;
+	private final int height;
+	private final int sourceChannels;
+	private final ByteBuffer pixels;
+	private boolean closed;
+
+	private ImageData(int width, int height, int sourceChannels,
+			ByteBuffer pixels) {
+		this.width = width;
+		this.height = height;
+		this.sourceChannels = sourceChannels;
+		this.pixels = pixels;
+	}
+
+	/**
+	 * Decodes an image from a buffer, such as a file mapped into memory.
+	 * <p>
+	 * The data between the position and limit of the buffer is decoded. The
+	 * position of the buffer is left unchanged. Since stb_image can only read
+	 * from native memory, a heap buffer is first copied into a direct one.
+	 *
+	 * @param encoded
+	 *            the encoded image.
+	 * @return the decoded image data.
+	 * @throws NullPointerException
+	 *             if {@code encoded} is {@code null}.
+	 * @throws IOException
+	 *             if the image fails to decode.
+	 */
+	public static ImageData decode(ByteBuffer encoded) throws IOException {
+		Objects.requireNonNull(encoded, "encoded");
+		if (encoded.isDirect()) {
+			return decodeDirect(encoded);
+		}
+
+		ByteBuffer direct = MemoryUtil.memAlloc(encoded.remaining());
+		try {
+			direct.put(encoded.duplicate()).flip();
+			return decodeDirect(direct);
+		} finally {
+			MemoryUtil.memFree(direct);
+		}
+	}
+
+	private static ImageData decodeDirect(ByteBuffer encoded)
+			throws IOException {
+		int[] p_width = new int[1];
+		int[] p_height = new int[1];
+		int[] p_channels = new int[1];
+		ByteBuffer pixels = stbi_load_from_memory(encoded, p_width, p_height,
+				p_channels, STBI_rgb_alpha);
+		if (pixels == null) {
+			throw new IOException(
+					"failed to decode image: " + stbi_failure_reason());
+		}
+		return new ImageData(p_width[0], p_height[0], p_channels[0], pixels);
+	}
+
+	/**
+	 * Decodes an image read from a channel. The channel is read until it
+	 * reaches the end of its stream, but is not closed.
+	 *
+	 * @param channel
+	 *            the channel to read the encoded image from.
+	 * @return the decoded image data.
+	 * @throws NullPointerException
+	 *             if {@code channel} is {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs, or the image fails to decode.
+	 */
+	public static ImageData decode(ReadableByteChannel channel)
+			throws IOException {
+		Objects.requireNonNull(channel, "channel");
+
+		int size = INITIAL_READ_SIZE;
+		if (channel instanceof SeekableByteChannel) {
+			SeekableByteChannel seekable = (SeekableByteChannel) channel;
+			long remaining = seekable.size() - seekable.position();
+			if (remaining >= Integer.MAX_VALUE) {
+				throw new IOException("image too large to decode");
+			}
+			size = (int) remaining + 1; /* +1 to find the end quickly */
+		}
+
+		ByteBuffer encoded = MemoryUtil.memAlloc(size);
+		try {
+			while (channel.read(encoded) >= 0) {
+				if (encoded.hasRemaining()) {
+					continue;
+				} else if (encoded.capacity() >= Integer.MAX_VALUE / 2) {
+					throw new IOException("image too large to decode");
+				}
+				encoded = MemoryUtil.memRealloc(encoded,
+						encoded.capacity() * 2);
+			}
+			encoded.flip();
+			return decodeDirect(encoded);
+		} finally {
+			MemoryUtil.memFree(encoded);
+		}
+	}
+
+	/**
+	 * Decodes an image file. The file is mapped into memory, rather than read
+	 * into a buffer first.
+	 *
+	 * @param file
+	 *            the image file.
+	 * @return the decoded image data.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs, or the image fails to decode.
+	 */
+	public static ImageData decode(File file) throws IOException {
+		Objects.requireNonNull(file, "file");
+		try (FileChannel channel =
+				FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("image too large to decode");
+			}
+			MappedByteBuffer mapped =
+					channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+			return decodeDirect(mapped);
+		} catch (IOException e) {
+			throw new IOException("failed to decode " + file, e);
+		}
+	}
+
+	/**
+	 * Decodes many image files at once, each on a thread from
+	 * {@code executor}. The calling thread waits until every file has been
+	 * decoded.
+	 * <p>
+	 * If any file fails to decode, the image data of the files decoded so far
+	 * is closed before the exception is thrown.
+	 *
+	 * @param files
+	 *            the image files.
+	 * @param executor
+	 *            the executor to decode on.
+	 * @return the decoded image data, in the same order as {@code files}.
+	 * @throws NullPointerException
+	 *             if {@code files} or {@code executor} are {@code null}.
+	 * @throws IOException
+	 *             if an I/O error occurs, or an image fails to decode.
+	 * @see #decode(File)
+	 */
+	public static List<ImageData> decodeAll(Collection<File> files,
+			ExecutorService executor) throws IOException {
+		Objects.requireNonNull(files, "files");
+		Objects.requireNonNull(executor, "executor");
+
+		for (File file : files) {
+			Objects.requireNonNull(file, "file");
+		}
+
+		ImageData[] decoded = new ImageData[files.size()];
+		AtomicBoolean abandoned = new AtomicBoolean();
+		List<Future<?>> decodes = new ArrayList<>();
+		for (File file : files) {
+			int index = decodes.size();
+			decodes.add(executor.submit(() -> {
+				ImageData data = decode(file);
+				synchronized (decoded) {
+					if (abandoned.get() == false) {
+						decoded[index] = data;
+						return null;
+					}
+				}
+				data.close(); /* no one is left to close it */
+				return null;
+			}));
+		}
+
+		IOException error = null;
+		for (Future<?> decode : decodes) {
+			try {
+				decode.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				error = cause instanceof IOException ? (IOException) cause
+						: new IOException(cause);
+				break;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				error = new IOException("interrupted while decoding", e);
+				break;
+			}
+		}
+
+		if (error != null) {
+			/*
+			 * Decodes which are still running close their own image data
+			 * once they see the batch was abandoned, so nothing leaks.
+			 */
+			synchronized (decoded) {
+				abandoned.set(true);
+				for (ImageData data : decoded) {
+					if (data != null) {
+						data.close();
+					}
+				}
+			}
+			for (Future<?> decode : decodes) {
+				decode.cancel(false);
+			}
+			throw error;
+		}
+		return new ArrayList<>(Arrays.asList(decoded));
+	}
+
+	private void requireOpen() {
+		if (closed == true) {
+			throw new IllegalStateException("image data closed");
+		}
+	}
+
+	/**
+	 * @return the image width in pixels.
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * @return the image height in pixels.
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * @return the amount of channels in the encoded image. The decoded
+	 *         pixels always have four.
+	 */
+	public int getSourceChannels() {
+		return this.sourceChannels;
+	}
+
+	/**
+	 * @return the RGBA pixels, starting from the bottom row.
+	 * @throws IllegalStateException
+	 *             if the image data is closed.
+	 */
+	public ByteBuffer getPixels() {
+		this.requireOpen();
+		return this.pixels;
+	}
+
+	@Override
+	public void close() {
+		if (closed == true) {
+			return;
+		}
+		stbi_image_free(pixels);
+		this.closed = true;
+	}
+
+}
@@ -0,0 +1,229 @@
+package org.ardenus.engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * Writes the per-instance attributes of images drawn by an
+ * {@link InstanceBatch}, grouped by their texture.
+ * <p>
+ * Each instance is {@value #INSTANCE_BYTES} bytes: the position and size of
+ * its quad as two {@code vec2} of floats, its UV coordinates as a
+ * {@code vec4} of floats, and its color as four normalized unsigned bytes.
+ * Instances drawn with the same texture are written into the same group, no
+ * matter the order they were put in, so that each group can be drawn with a
+ * single call. This class makes no OpenGL calls, so it can be used without a
+ * graphics context.
+ */
+public class ImageInstances {
+
+	/**
+	 * The size of a single instance in bytes.
+	 */
+	public static final int INSTANCE_BYTES = 36;
+
+	/**
+	 * The offset of the {@code img_pos} attribute in bytes.
+	 */
+	public static final int POS_OFFSET = 0;
+
+	/**
+	 * The offset of the {@code img_scale} attribute in bytes.
+	 */
+	public static final int SCALE_OFFSET = 8;
+
+	/**
+	 * The offset of the {@code img_uv} attribute in bytes.
+	 */
+	public static final int UV_OFFSET = 16;
+
+	/**
+	 * The offset of the {@code img_color} attribute in bytes.
+	 */
+	public static final int COLOR_OFFSET = 32;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The instances drawn with a single texture.
+	 */
+	public static class Group {
+
+		private final int h_glTexture;
+		private ByteBuffer data;
+		private int count;
+
+		private Group(int h_glTexture) {
+			this.h_glTexture = h_glTexture;
+			this.data = BufferUtils.createByteBuffer(
+					INITIAL_CAPACITY * INSTANCE_BYTES);
+		}
+
+		/**
+		 * @return the handle of the OpenGL texture to draw with.
+		 */
+		public int getTexture() {
+			return this.h_glTexture;
+		}
+
+		/**
+		 * @return the amount of instances in this group.
+		 */
+		public int getCount() {
+			return this.count;
+		}
+
+		/**
+		 * @return a view of the instances written, ready to be read.
+		 */
+		public ByteBuffer getData() {
+			ByteBuffer view = data.duplicate().order(ByteOrder.nativeOrder());
+			view.clear();
+			view.limit(count * INSTANCE_BYTES);
+			return view;
+		}
+
+		/*
+		 * Groups keep their buffer between frames, so this only happens the
+		 * first few times a scene draws more instances than it did before.
+		 */
+		private void grow() {
+			ByteBuffer grown = BufferUtils.createByteBuffer(
+					data.capacity() * 2);
+			ByteBuffer old = data.duplicate();
+			old.clear();
+			old.limit(count * INSTANCE_BYTES);
+			grown.put(old);
+			this.data = grown;
+		}
+
+		private void put(float x, float y, float width, float height,
+				float u0, float v0, float u1, float v1, int color) {
+			int index = count * INSTANCE_BYTES;
+			if (index + INSTANCE_BYTES > data.capacity()) {
+				this.grow();
+			}
+			data.putFloat(index + POS_OFFSET, x);
+			data.putFloat(index + POS_OFFSET + 4, y);
+			data.putFloat(index + SCALE_OFFSET, width);
+			data.putFloat(index + SCALE_OFFSET + 4, height);
+			data.putFloat(index + UV_OFFSET, u0);
+			data.putFloat(index + UV_OFFSET + 4, v0);
+			data.putFloat(index + UV_OFFSET + 8, u1);
+			data.putFloat(index + UV_OFFSET + 12, v1);
+			data.putInt(index + COLOR_OFFSET, color);
+			count++;
+		}
+
+	}
+
+	private final Map<Integer, Group> groups;
+	private final List<Group> order;
+	private Group last;
+	private int instanceCount;
+
+	/**
+	 * Constructs a new {@code ImageInstances} with no instances.
+	 */
+	public ImageInstances() {
+		this.groups = new HashMap<>();
+		this.order = new ArrayList<>();
+	}
+
+	/**
+	 * Writes an instance.
+	 * <p>
+	 * UV coordinates are given the way OpenGL expects them, from the bottom
+	 * of the texture to the top. For a texture loaded by {@link Image}, the
+	 * whole image is {@code (0, 0)} to {@code (1, 1)}.
+	 *
+	 * @param h_glTexture
+	 *            the handle of the OpenGL texture to draw with.
+	 * @param x
+	 *            the X-axis position of the top left corner, in pixels.
+	 * @param y
+	 *            the Y-axis position of the top left corner, in pixels.
+	 * @param width
+	 *            the width of the quad, in pixels.
+	 * @param height
+	 *            the height of the quad, in pixels.
+	 * @param u0
+	 *            the left U coordinate.
+	 * @param v0
+	 *            the bottom V coordinate.
+	 * @param u1
+	 *            the right U coordinate.
+	 * @param v1
+	 *            the top V coordinate.
+	 * @param color
+	 *            the color to tint the quad with, as given by
+	 *            {@link SpriteVertices#packColor(float, float, float, float)}.
+	 */
+	public void put(int h_glTexture, float x, float y, float width,
+			float height, float u0, float v0, float u1, float v1, int color) {
+		/*
+		 * The same texture is usually drawn many times in a row, so the last
+		 * group is checked before looking it up.
+		 */
+		Group group = this.last;
+		if (group == null || group.h_glTexture != h_glTexture) {
+			group = groups.get(h_glTexture);
+			if (group == null) {
+				group = new Group(h_glTexture);
+				groups.put(h_glTexture, group);
+			}
+			if (group.count <= 0) {
+				order.add(group);
+			}
+			this.last = group;
+		}
+		group.put(x, y, width, height, u0, v0, u1, v1, color);
+		instanceCount++;
+	}
+
+	/**
+	 * @return the groups with at least one instance, in the order their
+	 *         texture was first drawn with.
+	 */
+	public List<Group> getGroups() {
+		return Collections.unmodifiableList(order);
+	}
+
+	/**
+	 * @return the amount of instances written.
+	 */
+	public int getInstanceCount() {
+		return this.instanceCount;
+	}
+
+	/**
+	 * @return {@code true} if no instances have been written, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isEmpty() {
+		return instanceCount <= 0;
+	}
+
+	/**
+	 * Removes every instance. The buffers of groups which had instances are
+	 * kept, so they can be written to again without allocating. The rest are
+	 * dropped, as their texture is likely no longer drawn.
+	 */
+	public void clear() {
+		groups.values().removeIf((group) -> group.count <= 0);
+		for (Group group : order) {
+			group.count = 0;
+		}
+		order.clear();
+		this.last = null;
+		this.instanceCount = 0;
+	}
+
+}
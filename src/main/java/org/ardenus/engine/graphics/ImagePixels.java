@@ -0,0 +1,261 @@
+package org.ardenus.engine.graphics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * Converts the pixels of a {@link BufferedImage} into a buffer that is fit
+ * for an OpenGL texture.
+ * <p>
+ * The pixels are written as RGBA bytes, with the rows flipped so the bottom
+ * row comes first (OpenGL UV coordinates start from the bottom, while image
+ * coordinates start from the top). For the most common image types, the
+ * pixels are read straight from the data array of the image, and written a
+ * whole row at a time. Every other type goes through
+ * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}, one row
+ * at a time. Large images are split into bands of rows, which are converted
+ * in parallel.
+ * <p>
+ * Reading the data array of an image directly keeps Java2D from
+ * accelerating it afterwards. Images are converted once when loaded, so this
+ * makes no difference here.
+ */
+public final class ImagePixels {
+
+	/**
+	 * Images with at least this many pixels are converted in parallel.
+	 */
+	private static final int PARALLEL_MIN_PIXELS = 512 * 512;
+
+	/**
+	 * The fewest rows given to each thread when converting in parallel.
+	 */
+	private static final int MIN_BAND_ROWS = 64;
+
+	private static final boolean LITTLE_ENDIAN =
+			ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+	private ImagePixels() {
+		/* static class */
+	}
+
+	/*
+	 * An int holding an RGBA pixel, laid out so its bytes are in RGBA order
+	 * when written in the native byte order.
+	 */
+	private static int pack(int r, int g, int b, int a) {
+		if (LITTLE_ENDIAN) {
+			return r | (g << 8) | (b << 16) | (a << 24);
+		}
+		return (r << 24) | (g << 16) | (b << 8) | a;
+	}
+
+	private static int packARGB(int argb) {
+		if (LITTLE_ENDIAN) {
+			/* swap the red and blue channels, leaving ABGR */
+			return (argb & 0xFF00FF00) | ((argb >> 16) & 0xFF)
+					| ((argb & 0xFF) << 16);
+		}
+		return (argb << 8) | (argb >>> 24);
+	}
+
+	/**
+	 * Allocates a buffer big enough to fit the given image, and converts its
+	 * pixels into it.
+	 *
+	 * @param img
+	 *            the image to convert.
+	 * @return the texture buffer, ready to be read.
+	 * @throws NullPointerException
+	 *             if {@code img} is {@code null}.
+	 */
+	public static ByteBuffer toRGBA(BufferedImage img) {
+		Objects.requireNonNull(img, "img");
+		ByteBuffer buffer = BufferUtils.createByteBuffer(
+				img.getWidth() * img.getHeight() * Integer.BYTES);
+		toRGBA(img, buffer);
+		return buffer;
+	}
+
+	/**
+	 * Converts the pixels of an image into a buffer, starting at its current
+	 * position. The position of the buffer is left unchanged.
+	 *
+	 * @param img
+	 *            the image to convert.
+	 * @param dst
+	 *            the buffer to write into.
+	 * @throws NullPointerException
+	 *             if {@code img} or {@code dst} are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code dst} does not have enough room for the image.
+	 */
+	public static void toRGBA(BufferedImage img, ByteBuffer dst) {
+		Objects.requireNonNull(img, "img");
+		Objects.requireNonNull(dst, "dst");
+		int width = img.getWidth(), height = img.getHeight();
+		long bytes = (long) width * height * Integer.BYTES;
+		if (dst.remaining() < bytes) {
+			throw new IllegalArgumentException("dst too small");
+		}
+
+		/*
+		 * Each band writes to its own rows through its own view of the
+		 * buffer, so bands can safely be written at the same time.
+		 */
+		ByteBuffer view = dst.duplicate();
+		view.limit(view.position() + (int) bytes);
+		IntBuffer pixels = view.slice().order(ByteOrder.nativeOrder())
+				.asIntBuffer();
+
+		if ((long) width * height < PARALLEL_MIN_PIXELS) {
+			convert(img, pixels, 0, height);
+			return;
+		}
+		int bands = Math.min(Runtime.getRuntime().availableProcessors(),
+				Math.max(1, height / MIN_BAND_ROWS));
+		IntStream.range(0, bands).parallel().forEach((band) -> {
+			int start = (int) ((long) height * band / bands);
+			int end = (int) ((long) height * (band + 1) / bands);
+			convert(img, pixels.duplicate(), start, end);
+		});
+	}
+
+	private static void convert(BufferedImage img, IntBuffer pixels,
+			int startRow, int endRow) {
+		Raster raster = img.getRaster();
+		DataBuffer data = raster.getDataBuffer();
+		SampleModel model = raster.getSampleModel();
+
+		switch (img.getType()) {
+		case BufferedImage.TYPE_INT_ARGB:
+		case BufferedImage.TYPE_INT_RGB:
+			if (data instanceof DataBufferInt
+					&& model instanceof SinglePixelPackedSampleModel) {
+				convertInt(img, (DataBufferInt) data,
+						(SinglePixelPackedSampleModel) model, pixels,
+						startRow, endRow);
+				return;
+			}
+			break;
+		case BufferedImage.TYPE_4BYTE_ABGR:
+		case BufferedImage.TYPE_3BYTE_BGR:
+			if (data instanceof DataBufferByte
+					&& model instanceof ComponentSampleModel) {
+				convertByte(img, (DataBufferByte) data,
+						(ComponentSampleModel) model, pixels, startRow,
+						endRow);
+				return;
+			}
+			break;
+		}
+		convertRGB(img, pixels, startRow, endRow);
+	}
+
+	/*
+	 * The raster of an image may be a child of a larger raster (such as when
+	 * it was made by getSubimage()), in which case the pixels of the image do
+	 * not start at the beginning of the data array.
+	 */
+	private static int baseOffset(Raster raster, DataBuffer data,
+			SampleModel model) {
+		int x = -raster.getSampleModelTranslateX();
+		int y = -raster.getSampleModelTranslateY();
+		if (model instanceof SinglePixelPackedSampleModel) {
+			return data.getOffset()
+					+ ((SinglePixelPackedSampleModel) model).getOffset(x, y);
+		}
+		/* getOffset() would include the offset of the first band */
+		ComponentSampleModel components = (ComponentSampleModel) model;
+		return data.getOffset() + y * components.getScanlineStride()
+				+ x * components.getPixelStride();
+	}
+
+	private static void convertInt(BufferedImage img, DataBufferInt data,
+			SinglePixelPackedSampleModel model, IntBuffer pixels,
+			int startRow, int endRow) {
+		int width = img.getWidth(), height = img.getHeight();
+		int[] src = data.getData();
+		int stride = model.getScanlineStride();
+		int base = baseOffset(img.getRaster(), data, model);
+		int opaque = img.getType() == BufferedImage.TYPE_INT_RGB
+				? 0xFF000000 : 0x00000000;
+
+		int[] row = new int[width];
+		for (int y = startRow; y < endRow; y++) {
+			int offset = base + y * stride;
+			for (int x = 0; x < width; x++) {
+				row[x] = packARGB(src[offset + x] | opaque);
+			}
+			pixels.position((height - 1 - y) * width);
+			pixels.put(row, 0, width);
+		}
+	}
+
+	private static void convertByte(BufferedImage img, DataBufferByte data,
+			ComponentSampleModel model, IntBuffer pixels, int startRow,
+			int endRow) {
+		int width = img.getWidth(), height = img.getHeight();
+		byte[] src = data.getData();
+		int stride = model.getScanlineStride();
+		int pixelStride = model.getPixelStride();
+		int base = baseOffset(img.getRaster(), data, model);
+
+		/*
+		 * The band offsets give where each of the red, green, blue and (when
+		 * present) alpha channels are within a pixel.
+		 */
+		int[] bands = model.getBandOffsets();
+		int rOff = bands[0], gOff = bands[1], bOff = bands[2];
+		boolean hasAlpha = bands.length > 3;
+		int aOff = hasAlpha ? bands[3] : 0;
+
+		int[] row = new int[width];
+		for (int y = startRow; y < endRow; y++) {
+			int offset = base + y * stride;
+			for (int x = 0; x < width; x++) {
+				int r = src[offset + rOff] & 0xFF;
+				int g = src[offset + gOff] & 0xFF;
+				int b = src[offset + bOff] & 0xFF;
+				int a = hasAlpha ? src[offset + aOff] & 0xFF : 0xFF;
+				row[x] = pack(r, g, b, a);
+				offset += pixelStride;
+			}
+			pixels.position((height - 1 - y) * width);
+			pixels.put(row, 0, width);
+		}
+	}
+
+	/*
+	 * Any other type of image has its pixels converted to ARGB by the image
+	 * itself, which also takes care of its color model (premultiplied alpha,
+	 * indexed colors, gray color spaces, and so on).
+	 */
+	private static void convertRGB(BufferedImage img, IntBuffer pixels,
+			int startRow, int endRow) {
+		int width = img.getWidth(), height = img.getHeight();
+		int[] row = new int[width];
+		for (int y = startRow; y < endRow; y++) {
+			img.getRGB(0, y, width, 1, row, 0, width);
+			for (int x = 0; x < width; x++) {
+				row[x] = packARGB(row[x]);
+			}
+			pixels.position((height - 1 - y) * width);
+			pixels.put(row, 0, width);
+		}
+	}
+
+}
@@ -0,0 +1,320 @@
+package org.ardenus.engine.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL33.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Objects;
+
+import org.ardenus.engine.graphics.atlas.AtlasRegion;
+import org.ardenus.engine.graphics.shader.Program;
+import org.ardenus.engine.util.BeResponsible;
+import org.ardenus.engine.util.Handles;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+
+/**
+ * Draws many copies of the same images with instancing.
+ * <p>
+ * Drawing an {@link Image} by itself sets four uniforms and issues a draw
+ * call for that one copy. An instance batch instead writes the position,
+ * size, UV coordinates and color of each copy into a per-instance attribute
+ * buffer. When the batch ends, every copy drawn with the same texture is
+ * drawn with a single call to {@code glDrawElementsInstanced()}, no matter
+ * the order they were drawn in. Since copies are grouped by texture, those
+ * drawn with different textures may not overlap the way they were drawn.
+ * When draw order matters, use a {@link SpriteBatch} instead.
+ * <p>
+ * Unlike a sprite batch, the vertices of each quad are not written at all.
+ * Every instance shares a single unit quad, which the vertex shader moves
+ * and scales, so each copy takes up {@value ImageInstances#INSTANCE_BYTES}
+ * bytes rather than four vertices.
+ * <p>
+ * Batches are meant for use with the {@code img_instanced.vert} and
+ * {@code img_instanced.frag} shaders, or shaders with the same attributes.
+ * As with {@code Image}, an orthographic and view matrix must be set
+ * beforehand.
+ *
+ * @see ImageInstances
+ */
+public class InstanceBatch implements Closeable {
+
+	private static final int IMG_CORNER_ID = 0;
+	private static final int IMG_POS_ID = 1;
+	private static final int IMG_SCALE_ID = 2;
+	private static final int IMG_UV_ID = 3;
+	private static final int IMG_COLOR_ID = 4;
+
+	/*
+	 * The corners of the unit quad, in the same order as the vertices of an
+	 * image: top left, bottom left, bottom right, then top right.
+	 */
+	private static final float[] CORNERS = new float[] {
+			0, 0, 0, 1, 1, 1, 1, 0
+	};
+	private static final int[] INDICES = new int[] {
+			0, 1, 2, 2, 3, 0
+	};
+
+	private final int h_glAttribs;
+	private final int h_glCorners;
+	private final int h_glIndices;
+	private final int h_glInstances;
+	private long instanceCapacity;
+
+	private final ImageInstances instances;
+	private boolean drawing;
+	private int drawCount;
+	private boolean closed;
+
+	/**
+	 * Constructs a new {@code InstanceBatch}.
+	 *
+	 * @throws org.ardenus.engine.util.NoHandleException
+	 *             if a buffer fails to generate.
+	 */
+	public InstanceBatch() {
+		this.h_glAttribs =
+				Handles.requireGL(glGenVertexArrays(), "h_glAttribs");
+		glBindVertexArray(h_glAttribs);
+
+		this.h_glIndices = Handles.requireGL(glGenBuffers(), "h_glIndices");
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, h_glIndices);
+		glBufferData(GL_ELEMENT_ARRAY_BUFFER, INDICES, GL_STATIC_DRAW);
+
+		this.h_glCorners = Handles.requireGL(glGenBuffers(), "h_glCorners");
+		glBindBuffer(GL_ARRAY_BUFFER, h_glCorners);
+		glBufferData(GL_ARRAY_BUFFER, CORNERS, GL_STATIC_DRAW);
+		glVertexAttribPointer(IMG_CORNER_ID, 2, GL_FLOAT, false, 0, 0L);
+		glEnableVertexAttribArray(IMG_CORNER_ID);
+
+		/*
+		 * The instance attributes are pointed at their buffer when drawn, as
+		 * each texture group starts at a different offset. Only the divisors
+		 * are set here, so they advance once per instance.
+		 */
+		this.h_glInstances =
+				Handles.requireGL(glGenBuffers(), "h_glInstances");
+		int[] instanceIds = {
+				IMG_POS_ID, IMG_SCALE_ID, IMG_UV_ID, IMG_COLOR_ID
+		};
+		for (int id : instanceIds) {
+			glEnableVertexAttribArray(id);
+			glVertexAttribDivisor(id, 1);
+		}
+
+		glBindVertexArray(GL_NONE);
+		this.instances = new ImageInstances();
+	}
+
+	private void requireOpen() {
+		if (closed == true) {
+			throw new IllegalStateException("batch closed");
+		}
+	}
+
+	private void requireDrawing() {
+		if (drawing == false) {
+			throw new IllegalStateException("batch not drawing");
+		}
+	}
+
+	/**
+	 * @return {@code true} if this batch is between a call to
+	 *         {@link #begin(Program)} and {@link #end()}, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isDrawing() {
+		return this.drawing;
+	}
+
+	/**
+	 * @return the amount of draw calls issued when this batch last ended.
+	 */
+	public int getDrawCount() {
+		return this.drawCount;
+	}
+
+	/**
+	 * @return the amount of instances drawn so far.
+	 */
+	public int getInstanceCount() {
+		return instances.getInstanceCount();
+	}
+
+	/**
+	 * Installs a program and starts a batch.
+	 *
+	 * @param program
+	 *            the program to draw images with.
+	 * @throws NullPointerException
+	 *             if {@code program} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if this batch is closed or already drawing; if
+	 *             {@code program} is not linked.
+	 */
+	public void begin(Program program) {
+		Objects.requireNonNull(program, "program");
+		this.requireOpen();
+		if (drawing == true) {
+			throw new IllegalStateException("batch already drawing");
+		}
+
+		program.use();
+		instances.clear();
+		this.drawing = true;
+		this.drawCount = 0;
+	}
+
+	/**
+	 * Adds an instance to the batch.
+	 *
+	 * @param h_glTexture
+	 *            the handle of the OpenGL texture to draw with.
+	 * @param x
+	 *            the X-axis position, in pixels.
+	 * @param y
+	 *            the Y-axis position, in pixels.
+	 * @param width
+	 *            the width to draw at, in pixels.
+	 * @param height
+	 *            the height to draw at, in pixels.
+	 * @param u0
+	 *            the left U coordinate.
+	 * @param v0
+	 *            the bottom V coordinate.
+	 * @param u1
+	 *            the right U coordinate.
+	 * @param v1
+	 *            the top V coordinate.
+	 * @param color
+	 *            the color to tint the instance with, as given by
+	 *            {@link SpriteVertices#packColor(float, float, float, float)}.
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing.
+	 */
+	@BeResponsible
+	public void draw(int h_glTexture, float x, float y, float width,
+			float height, float u0, float v0, float u1, float v1, int color) {
+		this.requireDrawing();
+		instances.put(h_glTexture, x, y, width, height, u0, v0, u1, v1,
+				color);
+	}
+
+	/**
+	 * Adds an image to the batch, at its draw size and with its color. Images
+	 * which are regions of the same {@link TextureAtlas} are drawn together.
+	 *
+	 * @param img
+	 *            the image to draw.
+	 * @param x
+	 *            the X-axis position, in pixels.
+	 * @param y
+	 *            the Y-axis position, in pixels.
+	 * @throws NullPointerException
+	 *             if {@code img} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing.
+	 * @see Image#setDrawSize(float, float)
+	 * @see Image#setColor(java.awt.Color)
+	 */
+	@BeResponsible
+	public void draw(Image img, float x, float y) {
+		Objects.requireNonNull(img, "img");
+		Vector4f color = img.getColor();
+		int packed = SpriteVertices.packColor(color.x, color.y, color.z,
+				color.w);
+
+		AtlasRegion region = img.getRegion();
+		if (region == null) {
+			this.draw(img.getTextureHandle(), x, y, img.getDrawWidth(),
+					img.getDrawHeight(), 0.0F, 0.0F, 1.0F, 1.0F, packed);
+			return;
+		}
+
+		Vector2f scale = img.getScale();
+		this.draw(img.getTextureHandle(), x + region.offsetX * scale.x,
+				y + region.offsetY * scale.y, region.width * scale.x,
+				region.height * scale.y, region.u0, region.v0, region.u1,
+				region.v1, packed);
+	}
+
+	private void pointInstances(long offset) {
+		int stride = ImageInstances.INSTANCE_BYTES;
+		glVertexAttribPointer(IMG_POS_ID, 2, GL_FLOAT, false, stride,
+				offset + ImageInstances.POS_OFFSET);
+		glVertexAttribPointer(IMG_SCALE_ID, 2, GL_FLOAT, false, stride,
+				offset + ImageInstances.SCALE_OFFSET);
+		glVertexAttribPointer(IMG_UV_ID, 4, GL_FLOAT, false, stride,
+				offset + ImageInstances.UV_OFFSET);
+		glVertexAttribPointer(IMG_COLOR_ID, 4, GL_UNSIGNED_BYTE, true, stride,
+				offset + ImageInstances.COLOR_OFFSET);
+	}
+
+	/**
+	 * Draws every instance added since the batch began, with one draw call
+	 * for each texture, and ends the batch.
+	 *
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing.
+	 */
+	@BeResponsible
+	public void end() {
+		this.requireDrawing();
+		this.drawing = false;
+		if (instances.isEmpty()) {
+			return;
+		}
+
+		glBindVertexArray(h_glAttribs);
+		glBindBuffer(GL_ARRAY_BUFFER, h_glInstances);
+
+		/*
+		 * Orphan the previous contents of the buffer, so the driver can hand
+		 * out fresh memory rather than wait for the last frame to be drawn.
+		 * The buffer only grows, so it is not reallocated every frame.
+		 */
+		long bytes = (long) instances.getInstanceCount()
+				* ImageInstances.INSTANCE_BYTES;
+		this.instanceCapacity = Math.max(instanceCapacity, bytes);
+		glBufferData(GL_ARRAY_BUFFER, instanceCapacity, GL_STREAM_DRAW);
+
+		long offset = 0L;
+		for (ImageInstances.Group group : instances.getGroups()) {
+			glBufferSubData(GL_ARRAY_BUFFER, offset, group.getData());
+			offset += (long) group.getCount() * ImageInstances.INSTANCE_BYTES;
+		}
+
+		glActiveTexture(GL_TEXTURE0);
+		offset = 0L;
+		for (ImageInstances.Group group : instances.getGroups()) {
+			this.pointInstances(offset);
+			glBindTexture(GL_TEXTURE_2D, group.getTexture());
+			glDrawElementsInstanced(GL_TRIANGLES, INDICES.length,
+					GL_UNSIGNED_INT, 0L, group.getCount());
+			offset += (long) group.getCount() * ImageInstances.INSTANCE_BYTES;
+			drawCount++;
+		}
+		glBindVertexArray(GL_NONE);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed == true) {
+			return;
+		}
+		glDeleteVertexArrays(h_glAttribs);
+		glDeleteBuffers(h_glCorners);
+		glDeleteBuffers(h_glIndices);
+		glDeleteBuffers(h_glInstances);
+		this.drawing = false;
+		this.closed = true;
+	}
+
+}
@@ -0,0 +1,482 @@
+package org.ardenus.engine.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL44.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import org.ardenus.engine.graphics.atlas.AtlasRegion;
+import org.ardenus.engine.graphics.shader.Program;
+import org.ardenus.engine.util.BeResponsible;
+import org.ardenus.engine.util.Handles;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+/**
+ * Draws many sprites with as few draw calls as possible.
+ * <p>
+ * Drawing an {@link Image} by itself sets its uniforms and issues a draw call
+ * for that image alone. A sprite batch instead writes the quad of each sprite
+ * into a single vertex buffer, and only draws once the texture or program
+ * changes, the buffer fills up, or the batch is ended. Sprites which share a
+ * texture (such as those from the same atlas) should be drawn one after the
+ * other to get the most out of this.
+ * <p>
+ * When buffer storage is supported ({@code GL_ARB_buffer_storage}, core in
+ * OpenGL 4.4), sprites are written straight into a persistently mapped
+ * buffer. This buffer is split into regions, and a fence keeps each region
+ * from being written to while the GPU may still be reading from it.
+ * Otherwise, sprites are written into a buffer on the CPU side and uploaded
+ * when drawn, orphaning the previous contents of the vertex buffer.
+ * <p>
+ * Batches are meant for use with the {@code sprite.vert} and
+ * {@code sprite.frag} shaders, or shaders with the same attributes. As with
+ * {@code Image}, an orthographic and view matrix must be set beforehand.
+ *
+ * @see SpriteVertices
+ */
+public class SpriteBatch implements Closeable {
+
+	private static final int SPRITE_VERT_ID = 0;
+	private static final int SPRITE_UV_ID = 1;
+	private static final int SPRITE_COLOR_ID = 2;
+
+	/**
+	 * The amount of sprites a batch holds by default before it must draw.
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final int REGION_COUNT = 3;
+	private static final int MAX_CAPACITY =
+			Integer.MAX_VALUE / SpriteVertices.QUAD_BYTES / REGION_COUNT;
+	private static final long FENCE_TIMEOUT_NANOS = 1000000000L;
+
+	private static boolean supportsBufferStorage() {
+		GLCapabilities caps = GL.getCapabilities();
+		return caps.OpenGL44 || caps.GL_ARB_buffer_storage;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buf, int offset, int length) {
+		ByteBuffer dup = buf.duplicate();
+		dup.clear();
+		dup.position(offset);
+		dup.limit(offset + length);
+		return dup.slice();
+	}
+
+	private final int capacity;
+	private final boolean persistent;
+
+	private final int h_glAttribs;
+	private final int h_glVerts;
+	private final int h_glIndices;
+
+	private final SpriteVertices vertices;
+	private final ByteBuffer mapped;
+	private final long[] fences;
+	private int region;
+	private int regionQuad;
+
+	private Program program;
+	private boolean drawing;
+	private int drawCount;
+	private boolean closed;
+
+	/**
+	 * Constructs a new {@code SpriteBatch}.
+	 *
+	 * @param capacity
+	 *            the amount of sprites the batch can hold before it must draw.
+	 * @throws IllegalArgumentException
+	 *             if {@code capacity} is not positive, or too large.
+	 * @throws GraphicsException
+	 *             if a buffer fails to generate or map.
+	 */
+	public SpriteBatch(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity <= 0");
+		} else if (capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity > " + MAX_CAPACITY);
+		}
+		this.capacity = capacity;
+		this.persistent = supportsBufferStorage();
+
+		this.h_glAttribs =
+				Handles.requireGL(glGenVertexArrays(), "h_glAttribs");
+		glBindVertexArray(h_glAttribs);
+
+		/*
+		 * The element array binding is part of the vertex array state, so it
+		 * only has to be bound once here, rather than for every draw.
+		 */
+		this.h_glIndices = Handles.requireGL(glGenBuffers(), "h_glIndices");
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, h_glIndices);
+		glBufferData(GL_ELEMENT_ARRAY_BUFFER,
+				SpriteVertices.genIndices(capacity), GL_STATIC_DRAW);
+
+		this.h_glVerts = Handles.requireGL(glGenBuffers(), "h_glVerts");
+		glBindBuffer(GL_ARRAY_BUFFER, h_glVerts);
+		int regionBytes = capacity * SpriteVertices.QUAD_BYTES;
+		if (persistent == true) {
+			long size = (long) regionBytes * REGION_COUNT;
+			int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT
+					| GL_MAP_COHERENT_BIT;
+			glBufferStorage(GL_ARRAY_BUFFER, size, flags);
+			this.mapped = glMapBufferRange(GL_ARRAY_BUFFER, 0L, size, flags);
+			if (mapped == null) {
+				throw new GraphicsException("failed to map vertex buffer");
+			}
+			this.fences = new long[REGION_COUNT];
+			this.vertices =
+					new SpriteVertices(slice(mapped, 0, regionBytes));
+		} else {
+			glBufferData(GL_ARRAY_BUFFER, regionBytes, GL_STREAM_DRAW);
+			this.mapped = null;
+			this.fences = null;
+			this.vertices = new SpriteVertices(
+					BufferUtils.createByteBuffer(regionBytes));
+		}
+
+		int stride = SpriteVertices.VERTEX_BYTES;
+		glVertexAttribPointer(SPRITE_VERT_ID, 2, GL_FLOAT, false, stride, 0L);
+		glEnableVertexAttribArray(SPRITE_VERT_ID);
+		glVertexAttribPointer(SPRITE_UV_ID, 2, GL_FLOAT, false, stride,
+				SpriteVertices.UV_OFFSET);
+		glEnableVertexAttribArray(SPRITE_UV_ID);
+		glVertexAttribPointer(SPRITE_COLOR_ID, 4, GL_UNSIGNED_BYTE, true,
+				stride, SpriteVertices.COLOR_OFFSET);
+		glEnableVertexAttribArray(SPRITE_COLOR_ID);
+
+		glBindVertexArray(GL_NONE);
+	}
+
+	/**
+	 * Constructs a new {@code SpriteBatch} which holds up to
+	 * {@value #DEFAULT_CAPACITY} sprites before it must draw.
+	 *
+	 * @throws GraphicsException
+	 *             if a buffer fails to generate or map.
+	 */
+	public SpriteBatch() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	private void requireOpen() {
+		if (closed == true) {
+			throw new IllegalStateException("batch closed");
+		}
+	}
+
+	private void requireDrawing() {
+		if (drawing == false) {
+			throw new IllegalStateException("batch not drawing");
+		}
+	}
+
+	/**
+	 * @return the amount of sprites this batch can hold before it must draw.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * @return {@code true} if sprites are written into a persistently mapped
+	 *         buffer, {@code false} if they are uploaded when drawn.
+	 */
+	public boolean isPersistent() {
+		return this.persistent;
+	}
+
+	/**
+	 * @return {@code true} if this batch is between a call to
+	 *         {@link #begin(Program)} and {@link #end()}, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isDrawing() {
+		return this.drawing;
+	}
+
+	/**
+	 * @return the amount of draw calls issued since this batch last began.
+	 */
+	public int getDrawCount() {
+		return this.drawCount;
+	}
+
+	/**
+	 * Installs a program and starts a batch.
+	 *
+	 * @param program
+	 *            the program to draw sprites with.
+	 * @throws NullPointerException
+	 *             if {@code program} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if this batch is closed or already drawing; if
+	 *             {@code program} is not linked.
+	 */
+	public void begin(Program program) {
+		Objects.requireNonNull(program, "program");
+		this.requireOpen();
+		if (drawing == true) {
+			throw new IllegalStateException("batch already drawing");
+		}
+
+		this.program = program.use();
+		glActiveTexture(GL_TEXTURE0);
+		glBindVertexArray(h_glAttribs);
+		this.drawing = true;
+		this.drawCount = 0;
+	}
+
+	/**
+	 * Changes the program sprites are drawn with. If {@code program} differs
+	 * from the current one, every sprite written so far is drawn first.
+	 *
+	 * @param program
+	 *            the program to draw sprites with.
+	 * @throws NullPointerException
+	 *             if {@code program} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing; if {@code program} is not
+	 *             linked.
+	 */
+	public void setProgram(Program program) {
+		Objects.requireNonNull(program, "program");
+		this.requireDrawing();
+		if (this.program != program) {
+			this.flush();
+			this.program = program.use();
+		}
+	}
+
+	/**
+	 * Adds a sprite to the batch. If it is drawn with a different texture
+	 * than the sprites written so far, or the batch is full, those sprites
+	 * are drawn first.
+	 *
+	 * @param h_glTexture
+	 *            the handle of the OpenGL texture to draw with.
+	 * @param x
+	 *            the X-axis position, in pixels.
+	 * @param y
+	 *            the Y-axis position, in pixels.
+	 * @param width
+	 *            the width to draw at, in pixels.
+	 * @param height
+	 *            the height to draw at, in pixels.
+	 * @param u0
+	 *            the left U coordinate.
+	 * @param v0
+	 *            the bottom V coordinate.
+	 * @param u1
+	 *            the right U coordinate.
+	 * @param v1
+	 *            the top V coordinate.
+	 * @param color
+	 *            the color to tint the sprite with, as given by
+	 *            {@link SpriteVertices#packColor(float, float, float, float)}.
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing.
+	 * @see SpriteVertices#put(int, float, float, float, float, float, float,
+	 *      float, float, int)
+	 */
+	@BeResponsible
+	public void draw(int h_glTexture, float x, float y, float width,
+			float height, float u0, float v0, float u1, float v1, int color) {
+		this.requireDrawing();
+		if (vertices.accepts(h_glTexture) == false) {
+			this.flush();
+		}
+		vertices.put(h_glTexture, x, y, width, height, u0, v0, u1, v1, color);
+	}
+
+	/**
+	 * Adds a sprite covering an entire texture to the batch.
+	 *
+	 * @param h_glTexture
+	 *            the handle of the OpenGL texture to draw with.
+	 * @param x
+	 *            the X-axis position, in pixels.
+	 * @param y
+	 *            the Y-axis position, in pixels.
+	 * @param width
+	 *            the width to draw at, in pixels.
+	 * @param height
+	 *            the height to draw at, in pixels.
+	 * @param color
+	 *            the color to tint the sprite with, as given by
+	 *            {@link SpriteVertices#packColor(float, float, float, float)}.
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing.
+	 */
+	@BeResponsible
+	public void draw(int h_glTexture, float x, float y, float width,
+			float height, int color) {
+		this.draw(h_glTexture, x, y, width, height, 0.0F, 0.0F, 1.0F, 1.0F,
+				color);
+	}
+
+	/**
+	 * Adds an image to the batch, at its draw size and with its color. Images
+	 * which are regions of the same {@link TextureAtlas} can be drawn
+	 * together.
+	 *
+	 * @param img
+	 *            the image to draw.
+	 * @param x
+	 *            the X-axis position, in pixels.
+	 * @param y
+	 *            the Y-axis position, in pixels.
+	 * @throws NullPointerException
+	 *             if {@code img} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing.
+	 * @see Image#setDrawSize(float, float)
+	 * @see Image#setColor(java.awt.Color)
+	 */
+	@BeResponsible
+	public void draw(Image img, float x, float y) {
+		Objects.requireNonNull(img, "img");
+		Vector4f color = img.getColor();
+		int packed = SpriteVertices.packColor(color.x, color.y, color.z,
+				color.w);
+
+		AtlasRegion region = img.getRegion();
+		if (region == null) {
+			this.draw(img.getTextureHandle(), x, y, img.getDrawWidth(),
+					img.getDrawHeight(), packed);
+			return;
+		}
+
+		Vector2f scale = img.getScale();
+		this.draw(img.getTextureHandle(), x + region.offsetX * scale.x,
+				y + region.offsetY * scale.y, region.width * scale.x,
+				region.height * scale.y, region.u0, region.v0, region.u1,
+				region.v1, packed);
+	}
+
+	/*
+	 * Waits for the GPU to finish reading from the current region, so that
+	 * it can be written to again.
+	 */
+	private void awaitRegion() {
+		long fence = fences[region];
+		if (fence == 0L) {
+			return;
+		}
+
+		int status;
+		do {
+			status = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT,
+					FENCE_TIMEOUT_NANOS);
+		} while (status == GL_TIMEOUT_EXPIRED);
+		glDeleteSync(fence);
+		fences[region] = 0L;
+
+		if (status == GL_WAIT_FAILED) {
+			throw new GraphicsException("failed to wait for vertex buffer");
+		}
+	}
+
+	private void nextRegion() {
+		fences[region] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+		this.region = (region + 1) % REGION_COUNT;
+		this.regionQuad = 0;
+		this.awaitRegion();
+	}
+
+	/**
+	 * Draws every sprite written so far. This is done automatically when
+	 * needed, and by {@link #end()}.
+	 *
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing.
+	 */
+	@BeResponsible
+	public void flush() {
+		this.requireDrawing();
+		if (vertices.isEmpty()) {
+			return;
+		}
+
+		int quads = vertices.getQuadCount();
+		int indices = quads * SpriteVertices.QUAD_INDICES;
+		glBindTexture(GL_TEXTURE_2D, vertices.getTexture());
+
+		if (persistent == true) {
+			int first = region * capacity + regionQuad;
+			glDrawElementsBaseVertex(GL_TRIANGLES, indices, GL_UNSIGNED_INT,
+					0L, first * SpriteVertices.QUAD_VERTICES);
+
+			this.regionQuad += quads;
+			if (regionQuad >= capacity) {
+				this.nextRegion();
+			}
+			int regionBytes = capacity * SpriteVertices.QUAD_BYTES;
+			int offset = region * regionBytes
+					+ regionQuad * SpriteVertices.QUAD_BYTES;
+			vertices.reset(slice(mapped, offset,
+					(capacity - regionQuad) * SpriteVertices.QUAD_BYTES));
+		} else {
+			/*
+			 * Orphan the previous contents of the buffer, so the driver can
+			 * hand out fresh memory rather than wait for pending draws.
+			 */
+			glBindBuffer(GL_ARRAY_BUFFER, h_glVerts);
+			glBufferData(GL_ARRAY_BUFFER,
+					vertices.getTarget().capacity(), GL_STREAM_DRAW);
+			glBufferSubData(GL_ARRAY_BUFFER, 0L, vertices.getData());
+			glDrawElements(GL_TRIANGLES, indices, GL_UNSIGNED_INT, 0L);
+			vertices.clear();
+		}
+		drawCount++;
+	}
+
+	/**
+	 * Draws every sprite written so far and ends the batch.
+	 *
+	 * @throws IllegalStateException
+	 *             if this batch is not drawing.
+	 */
+	public void end() {
+		this.flush();
+		glBindVertexArray(GL_NONE);
+		this.program = null;
+		this.drawing = false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed == true) {
+			return;
+		}
+
+		if (persistent == true) {
+			for (long fence : fences) {
+				if (fence != 0L) {
+					glDeleteSync(fence);
+				}
+			}
+			glBindBuffer(GL_ARRAY_BUFFER, h_glVerts);
+			glUnmapBuffer(GL_ARRAY_BUFFER);
+		}
+		glDeleteVertexArrays(h_glAttribs);
+		glDeleteBuffers(h_glVerts);
+		glDeleteBuffers(h_glIndices);
+		this.drawing = false;
+		this.closed = true;
+	}
+
+}
@@ -0,0 +1,316 @@
+package org.ardenus.engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Writes the vertices of sprite quads into a buffer, for a
+ * {@link SpriteBatch} to submit to OpenGL.
+ * <p>
+ * This class makes no OpenGL calls, so it can be used (and measured) without
+ * a graphics context. It also keeps track of the texture its quads are drawn
+ * with, as every quad in a single draw call must share one texture.
+ * <p>
+ * Each vertex is {@value #VERTEX_BYTES} bytes: its position and UV
+ * coordinates as two pairs of floats, followed by its color as four unsigned
+ * bytes in RGBA order. The four vertices of a quad are written top left,
+ * bottom left, bottom right, then top right, matching the winding used by
+ * {@link Image}.
+ */
+public class SpriteVertices {
+
+	/**
+	 * The size of one vertex in bytes.
+	 */
+	public static final int VERTEX_BYTES = 20;
+
+	/**
+	 * The amount of vertices in one quad.
+	 */
+	public static final int QUAD_VERTICES = 4;
+
+	/**
+	 * The size of one quad in bytes.
+	 */
+	public static final int QUAD_BYTES = VERTEX_BYTES * QUAD_VERTICES;
+
+	/**
+	 * The amount of indices needed to draw one quad as two triangles.
+	 */
+	public static final int QUAD_INDICES = 6;
+
+	/**
+	 * The byte offset of the UV coordinates in a vertex.
+	 */
+	public static final int UV_OFFSET = 8;
+
+	/**
+	 * The byte offset of the color in a vertex.
+	 */
+	public static final int COLOR_OFFSET = 16;
+
+	/**
+	 * A packed color of opaque white.
+	 */
+	public static final int WHITE = 0xFFFFFFFF;
+
+	private static final boolean LITTLE_ENDIAN =
+			ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+	private static int toByte(float channel) {
+		if (channel <= 0.0F) {
+			return 0x00;
+		} else if (channel >= 1.0F) {
+			return 0xFF;
+		}
+		return (int) (channel * 255.0F + 0.5F);
+	}
+
+	/**
+	 * Packs a color into a single {@code int}, which is laid out so that its
+	 * bytes are in RGBA order when written in the native byte order.
+	 *
+	 * @param r
+	 *            the red channel, from {@code 0.0F} to {@code 1.0F}.
+	 * @param g
+	 *            the green channel, from {@code 0.0F} to {@code 1.0F}.
+	 * @param b
+	 *            the blue channel, from {@code 0.0F} to {@code 1.0F}.
+	 * @param a
+	 *            the alpha channel, from {@code 0.0F} to {@code 1.0F}.
+	 * @return the packed color.
+	 */
+	public static int packColor(float r, float g, float b, float a) {
+		int ir = toByte(r), ig = toByte(g), ib = toByte(b), ia = toByte(a);
+		if (LITTLE_ENDIAN) {
+			return ir | (ig << 8) | (ib << 16) | (ia << 24);
+		}
+		return (ir << 24) | (ig << 16) | (ib << 8) | ia;
+	}
+
+	/**
+	 * Generates the indices for drawing quads written by this class. These
+	 * never change, so they only need to be uploaded once.
+	 *
+	 * @param quads
+	 *            the amount of quads.
+	 * @return the indices.
+	 * @throws IllegalArgumentException
+	 *             if {@code quads} is negative.
+	 */
+	public static int[] genIndices(int quads) {
+		if (quads < 0) {
+			throw new IllegalArgumentException("quads < 0");
+		}
+		int[] indices = new int[quads * QUAD_INDICES];
+		for (int i = 0; i < quads; i++) {
+			int index = i * QUAD_INDICES;
+			int vertex = i * QUAD_VERTICES;
+			indices[index + 0] = vertex + 0;
+			indices[index + 1] = vertex + 1;
+			indices[index + 2] = vertex + 2;
+			indices[index + 3] = vertex + 2;
+			indices[index + 4] = vertex + 3;
+			indices[index + 5] = vertex + 0;
+		}
+		return indices;
+	}
+
+	private ByteBuffer target;
+	private int capacity;
+	private int quadCount;
+	private int h_glTexture;
+
+	/**
+	 * Constructs a new {@code SpriteVertices} which writes into the given
+	 * buffer.
+	 *
+	 * @param target
+	 *            the buffer to write into.
+	 * @throws NullPointerException
+	 *             if {@code target} is {@code null}.
+	 * @see #reset(ByteBuffer)
+	 */
+	public SpriteVertices(ByteBuffer target) {
+		this.reset(target);
+	}
+
+	/**
+	 * Constructs a new {@code SpriteVertices} which writes into a direct
+	 * buffer of its own.
+	 *
+	 * @param capacity
+	 *            the amount of quads the buffer can hold.
+	 * @throws IllegalArgumentException
+	 *             if {@code capacity} is not positive.
+	 */
+	public SpriteVertices(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity <= 0");
+		}
+		this.reset(ByteBuffer.allocateDirect(capacity * QUAD_BYTES));
+	}
+
+	/**
+	 * Discards every quad written so far and starts writing at the beginning
+	 * of the given buffer. Its byte order is changed to the native byte order,
+	 * as expected by OpenGL.
+	 *
+	 * @param target
+	 *            the buffer to write into. The amount of quads it can hold is
+	 *            determined by its capacity.
+	 * @throws NullPointerException
+	 *             if {@code target} is {@code null}.
+	 */
+	public void reset(ByteBuffer target) {
+		Objects.requireNonNull(target, "target");
+		this.target = target.order(ByteOrder.nativeOrder());
+		this.capacity = target.capacity() / QUAD_BYTES;
+		this.clear();
+	}
+
+	/**
+	 * Discards every quad written so far, and starts writing at the beginning
+	 * of the current buffer again.
+	 */
+	public void clear() {
+		this.quadCount = 0;
+		this.h_glTexture = 0;
+	}
+
+	/**
+	 * @return the buffer being written into.
+	 */
+	public ByteBuffer getTarget() {
+		return this.target;
+	}
+
+	/**
+	 * @return the written vertices, from the start of the buffer to the end
+	 *         of the last quad.
+	 */
+	public ByteBuffer getData() {
+		ByteBuffer data = target.duplicate().order(target.order());
+		data.clear();
+		data.limit(quadCount * QUAD_BYTES);
+		return data;
+	}
+
+	/**
+	 * @return the amount of quads the buffer can hold.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * @return the amount of quads written.
+	 */
+	public int getQuadCount() {
+		return this.quadCount;
+	}
+
+	/**
+	 * @return {@code true} if no quads have been written, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isEmpty() {
+		return quadCount <= 0;
+	}
+
+	/**
+	 * @return {@code true} if the buffer cannot hold any more quads,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isFull() {
+		return quadCount >= capacity;
+	}
+
+	/**
+	 * @return the texture every written quad is drawn with, {@code GL_NONE}
+	 *         if no quads have been written.
+	 */
+	public int getTexture() {
+		return this.h_glTexture;
+	}
+
+	/**
+	 * Returns if a quad drawn with the given texture can be written. This is
+	 * not the case when the buffer is full, or when the quads written so far
+	 * are drawn with a different texture. Either way, the written quads must
+	 * be drawn and cleared first.
+	 *
+	 * @param h_glTexture
+	 *            the handle of the OpenGL texture.
+	 * @return {@code true} if a quad drawn with {@code h_glTexture} can be
+	 *         written, {@code false} otherwise.
+	 */
+	public boolean accepts(int h_glTexture) {
+		if (quadCount >= capacity) {
+			return false;
+		}
+		return quadCount <= 0 || this.h_glTexture == h_glTexture;
+	}
+
+	private void putVertex(int index, float x, float y, float u, float v,
+			int color) {
+		target.putFloat(index, x);
+		target.putFloat(index + 4, y);
+		target.putFloat(index + UV_OFFSET, u);
+		target.putFloat(index + UV_OFFSET + 4, v);
+		target.putInt(index + COLOR_OFFSET, color);
+	}
+
+	/**
+	 * Writes a quad.
+	 * <p>
+	 * UV coordinates are given the way OpenGL expects them, from the bottom
+	 * of the texture to the top. For a texture loaded by {@link Image}, the
+	 * whole image is {@code (0, 0)} to {@code (1, 1)}.
+	 *
+	 * @param h_glTexture
+	 *            the handle of the OpenGL texture to draw with.
+	 * @param x
+	 *            the X-axis position of the top left corner, in pixels.
+	 * @param y
+	 *            the Y-axis position of the top left corner, in pixels.
+	 * @param width
+	 *            the width of the quad, in pixels.
+	 * @param height
+	 *            the height of the quad, in pixels.
+	 * @param u0
+	 *            the left U coordinate.
+	 * @param v0
+	 *            the bottom V coordinate.
+	 * @param u1
+	 *            the right U coordinate.
+	 * @param v1
+	 *            the top V coordinate.
+	 * @param color
+	 *            the color to tint the quad with, as given by
+	 *            {@link #packColor(float, float, float, float)}.
+	 * @throws IllegalStateException
+	 *             if a quad drawn with {@code h_glTexture} cannot be written.
+	 * @see #accepts(int)
+	 */
+	public void put(int h_glTexture, float x, float y, float width,
+			float height, float u0, float v0, float u1, float v1, int color) {
+		if (quadCount >= capacity) {
+			throw new IllegalStateException("buffer full");
+		} else if (quadCount > 0 && this.h_glTexture != h_glTexture) {
+			throw new IllegalStateException("texture changed");
+		}
+
+		int index = quadCount * QUAD_BYTES;
+		float right = x + width, bottom = y + height;
+		this.putVertex(index, x, y, u0, v1, color);
+		this.putVertex(index + VERTEX_BYTES, x, bottom, u0, v0, color);
+		this.putVertex(index + VERTEX_BYTES * 2, right, bottom, u1, v0, color);
+		this.putVertex(index + VERTEX_BYTES * 3, right, y, u1, v1, color);
+
+		this.h_glTexture = h_glTexture;
+		quadCount++;
+	}
+
+}
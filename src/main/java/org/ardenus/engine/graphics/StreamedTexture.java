@@ -0,0 +1,116 @@
+package org.ardenus.engine.graphics;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A texture being loaded by a {@link TextureStreamer}.
+ * <p>
+ * The image of a streamed texture can be used (and drawn) right away. Until
+ * the texture is ready, it has no dimensions, so nothing is drawn. Once every
+ * row has been uploaded, its dimensions are set to those of the texture, and
+ * it draws like any other image.
+ */
+public class StreamedTexture {
+
+	private final File file;
+	private final Image image;
+	private volatile ImageData data;
+	private volatile boolean ready;
+	private volatile IOException failure;
+	private boolean allocated;
+	private int uploadedRows;
+
+	StreamedTexture(File file, Image image) {
+		this.file = file;
+		this.image = image;
+	}
+
+	/**
+	 * @return the file the texture is loaded from.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * @return the image which draws the texture.
+	 */
+	public Image getImage() {
+		return this.image;
+	}
+
+	/**
+	 * @return {@code true} if the texture has been fully uploaded,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isReady() {
+		return this.ready;
+	}
+
+	/**
+	 * @return {@code true} if the texture failed to load, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isFailed() {
+		return failure != null;
+	}
+
+	/**
+	 * @return {@code true} if the texture is either ready or failed to load,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isDone() {
+		return ready == true || failure != null;
+	}
+
+	/**
+	 * @return why the texture failed to load, {@code null} if it has not
+	 *         failed.
+	 */
+	public IOException getFailure() {
+		return this.failure;
+	}
+
+	ImageData getData() {
+		return this.data;
+	}
+
+	void decoded(ImageData data) {
+		this.data = data;
+	}
+
+	boolean isAllocated() {
+		return this.allocated;
+	}
+
+	void allocated() {
+		this.allocated = true;
+	}
+
+	int getUploadedRows() {
+		return this.uploadedRows;
+	}
+
+	void uploaded(int rows) {
+		this.uploadedRows += rows;
+	}
+
+	void ready() {
+		ImageData data = this.data;
+		image.loadDimensions(data.getWidth(), data.getHeight());
+		data.close();
+		this.data = null;
+		this.ready = true;
+	}
+
+	void failed(IOException failure) {
+		ImageData data = this.data;
+		if (data != null) {
+			data.close();
+			this.data = null;
+		}
+		this.failure = failure;
+	}
+
+}
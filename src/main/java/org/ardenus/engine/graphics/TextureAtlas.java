@@ -0,0 +1,127 @@
+package org.ardenus.engine.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import org.ardenus.engine.graphics.atlas.AtlasPacker;
+import org.ardenus.engine.graphics.atlas.AtlasPage;
+import org.ardenus.engine.graphics.atlas.AtlasRegion;
+import org.ardenus.engine.util.Handles;
+
+/**
+ * An {@link AtlasPage} loaded into an OpenGL texture.
+ * <p>
+ * Images and frames created from an atlas are only regions of its texture.
+ * They do not have a texture of their own, so drawing many of them with a
+ * {@link SpriteBatch} needs no texture changes. The texture is deleted once
+ * the atlas is closed, after which its images can no longer be drawn.
+ *
+ * @see AtlasPacker
+ */
+public class TextureAtlas implements Closeable {
+
+	private final AtlasPage page;
+	private final int h_glTexture;
+	private boolean closed;
+
+	/**
+	 * Constructs a new {@code TextureAtlas} and loads the page into its
+	 * texture.
+	 *
+	 * @param page
+	 *            the atlas page.
+	 * @throws NullPointerException
+	 *             if {@code page} is {@code null}.
+	 * @throws org.ardenus.engine.util.NoHandleException
+	 *             if the texture fails to generate.
+	 */
+	public TextureAtlas(AtlasPage page) {
+		this.page = Objects.requireNonNull(page, "page");
+		this.h_glTexture = Handles.requireGL(glGenTextures(), "h_glTexture");
+
+		ByteBuffer pixels = Image.genPixBuf(page.image);
+		glBindTexture(GL_TEXTURE_2D, h_glTexture);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, page.width, page.height, 0,
+				GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+		pixels.clear(); /* ensure GC */
+	}
+
+	private void requireOpen() {
+		if (closed == true) {
+			throw new IllegalStateException("atlas closed");
+		}
+	}
+
+	/**
+	 * @return the atlas page.
+	 */
+	public AtlasPage getPage() {
+		return this.page;
+	}
+
+	/**
+	 * @return the handle of the OpenGL texture.
+	 * @throws IllegalStateException
+	 *             if the atlas is closed.
+	 */
+	public int getTextureHandle() {
+		this.requireOpen();
+		return this.h_glTexture;
+	}
+
+	private AtlasRegion requireRegion(String name) {
+		AtlasRegion region = page.getRegion(name);
+		if (region == null) {
+			throw new IllegalArgumentException("no image " + name);
+		}
+		return region;
+	}
+
+	/**
+	 * @param name
+	 *            the image name.
+	 * @return an image which draws the region of {@code name}.
+	 * @throws NullPointerException
+	 *             if {@code name} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if there is no image named {@code name} in this atlas.
+	 * @throws IllegalStateException
+	 *             if the atlas is closed.
+	 */
+	public Image createImage(String name) {
+		return new Image(this, this.requireRegion(name));
+	}
+
+	/**
+	 * @param name
+	 *            the image name.
+	 * @param duration
+	 *            the frame duration.
+	 * @return a frame which draws the region of {@code name}.
+	 * @throws NullPointerException
+	 *             if {@code name} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if there is no image named {@code name} in this atlas.
+	 * @throws IllegalStateException
+	 *             if the atlas is closed.
+	 */
+	public Frame createFrame(String name, long duration) {
+		return new Frame(this, this.requireRegion(name), duration);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed == true) {
+			return;
+		}
+		glDeleteTextures(h_glTexture);
+		this.closed = true;
+	}
+
+}
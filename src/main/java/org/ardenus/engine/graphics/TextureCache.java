@@ -0,0 +1,225 @@
+package org.ardenus.engine.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.ardenus.engine.util.Handles;
+
+/**
+ * Shares the textures of image files between every image that draws them.
+ * <p>
+ * Acquiring the same asset path twice gives two images, which both draw the
+ * same texture. Each image counts as one user of the texture, until it is
+ * released back to the cache. Textures without users are kept loaded until
+ * the estimated video memory of the cache goes over budget, at which point
+ * the least recently used of them are deleted.
+ * <p>
+ * As their texture is shared, the pixels of an image acquired from a cache
+ * cannot be changed. The bookkeeping itself is done by a
+ * {@link TextureRegistry}.
+ */
+public class TextureCache implements Closeable {
+
+	/**
+	 * The default video memory budget in bytes.
+	 */
+	public static final long DEFAULT_BUDGET = 256L * 1024 * 1024;
+
+	private static class Texture {
+
+		private final int h_glTexture;
+		private final int width;
+		private final int height;
+
+		private Texture(int h_glTexture, int width, int height) {
+			this.h_glTexture = h_glTexture;
+			this.width = width;
+			this.height = height;
+		}
+
+	}
+
+	private class GLLoader implements TextureRegistry.Loader<Texture> {
+
+		@Override
+		public Texture load(String path) throws IOException {
+			try (ImageData data = ImageData.decode(new File(root, path))) {
+				int h_glTexture =
+						Handles.requireGL(glGenTextures(), "h_glTexture");
+				glBindTexture(GL_TEXTURE_2D, h_glTexture);
+				glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, data.getWidth(),
+						data.getHeight(), 0, GL_RGBA, GL_UNSIGNED_BYTE,
+						data.getPixels());
+				return new Texture(h_glTexture, data.getWidth(),
+						data.getHeight());
+			}
+		}
+
+		@Override
+		public long sizeOf(Texture texture) {
+			return TextureRegistry.estimateBytes(texture.width,
+					texture.height, 4, false);
+		}
+
+		@Override
+		public void unload(Texture texture) {
+			glDeleteTextures(texture.h_glTexture);
+		}
+
+	}
+
+	private final File root;
+	private final TextureRegistry<Texture> registry;
+	private final Map<Image, String> users;
+	private boolean closed;
+
+	/**
+	 * Constructs a new {@code TextureCache}.
+	 *
+	 * @param root
+	 *            the directory asset paths are relative to.
+	 * @param budgetBytes
+	 *            the most video memory loaded textures should take up in
+	 *            bytes.
+	 * @throws NullPointerException
+	 *             if {@code root} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code budgetBytes} is negative.
+	 */
+	public TextureCache(File root, long budgetBytes) {
+		this.root = Objects.requireNonNull(root, "root");
+		this.registry = new TextureRegistry<>(new GLLoader(), budgetBytes);
+		this.users = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Constructs a new {@code TextureCache} with a video memory budget of
+	 * {@value #DEFAULT_BUDGET} bytes.
+	 *
+	 * @param root
+	 *            the directory asset paths are relative to.
+	 * @throws NullPointerException
+	 *             if {@code root} is {@code null}.
+	 */
+	public TextureCache(File root) {
+		this(root, DEFAULT_BUDGET);
+	}
+
+	private void requireOpen() {
+		if (closed == true) {
+			throw new IllegalStateException("cache closed");
+		}
+	}
+
+	/*
+	 * Different spellings of the same path (such as "./a.png" and "a.png")
+	 * must not load the same file twice.
+	 */
+	private String toKey(String path) {
+		return new File(path).toPath().normalize().toString()
+				.replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Acquires an image which draws the texture at an asset path, loading
+	 * the texture if it is not already loaded. The image must later be given
+	 * back with {@link #release(Image)}, rather than closed.
+	 *
+	 * @param path
+	 *            the asset path of the image file, relative to the root
+	 *            directory of this cache.
+	 * @return the image.
+	 * @throws NullPointerException
+	 *             if {@code path} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if the cache is closed.
+	 * @throws IOException
+	 *             if the texture fails to load.
+	 */
+	public Image acquire(String path) throws IOException {
+		Objects.requireNonNull(path, "path");
+		this.requireOpen();
+
+		String key = this.toKey(path);
+		Texture texture = registry.acquire(key);
+		try {
+			Image img = new Image(texture.h_glTexture);
+			img.loadDimensions(texture.width, texture.height);
+			img.markShared();
+			users.put(img, key);
+			return img;
+		} catch (RuntimeException e) {
+			registry.release(key);
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes an image acquired from this cache, and releases its texture.
+	 *
+	 * @param img
+	 *            the image to release.
+	 * @throws NullPointerException
+	 *             if {@code img} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if the cache is closed.
+	 * @throws IllegalArgumentException
+	 *             if {@code img} was not acquired from this cache, or has
+	 *             already been released.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void release(Image img) throws IOException {
+		Objects.requireNonNull(img, "img");
+		this.requireOpen();
+
+		String key = users.remove(img);
+		if (key == null) {
+			throw new IllegalArgumentException("image not from this cache");
+		}
+		img.close();
+		registry.release(key);
+	}
+
+	/**
+	 * @param path
+	 *            the asset path of the image file.
+	 * @return {@code true} if the texture at {@code path} is loaded,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isLoaded(String path) {
+		return registry.isLoaded(this.toKey(path));
+	}
+
+	/**
+	 * @return a snapshot of the state of this cache.
+	 */
+	public TextureRegistry.Stats getStats() {
+		return registry.getStats();
+	}
+
+	/**
+	 * Closes every image which was not yet released, and deletes every
+	 * texture.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed == true) {
+			return;
+		}
+		for (Image img : new ArrayList<>(users.keySet())) {
+			img.close();
+		}
+		users.clear();
+		registry.clear();
+		this.closed = true;
+	}
+
+}
@@ -0,0 +1,381 @@
+package org.ardenus.engine.graphics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps track of loaded textures by their asset path.
+ * <p>
+ * Each path is only ever loaded once, no matter how many users acquire it.
+ * The registry counts the users of each texture, and how much memory it is
+ * estimated to take up. A texture is not unloaded as soon as its last user
+ * releases it, as it may well be acquired again soon after (such as when a
+ * level is restarted). Instead, textures without users are kept until their
+ * memory goes over budget, at which point the least recently used of them
+ * are unloaded first. Textures which are in use are never unloaded, even if
+ * this means going over budget.
+ * <p>
+ * The registry only does the bookkeeping. Loading and unloading is left to a
+ * {@link Loader}, so the registry itself does not need a graphics context.
+ *
+ * @param <T>
+ *            the texture type.
+ * @see TextureCache
+ */
+public class TextureRegistry<T> {
+
+	/**
+	 * Loads and unloads the textures of a registry.
+	 *
+	 * @param <T>
+	 *            the texture type.
+	 */
+	public interface Loader<T> {
+
+		/**
+		 * Loads a texture.
+		 *
+		 * @param path
+		 *            the asset path of the texture.
+		 * @return the loaded texture.
+		 * @throws IOException
+		 *             if an I/O error occurs.
+		 */
+		T load(String path) throws IOException;
+
+		/**
+		 * @param texture
+		 *            the loaded texture.
+		 * @return the estimated memory used by {@code texture} in bytes.
+		 * @see TextureRegistry#estimateBytes(int, int, int, boolean)
+		 */
+		long sizeOf(T texture);
+
+		/**
+		 * Unloads a texture. This is called once the texture has been
+		 * evicted from the registry, or the registry is cleared.
+		 *
+		 * @param texture
+		 *            the texture to unload.
+		 */
+		void unload(T texture);
+
+	}
+
+	/**
+	 * A snapshot of the state of a texture registry.
+	 */
+	public static class Stats {
+
+		/**
+		 * The amount of loaded textures.
+		 */
+		public final int textureCount;
+
+		/**
+		 * The amount of loaded textures with at least one user.
+		 */
+		public final int referencedCount;
+
+		/**
+		 * The estimated memory used by loaded textures in bytes.
+		 */
+		public final long loadedBytes;
+
+		/**
+		 * The memory budget in bytes.
+		 */
+		public final long budgetBytes;
+
+		/**
+		 * The amount of times a texture was acquired while already loaded.
+		 */
+		public final long hits;
+
+		/**
+		 * The amount of times a texture was loaded.
+		 */
+		public final long misses;
+
+		/**
+		 * The amount of textures unloaded for going over budget.
+		 */
+		public final long evictions;
+
+		private Stats(int textureCount, int referencedCount,
+				long loadedBytes, long budgetBytes, long hits, long misses,
+				long evictions) {
+			this.textureCount = textureCount;
+			this.referencedCount = referencedCount;
+			this.loadedBytes = loadedBytes;
+			this.budgetBytes = budgetBytes;
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+		}
+
+		@Override
+		public String toString() {
+			return referencedCount + "/" + textureCount + " textures in use, "
+					+ (loadedBytes / 1024) + "/" + (budgetBytes / 1024)
+					+ "KB, " + hits + " hits, " + misses + " misses, "
+					+ evictions + " evictions";
+		}
+
+	}
+
+	private static class Entry<T> {
+
+		private final String path;
+		private final T texture;
+		private final long bytes;
+		private int refCount;
+		private long lastUsed;
+
+		private Entry(String path, T texture, long bytes) {
+			this.path = path;
+			this.texture = texture;
+			this.bytes = bytes;
+		}
+
+	}
+
+	/**
+	 * Estimates how much memory a texture takes up. Drivers may pad or align
+	 * textures, so the actual amount can be slightly larger.
+	 *
+	 * @param width
+	 *            the texture width in pixels.
+	 * @param height
+	 *            the texture height in pixels.
+	 * @param bytesPerPixel
+	 *            the size of each pixel in bytes, such as {@code 4} for
+	 *            {@code GL_RGBA8}.
+	 * @param mipmapped
+	 *            {@code true} if the texture has a full chain of mipmaps,
+	 *            {@code false} otherwise.
+	 * @return the estimated size of the texture in bytes.
+	 * @throws IllegalArgumentException
+	 *             if {@code width}, {@code height} or {@code bytesPerPixel}
+	 *             are negative.
+	 */
+	public static long estimateBytes(int width, int height,
+			int bytesPerPixel, boolean mipmapped) {
+		if (width < 0) {
+			throw new IllegalArgumentException("width < 0");
+		} else if (height < 0) {
+			throw new IllegalArgumentException("height < 0");
+		} else if (bytesPerPixel < 0) {
+			throw new IllegalArgumentException("bytesPerPixel < 0");
+		}
+		long bytes = (long) width * height * bytesPerPixel;
+		if (mipmapped == false) {
+			return bytes;
+		}
+
+		/* each mipmap is a quarter of the last, adding up to a third */
+		long total = bytes;
+		while (width > 1 || height > 1) {
+			width = Math.max(1, width / 2);
+			height = Math.max(1, height / 2);
+			total += (long) width * height * bytesPerPixel;
+		}
+		return total;
+	}
+
+	private final Loader<T> loader;
+	private final long budgetBytes;
+	private final Map<String, Entry<T>> entries;
+	private long loadedBytes;
+	private long useCount;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructs a new {@code TextureRegistry}.
+	 *
+	 * @param loader
+	 *            the loader of textures.
+	 * @param budgetBytes
+	 *            the most memory loaded textures should take up in bytes.
+	 * @throws NullPointerException
+	 *             if {@code loader} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code budgetBytes} is negative.
+	 */
+	public TextureRegistry(Loader<T> loader, long budgetBytes) {
+		this.loader = Objects.requireNonNull(loader, "loader");
+		if (budgetBytes < 0) {
+			throw new IllegalArgumentException("budgetBytes < 0");
+		}
+		this.budgetBytes = budgetBytes;
+		this.entries = new HashMap<>();
+	}
+
+	/**
+	 * Acquires the texture at a path, loading it if it is not already loaded.
+	 * Each call to this method must later be followed by a call to
+	 * {@link #release(String)}.
+	 *
+	 * @param path
+	 *            the asset path of the texture.
+	 * @return the texture.
+	 * @throws NullPointerException
+	 *             if {@code path} is {@code null}.
+	 * @throws IOException
+	 *             if the texture fails to load.
+	 */
+	public synchronized T acquire(String path) throws IOException {
+		Objects.requireNonNull(path, "path");
+		Entry<T> entry = entries.get(path);
+		if (entry != null) {
+			entry.refCount++;
+			entry.lastUsed = ++useCount;
+			hits++;
+			return entry.texture;
+		}
+
+		T texture = loader.load(path);
+		entry = new Entry<>(path, texture, loader.sizeOf(texture));
+		entry.refCount = 1;
+		entry.lastUsed = ++useCount;
+		entries.put(path, entry);
+		loadedBytes += entry.bytes;
+		misses++;
+
+		this.trim(); /* the new texture may have gone over budget */
+		return texture;
+	}
+
+	/**
+	 * Releases a texture previously acquired. Once a texture has no users, it
+	 * may be unloaded whenever the registry goes over budget.
+	 *
+	 * @param path
+	 *            the asset path of the texture.
+	 * @throws NullPointerException
+	 *             if {@code path} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if the texture at {@code path} is not acquired.
+	 */
+	public synchronized void release(String path) {
+		Objects.requireNonNull(path, "path");
+		Entry<T> entry = entries.get(path);
+		if (entry == null || entry.refCount <= 0) {
+			throw new IllegalStateException(path + " not acquired");
+		}
+		entry.refCount--;
+		entry.lastUsed = ++useCount;
+		if (entry.refCount <= 0) {
+			this.trim();
+		}
+	}
+
+	/**
+	 * Unloads the least recently used textures without users, until the
+	 * memory of loaded textures is within budget. This is done automatically
+	 * whenever a texture is loaded or released.
+	 *
+	 * @return the amount of textures unloaded.
+	 */
+	public synchronized int trim() {
+		if (loadedBytes <= budgetBytes) {
+			return 0;
+		}
+
+		List<Entry<T>> unused = new ArrayList<>();
+		for (Entry<T> entry : entries.values()) {
+			if (entry.refCount <= 0) {
+				unused.add(entry);
+			}
+		}
+		unused.sort(Comparator.comparingLong((e) -> e.lastUsed));
+
+		int evicted = 0;
+		for (Entry<T> entry : unused) {
+			if (loadedBytes <= budgetBytes) {
+				break;
+			}
+			entries.remove(entry.path);
+			loadedBytes -= entry.bytes;
+			loader.unload(entry.texture);
+			evictions++;
+			evicted++;
+		}
+		return evicted;
+	}
+
+	/**
+	 * @param path
+	 *            the asset path of the texture.
+	 * @return {@code true} if the texture at {@code path} is loaded,
+	 *         {@code false} otherwise.
+	 */
+	public synchronized boolean isLoaded(String path) {
+		return entries.containsKey(path);
+	}
+
+	/**
+	 * @param path
+	 *            the asset path of the texture.
+	 * @return the amount of users of the texture at {@code path}, {@code 0}
+	 *         if it is not loaded.
+	 */
+	public synchronized int getRefCount(String path) {
+		Entry<T> entry = entries.get(path);
+		return entry != null ? entry.refCount : 0;
+	}
+
+	/**
+	 * @return the estimated memory used by loaded textures in bytes.
+	 */
+	public synchronized long getLoadedBytes() {
+		return this.loadedBytes;
+	}
+
+	/**
+	 * @return the memory budget in bytes.
+	 */
+	public long getBudgetBytes() {
+		return this.budgetBytes;
+	}
+
+	/**
+	 * @return a snapshot of the state of this registry.
+	 */
+	public synchronized Stats getStats() {
+		int referencedCount = 0;
+		for (Entry<T> entry : entries.values()) {
+			if (entry.refCount > 0) {
+				referencedCount++;
+			}
+		}
+		return new Stats(entries.size(), referencedCount, loadedBytes,
+				budgetBytes, hits, misses, evictions);
+	}
+
+	/**
+	 * Unloads every texture, including those which are still in use.
+	 *
+	 * @return the amount of textures which were still in use.
+	 */
+	public synchronized int clear() {
+		int referencedCount = 0;
+		for (Entry<T> entry : entries.values()) {
+			if (entry.refCount > 0) {
+				referencedCount++;
+			}
+			loader.unload(entry.texture);
+		}
+		entries.clear();
+		this.loadedBytes = 0L;
+		return referencedCount;
+	}
+
+}
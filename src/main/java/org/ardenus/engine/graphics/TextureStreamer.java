@@ -0,0 +1,321 @@
+package org.ardenus.engine.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+import org.ardenus.engine.util.Handles;
+
+/**
+ * Loads textures without stalling the frame.
+ * <p>
+ * Uploading a texture with {@code glTexImage2D()} blocks the calling thread
+ * until the driver has copied every pixel. When a level loads dozens of large
+ * textures at once, this shows up as dropped frames. A texture streamer
+ * instead decodes images on worker threads, and uploads their pixels a few
+ * rows at a time through a ring of pixel buffer objects. The copy from a
+ * pixel buffer into the texture happens on the GPU, so the GL thread only
+ * ever copies pixels into mapped memory.
+ * <p>
+ * How much is uploaded each frame is limited by a byte budget. Textures are
+ * uploaded in the order they finish decoding, one after the other. Each
+ * pixel buffer is guarded by a fence, so it is never written to while the
+ * GPU may still be reading from it. If none are free, the rest of the frame's
+ * budget is skipped rather than waited on.
+ * <p>
+ * All methods of this class must be called on the thread with the OpenGL
+ * context, aside from the decoding itself, which runs on the executor.
+ *
+ * @see #update()
+ */
+public class TextureStreamer implements Closeable {
+
+	/**
+	 * The default amount of bytes uploaded each frame.
+	 */
+	public static final long DEFAULT_FRAME_BUDGET = 8L * 1024 * 1024;
+
+	/**
+	 * The default size of each pixel buffer in bytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	private static final int RING_SIZE = 3;
+	private static final int BYTES_PER_PIXEL = 4;
+
+	private final ExecutorService executor;
+	private final long frameBudget;
+	private final int bufferSize;
+	private final int[] h_glBuffers;
+	private final long[] fences;
+	private int nextBuffer;
+
+	private final Queue<StreamedTexture> decoded;
+	private final Queue<StreamedTexture> uploads;
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a new {@code TextureStreamer}.
+	 *
+	 * @param executor
+	 *            the executor to decode images on.
+	 * @param frameBudget
+	 *            the most bytes to upload each frame.
+	 * @param bufferSize
+	 *            the size of each pixel buffer in bytes. A texture row must
+	 *            fit in a single buffer.
+	 * @throws NullPointerException
+	 *             if {@code executor} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code frameBudget} or {@code bufferSize} are not
+	 *             positive.
+	 * @throws org.ardenus.engine.util.NoHandleException
+	 *             if a pixel buffer fails to generate.
+	 */
+	public TextureStreamer(ExecutorService executor, long frameBudget,
+			int bufferSize) {
+		this.executor = Objects.requireNonNull(executor, "executor");
+		if (frameBudget <= 0) {
+			throw new IllegalArgumentException("frameBudget <= 0");
+		} else if (bufferSize <= 0) {
+			throw new IllegalArgumentException("bufferSize <= 0");
+		}
+		this.frameBudget = frameBudget;
+		this.bufferSize = bufferSize;
+
+		this.h_glBuffers = new int[RING_SIZE];
+		this.fences = new long[RING_SIZE];
+		for (int i = 0; i < RING_SIZE; i++) {
+			h_glBuffers[i] = Handles.requireGL(glGenBuffers(), "h_glBuffer");
+			glBindBuffer(GL_PIXEL_UNPACK_BUFFER, h_glBuffers[i]);
+			glBufferData(GL_PIXEL_UNPACK_BUFFER, bufferSize, GL_STREAM_DRAW);
+		}
+		glBindBuffer(GL_PIXEL_UNPACK_BUFFER, GL_NONE);
+
+		this.decoded = new ConcurrentLinkedQueue<>();
+		this.uploads = new ArrayDeque<>();
+	}
+
+	/**
+	 * Constructs a new {@code TextureStreamer} which uploads up to
+	 * {@value #DEFAULT_FRAME_BUDGET} bytes each frame.
+	 *
+	 * @param executor
+	 *            the executor to decode images on.
+	 * @throws NullPointerException
+	 *             if {@code executor} is {@code null}.
+	 * @throws org.ardenus.engine.util.NoHandleException
+	 *             if a pixel buffer fails to generate.
+	 */
+	public TextureStreamer(ExecutorService executor) {
+		this(executor, DEFAULT_FRAME_BUDGET, DEFAULT_BUFFER_SIZE);
+	}
+
+	private void requireOpen() {
+		if (closed == true) {
+			throw new IllegalStateException("streamer closed");
+		}
+	}
+
+	/**
+	 * Starts loading a texture from an image file. The image is decoded on
+	 * the executor, and uploaded over the following calls to
+	 * {@link #update()}.
+	 *
+	 * @param file
+	 *            the image file.
+	 * @return the streamed texture, whose image can be used right away.
+	 * @throws NullPointerException
+	 *             if {@code file} is {@code null}.
+	 * @throws IllegalStateException
+	 *             if the streamer is closed.
+	 * @see ImageData#decode(File)
+	 */
+	public StreamedTexture load(File file) {
+		Objects.requireNonNull(file, "file");
+		this.requireOpen();
+
+		StreamedTexture texture = new StreamedTexture(file, new Image());
+		executor.execute(() -> {
+			try {
+				texture.decoded(ImageData.decode(file));
+			} catch (IOException e) {
+				texture.failed(e);
+				return;
+			} catch (RuntimeException e) {
+				texture.failed(new IOException("failed to decode " + file, e));
+				return;
+			}
+
+			/*
+			 * The streamer may have been closed while this was decoding.
+			 * If so, close() may have already drained the queue, so the
+			 * data is freed here instead.
+			 */
+			decoded.add(texture);
+			if (closed == true && decoded.remove(texture)) {
+				texture.failed(new IOException("streamer closed"));
+			}
+		});
+		return texture;
+	}
+
+	/**
+	 * @return {@code true} if textures are still being decoded or uploaded,
+	 *         {@code false} otherwise.
+	 */
+	public boolean isBusy() {
+		return !decoded.isEmpty() || !uploads.isEmpty();
+	}
+
+	/*
+	 * Returns if the next pixel buffer in the ring can be written to. A
+	 * timeout of zero only checks the fence, it never waits.
+	 */
+	private boolean isBufferFree() {
+		long fence = fences[nextBuffer];
+		if (fence == 0L) {
+			return true;
+		}
+
+		int status = glClientWaitSync(fence, 0, 0L);
+		if (status == GL_TIMEOUT_EXPIRED) {
+			return false;
+		}
+		glDeleteSync(fence);
+		fences[nextBuffer] = 0L;
+		return true;
+	}
+
+	private int uploadRows(StreamedTexture texture, long budget) {
+		ImageData data = texture.getData();
+		int width = data.getWidth(), height = data.getHeight();
+		int rowBytes = width * BYTES_PER_PIXEL;
+		int h_glTexture = texture.getImage().getTextureHandle();
+
+		glBindTexture(GL_TEXTURE_2D, h_glTexture);
+		if (texture.isAllocated() == false) {
+			/*
+			 * The pixel buffer of the last upload may still be bound, in
+			 * which case the null pointer below would be an offset into it.
+			 */
+			glBindBuffer(GL_PIXEL_UNPACK_BUFFER, GL_NONE);
+			glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, width, height, 0,
+					GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+			texture.allocated();
+		}
+
+		int firstRow = texture.getUploadedRows();
+		long maxRows = Math.min(bufferSize, budget) / rowBytes;
+		int rows = (int) Math.min(height - firstRow, Math.max(1L, maxRows));
+		int bytes = rows * rowBytes;
+
+		int h_glBuffer = h_glBuffers[nextBuffer];
+		glBindBuffer(GL_PIXEL_UNPACK_BUFFER, h_glBuffer);
+		ByteBuffer mapped = glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0L,
+				bytes, GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT
+						| GL_MAP_UNSYNCHRONIZED_BIT);
+		if (mapped == null) {
+			throw new GraphicsException("failed to map pixel buffer");
+		}
+
+		ByteBuffer pixels = data.getPixels().duplicate();
+		pixels.position(firstRow * rowBytes);
+		pixels.limit(firstRow * rowBytes + bytes);
+		mapped.put(pixels);
+		glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+
+		/* with a pixel buffer bound, the last argument is an offset */
+		glTexSubImage2D(GL_TEXTURE_2D, 0, 0, firstRow, width, rows, GL_RGBA,
+				GL_UNSIGNED_BYTE, 0L);
+		fences[nextBuffer] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+		this.nextBuffer = (nextBuffer + 1) % RING_SIZE;
+
+		texture.uploaded(rows);
+		return bytes;
+	}
+
+	/**
+	 * Uploads as many pixels as the frame budget allows. This should be
+	 * called once every frame, on the thread with the OpenGL context.
+	 *
+	 * @return the amount of textures which became ready.
+	 * @throws IllegalStateException
+	 *             if the streamer is closed.
+	 */
+	public int update() {
+		this.requireOpen();
+
+		StreamedTexture next;
+		while ((next = decoded.poll()) != null) {
+			int rowBytes = next.getData().getWidth() * BYTES_PER_PIXEL;
+			if (rowBytes > bufferSize) {
+				next.failed(new IOException("texture row larger than buffer"));
+				continue;
+			}
+			uploads.add(next);
+		}
+
+		int readyCount = 0;
+		long budget = frameBudget;
+		while (budget > 0 && !uploads.isEmpty() && this.isBufferFree()) {
+			StreamedTexture texture = uploads.peek();
+			if (texture.getImage().isClosed() == true) {
+				uploads.remove(); /* its texture was deleted */
+				texture.failed(new IOException("image closed"));
+				continue;
+			}
+			budget -= this.uploadRows(texture, budget);
+
+			ImageData data = texture.getData();
+			if (texture.getUploadedRows() >= data.getHeight()) {
+				uploads.remove();
+				texture.ready();
+				readyCount++;
+			}
+		}
+		glBindBuffer(GL_PIXEL_UNPACK_BUFFER, GL_NONE);
+		return readyCount;
+	}
+
+	/**
+	 * Stops streaming textures. Textures which are not ready yet will fail to
+	 * load, but their images remain usable (and must still be closed).
+	 */
+	@Override
+	public void close() {
+		if (closed == true) {
+			return;
+		}
+		this.closed = true;
+
+		IOException failure = new IOException("streamer closed");
+		StreamedTexture texture;
+		while ((texture = decoded.poll()) != null) {
+			texture.failed(failure);
+		}
+		while ((texture = uploads.poll()) != null) {
+			texture.failed(failure);
+		}
+
+		for (int i = 0; i < RING_SIZE; i++) {
+			if (fences[i] != 0L) {
+				glDeleteSync(fences[i]);
+			}
+			glDeleteBuffers(h_glBuffers[i]);
+		}
+	}
+
+}
@@ -0,0 +1,301 @@
+package org.ardenus.engine.graphics.atlas;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Packs many images into as few atlas pages as possible.
+ * <p>
+ * Drawing many small images, each with its own texture, means binding a new
+ * texture for each of them. Once packed into an atlas, the images all share
+ * one texture, and each is drawn from its own {@link AtlasRegion} of it. This
+ * lets a {@link org.ardenus.engine.graphics.SpriteBatch SpriteBatch} draw them
+ * all at once.
+ * <p>
+ * Images are placed using the MaxRects algorithm, largest first. Images which
+ * do not fit in a page are placed in another. Optionally, the fully
+ * transparent border of each image can be trimmed before packing, as it would
+ * only take up space. This class only works with {@link BufferedImage}, and
+ * does not need a graphics context.
+ */
+public class AtlasPacker {
+
+	/**
+	 * The default width and height of a page. Textures of this size are
+	 * supported by every OpenGL version the engine can run on.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	private static class Entry {
+
+		private final String name;
+		private final BufferedImage img;
+		private final Rectangle bounds;
+
+		private Entry(String name, BufferedImage img, Rectangle bounds) {
+			this.name = name;
+			this.img = img;
+			this.bounds = bounds;
+		}
+
+	}
+
+	private static class Bin {
+
+		private final MaxRectsBin rects;
+		private final List<Entry> entries;
+		private final List<Rectangle> placed;
+
+		private Bin(int width, int height) {
+			this.rects = new MaxRectsBin(width, height);
+			this.entries = new ArrayList<>();
+			this.placed = new ArrayList<>();
+		}
+
+	}
+
+	/**
+	 * Finds the smallest area of an image containing every pixel which is
+	 * not fully transparent. An image with no such pixels is trimmed down to
+	 * its top left pixel, so it still has a region.
+	 *
+	 * @param img
+	 *            the image to trim.
+	 * @return the trimmed bounds of {@code img}.
+	 * @throws NullPointerException
+	 *             if {@code img} is {@code null}.
+	 */
+	public static Rectangle findOpaqueBounds(BufferedImage img) {
+		Objects.requireNonNull(img, "img");
+		int width = img.getWidth(), height = img.getHeight();
+		int[] row = new int[width];
+
+		int left = width, right = -1, top = -1, bottom = -1;
+		for (int y = 0; y < height; y++) {
+			img.getRGB(0, y, width, 1, row, 0, width);
+			for (int x = 0; x < width; x++) {
+				if ((row[x] >>> 24) != 0) {
+					left = Math.min(left, x);
+					right = Math.max(right, x);
+					if (top < 0) {
+						top = y;
+					}
+					bottom = y;
+				}
+			}
+		}
+
+		if (right < 0) {
+			return new Rectangle(0, 0, 1, 1);
+		}
+		return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+	}
+
+	private final int maxWidth;
+	private final int maxHeight;
+	private final Map<String, BufferedImage> images;
+	private int padding;
+	private boolean trimming;
+
+	/**
+	 * Constructs a new {@code AtlasPacker}.
+	 *
+	 * @param maxWidth
+	 *            the most width a page can have, in pixels.
+	 * @param maxHeight
+	 *            the most height a page can have, in pixels.
+	 * @throws IllegalArgumentException
+	 *             if {@code maxWidth} or {@code maxHeight} are not positive.
+	 */
+	public AtlasPacker(int maxWidth, int maxHeight) {
+		if (maxWidth <= 0) {
+			throw new IllegalArgumentException("maxWidth <= 0");
+		} else if (maxHeight <= 0) {
+			throw new IllegalArgumentException("maxHeight <= 0");
+		}
+		this.maxWidth = maxWidth;
+		this.maxHeight = maxHeight;
+		this.images = new LinkedHashMap<>();
+		this.padding = 1;
+	}
+
+	/**
+	 * Constructs a new {@code AtlasPacker} with pages of up to
+	 * {@value #DEFAULT_MAX_SIZE} by {@value #DEFAULT_MAX_SIZE} pixels.
+	 */
+	public AtlasPacker() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Sets the amount of empty pixels between packed images. By default,
+	 * this is {@code 1}, so that the pixels of neighboring images do not
+	 * bleed into each other when filtered.
+	 *
+	 * @param padding
+	 *            the padding, in pixels.
+	 * @return this packer.
+	 * @throws IllegalArgumentException
+	 *             if {@code padding} is negative.
+	 */
+	public AtlasPacker setPadding(int padding) {
+		if (padding < 0) {
+			throw new IllegalArgumentException("padding < 0");
+		}
+		this.padding = padding;
+		return this;
+	}
+
+	/**
+	 * Sets if the fully transparent border of each image should be trimmed
+	 * before it is packed. This is disabled by default.
+	 *
+	 * @param trimming
+	 *            {@code true} if images should be trimmed, {@code false}
+	 *            otherwise.
+	 * @return this packer.
+	 * @see AtlasRegion#offsetX
+	 * @see AtlasRegion#offsetY
+	 */
+	public AtlasPacker setTrimming(boolean trimming) {
+		this.trimming = trimming;
+		return this;
+	}
+
+	/**
+	 * Adds an image to be packed.
+	 *
+	 * @param name
+	 *            the name to find the region of the image by.
+	 * @param img
+	 *            the image.
+	 * @return this packer.
+	 * @throws NullPointerException
+	 *             if {@code name} or {@code img} are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if an image named {@code name} was already added.
+	 */
+	public AtlasPacker add(String name, BufferedImage img) {
+		Objects.requireNonNull(name, "name");
+		Objects.requireNonNull(img, "img");
+		if (images.containsKey(name)) {
+			throw new IllegalArgumentException("duplicate image " + name);
+		}
+		images.put(name, img);
+		return this;
+	}
+
+	/**
+	 * @return the amount of images added to this packer.
+	 */
+	public int size() {
+		return images.size();
+	}
+
+	private List<Entry> prepare() {
+		List<Entry> entries = new ArrayList<>();
+		for (Map.Entry<String, BufferedImage> image : images.entrySet()) {
+			BufferedImage img = image.getValue();
+			Rectangle bounds = trimming ? findOpaqueBounds(img)
+					: new Rectangle(0, 0, img.getWidth(), img.getHeight());
+			if (bounds.width > maxWidth || bounds.height > maxHeight) {
+				throw new IllegalArgumentException(
+						"image " + image.getKey() + " too large for page");
+			}
+			entries.add(new Entry(image.getKey(), img, bounds));
+		}
+
+		/*
+		 * MaxRects packs tighter when the largest images are placed first,
+		 * leaving the smaller ones to fill in the gaps.
+		 */
+		entries.sort((a, b) -> {
+			int sideA = Math.max(a.bounds.width, a.bounds.height);
+			int sideB = Math.max(b.bounds.width, b.bounds.height);
+			if (sideA != sideB) {
+				return Integer.compare(sideB, sideA);
+			}
+			return Integer.compare(b.bounds.width * b.bounds.height,
+					a.bounds.width * a.bounds.height);
+		});
+		return entries;
+	}
+
+	private AtlasPage render(Bin bin) {
+		int width = Math.max(1, bin.rects.getUsedWidth() - padding);
+		int height = Math.max(1, bin.rects.getUsedHeight() - padding);
+		BufferedImage page =
+				new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		Map<String, AtlasRegion> regions = new LinkedHashMap<>();
+		for (int i = 0; i < bin.entries.size(); i++) {
+			Entry entry = bin.entries.get(i);
+			Rectangle placed = bin.placed.get(i);
+			Rectangle bounds = entry.bounds;
+
+			int[] pixels = entry.img.getRGB(bounds.x, bounds.y, bounds.width,
+					bounds.height, null, 0, bounds.width);
+			page.setRGB(placed.x, placed.y, bounds.width, bounds.height,
+					pixels, 0, bounds.width);
+
+			regions.put(entry.name, new AtlasRegion(entry.name, placed.x,
+					placed.y, bounds.width, bounds.height, bounds.x, bounds.y,
+					entry.img.getWidth(), entry.img.getHeight(), width,
+					height));
+		}
+		return new AtlasPage(page, regions);
+	}
+
+	/**
+	 * Packs every added image into atlas pages. Each page is only as large as
+	 * needed to fit the images placed in it.
+	 *
+	 * @return the packed pages, in the order they were filled.
+	 * @throws IllegalArgumentException
+	 *             if an image is larger than a page can be.
+	 */
+	public List<AtlasPage> pack() {
+		/*
+		 * Padding is added to the right and bottom of each image. The bins are
+		 * padded by the same amount, so images can still reach the right and
+		 * bottom edges of a page.
+		 */
+		int binWidth = maxWidth + padding;
+		int binHeight = maxHeight + padding;
+
+		List<Bin> bins = new ArrayList<>();
+		for (Entry entry : this.prepare()) {
+			int w = entry.bounds.width + padding;
+			int h = entry.bounds.height + padding;
+
+			Rectangle placed = null;
+			Bin target = null;
+			for (Bin bin : bins) {
+				placed = bin.rects.insert(w, h);
+				if (placed != null) {
+					target = bin;
+					break;
+				}
+			}
+			if (placed == null) {
+				target = new Bin(binWidth, binHeight);
+				placed = target.rects.insert(w, h);
+				bins.add(target);
+			}
+			target.entries.add(entry);
+			target.placed.add(placed);
+		}
+
+		List<AtlasPage> pages = new ArrayList<>();
+		for (Bin bin : bins) {
+			pages.add(this.render(bin));
+		}
+		return pages;
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.ardenus.engine.graphics.atlas;
+
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A single image holding many packed images, as created by an
+ * {@link AtlasPacker}.
+ */
+public class AtlasPage {
+
+	/**
+	 * The page width, in pixels.
+	 */
+	public final int width;
+
+	/**
+	 * The page height, in pixels.
+	 */
+	public final int height;
+
+	/**
+	 * The packed image, fit to be loaded into a texture.
+	 */
+	public final BufferedImage image;
+
+	private final Map<String, AtlasRegion> regions;
+
+	AtlasPage(BufferedImage image, Map<String, AtlasRegion> regions) {
+		this.width = image.getWidth();
+		this.height = image.getHeight();
+		this.image = image;
+		this.regions = Collections.unmodifiableMap(regions);
+	}
+
+	/**
+	 * @return the regions of every image in this page.
+	 */
+	public Collection<AtlasRegion> getRegions() {
+		return regions.values();
+	}
+
+	/**
+	 * @param name
+	 *            the image name.
+	 * @return the region of the image, {@code null} if it is not in this page.
+	 * @throws NullPointerException
+	 *             if {@code name} is {@code null}.
+	 */
+	public AtlasRegion getRegion(String name) {
+		Objects.requireNonNull(name, "name");
+		return regions.get(name);
+	}
+
+}
@@ -0,0 +1,122 @@
+package org.ardenus.engine.graphics.atlas;
+
+import java.util.Objects;
+
+/**
+ * The area of an {@link AtlasPage} taken up by a single image.
+ * <p>
+ * When the transparent border of an image was trimmed before packing, only
+ * what remains is stored in the atlas. The offset of the region is where the
+ * trimmed image sits within the original, so that it can be drawn at the
+ * same position as the original would have been.
+ */
+public class AtlasRegion {
+
+	/**
+	 * The name the image was added to the packer with.
+	 */
+	public final String name;
+
+	/**
+	 * The X-axis position of the region in the page, in pixels from the left.
+	 */
+	public final int x;
+
+	/**
+	 * The Y-axis position of the region in the page, in pixels from the top.
+	 */
+	public final int y;
+
+	/**
+	 * The width of the region, in pixels.
+	 */
+	public final int width;
+
+	/**
+	 * The height of the region, in pixels.
+	 */
+	public final int height;
+
+	/**
+	 * The X-axis offset of the region in the original image, in pixels.
+	 */
+	public final int offsetX;
+
+	/**
+	 * The Y-axis offset of the region in the original image, in pixels.
+	 */
+	public final int offsetY;
+
+	/**
+	 * The width of the original image, in pixels.
+	 */
+	public final int originalWidth;
+
+	/**
+	 * The height of the original image, in pixels.
+	 */
+	public final int originalHeight;
+
+	/**
+	 * The UV coordinates of the region, the way OpenGL expects them for a
+	 * page loaded upside down (as done by
+	 * {@link org.ardenus.engine.graphics.Image Image}). {@code u0} and
+	 * {@code v0} are the bottom left corner, {@code u1} and {@code v1} are
+	 * the top right corner.
+	 */
+	public final float u0, v0, u1, v1;
+
+	/**
+	 * @param name
+	 *            the image name.
+	 * @param x
+	 *            the X-axis position in the page.
+	 * @param y
+	 *            the Y-axis position in the page.
+	 * @param width
+	 *            the region width.
+	 * @param height
+	 *            the region height.
+	 * @param offsetX
+	 *            the X-axis offset in the original image.
+	 * @param offsetY
+	 *            the Y-axis offset in the original image.
+	 * @param originalWidth
+	 *            the width of the original image.
+	 * @param originalHeight
+	 *            the height of the original image.
+	 * @param pageWidth
+	 *            the width of the page.
+	 * @param pageHeight
+	 *            the height of the page.
+	 * @throws NullPointerException
+	 *             if {@code name} is {@code null}.
+	 */
+	public AtlasRegion(String name, int x, int y, int width, int height,
+			int offsetX, int offsetY, int originalWidth, int originalHeight,
+			int pageWidth, int pageHeight) {
+		this.name = Objects.requireNonNull(name, "name");
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+		this.originalWidth = originalWidth;
+		this.originalHeight = originalHeight;
+
+		this.u0 = x / (float) pageWidth;
+		this.u1 = (x + width) / (float) pageWidth;
+		this.v0 = 1.0F - (y + height) / (float) pageHeight;
+		this.v1 = 1.0F - y / (float) pageHeight;
+	}
+
+	/**
+	 * @return {@code true} if the transparent border of the image was
+	 *         trimmed, {@code false} otherwise.
+	 */
+	public boolean isTrimmed() {
+		return width != originalWidth || height != originalHeight;
+	}
+
+}
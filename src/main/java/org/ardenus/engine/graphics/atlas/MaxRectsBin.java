@@ -0,0 +1,133 @@
+package org.ardenus.engine.graphics.atlas;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bin which rectangles are packed into using the MaxRects algorithm.
+ * <p>
+ * The bin keeps a list of the largest free rectangles left in it, which may
+ * overlap each other. A new rectangle is placed in the free rectangle whose
+ * shorter leftover side is the smallest (best short side fit). Every free
+ * rectangle it overlaps is then split into the free space around it.
+ */
+class MaxRectsBin {
+
+	private final int width;
+	private final int height;
+	private final List<Rectangle> free;
+	private int usedWidth;
+	private int usedHeight;
+
+	MaxRectsBin(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.free = new ArrayList<>();
+		free.add(new Rectangle(0, 0, width, height));
+	}
+
+	/**
+	 * @return the right edge of the rightmost placed rectangle.
+	 */
+	int getUsedWidth() {
+		return this.usedWidth;
+	}
+
+	/**
+	 * @return the bottom edge of the bottommost placed rectangle.
+	 */
+	int getUsedHeight() {
+		return this.usedHeight;
+	}
+
+	/**
+	 * @param w
+	 *            the rectangle width.
+	 * @param h
+	 *            the rectangle height.
+	 * @return where the rectangle was placed, {@code null} if it does not fit.
+	 */
+	Rectangle insert(int w, int h) {
+		Rectangle best = null;
+		int bestShort = Integer.MAX_VALUE, bestLong = Integer.MAX_VALUE;
+		for (Rectangle rect : free) {
+			if (rect.width < w || rect.height < h) {
+				continue;
+			}
+			int leftoverX = rect.width - w, leftoverY = rect.height - h;
+			int shortSide = Math.min(leftoverX, leftoverY);
+			int longSide = Math.max(leftoverX, leftoverY);
+			if (shortSide < bestShort
+					|| (shortSide == bestShort && longSide < bestLong)) {
+				best = rect;
+				bestShort = shortSide;
+				bestLong = longSide;
+			}
+		}
+
+		if (best == null) {
+			return null;
+		}
+		Rectangle placed = new Rectangle(best.x, best.y, w, h);
+		this.split(placed);
+		this.prune();
+
+		this.usedWidth = Math.max(usedWidth, placed.x + placed.width);
+		this.usedHeight = Math.max(usedHeight, placed.y + placed.height);
+		return placed;
+	}
+
+	private void split(Rectangle placed) {
+		List<Rectangle> split = new ArrayList<>();
+		for (int i = free.size() - 1; i >= 0; i--) {
+			Rectangle rect = free.get(i);
+			if (!rect.intersects(placed)) {
+				continue;
+			}
+			free.remove(i);
+
+			int rectRight = rect.x + rect.width;
+			int rectBottom = rect.y + rect.height;
+			int placedRight = placed.x + placed.width;
+			int placedBottom = placed.y + placed.height;
+			if (placed.x > rect.x) {
+				split.add(new Rectangle(rect.x, rect.y, placed.x - rect.x,
+						rect.height));
+			}
+			if (placedRight < rectRight) {
+				split.add(new Rectangle(placedRight, rect.y,
+						rectRight - placedRight, rect.height));
+			}
+			if (placed.y > rect.y) {
+				split.add(new Rectangle(rect.x, rect.y, rect.width,
+						placed.y - rect.y));
+			}
+			if (placedBottom < rectBottom) {
+				split.add(new Rectangle(rect.x, placedBottom, rect.width,
+						rectBottom - placedBottom));
+			}
+		}
+		free.addAll(split);
+	}
+
+	/*
+	 * A free rectangle which lies entirely within another is of no use, as
+	 * anything which fits in it also fits in the larger one.
+	 */
+	private void prune() {
+		for (int i = 0; i < free.size(); i++) {
+			Rectangle a = free.get(i);
+			for (int j = i + 1; j < free.size(); j++) {
+				Rectangle b = free.get(j);
+				if (a.contains(b)) {
+					free.remove(j--);
+				} else if (b.contains(a)) {
+					free.remove(i--);
+					break;
+				}
+			}
+		}
+	}
+
+}
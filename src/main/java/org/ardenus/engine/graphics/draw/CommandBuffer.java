@@ -0,0 +1,98 @@
+package org.ardenus.engine.graphics.draw;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The draw commands recorded by a single thread.
+ * <p>
+ * A command buffer is not thread safe. When recording in parallel, each
+ * thread is given a buffer of its own by its {@link DrawList}, so no locking
+ * is needed while recording. Each command is a sort key, the command itself,
+ * and an {@code int} of data, all kept in arrays which are reused from one
+ * frame to the next.
+ */
+public class CommandBuffer {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	long[] keys;
+	DrawCommand[] commands;
+	int[] data;
+	int size;
+
+	/**
+	 * Constructs a new, empty {@code CommandBuffer}.
+	 */
+	public CommandBuffer() {
+		this.keys = new long[INITIAL_CAPACITY];
+		this.commands = new DrawCommand[INITIAL_CAPACITY];
+		this.data = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Records a draw command.
+	 *
+	 * @param key
+	 *            the sort key of the command.
+	 * @param command
+	 *            the command.
+	 * @param data
+	 *            the data to execute the command with.
+	 * @throws NullPointerException
+	 *             if {@code command} is {@code null}.
+	 * @see SortKey#of(int, int, int, int)
+	 */
+	public void add(long key, DrawCommand command, int data) {
+		Objects.requireNonNull(command, "command");
+		if (size >= keys.length) {
+			int capacity = keys.length * 2;
+			this.keys = Arrays.copyOf(keys, capacity);
+			this.commands = Arrays.copyOf(commands, capacity);
+			this.data = Arrays.copyOf(this.data, capacity);
+		}
+		keys[size] = key;
+		commands[size] = command;
+		this.data[size] = data;
+		size++;
+	}
+
+	/**
+	 * Records a draw command with no data.
+	 *
+	 * @param key
+	 *            the sort key of the command.
+	 * @param command
+	 *            the command.
+	 * @throws NullPointerException
+	 *             if {@code command} is {@code null}.
+	 */
+	public void add(long key, DrawCommand command) {
+		this.add(key, command, 0);
+	}
+
+	/**
+	 * @return the amount of commands recorded.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return {@code true} if no commands have been recorded, {@code false}
+	 *         otherwise.
+	 */
+	public boolean isEmpty() {
+		return size <= 0;
+	}
+
+	/**
+	 * Removes every command recorded, keeping the arrays for the next frame.
+	 */
+	public void clear() {
+		/* the commands must not be kept reachable after they are gone */
+		Arrays.fill(commands, 0, size, null);
+		this.size = 0;
+	}
+
+}
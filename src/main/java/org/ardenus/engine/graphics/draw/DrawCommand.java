@@ -0,0 +1,28 @@
+package org.ardenus.engine.graphics.draw;
+
+/**
+ * A command recorded into a {@link CommandBuffer}, to be executed once the
+ * draw list it belongs to is sorted.
+ * <p>
+ * Commands are executed on the thread with the OpenGL context, in the order
+ * of their sort keys. A command can be recorded many times, such as by an
+ * entity which implements this interface itself, so recording a frame does
+ * not need to create any objects.
+ */
+@FunctionalInterface
+public interface DrawCommand {
+
+	/**
+	 * Executes the command.
+	 *
+	 * @param key
+	 *            the sort key the command was recorded with.
+	 * @param data
+	 *            the data the command was recorded with, such as the index
+	 *            of a sprite to draw.
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	void execute(long key, int data) throws Exception;
+
+}
@@ -0,0 +1,296 @@
+package org.ardenus.engine.graphics.draw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * The draw commands of a frame, sorted by their keys before they are
+ * executed.
+ * <p>
+ * Drawing things in whatever order they happen to be stored in changes the
+ * program and texture far more often than needed. A draw list instead has
+ * each thing record its draw commands, along with a {@link SortKey}. The
+ * commands of every {@link CommandBuffer} are then merged and sorted by key,
+ * and only then executed. Sorting is done with a {@link RadixSort}, so it
+ * takes linear time.
+ * <p>
+ * Recording can be split across many threads, each with a buffer of its
+ * own. Large lists of things are split into bands, which are recorded in
+ * parallel. Since the buffers of each band are merged in order, and the sort
+ * is stable, commands with equal keys are executed in the order they were
+ * recorded, no matter how many threads recorded them. Recording, merging and
+ * sorting make no OpenGL calls, only executing the commands does.
+ */
+public class DrawList {
+
+	/**
+	 * Records the draw commands of a single thing.
+	 *
+	 * @param <T>
+	 *            the type of thing.
+	 */
+	@FunctionalInterface
+	public interface Recorder<T> {
+
+		/**
+		 * Records the draw commands of a thing. When recording in parallel,
+		 * this is called from many threads at once, and so must not make any
+		 * OpenGL calls.
+		 *
+		 * @param source
+		 *            the thing to record the commands of.
+		 * @param buffer
+		 *            the buffer to record into.
+		 * @throws Exception
+		 *             if an error occurs.
+		 */
+		void record(T source, CommandBuffer buffer) throws Exception;
+
+	}
+
+	/**
+	 * The fewest things given to each thread when recording in parallel.
+	 * Recording fewer than this in parallel would take longer than doing it
+	 * on a single thread.
+	 */
+	private static final int MIN_BAND_SOURCES = 256;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final List<CommandBuffer> buffers;
+	private int bufferCount;
+
+	private long[] keys;
+	private long[] keysTemp;
+	private int[] order;
+	private int[] orderTemp;
+	private DrawCommand[] commands;
+	private int[] data;
+	private int size;
+	private boolean sorted;
+
+	/**
+	 * Constructs a new, empty {@code DrawList}.
+	 */
+	public DrawList() {
+		this.buffers = new ArrayList<>();
+		this.keys = new long[INITIAL_CAPACITY];
+		this.keysTemp = new long[INITIAL_CAPACITY];
+		this.order = new int[INITIAL_CAPACITY];
+		this.orderTemp = new int[INITIAL_CAPACITY];
+		this.commands = new DrawCommand[INITIAL_CAPACITY];
+		this.data = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Gives out a buffer to record into. The buffer belongs to this list
+	 * until it is cleared, and must only be recorded into by one thread at a
+	 * time.
+	 *
+	 * @return an empty command buffer.
+	 */
+	public CommandBuffer nextBuffer() {
+		if (bufferCount >= buffers.size()) {
+			buffers.add(new CommandBuffer());
+		}
+		CommandBuffer buffer = buffers.get(bufferCount++);
+		buffer.clear();
+		this.sorted = false;
+		return buffer;
+	}
+
+	/**
+	 * Records the draw commands of many things.
+	 *
+	 * @param <T>
+	 *            the type of thing.
+	 * @param sources
+	 *            the things to record the commands of.
+	 * @param recorder
+	 *            the recorder of each thing.
+	 * @param parallel
+	 *            {@code true} if the things may be recorded in parallel,
+	 *            {@code false} if they must be recorded on this thread.
+	 * @throws NullPointerException
+	 *             if {@code sources} or {@code recorder} are {@code null}.
+	 * @throws Exception
+	 *             if an error occurs while recording. If more than one
+	 *             thread fails, the rest are added as suppressed.
+	 */
+	public <T> void record(List<T> sources, Recorder<? super T> recorder,
+			boolean parallel) throws Exception {
+		Objects.requireNonNull(sources, "sources");
+		Objects.requireNonNull(recorder, "recorder");
+
+		int count = sources.size();
+		int bands = 1;
+		if (parallel == true) {
+			bands = Math.min(Runtime.getRuntime().availableProcessors(),
+					Math.max(1, count / MIN_BAND_SOURCES));
+		}
+		if (bands <= 1) {
+			CommandBuffer buffer = this.nextBuffer();
+			for (T source : sources) {
+				recorder.record(source, buffer);
+			}
+			return;
+		}
+
+		/*
+		 * Buffers are handed out before recording starts, so that they are
+		 * merged in the order of their bands rather than the order the
+		 * threads happened to finish in.
+		 */
+		CommandBuffer[] bandBuffers = new CommandBuffer[bands];
+		for (int i = 0; i < bands; i++) {
+			bandBuffers[i] = this.nextBuffer();
+		}
+
+		int bandCount = bands;
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		IntStream.range(0, bands).parallel().forEach((band) -> {
+			int start = (int) ((long) count * band / bandCount);
+			int end = (int) ((long) count * (band + 1) / bandCount);
+			CommandBuffer buffer = bandBuffers[band];
+			try {
+				for (int i = start; i < end; i++) {
+					recorder.record(sources.get(i), buffer);
+				}
+			} catch (Exception e) {
+				if (failure.compareAndSet(null, e) == false) {
+					synchronized (failure) {
+						failure.get().addSuppressed(e);
+					}
+				}
+			}
+		});
+
+		Exception e = failure.get();
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	/**
+	 * Records the draw commands of many things, in parallel if there are
+	 * enough of them.
+	 *
+	 * @param <T>
+	 *            the type of thing.
+	 * @param sources
+	 *            the things to record the commands of.
+	 * @param recorder
+	 *            the recorder of each thing.
+	 * @throws NullPointerException
+	 *             if {@code sources} or {@code recorder} are {@code null}.
+	 * @throws Exception
+	 *             if an error occurs while recording.
+	 */
+	public <T> void record(List<T> sources, Recorder<? super T> recorder)
+			throws Exception {
+		this.record(sources, recorder, true);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= keys.length) {
+			return;
+		}
+		int grown = Math.max(capacity, keys.length * 2);
+		this.keys = new long[grown];
+		this.keysTemp = new long[grown];
+		this.order = new int[grown];
+		this.orderTemp = new int[grown];
+		this.commands = new DrawCommand[grown];
+		this.data = new int[grown];
+	}
+
+	/**
+	 * Merges the commands of every buffer, and sorts them by their keys. This
+	 * is done automatically by {@link #submit()}.
+	 */
+	public void sort() {
+		int total = 0;
+		for (int i = 0; i < bufferCount; i++) {
+			total += buffers.get(i).size;
+		}
+
+		/* commands are only ever added, so the size shows any changes */
+		if (sorted == true && total == size) {
+			return;
+		}
+		Arrays.fill(commands, 0, size, null);
+		this.ensureCapacity(total);
+
+		int offset = 0;
+		for (int i = 0; i < bufferCount; i++) {
+			CommandBuffer buffer = buffers.get(i);
+			System.arraycopy(buffer.keys, 0, keys, offset, buffer.size);
+			System.arraycopy(buffer.commands, 0, commands, offset,
+					buffer.size);
+			System.arraycopy(buffer.data, 0, data, offset, buffer.size);
+			offset += buffer.size;
+		}
+		for (int i = 0; i < total; i++) {
+			order[i] = i;
+		}
+		this.size = total;
+
+		RadixSort.sort(keys, order, size, keysTemp, orderTemp);
+		this.sorted = true;
+	}
+
+	/**
+	 * @return the amount of commands, as of the last time this list was
+	 *         sorted.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param index
+	 *            the index of the command, in sorted order.
+	 * @return the sort key of the command.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of bounds.
+	 */
+	public long getKey(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index);
+		}
+		return keys[index];
+	}
+
+	/**
+	 * Sorts the commands if they are not already, and executes them in
+	 * order. This must be called on the thread with the OpenGL context.
+	 *
+	 * @throws Exception
+	 *             if an error occurs while executing a command.
+	 */
+	public void submit() throws Exception {
+		this.sort();
+		for (int i = 0; i < size; i++) {
+			int index = order[i];
+			commands[index].execute(keys[i], data[index]);
+		}
+	}
+
+	/**
+	 * Removes every command, keeping the buffers for the next frame.
+	 */
+	public void clear() {
+		for (int i = 0; i < bufferCount; i++) {
+			buffers.get(i).clear();
+		}
+		Arrays.fill(commands, 0, size, null);
+		this.bufferCount = 0;
+		this.size = 0;
+		this.sorted = false;
+	}
+
+}
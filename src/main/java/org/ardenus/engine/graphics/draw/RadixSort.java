@@ -0,0 +1,107 @@
+package org.ardenus.engine.graphics.draw;
+
+import java.util.Objects;
+
+/**
+ * Sorts 64-bit keys, along with an {@code int} for each, as unsigned
+ * numbers.
+ * <p>
+ * This is a least significant digit radix sort, one byte at a time. It takes
+ * linear time, and is stable, so keys which are equal keep the order they
+ * were recorded in. Sort keys tend to share most of their bytes (such as
+ * when every command is on the same layer), and a pass over a byte that is
+ * the same for every key is skipped entirely.
+ */
+public final class RadixSort {
+
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+	private static final int PASSES = Long.SIZE / RADIX_BITS;
+
+	private RadixSort() {
+		/* static class */
+	}
+
+	/**
+	 * Sorts keys and their values by the keys, as unsigned numbers.
+	 *
+	 * @param keys
+	 *            the keys to sort.
+	 * @param values
+	 *            the value of each key, moved along with it.
+	 * @param length
+	 *            the amount of keys to sort, starting from the first.
+	 * @param keysTemp
+	 *            scratch space for the keys, at least {@code length} long.
+	 * @param valuesTemp
+	 *            scratch space for the values, at least {@code length} long.
+	 * @throws NullPointerException
+	 *             if any array is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code length} is negative, or longer than any array.
+	 */
+	public static void sort(long[] keys, int[] values, int length,
+			long[] keysTemp, int[] valuesTemp) {
+		Objects.requireNonNull(keys, "keys");
+		Objects.requireNonNull(values, "values");
+		Objects.requireNonNull(keysTemp, "keysTemp");
+		Objects.requireNonNull(valuesTemp, "valuesTemp");
+		if (length < 0) {
+			throw new IllegalArgumentException("length < 0");
+		} else if (length > keys.length || length > values.length
+				|| length > keysTemp.length || length > valuesTemp.length) {
+			throw new IllegalArgumentException("length too long");
+		}
+
+		/*
+		 * The counts of every pass are found in a single read over the keys,
+		 * rather than once per pass.
+		 */
+		int[][] counts = new int[PASSES][RADIX];
+		for (int i = 0; i < length; i++) {
+			long key = keys[i];
+			for (int pass = 0; pass < PASSES; pass++) {
+				int digit = (int) (key >>> (pass * RADIX_BITS)) & (RADIX - 1);
+				counts[pass][digit]++;
+			}
+		}
+
+		long[] srcKeys = keys, dstKeys = keysTemp;
+		int[] srcValues = values, dstValues = valuesTemp;
+		for (int pass = 0; pass < PASSES; pass++) {
+			int[] count = counts[pass];
+			if (length <= 0 || count[(int) (srcKeys[0]
+					>>> (pass * RADIX_BITS)) & (RADIX - 1)] == length) {
+				continue; /* every key has the same digit */
+			}
+
+			int offset = 0;
+			for (int digit = 0; digit < RADIX; digit++) {
+				int digitCount = count[digit];
+				count[digit] = offset;
+				offset += digitCount;
+			}
+
+			int shift = pass * RADIX_BITS;
+			for (int i = 0; i < length; i++) {
+				long key = srcKeys[i];
+				int index = count[(int) (key >>> shift) & (RADIX - 1)]++;
+				dstKeys[index] = key;
+				dstValues[index] = srcValues[i];
+			}
+
+			long[] swapKeys = srcKeys;
+			srcKeys = dstKeys;
+			dstKeys = swapKeys;
+			int[] swapValues = srcValues;
+			srcValues = dstValues;
+			dstValues = swapValues;
+		}
+
+		if (srcKeys != keys) {
+			System.arraycopy(srcKeys, 0, keys, 0, length);
+			System.arraycopy(srcValues, 0, values, 0, length);
+		}
+	}
+
+}
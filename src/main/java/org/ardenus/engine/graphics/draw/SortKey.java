@@ -0,0 +1,160 @@
+package org.ardenus.engine.graphics.draw;
+
+/**
+ * Packs the state a draw command needs into a single 64-bit sort key.
+ * <p>
+ * From the most significant bits to the least, a key holds:
+ * <ul>
+ * <li>The layer, in {@value #LAYER_BITS} bits.</li>
+ * <li>The program ID, in {@value #PROGRAM_BITS} bits.</li>
+ * <li>The texture ID, in {@value #TEXTURE_BITS} bits.</li>
+ * <li>The depth, in {@value #DEPTH_BITS} bits.</li>
+ * </ul>
+ * Sorting keys as unsigned numbers draws each layer in order, and within a
+ * layer, groups the commands which share a program and then a texture. This
+ * way, the program and texture only change when they must. The depth comes
+ * last, so commands with the same state are drawn back to front.
+ * <p>
+ * Program and texture IDs are not OpenGL handles, which can be larger than
+ * the bits set aside for them. They are small numbers chosen by the game,
+ * such as the index of the program or texture in a list.
+ */
+public final class SortKey {
+
+	/**
+	 * The amount of bits which hold the layer.
+	 */
+	public static final int LAYER_BITS = 8;
+
+	/**
+	 * The amount of bits which hold the program ID.
+	 */
+	public static final int PROGRAM_BITS = 12;
+
+	/**
+	 * The amount of bits which hold the texture ID.
+	 */
+	public static final int TEXTURE_BITS = 20;
+
+	/**
+	 * The amount of bits which hold the depth.
+	 */
+	public static final int DEPTH_BITS = 24;
+
+	private static final int DEPTH_SHIFT = 0;
+	private static final int TEXTURE_SHIFT = DEPTH_SHIFT + DEPTH_BITS;
+	private static final int PROGRAM_SHIFT = TEXTURE_SHIFT + TEXTURE_BITS;
+	private static final int LAYER_SHIFT = PROGRAM_SHIFT + PROGRAM_BITS;
+
+	/**
+	 * The largest layer a key can hold.
+	 */
+	public static final int MAX_LAYER = (1 << LAYER_BITS) - 1;
+
+	/**
+	 * The largest program ID a key can hold.
+	 */
+	public static final int MAX_PROGRAM = (1 << PROGRAM_BITS) - 1;
+
+	/**
+	 * The largest texture ID a key can hold.
+	 */
+	public static final int MAX_TEXTURE = (1 << TEXTURE_BITS) - 1;
+
+	/**
+	 * The largest depth a key can hold.
+	 */
+	public static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+
+	private SortKey() {
+		/* static class */
+	}
+
+	private static long field(String name, int value, int max, int shift) {
+		if (value < 0 || value > max) {
+			throw new IllegalArgumentException(
+					name + " must be from 0 to " + max);
+		}
+		return (long) value << shift;
+	}
+
+	/**
+	 * Packs a sort key.
+	 *
+	 * @param layer
+	 *            the layer, from {@code 0} to {@value #MAX_LAYER}. Lower
+	 *            layers are drawn first.
+	 * @param program
+	 *            the program ID, from {@code 0} to {@value #MAX_PROGRAM}.
+	 * @param texture
+	 *            the texture ID, from {@code 0} to {@value #MAX_TEXTURE}.
+	 * @param depth
+	 *            the depth, from {@code 0} to {@value #MAX_DEPTH}. Lower
+	 *            depths are drawn first.
+	 * @return the sort key.
+	 * @throws IllegalArgumentException
+	 *             if any argument is out of range.
+	 * @see #quantizeDepth(float)
+	 */
+	public static long of(int layer, int program, int texture, int depth) {
+		return field("layer", layer, MAX_LAYER, LAYER_SHIFT)
+				| field("program", program, MAX_PROGRAM, PROGRAM_SHIFT)
+				| field("texture", texture, MAX_TEXTURE, TEXTURE_SHIFT)
+				| field("depth", depth, MAX_DEPTH, DEPTH_SHIFT);
+	}
+
+	/**
+	 * Converts a depth from {@code 0.0F} to {@code 1.0F} into one that fits
+	 * in a sort key. Depths outside of this range are clamped.
+	 *
+	 * @param depth
+	 *            the depth, from {@code 0.0F} (drawn first) to {@code 1.0F}
+	 *            (drawn last).
+	 * @return the quantized depth.
+	 */
+	public static int quantizeDepth(float depth) {
+		if (!(depth > 0.0F)) {
+			return 0; /* also catches NaN */
+		} else if (depth >= 1.0F) {
+			return MAX_DEPTH;
+		}
+		return (int) (depth * MAX_DEPTH);
+	}
+
+	/**
+	 * @param key
+	 *            the sort key.
+	 * @return the layer of {@code key}.
+	 */
+	public static int getLayer(long key) {
+		return (int) (key >>> LAYER_SHIFT) & MAX_LAYER;
+	}
+
+	/**
+	 * @param key
+	 *            the sort key.
+	 * @return the program ID of {@code key}.
+	 */
+	public static int getProgram(long key) {
+		return (int) (key >>> PROGRAM_SHIFT) & MAX_PROGRAM;
+	}
+
+	/**
+	 * @param key
+	 *            the sort key.
+	 * @return the texture ID of {@code key}.
+	 */
+	public static int getTexture(long key) {
+		return (int) (key >>> TEXTURE_SHIFT) & MAX_TEXTURE;
+	}
+
+	/**
+	 * @param key
+	 *            the sort key.
+	 * @return the depth of {@code key}.
+	 */
+	public static int getDepth(long key) {
+		return (int) (key >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+
+}
@@ -0,0 +1,100 @@
+package org.ardenus.engine.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Objects;
+
+/**
+ * A read-only {@link SeekableByteChannel} over the contents of a buffer.
+ * <p>
+ * This allows data which is already in memory, such as a region of a
+ * memory-mapped pack file, to be read by anything which takes a channel. The
+ * buffer is never copied. Only the bytes between its position and limit at
+ * construction are visible through the channel, and the buffer itself is not
+ * modified.
+ */
+public class ByteBufferChannel implements SeekableByteChannel {
+
+	private final ByteBuffer data;
+	private boolean open;
+
+	/**
+	 * @param data
+	 *            the buffer to read from.
+	 * @throws NullPointerException
+	 *             if {@code data} is {@code null}.
+	 */
+	public ByteBufferChannel(ByteBuffer data) {
+		Objects.requireNonNull(data, "data");
+		this.data = data.slice();
+		this.open = true;
+	}
+
+	private void requireOpen() throws ClosedChannelException {
+		if (open == false) {
+			throw new ClosedChannelException();
+		}
+	}
+
+	@Override
+	public synchronized int read(ByteBuffer dst) throws IOException {
+		this.requireOpen();
+		if (!data.hasRemaining()) {
+			return -1;
+		}
+
+		int len = Math.min(dst.remaining(), data.remaining());
+		ByteBuffer src = data.duplicate();
+		src.limit(src.position() + len);
+		dst.put(src);
+		data.position(data.position() + len);
+		return len;
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public synchronized long position() throws IOException {
+		this.requireOpen();
+		return data.position();
+	}
+
+	@Override
+	public synchronized SeekableByteChannel position(long newPosition)
+			throws IOException {
+		this.requireOpen();
+		if (newPosition < 0) {
+			throw new IllegalArgumentException("newPosition < 0");
+		}
+		data.position((int) Math.min(newPosition, data.limit()));
+		return this;
+	}
+
+	@Override
+	public synchronized long size() throws IOException {
+		this.requireOpen();
+		return data.limit();
+	}
+
+	@Override
+	public SeekableByteChannel truncate(long size) throws IOException {
+		throw new NonWritableChannelException();
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return this.open;
+	}
+
+	@Override
+	public synchronized void close() {
+		this.open = false;
+	}
+
+}
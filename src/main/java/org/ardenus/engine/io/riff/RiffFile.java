@@ -83,6 +83,11 @@ public class RiffFile implements Closeable {
 				throw new RiffException("chunk larger than remaining file");
 			}
 			chunkHeaders.put(header.id, header);
+
+			/* chunks with an odd size are followed by a pad byte */
+			if ((header.size & 1) != 0 && in.ptr() < size) {
+				in.skip(1);
+			}
 		}
 	}
 
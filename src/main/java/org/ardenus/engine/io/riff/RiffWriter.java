@@ -0,0 +1,314 @@
+package org.ardenus.engine.io.riff;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Writes a file in the {@code RIFF} container format.
+ * <p>
+ * Chunks are streamed straight to a {@link FileChannel}, so a file of any
+ * length can be written without holding it in memory. Headers are written
+ * ahead of their data with a placeholder size, and the real sizes are written
+ * over the placeholders once known. Each chunk header goes out in the same
+ * gathering write as the first data of its chunk, so opening a chunk does not
+ * cost a write of its own.
+ * <p>
+ * Writing to a file is blocking I/O, and should not be done on the audio
+ * thread.
+ *
+ * @see RiffFile
+ */
+public class RiffWriter implements Closeable {
+
+	private static final int HEADER_LEN = 8;
+	private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+	private final File file;
+	private final FileChannel channel;
+	private final ByteBuffer header;
+	private final ByteBuffer sizeBuf;
+	private final ByteBuffer padBuf;
+	private final ByteBuffer[] single;
+
+	private boolean headerPending;
+	private long chunkPtr;
+	private long chunkSize;
+	private boolean chunkOpen;
+	private boolean closed;
+
+	/**
+	 * Creates a {@code RIFF} container, replacing the file if it already
+	 * exists.
+	 *
+	 * @param format
+	 *            the container format, must be four bytes long.
+	 * @param file
+	 *            the {@code RIFF} file.
+	 * @throws NullPointerException
+	 *             if {@code format} or {@code file} are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code format} is not four bytes long.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public RiffWriter(byte[] format, File file) throws IOException {
+		Objects.requireNonNull(format, "format");
+		if (format.length != RiffFile.FORMAT_LEN) {
+			throw new IllegalArgumentException("format must be "
+					+ RiffFile.FORMAT_LEN + " bytes");
+		}
+		this.file = Objects.requireNonNull(file, "file");
+		this.channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		this.header = ByteBuffer.allocate(HEADER_LEN + RiffFile.FORMAT_LEN)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		this.sizeBuf = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		this.padBuf = ByteBuffer.allocate(1);
+		this.single = new ByteBuffer[1];
+
+		/* the size of the container is written on close */
+		header.put(RiffFile.SIGNATURE).putInt(0).put(format).flip();
+		this.writeFully(header);
+	}
+
+	/**
+	 * Creates a {@code RIFF} container, replacing the file if it already
+	 * exists.
+	 *
+	 * @param format
+	 *            the container format, must be four characters long.
+	 * @param file
+	 *            the {@code RIFF} file.
+	 * @throws NullPointerException
+	 *             if {@code format} or {@code file} are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code format} is not four characters long.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public RiffWriter(String format, File file) throws IOException {
+		this(format.getBytes(StandardCharsets.US_ASCII), file);
+	}
+
+	/**
+	 * @return the file of this {@code RIFF} container.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	private void requireOpen() throws RiffException {
+		if (closed == true) {
+			throw new RiffException("closed container");
+		}
+	}
+
+	private void writeFully(ByteBuffer... srcs) throws IOException {
+		long remaining = 0;
+		for (ByteBuffer src : srcs) {
+			remaining += src.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= channel.write(srcs);
+		}
+	}
+
+	/**
+	 * Begins a new chunk. The chunk is ended automatically when the next
+	 * chunk begins, or when this container is closed.
+	 *
+	 * @param id
+	 *            the chunk ID, must be four characters long.
+	 * @throws NullPointerException
+	 *             if {@code id} is {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code id} is not four characters long.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void beginChunk(String id) throws IOException {
+		Objects.requireNonNull(id, "id");
+		byte[] idBytes = id.getBytes(StandardCharsets.US_ASCII);
+		if (idBytes.length != 4) {
+			throw new IllegalArgumentException("id must be 4 characters");
+		}
+		this.requireOpen();
+		this.endChunk();
+
+		/*
+		 * The header is not written here. It is held until the first write
+		 * to this chunk, so both go out in one gathering write.
+		 */
+		header.clear();
+		header.put(idBytes).putInt(0).flip();
+		this.headerPending = true;
+		this.chunkPtr = channel.position();
+		this.chunkSize = 0;
+		this.chunkOpen = true;
+	}
+
+	/**
+	 * Writes data to the current chunk with a single gathering write. The
+	 * buffers are written from their positions to their limits, and their
+	 * positions are advanced.
+	 *
+	 * @param srcs
+	 *            the data to write.
+	 * @throws NullPointerException
+	 *             if {@code srcs} is {@code null}.
+	 * @throws IOException
+	 *             if no chunk has begun or another I/O error occurs.
+	 */
+	public void write(ByteBuffer... srcs) throws IOException {
+		Objects.requireNonNull(srcs, "srcs");
+		this.requireOpen();
+		if (chunkOpen == false) {
+			throw new RiffException("no chunk begun");
+		}
+
+		long len = 0;
+		for (ByteBuffer src : srcs) {
+			len += src.remaining();
+		}
+		if (chunkSize + len > MAX_SIZE) {
+			throw new RiffException("chunk larger than 4GB");
+		}
+
+		if (headerPending == true) {
+			ByteBuffer[] gather = new ByteBuffer[srcs.length + 1];
+			gather[0] = header;
+			System.arraycopy(srcs, 0, gather, 1, srcs.length);
+			this.writeFully(gather);
+			this.headerPending = false;
+		} else {
+			this.writeFully(srcs);
+		}
+		this.chunkSize += len;
+	}
+
+	/**
+	 * Writes data to the current chunk.
+	 *
+	 * @param src
+	 *            the data to write, from its position to its limit.
+	 * @throws NullPointerException
+	 *             if {@code src} is {@code null}.
+	 * @throws IOException
+	 *             if no chunk has begun or another I/O error occurs.
+	 */
+	public void write(ByteBuffer src) throws IOException {
+		single[0] = Objects.requireNonNull(src, "src");
+		try {
+			this.write(single);
+		} finally {
+			single[0] = null;
+		}
+	}
+
+	/**
+	 * Writes data to the current chunk.
+	 *
+	 * @param b
+	 *            the data to write.
+	 * @param off
+	 *            the start offset in {@code b}.
+	 * @param len
+	 *            the amount of bytes to write.
+	 * @throws NullPointerException
+	 *             if {@code b} is {@code null}.
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code off} or {@code len} are out of bounds.
+	 * @throws IOException
+	 *             if no chunk has begun or another I/O error occurs.
+	 */
+	public void write(byte[] b, int off, int len) throws IOException {
+		this.write(ByteBuffer.wrap(b, off, len));
+	}
+
+	/**
+	 * Writes an entire chunk at once.
+	 *
+	 * @param id
+	 *            the chunk ID, must be four characters long.
+	 * @param data
+	 *            the chunk data, from its position to its limit.
+	 * @throws NullPointerException
+	 *             if {@code id} or {@code data} are {@code null}.
+	 * @throws IllegalArgumentException
+	 *             if {@code id} is not four characters long.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void writeChunk(String id, ByteBuffer data) throws IOException {
+		Objects.requireNonNull(data, "data");
+		this.beginChunk(id);
+		this.write(data);
+		this.endChunk();
+	}
+
+	private void writeSize(long size, long ptr) throws IOException {
+		sizeBuf.clear();
+		sizeBuf.putInt((int) size).flip();
+		while (sizeBuf.hasRemaining()) {
+			ptr += channel.write(sizeBuf, ptr);
+		}
+	}
+
+	/**
+	 * Ends the current chunk, if any. Its size is written to its header, and
+	 * a pad byte is written if its size is odd (as required by the format).
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void endChunk() throws IOException {
+		this.requireOpen();
+		if (chunkOpen == false) {
+			return;
+		}
+		if (headerPending == true) {
+			this.writeFully(header); /* empty chunk */
+			this.headerPending = false;
+		}
+
+		this.writeSize(chunkSize, chunkPtr + 4);
+		if ((chunkSize & 1) != 0) {
+			padBuf.clear();
+			this.writeFully(padBuf);
+		}
+		this.chunkOpen = false;
+	}
+
+	/**
+	 * Ends the current chunk, writes the size of the container, and closes the
+	 * file. A closed container cannot be written to and cannot be reopened.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed == true) {
+			return;
+		}
+
+		try {
+			this.endChunk();
+			long size = channel.position() - HEADER_LEN;
+			if (size > MAX_SIZE) {
+				throw new RiffException("container larger than 4GB");
+			}
+			this.writeSize(size, 4);
+		} finally {
+			this.closed = true;
+			channel.close();
+		}
+	}
+
+}
@@ -1,5 +1,8 @@
 package org.ardenus.engine.state;
 
+import org.ardenus.engine.graphics.draw.CommandBuffer;
+import org.ardenus.engine.graphics.draw.DrawList;
+
 public abstract class Entity {
 
 	public abstract void setup(GameState state) throws Exception;
@@ -14,4 +17,27 @@ public abstract class Entity {
 		/* optional implement */
 	}
 
+	/**
+	 * Records the draw commands of this entity, which are sorted along with
+	 * those of every other entity before being executed. This is called
+	 * before {@link #render(GameState)}.
+	 * <p>
+	 * When a state has many entities, they are recorded in parallel. As
+	 * such, this method must not make any OpenGL calls, nor change anything
+	 * shared with other entities. The drawing itself is left to the recorded
+	 * commands.
+	 * 
+	 * @param state
+	 *            the state being rendered.
+	 * @param buffer
+	 *            the buffer to record into.
+	 * @throws Exception
+	 *             if an error occurs.
+	 * @see DrawList
+	 */
+	public void record(GameState state, CommandBuffer buffer)
+			throws Exception {
+		/* optional implement */
+	}
+
 }
@@ -1,11 +1,14 @@
 package org.ardenus.engine.state;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
 import org.ardenus.engine.Ardenus;
 import org.ardenus.engine.Game;
+import org.ardenus.engine.graphics.draw.DrawList;
 
 import com.whirvex.event.EventListener;
 
@@ -17,6 +20,8 @@ public abstract class GameState implements EventListener {
 	public final String id;
 	public final Game game;
 	private final Set<Entity> entities;
+	private final List<Entity> recorded;
+	private final DrawList drawList;
 	private boolean initialized;
 
 	private boolean entered;
@@ -33,6 +38,8 @@ public abstract class GameState implements EventListener {
 		this.id = Objects.requireNonNull(id, "id");
 		this.game = Objects.requireNonNull(game, "game");
 		this.entities = new HashSet<>();
+		this.recorded = new ArrayList<>();
+		this.drawList = new DrawList();
 	}
 
 	/**
@@ -160,6 +167,10 @@ public abstract class GameState implements EventListener {
 
 	/**
 	 * Renders the game state.
+	 * <p>
+	 * The draw commands of every entity are recorded first (in parallel, when
+	 * there are enough entities), then sorted by their keys and executed.
+	 * Only then is each entity rendered, followed by the state itself.
 	 * 
 	 * @throws IllegalStateException
 	 *             if the state is not currently entered.
@@ -170,6 +181,22 @@ public abstract class GameState implements EventListener {
 		if (!entered) {
 			throw new IllegalStateException("not entered");
 		}
+
+		/*
+		 * The set of entities has no order, so it is copied into a list that
+		 * can be split into bands. The list is kept to avoid reallocating it
+		 * every frame.
+		 */
+		drawList.clear();
+		recorded.addAll(entities);
+		try {
+			drawList.record(recorded,
+					(entity, buffer) -> entity.record(this, buffer));
+		} finally {
+			recorded.clear();
+		}
+		drawList.submit();
+
 		for (Entity entity : entities) {
 			entity.render(this);
 		}
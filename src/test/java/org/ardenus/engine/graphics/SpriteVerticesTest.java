@@ -0,0 +1,183 @@
+package org.ardenus.engine.graphics;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class SpriteVerticesTest {
+
+	private static final float DELTA = 0.0F;
+
+	/**
+	 * Checks a single vertex, where {@code index} is the index of the vertex
+	 * in the buffer rather than its byte offset.
+	 */
+	private static void checkVertex(ByteBuffer data, int index, float x,
+			float y, float u, float v, int color) {
+		int offset = index * SpriteVertices.VERTEX_BYTES;
+		assertEquals(x, data.getFloat(offset), DELTA);
+		assertEquals(y, data.getFloat(offset + 4), DELTA);
+		assertEquals(u, data.getFloat(offset + SpriteVertices.UV_OFFSET),
+				DELTA);
+		assertEquals(v, data.getFloat(offset + SpriteVertices.UV_OFFSET + 4),
+				DELTA);
+		assertEquals(color,
+				data.getInt(offset + SpriteVertices.COLOR_OFFSET));
+	}
+
+	@Test
+	public void quadLayout() {
+		SpriteVertices vertices = new SpriteVertices(4);
+		int color = SpriteVertices.packColor(1.0F, 0.5F, 0.0F, 1.0F);
+		vertices.put(7, 10.0F, 20.0F, 30.0F, 40.0F, 0.25F, 0.5F, 0.75F, 1.0F,
+				color);
+
+		assertEquals(1, vertices.getQuadCount());
+		assertEquals(7, vertices.getTexture());
+
+		ByteBuffer data = vertices.getData();
+		assertEquals(SpriteVertices.QUAD_BYTES, data.remaining());
+
+		/* top left, bottom left, bottom right, top right */
+		checkVertex(data, 0, 10.0F, 20.0F, 0.25F, 1.0F, color);
+		checkVertex(data, 1, 10.0F, 60.0F, 0.25F, 0.5F, color);
+		checkVertex(data, 2, 40.0F, 60.0F, 0.75F, 0.5F, color);
+		checkVertex(data, 3, 40.0F, 20.0F, 0.75F, 1.0F, color);
+	}
+
+	@Test
+	public void quadsFollowEachOther() {
+		SpriteVertices vertices = new SpriteVertices(4);
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+		vertices.put(1, 5.0F, 6.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+
+		ByteBuffer data = vertices.getData();
+		assertEquals(SpriteVertices.QUAD_BYTES * 2, data.remaining());
+		checkVertex(data, SpriteVertices.QUAD_VERTICES, 5.0F, 6.0F, 0.0F,
+				1.0F, SpriteVertices.WHITE);
+	}
+
+	@Test
+	public void colorBytesInRGBAOrder() {
+		SpriteVertices vertices = new SpriteVertices(1);
+		int color = SpriteVertices.packColor(1.0F, 0.0F, 0.5F, 0.0F);
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				color);
+
+		ByteBuffer data = vertices.getData();
+		int offset = SpriteVertices.COLOR_OFFSET;
+		assertEquals(0xFF, data.get(offset) & 0xFF);
+		assertEquals(0x00, data.get(offset + 1) & 0xFF);
+		assertEquals(0x80, data.get(offset + 2) & 0xFF);
+		assertEquals(0x00, data.get(offset + 3) & 0xFF);
+	}
+
+	@Test
+	public void acceptsUntilFull() {
+		SpriteVertices vertices = new SpriteVertices(2);
+		assertTrue(vertices.accepts(1));
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+		assertTrue(vertices.accepts(1));
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+
+		assertTrue(vertices.isFull());
+		assertFalse(vertices.accepts(1));
+		assertFalse(vertices.accepts(2));
+
+		vertices.clear();
+		assertTrue(vertices.isEmpty());
+		assertTrue(vertices.accepts(2));
+	}
+
+	@Test
+	public void acceptsSameTextureOnly() {
+		SpriteVertices vertices = new SpriteVertices(4);
+		assertTrue(vertices.accepts(1));
+		assertTrue(vertices.accepts(2));
+
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+		assertTrue(vertices.accepts(1));
+		assertFalse(vertices.accepts(2));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void putWhenFull() {
+		SpriteVertices vertices = new SpriteVertices(1);
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void putOtherTexture() {
+		SpriteVertices vertices = new SpriteVertices(2);
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+		vertices.put(2, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+	}
+
+	@Test
+	public void resetOntoSlice() {
+		int offset = SpriteVertices.QUAD_BYTES;
+		ByteBuffer parent = ByteBuffer.allocate(SpriteVertices.QUAD_BYTES * 4);
+		parent.position(offset);
+		ByteBuffer slice = parent.slice();
+
+		SpriteVertices vertices = new SpriteVertices(1);
+		vertices.put(1, 0.0F, 0.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+		vertices.reset(slice);
+
+		/* the old quad is discarded, and the capacity is of the slice */
+		assertTrue(vertices.isEmpty());
+		assertEquals(3, vertices.getCapacity());
+		assertSame(slice, vertices.getTarget());
+		assertEquals(ByteOrder.nativeOrder(), slice.order());
+
+		vertices.put(2, 3.0F, 4.0F, 1.0F, 1.0F, 0.0F, 0.0F, 1.0F, 1.0F,
+				SpriteVertices.WHITE);
+
+		/* written at the start of the slice, not the parent */
+		parent.order(ByteOrder.nativeOrder());
+		assertEquals(0.0F, parent.getFloat(0), DELTA);
+		assertEquals(3.0F, parent.getFloat(offset), DELTA);
+		assertEquals(4.0F, parent.getFloat(offset + 4), DELTA);
+		checkVertex(vertices.getData(), 0, 3.0F, 4.0F, 0.0F, 1.0F,
+				SpriteVertices.WHITE);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void resetNull() {
+		new SpriteVertices(1).reset(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroCapacity() {
+		new SpriteVertices(0);
+	}
+
+	@Test
+	public void genIndices() {
+		int[] indices = SpriteVertices.genIndices(2);
+		assertArrayEquals(new int[] {
+				0, 1, 2, 2, 3, 0, 4, 5, 6, 6, 7, 4
+		}, indices);
+		assertEquals(0, SpriteVertices.genIndices(0).length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void genIndicesNegative() {
+		SpriteVertices.genIndices(-1);
+	}
+
+}
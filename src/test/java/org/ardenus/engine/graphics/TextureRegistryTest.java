@@ -0,0 +1,227 @@
+package org.ardenus.engine.graphics;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TextureRegistryTest {
+
+	/**
+	 * A texture with no graphics context behind it, whose size is set by the
+	 * path it was loaded from.
+	 */
+	private static class FakeTexture {
+
+		private final String path;
+		private final long bytes;
+
+		private FakeTexture(String path, long bytes) {
+			this.path = path;
+			this.bytes = bytes;
+		}
+
+	}
+
+	private static class FakeLoader
+			implements TextureRegistry.Loader<FakeTexture> {
+
+		private final List<String> loaded = new ArrayList<>();
+		private final List<String> unloaded = new ArrayList<>();
+
+		@Override
+		public FakeTexture load(String path) throws IOException {
+			if (path.startsWith("missing")) {
+				throw new IOException(path + " not found");
+			}
+			loaded.add(path);
+			return new FakeTexture(path, 100L);
+		}
+
+		@Override
+		public long sizeOf(FakeTexture texture) {
+			return texture.bytes;
+		}
+
+		@Override
+		public void unload(FakeTexture texture) {
+			unloaded.add(texture.path);
+		}
+
+	}
+
+	private FakeLoader loader;
+	private TextureRegistry<FakeTexture> registry;
+
+	@Before
+	public void setup() {
+		this.loader = new FakeLoader();
+		this.registry = new TextureRegistry<>(loader, 300L);
+	}
+
+	@Test
+	public void repeatedAcquireLoadsOnce() throws IOException {
+		FakeTexture first = registry.acquire("a.png");
+		FakeTexture second = registry.acquire("a.png");
+
+		assertSame(first, second);
+		assertEquals(1, loader.loaded.size());
+		assertEquals(1L, registry.getStats().misses);
+		assertEquals(1L, registry.getStats().hits);
+		assertEquals(100L, registry.getLoadedBytes());
+	}
+
+	@Test
+	public void refCounts() throws IOException {
+		assertEquals(0, registry.getRefCount("a.png"));
+		registry.acquire("a.png");
+		registry.acquire("a.png");
+		assertEquals(2, registry.getRefCount("a.png"));
+
+		registry.release("a.png");
+		assertEquals(1, registry.getRefCount("a.png"));
+		registry.release("a.png");
+		assertEquals(0, registry.getRefCount("a.png"));
+
+		/* unused, but still within budget */
+		assertTrue(registry.isLoaded("a.png"));
+		assertTrue(loader.unloaded.isEmpty());
+	}
+
+	@Test
+	public void leastRecentlyUsedEvictedFirst() throws IOException {
+		registry.acquire("a.png");
+		registry.acquire("b.png");
+		registry.acquire("c.png");
+		registry.release("b.png");
+		registry.release("a.png");
+		registry.release("c.png");
+
+		/* b was released first, so it is the least recently used */
+		registry.acquire("d.png");
+		assertEquals(1, loader.unloaded.size());
+		assertEquals("b.png", loader.unloaded.get(0));
+		assertFalse(registry.isLoaded("b.png"));
+
+		registry.acquire("e.png");
+		assertEquals("a.png", loader.unloaded.get(1));
+		assertEquals(2L, registry.getStats().evictions);
+		assertEquals(300L, registry.getLoadedBytes());
+	}
+
+	@Test
+	public void acquireCountsAsUse() throws IOException {
+		registry.acquire("a.png");
+		registry.acquire("b.png");
+		registry.acquire("c.png");
+		registry.release("a.png");
+		registry.release("b.png");
+		registry.release("c.png");
+
+		/* a is now the most recently used */
+		registry.acquire("a.png");
+		registry.release("a.png");
+
+		registry.acquire("d.png");
+		assertEquals("b.png", loader.unloaded.get(0));
+		assertTrue(registry.isLoaded("a.png"));
+	}
+
+	@Test
+	public void referencedNeverEvicted() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			registry.acquire(i + ".png");
+		}
+
+		/* over budget, but every texture is in use */
+		assertTrue(loader.unloaded.isEmpty());
+		assertEquals(500L, registry.getLoadedBytes());
+		assertEquals(0, registry.trim());
+
+		TextureRegistry.Stats stats = registry.getStats();
+		assertEquals(5, stats.textureCount);
+		assertEquals(5, stats.referencedCount);
+
+		/* releasing one is enough to evict it, and only it */
+		registry.release("3.png");
+		assertEquals(1, loader.unloaded.size());
+		assertEquals("3.png", loader.unloaded.get(0));
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i != 3, registry.isLoaded(i + ".png"));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void releaseNotAcquired() {
+		registry.release("a.png");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void releaseTooManyTimes() throws IOException {
+		registry.acquire("a.png");
+		registry.release("a.png");
+		registry.release("a.png");
+	}
+
+	@Test
+	public void failedLoadNotRegistered() {
+		try {
+			registry.acquire("missing.png");
+			fail("expected IOException");
+		} catch (IOException e) {
+			/* expected */
+		}
+		assertFalse(registry.isLoaded("missing.png"));
+		assertEquals(0L, registry.getLoadedBytes());
+	}
+
+	@Test
+	public void clearUnloadsEverything() throws IOException {
+		registry.acquire("a.png");
+		registry.acquire("b.png");
+		registry.release("b.png");
+
+		assertEquals(1, registry.clear());
+		assertEquals(2, loader.unloaded.size());
+		assertEquals(0L, registry.getLoadedBytes());
+		assertFalse(registry.isLoaded("a.png"));
+	}
+
+	@Test
+	public void estimateBytes() {
+		assertEquals(64L * 32 * 4,
+				TextureRegistry.estimateBytes(64, 32, 4, false));
+		assertEquals(0L, TextureRegistry.estimateBytes(0, 32, 4, false));
+	}
+
+	@Test
+	public void estimateBytesMipmapped() {
+		/* 4x4 + 2x2 + 1x1 */
+		assertEquals((16L + 4 + 1) * 4,
+				TextureRegistry.estimateBytes(4, 4, 4, true));
+
+		/* 8x2 + 4x1 + 2x1 + 1x1, the shorter side stops at one */
+		assertEquals(16L + 4 + 2 + 1,
+				TextureRegistry.estimateBytes(8, 2, 1, true));
+
+		/* a full chain adds up to about a third more */
+		long base = TextureRegistry.estimateBytes(1024, 1024, 4, false);
+		long mipmapped = TextureRegistry.estimateBytes(1024, 1024, 4, true);
+		assertEquals(base * 4 / 3, mipmapped, 4.0D);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void estimateBytesNegative() {
+		TextureRegistry.estimateBytes(-1, 1, 4, false);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeBudget() {
+		new TextureRegistry<>(loader, -1L);
+	}
+
+}
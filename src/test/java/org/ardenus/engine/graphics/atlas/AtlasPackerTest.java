@@ -0,0 +1,192 @@
+package org.ardenus.engine.graphics.atlas;
+
+import static org.junit.Assert.*;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class AtlasPackerTest {
+
+	private static BufferedImage solid(int width, int height, int argb) {
+		BufferedImage img =
+				new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				img.setRGB(x, y, argb);
+			}
+		}
+		return img;
+	}
+
+	private static List<AtlasRegion> regions(List<AtlasPage> pages) {
+		List<AtlasRegion> regions = new ArrayList<>();
+		for (AtlasPage page : pages) {
+			regions.addAll(page.getRegions());
+		}
+		return regions;
+	}
+
+	/**
+	 * Packs images of random sizes, and checks that no two regions in the
+	 * same page (grown by the padding on their right and bottom) overlap.
+	 */
+	private static void checkNoOverlaps(int padding) {
+		AtlasPacker packer = new AtlasPacker(128, 128).setPadding(padding);
+		Random random = new Random(0x5EED);
+		for (int i = 0; i < 100; i++) {
+			packer.add("img" + i, solid(1 + random.nextInt(40),
+					1 + random.nextInt(40), 0xFF000000 | i));
+		}
+
+		List<AtlasPage> pages = packer.pack();
+		assertTrue(pages.size() > 1); /* far too much for a single page */
+		assertEquals(100, regions(pages).size());
+
+		for (AtlasPage page : pages) {
+			assertTrue(page.width <= 128 && page.height <= 128);
+			List<AtlasRegion> regions = new ArrayList<>(page.getRegions());
+			for (int i = 0; i < regions.size(); i++) {
+				AtlasRegion a = regions.get(i);
+				assertTrue(a.x >= 0 && a.y >= 0);
+				assertTrue(a.x + a.width <= page.width);
+				assertTrue(a.y + a.height <= page.height);
+
+				Rectangle padded = new Rectangle(a.x, a.y, a.width + padding,
+						a.height + padding);
+				for (int j = i + 1; j < regions.size(); j++) {
+					AtlasRegion b = regions.get(j);
+					Rectangle other = new Rectangle(b.x, b.y, b.width, b.height);
+					assertFalse(a.name + " overlaps " + b.name,
+							padded.intersects(other));
+					other.setSize(b.width + padding, b.height + padding);
+					assertFalse(b.name + " overlaps " + a.name, other
+							.intersects(new Rectangle(a.x, a.y, a.width,
+									a.height)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void regionsDoNotOverlap() {
+		checkNoOverlaps(0);
+	}
+
+	@Test
+	public void regionsArePadded() {
+		checkNoOverlaps(1);
+		checkNoOverlaps(3);
+	}
+
+	@Test
+	public void pixelsAreCopied() {
+		AtlasPacker packer = new AtlasPacker(64, 64);
+		packer.add("red", solid(8, 4, 0xFFFF0000));
+		packer.add("blue", solid(3, 9, 0xFF0000FF));
+
+		List<AtlasPage> pages = packer.pack();
+		assertEquals(1, pages.size());
+		AtlasPage page = pages.get(0);
+
+		AtlasRegion red = page.getRegion("red");
+		AtlasRegion blue = page.getRegion("blue");
+		assertEquals(0xFFFF0000, page.image.getRGB(red.x, red.y));
+		assertEquals(0xFFFF0000, page.image.getRGB(red.x + red.width - 1,
+				red.y + red.height - 1));
+		assertEquals(0xFF0000FF, page.image.getRGB(blue.x, blue.y));
+		assertEquals(0xFF0000FF, page.image.getRGB(blue.x + blue.width - 1,
+				blue.y + blue.height - 1));
+		assertNull(page.getRegion("green"));
+	}
+
+	@Test
+	public void pageIsOnlyAsLargeAsNeeded() {
+		AtlasPacker packer = new AtlasPacker(1024, 1024).setPadding(2);
+		packer.add("img", solid(10, 20, 0xFFFFFFFF));
+
+		AtlasPage page = packer.pack().get(0);
+		assertEquals(10, page.width);
+		assertEquals(20, page.height);
+	}
+
+	@Test
+	public void trimmedRegionHasOffsets() {
+		BufferedImage img = new BufferedImage(10, 12,
+				BufferedImage.TYPE_INT_ARGB);
+		for (int y = 2; y <= 6; y++) {
+			for (int x = 3; x <= 5; x++) {
+				img.setRGB(x, y, 0xFF00FF00);
+			}
+		}
+
+		AtlasPacker packer = new AtlasPacker(64, 64).setTrimming(true);
+		packer.add("img", img);
+		AtlasRegion region = packer.pack().get(0).getRegion("img");
+
+		assertEquals(3, region.width);
+		assertEquals(5, region.height);
+		assertEquals(3, region.offsetX);
+		assertEquals(2, region.offsetY);
+		assertEquals(10, region.originalWidth);
+		assertEquals(12, region.originalHeight);
+		assertTrue(region.isTrimmed());
+	}
+
+	@Test
+	public void untrimmedRegionHasNoOffsets() {
+		BufferedImage img = new BufferedImage(10, 12,
+				BufferedImage.TYPE_INT_ARGB);
+		img.setRGB(4, 4, 0xFF00FF00);
+
+		AtlasPacker packer = new AtlasPacker(64, 64);
+		packer.add("img", img);
+		AtlasRegion region = packer.pack().get(0).getRegion("img");
+
+		assertEquals(10, region.width);
+		assertEquals(12, region.height);
+		assertEquals(0, region.offsetX);
+		assertEquals(0, region.offsetY);
+		assertFalse(region.isTrimmed());
+	}
+
+	@Test
+	public void transparentImageIsTrimmedToOnePixel() {
+		BufferedImage img = new BufferedImage(7, 7,
+				BufferedImage.TYPE_INT_ARGB);
+		assertEquals(new Rectangle(0, 0, 1, 1),
+				AtlasPacker.findOpaqueBounds(img));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void imageTooLargeForPage() {
+		AtlasPacker packer = new AtlasPacker(32, 32);
+		packer.add("small", solid(8, 8, 0xFFFFFFFF));
+		packer.add("wide", solid(33, 8, 0xFFFFFFFF));
+		packer.pack();
+	}
+
+	@Test
+	public void trimmedImageFitsPage() {
+		/* too large as is, but small enough once trimmed */
+		BufferedImage img = new BufferedImage(64, 64,
+				BufferedImage.TYPE_INT_ARGB);
+		img.setRGB(10, 10, 0xFFFFFFFF);
+
+		AtlasPacker packer = new AtlasPacker(32, 32).setTrimming(true);
+		packer.add("img", img);
+		assertEquals(1, packer.pack().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void duplicateName() {
+		AtlasPacker packer = new AtlasPacker();
+		packer.add("img", solid(1, 1, 0xFFFFFFFF));
+		packer.add("img", solid(1, 1, 0xFFFFFFFF));
+	}
+
+}
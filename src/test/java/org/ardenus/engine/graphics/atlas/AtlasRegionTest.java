@@ -0,0 +1,61 @@
+package org.ardenus.engine.graphics.atlas;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+public class AtlasRegionTest {
+
+	private static final float DELTA = 1e-6F;
+
+	@Test
+	public void coordinatesAreFlipped() {
+		AtlasRegion region = new AtlasRegion("img", 10, 20, 30, 40, 0, 0, 30,
+				40, 100, 200);
+
+		assertEquals(0.1F, region.u0, DELTA);
+		assertEquals(0.4F, region.u1, DELTA);
+
+		/*
+		 * The page is loaded upside down, so the bottom of the region (the
+		 * greater Y-axis position) has the lesser V coordinate.
+		 */
+		assertEquals(1.0F - 60.0F / 200.0F, region.v0, DELTA);
+		assertEquals(1.0F - 20.0F / 200.0F, region.v1, DELTA);
+		assertTrue(region.v0 < region.v1);
+	}
+
+	@Test
+	public void regionCoveringPage() {
+		AtlasRegion region = new AtlasRegion("img", 0, 0, 64, 32, 0, 0, 64,
+				32, 64, 32);
+
+		assertEquals(0.0F, region.u0, DELTA);
+		assertEquals(0.0F, region.v0, DELTA);
+		assertEquals(1.0F, region.u1, DELTA);
+		assertEquals(1.0F, region.v1, DELTA);
+		assertFalse(region.isTrimmed());
+	}
+
+	@Test
+	public void packedCoordinatesMatchPage() {
+		AtlasPacker packer = new AtlasPacker(64, 64).setPadding(0);
+		packer.add("a", new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB));
+		packer.add("b", new BufferedImage(16, 8, BufferedImage.TYPE_INT_ARGB));
+		AtlasPage page = packer.pack().get(0);
+
+		for (AtlasRegion region : page.getRegions()) {
+			assertEquals(region.x / (float) page.width, region.u0, DELTA);
+			assertEquals(1.0F - region.y / (float) page.height, region.v1,
+					DELTA);
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void nullName() {
+		new AtlasRegion(null, 0, 0, 1, 1, 0, 0, 1, 1, 1, 1);
+	}
+
+}
@@ -0,0 +1,144 @@
+package org.ardenus.engine.graphics.draw;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DrawListTest {
+
+	/* enough for the list to split recording across several threads */
+	private static final int SOURCE_COUNT = 10000;
+
+	private DrawList list;
+	private List<Integer> sources;
+	private List<long[]> executed;
+	private DrawCommand command;
+
+	@Before
+	public void setup() {
+		this.list = new DrawList();
+		this.sources = new ArrayList<>();
+		for (int i = 0; i < SOURCE_COUNT; i++) {
+			sources.add(i);
+		}
+		this.executed = new ArrayList<>();
+		this.command = (key, data) -> executed.add(new long[] {
+				key, data
+		});
+	}
+
+	private static long keyOf(int source) {
+		/* few distinct keys, so that most commands share a key */
+		return SortKey.of(source % 3, 0, source % 5, 0);
+	}
+
+	/**
+	 * Checks the commands were executed in order of their keys, with equal
+	 * keys in the order their sources were recorded.
+	 */
+	private void checkExecuted(int count) {
+		assertEquals(count, executed.size());
+		for (int i = 1; i < executed.size(); i++) {
+			long[] prev = executed.get(i - 1);
+			long[] cur = executed.get(i);
+			int order = Long.compareUnsigned(prev[0], cur[0]);
+			assertTrue(order <= 0);
+			if (order == 0) {
+				assertTrue(prev[1] < cur[1]);
+			}
+		}
+	}
+
+	private void recordAndCheck(boolean parallel) throws Exception {
+		list.record(sources, (source, buffer) -> {
+			buffer.add(keyOf(source), command, source);
+		}, parallel);
+		list.submit();
+
+		assertEquals(SOURCE_COUNT, list.size());
+		this.checkExecuted(SOURCE_COUNT);
+		for (int i = 1; i < list.size(); i++) {
+			assertTrue(Long.compareUnsigned(list.getKey(i - 1),
+					list.getKey(i)) <= 0);
+		}
+	}
+
+	@Test
+	public void recordSerial() throws Exception {
+		this.recordAndCheck(false);
+	}
+
+	@Test
+	public void recordParallel() throws Exception {
+		this.recordAndCheck(true);
+	}
+
+	@Test
+	public void buffersMergedInOrder() throws Exception {
+		CommandBuffer first = list.nextBuffer();
+		CommandBuffer second = list.nextBuffer();
+		long key = SortKey.of(1, 1, 1, 1);
+
+		/* recorded out of order, but merged in the order given out */
+		second.add(key, command, 2);
+		second.add(key, command, 3);
+		first.add(key, command, 0);
+		first.add(key, command, 1);
+		first.add(SortKey.of(0, 0, 0, 0), command, -1);
+		list.submit();
+
+		assertEquals(5, executed.size());
+		assertEquals(-1L, executed.get(0)[1]);
+		for (int i = 1; i < 5; i++) {
+			assertEquals(key, executed.get(i)[0]);
+			assertEquals(i - 1, executed.get(i)[1]);
+		}
+	}
+
+	@Test
+	public void clearKeepsNothing() throws Exception {
+		this.recordAndCheck(true);
+		list.clear();
+		assertEquals(0, list.size());
+
+		executed.clear();
+		list.record(sources.subList(0, 10), (source, buffer) -> {
+			buffer.add(keyOf(source), command, source);
+		});
+		list.submit();
+		this.checkExecuted(10);
+	}
+
+	@Test
+	public void sortedAgainAfterMoreCommands() throws Exception {
+		CommandBuffer buffer = list.nextBuffer();
+		buffer.add(SortKey.of(2, 0, 0, 0), command, 0);
+		list.sort();
+		assertEquals(1, list.size());
+
+		buffer.add(SortKey.of(1, 0, 0, 0), command, 1);
+		list.submit();
+		assertEquals(2, list.size());
+		assertEquals(1L, executed.get(0)[1]);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void recorderFailure() throws Exception {
+		list.record(sources, (source, buffer) -> {
+			if (source == SOURCE_COUNT / 2) {
+				throw new IllegalStateException("failed");
+			}
+		}, true);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void keyOutOfBounds() {
+		list.sort();
+		list.getKey(0);
+	}
+
+}
@@ -0,0 +1,151 @@
+package org.ardenus.engine.graphics.draw;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RadixSortTest {
+
+	/**
+	 * Sorts keys along with their original indices, and checks the keys come
+	 * out in unsigned order with every index moved along with its key.
+	 */
+	private static int[] sortAndCheck(long[] keys) {
+		int length = keys.length;
+		long[] sorted = keys.clone();
+		int[] values = new int[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = i;
+		}
+		RadixSort.sort(sorted, values, length, new long[length],
+				new int[length]);
+
+		long[] expected = keys.clone();
+		for (int i = 0; i < length; i++) {
+			/* flipping the top bit makes signed order match unsigned order */
+			expected[i] ^= Long.MIN_VALUE;
+		}
+		Arrays.sort(expected);
+		for (int i = 0; i < length; i++) {
+			expected[i] ^= Long.MIN_VALUE;
+		}
+
+		assertArrayEquals(expected, sorted);
+		for (int i = 0; i < length; i++) {
+			assertEquals(sorted[i], keys[values[i]]);
+		}
+		return values;
+	}
+
+	@Test
+	public void randomKeys() {
+		Random random = new Random(0x5EED);
+		long[] keys = new long[10000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextLong();
+		}
+		sortAndCheck(keys);
+	}
+
+	@Test
+	public void unsignedOrder() {
+		long[] keys = {
+				-1L, 0L, Long.MIN_VALUE, Long.MAX_VALUE, 1L, -2L
+		};
+		sortAndCheck(keys);
+
+		/* keys with the top bit set come last, even though negative */
+		long[] sorted = keys.clone();
+		RadixSort.sort(sorted, new int[6], 6, new long[6], new int[6]);
+		assertEquals(0L, sorted[0]);
+		assertEquals(Long.MAX_VALUE, sorted[2]);
+		assertEquals(Long.MIN_VALUE, sorted[3]);
+		assertEquals(-1L, sorted[5]);
+	}
+
+	@Test
+	public void stableForEqualKeys() {
+		Random random = new Random(0x5EED);
+		long[] keys = new long[5000];
+		for (int i = 0; i < keys.length; i++) {
+			/* few distinct keys, with bits set in every byte */
+			keys[i] = random.nextInt(8) * 0x0101010101010101L;
+		}
+
+		int[] values = sortAndCheck(keys);
+		for (int i = 1; i < values.length; i++) {
+			if (keys[values[i]] == keys[values[i - 1]]) {
+				assertTrue(values[i] > values[i - 1]);
+			}
+		}
+	}
+
+	@Test
+	public void sharedBytesSkipped() {
+		/*
+		 * Every key shares all but its lowest byte, so only one pass is
+		 * made. With an odd number of passes, the result must still end up
+		 * in the arrays given rather than the scratch space.
+		 */
+		Random random = new Random(0x5EED);
+		long[] keys = new long[1000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0xAB12CD34EF560000L | random.nextInt(256);
+		}
+		int[] values = sortAndCheck(keys);
+		for (int i = 1; i < values.length; i++) {
+			if (keys[values[i]] == keys[values[i - 1]]) {
+				assertTrue(values[i] > values[i - 1]);
+			}
+		}
+	}
+
+	@Test
+	public void identicalKeysUnmoved() {
+		long[] keys = new long[100];
+		Arrays.fill(keys, SortKey.of(3, 2, 1, 0));
+		int[] values = sortAndCheck(keys);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(i, values[i]);
+		}
+	}
+
+	@Test
+	public void partialLength() {
+		long[] keys = {
+				5L, 3L, 1L, 9L, 0L
+		};
+		int[] values = {
+				0, 1, 2, 3, 4
+		};
+		RadixSort.sort(keys, values, 3, new long[3], new int[3]);
+		assertArrayEquals(new long[] {
+				1L, 3L, 5L, 9L, 0L
+		}, keys);
+		assertArrayEquals(new int[] {
+				2, 1, 0, 3, 4
+		}, values);
+	}
+
+	@Test
+	public void emptyAndSingle() {
+		RadixSort.sort(new long[0], new int[0], 0, new long[0], new int[0]);
+		sortAndCheck(new long[] {
+				42L
+		});
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void lengthTooLong() {
+		RadixSort.sort(new long[4], new int[4], 4, new long[3], new int[4]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeLength() {
+		RadixSort.sort(new long[4], new int[4], -1, new long[4], new int[4]);
+	}
+
+}
@@ -0,0 +1,95 @@
+package org.ardenus.engine.graphics.draw;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SortKeyTest {
+
+	private static void checkRoundTrip(int layer, int program, int texture,
+			int depth) {
+		long key = SortKey.of(layer, program, texture, depth);
+		assertEquals(layer, SortKey.getLayer(key));
+		assertEquals(program, SortKey.getProgram(key));
+		assertEquals(texture, SortKey.getTexture(key));
+		assertEquals(depth, SortKey.getDepth(key));
+	}
+
+	@Test
+	public void roundTrip() {
+		checkRoundTrip(0, 0, 0, 0);
+		checkRoundTrip(1, 2, 3, 4);
+		checkRoundTrip(SortKey.MAX_LAYER, SortKey.MAX_PROGRAM,
+				SortKey.MAX_TEXTURE, SortKey.MAX_DEPTH);
+		checkRoundTrip(SortKey.MAX_LAYER, 0, SortKey.MAX_TEXTURE, 0);
+		checkRoundTrip(0, SortKey.MAX_PROGRAM, 0, SortKey.MAX_DEPTH);
+	}
+
+	@Test
+	public void fieldsFillKey() {
+		assertEquals(Long.SIZE, SortKey.LAYER_BITS + SortKey.PROGRAM_BITS
+				+ SortKey.TEXTURE_BITS + SortKey.DEPTH_BITS);
+		assertEquals(-1L, SortKey.of(SortKey.MAX_LAYER, SortKey.MAX_PROGRAM,
+				SortKey.MAX_TEXTURE, SortKey.MAX_DEPTH));
+	}
+
+	@Test
+	public void layerSortsFirst() {
+		long low = SortKey.of(0, SortKey.MAX_PROGRAM, SortKey.MAX_TEXTURE,
+				SortKey.MAX_DEPTH);
+		long high = SortKey.of(1, 0, 0, 0);
+		assertTrue(Long.compareUnsigned(low, high) < 0);
+
+		long program = SortKey.of(1, 1, 0, 0);
+		long texture = SortKey.of(1, 0, 1, SortKey.MAX_DEPTH);
+		assertTrue(Long.compareUnsigned(texture, program) < 0);
+	}
+
+	@Test
+	public void quantizeDepth() {
+		assertEquals(0, SortKey.quantizeDepth(0.0F));
+		assertEquals(0, SortKey.quantizeDepth(-1.0F));
+		assertEquals(0, SortKey.quantizeDepth(Float.NaN));
+		assertEquals(SortKey.MAX_DEPTH, SortKey.quantizeDepth(1.0F));
+		assertEquals(SortKey.MAX_DEPTH, SortKey.quantizeDepth(2.0F));
+		assertTrue(SortKey.quantizeDepth(0.25F) < SortKey
+				.quantizeDepth(0.5F));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void layerTooLarge() {
+		SortKey.of(SortKey.MAX_LAYER + 1, 0, 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void programTooLarge() {
+		SortKey.of(0, SortKey.MAX_PROGRAM + 1, 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void textureTooLarge() {
+		SortKey.of(0, 0, SortKey.MAX_TEXTURE + 1, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void depthTooLarge() {
+		SortKey.of(0, 0, 0, SortKey.MAX_DEPTH + 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeField() {
+		SortKey.of(0, -1, 0, 0);
+	}
+
+	@Test
+	public void rangeErrorNamesField() {
+		try {
+			SortKey.of(0, 0, -1, 0);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertEquals("texture must be from 0 to " + SortKey.MAX_TEXTURE,
+					e.getMessage());
+		}
+	}
+
+}